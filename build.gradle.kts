@@ -4,6 +4,7 @@ plugins {
 	java
 	id("org.springframework.boot") version "3.5.0"
 	id("io.spring.dependency-management") version "1.1.7"
+	id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.example"
@@ -109,6 +110,13 @@ tasks.withType<Test> {
 	maxParallelForks = Runtime.getRuntime().availableProcessors() / 2
 }
 
+// Микробенчмарки (src/jmh): ./gradlew jmh, gc-профайлер для аллокаций на операцию
+jmh {
+	jmhVersion.set("1.37")
+	profilers.add("gc")
+	resultFormat.set("JSON")
+}
+
 // Настройки компиляции
 tasks.withType<JavaCompile> {
 	options.encoding = "UTF-8"
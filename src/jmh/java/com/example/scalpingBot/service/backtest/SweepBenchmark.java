@@ -0,0 +1,130 @@
+package com.example.scalpingBot.service.backtest;
+
+import com.example.scalpingBot.config.TechnicalAnalysisConfig;
+import com.example.scalpingBot.config.TradingConfig;
+import com.example.scalpingBot.service.analysis.IndicatorEngine;
+import com.example.scalpingBot.service.market.CandleRingBuffer;
+import com.example.scalpingBot.service.market.CandleSeries;
+import com.example.scalpingBot.service.strategy.ScalpingStrategy;
+import com.example.scalpingBot.utils.FixedPointUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Перебор параметров на 7 сутках минутных свечей (два участка с разрывом)
+ *
+ * prepareDataset - расчет SweepDataset (индикаторы, 24h объем, фильтр рынка);
+ * sweepGrid - прогон сетки из 64 комбинаций по готовому набору;
+ * backtestRun - один полный прогон BacktestEngine с ScalpingStrategy для сравнения
+ * стоимости одной комбинации.
+ *
+ * Запуск: ./gradlew jmh (профайлер gc выводит gc.alloc.rate.norm - байт
+ * на операцию).
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SweepBenchmark {
+
+    private static final String PAIR = "BTCUSDT";
+    private static final long MINUTE = 60_000L;
+    private static final int SEGMENT = 5040;
+
+    private final TradingConfig tradingConfig = new TradingConfig();
+    private final TechnicalAnalysisConfig technicalAnalysisConfig = new TechnicalAnalysisConfig();
+
+    private List<CandleSeries> segments;
+    private BacktestParameters parameters;
+    private SweepGrid grid;
+    private BacktestEngine backtestEngine;
+    private ParameterSweepRunner sweepRunner;
+    private SweepDataset dataset;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(17);
+        CandleRingBuffer first = new CandleRingBuffer(SEGMENT);
+        CandleRingBuffer second = new CandleRingBuffer(SEGMENT);
+        long start = 1_700_000_000_000L - 1_700_000_000_000L % MINUTE;
+        double price = 30000.0;
+        for (int i = 0; i < 2 * SEGMENT; i++) {
+            long openTime = start + i * MINUTE + (i >= SEGMENT ? 24 * 60 * MINUTE : 0);
+            double open = price;
+            price *= 1.0 + random.nextGaussian() * 0.004;
+            double high = Math.max(open, price) * (1.0 + random.nextDouble() * 0.003);
+            double low = Math.min(open, price) * (1.0 - random.nextDouble() * 0.003);
+            double volume = 20_000.0 + random.nextDouble() * 40_000.0;
+            (i < SEGMENT ? first : second).append(openTime, FixedPointUtils.fromDouble(open),
+                    FixedPointUtils.fromDouble(high), FixedPointUtils.fromDouble(low), FixedPointUtils.fromDouble(price),
+                    volume, volume * price, 500);
+        }
+        segments = List.of(first.window(SEGMENT), second.window(SEGMENT));
+
+        parameters = BacktestParameters.builder()
+                .candleInterval("1m")
+                .initialBalance(10_000.0)
+                .positionSizePercent(10.0)
+                .slippageBps(2.0)
+                .feePercent(0.1)
+                .targetProfitPercent(0.5)
+                .stopLossPercent(0.3)
+                .maxPositionTimeMinutes(15)
+                .assumedSpreadPercent(0.02)
+                .maxBookAgeMs(5000)
+                .warmupCandles(50)
+                .build();
+
+        grid = SweepGrid.builder()
+                .targetProfitPercents(new double[]{0.3, 0.5, 0.8, 1.2})
+                .stopLossPercents(new double[]{0.2, 0.4})
+                .rsiOversoldLevels(new double[]{25, 30})
+                .rsiOverboughtLevels(new double[]{70, 75})
+                .minSignalStrengths(new double[]{0.5, 0.75})
+                .build();
+
+        IndicatorEngine indicatorEngine = new IndicatorEngine(technicalAnalysisConfig);
+        backtestEngine = new BacktestEngine(new ScalpingStrategy(tradingConfig, technicalAnalysisConfig),
+                tradingConfig, indicatorEngine, null);
+        sweepRunner = new ParameterSweepRunner(backtestEngine, indicatorEngine, null, tradingConfig);
+        dataset = sweepRunner.prepare(PAIR, segments, parameters);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sweepRunner.shutdown();
+    }
+
+    @Benchmark
+    public SweepDataset prepareDataset() {
+        return sweepRunner.prepare(PAIR, segments, parameters);
+    }
+
+    @Benchmark
+    public List<SweepResult> sweepGrid() {
+        return sweepRunner.run(dataset, grid, parameters);
+    }
+
+    @Benchmark
+    public BacktestResult backtestRun() {
+        return backtestEngine.run(PAIR, segments, null, parameters);
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.scalpingBot.service.exchange;
+
+import com.example.scalpingBot.utils.FixedPointUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор 1000 свечей и стакана на 1000 уровней: прежний путь против BinanceResponseDecoder
+ *
+ * legacy - как было в ExchangeApiService: тело как String, readValue в Object,
+ * свечи через convertBinanceKlineToMap и разбор строк в CandleStore.backfill,
+ * уровни стакана через List и toString в OrderBookService.
+ *
+ * Запуск: ./gradlew jmh (профайлер gc выводит gc.alloc.rate.norm - байт
+ * на операцию).
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodingBenchmark {
+
+    private static final int SIZE = 1000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] klinesJson;
+    private byte[] depthJson;
+
+    @Setup
+    public void setUp() {
+        StringBuilder klines = new StringBuilder("[");
+        for (int i = 0; i < SIZE; i++) {
+            if (i > 0) {
+                klines.append(',');
+            }
+            klines.append('[').append(1700000000000L + i * 60000L)
+                    .append(",\"37012.45000000\",\"37020.10000000\",\"37001.00000000\",\"37015.")
+                    .append(String.format("%08d", i))
+                    .append("\",\"12.34567000\",").append(1700000059999L + i * 60000L)
+                    .append(",\"456789.12345678\",").append(300 + i)
+                    .append(",\"6.10000000\",\"225000.00000000\",\"0\"]");
+        }
+        klinesJson = klines.append(']').toString().getBytes(StandardCharsets.UTF_8);
+
+        StringBuilder depth = new StringBuilder("{\"lastUpdateId\":1027024,\"bids\":[");
+        for (int i = 0; i < SIZE; i++) {
+            depth.append(i > 0 ? "," : "").append("[\"").append(37000 - i).append(".12000000\",\"0.")
+                    .append(String.format("%08d", i + 1)).append("\"]");
+        }
+        depth.append("],\"asks\":[");
+        for (int i = 0; i < SIZE; i++) {
+            depth.append(i > 0 ? "," : "").append("[\"").append(37001 + i).append(".34000000\",\"1.")
+                    .append(String.format("%08d", i + 1)).append("\"]");
+        }
+        depthJson = depth.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public long legacyKlines() throws Exception {
+        List<?> klines = (List<?>) objectMapper.readValue(new String(klinesJson, StandardCharsets.UTF_8), Object.class);
+        long checksum = 0;
+        for (Object raw : klines) {
+            List<?> kline = (List<?>) raw;
+            Map<String, Object> map = new java.util.HashMap<>();
+            map.put("openTime", Long.parseLong(kline.get(0).toString()));
+            map.put("open", kline.get(1).toString());
+            map.put("high", kline.get(2).toString());
+            map.put("low", kline.get(3).toString());
+            map.put("close", kline.get(4).toString());
+            map.put("volume", kline.get(5).toString());
+            map.put("closeTime", Long.parseLong(kline.get(6).toString()));
+            map.put("quoteVolume", kline.get(7).toString());
+            map.put("trades", Integer.parseInt(kline.get(8).toString()));
+
+            checksum += ((Number) map.get("openTime")).longValue()
+                    + FixedPointUtils.parse(map.get("open").toString())
+                    + FixedPointUtils.parse(map.get("high").toString())
+                    + FixedPointUtils.parse(map.get("low").toString())
+                    + FixedPointUtils.parse(map.get("close").toString())
+                    + (long) Double.parseDouble(map.get("volume").toString())
+                    + (long) Double.parseDouble(map.get("quoteVolume").toString())
+                    + ((Number) map.get("trades")).intValue();
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public long decoderKlines() throws Exception {
+        ExchangeResponses.KlineBatch batch = BinanceResponseDecoder.decodeKlines(klinesJson, SIZE);
+        long checksum = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            checksum += batch.openTime(i) + batch.open(i) + batch.high(i) + batch.low(i) + batch.close(i)
+                    + (long) FixedPointUtils.toDouble(batch.volume(i))
+                    + (long) FixedPointUtils.toDouble(batch.quoteVolume(i))
+                    + batch.tradeCount(i);
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public long legacyDepth() throws Exception {
+        Map<?, ?> snapshot = (Map<?, ?>) objectMapper.readValue(new String(depthJson, StandardCharsets.UTF_8), Object.class);
+        return legacyLevels(snapshot.get("bids")) + legacyLevels(snapshot.get("asks"))
+                + ((Number) snapshot.get("lastUpdateId")).longValue();
+    }
+
+    @Benchmark
+    public long decoderDepth() throws Exception {
+        ExchangeResponses.DepthSnapshot snapshot = BinanceResponseDecoder.decodeDepth(depthJson, SIZE);
+        long checksum = snapshot.getLastUpdateId();
+        for (int i = 0; i < snapshot.getBidCount(); i++) {
+            checksum += snapshot.getBidPrices()[i] + snapshot.getBidQuantities()[i];
+        }
+        for (int i = 0; i < snapshot.getAskCount(); i++) {
+            checksum += snapshot.getAskPrices()[i] + snapshot.getAskQuantities()[i];
+        }
+        return checksum;
+    }
+
+    private static long legacyLevels(Object rawLevels) {
+        List<?> levels = (List<?>) rawLevels;
+        long[] prices = new long[levels.size()];
+        long[] quantities = new long[levels.size()];
+        long checksum = 0;
+        int count = 0;
+        for (Object rawLevel : levels) {
+            List<?> level = (List<?>) rawLevel;
+            prices[count] = FixedPointUtils.parse(level.get(0).toString());
+            quantities[count] = FixedPointUtils.parse(level.get(1).toString());
+            checksum += prices[count] + quantities[count];
+            count++;
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.scalpingBot.utils;
+
+import org.apache.commons.codec.binary.Hex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подпись запроса ордера Binance: прежний путь против HmacSigner
+ *
+ * legacy - как было в ExchangeApiService.makeBinanceRequest: сборка строки
+ * через Stream/reduce, новый Mac и ключ на каждую подпись, Hex.encodeHexString,
+ * добавление signature в параметры и повторная сборка строки.
+ *
+ * Запуск: ./gradlew jmh (профайлер gc выводит gc.alloc.rate.norm - байт
+ * на операцию).
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SigningBenchmark {
+
+    private static final String SECRET = "NhqPtmdSJYdKjVHjA7PZj4Mge3R5YNiP1e3UZjInClVN65XAbvqqM6A7H5fATj0j";
+
+    private Map<String, String> params;
+    private HmacSigner signer;
+
+    @Setup
+    public void setUp() {
+        params = new HashMap<>();
+        params.put("symbol", "BTCUSDT");
+        params.put("side", "BUY");
+        params.put("type", "MARKET");
+        params.put("quantity", "0.00125000");
+        params.put("recvWindow", "5000");
+        params.put("timestamp", "1700000000000");
+        signer = HmacSigner.forKey(SECRET);
+    }
+
+    @Benchmark
+    public String legacy() throws Exception {
+        String queryString = legacyQueryString(params);
+
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        String signature = Hex.encodeHexString(mac.doFinal(queryString.getBytes(StandardCharsets.UTF_8)));
+
+        params.put("signature", signature);
+        String signed = legacyQueryString(params);
+        params.remove("signature");
+        return signed;
+    }
+
+    @Benchmark
+    public String signer() {
+        return signer.buildSignedQuery(params, "signature");
+    }
+
+    private static String legacyQueryString(Map<String, String> params) {
+        return params.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(e -> e.getKey() + "=" + e.getValue())
+                .reduce((a, b) -> a + "&" + b)
+                .orElse("");
+    }
+}
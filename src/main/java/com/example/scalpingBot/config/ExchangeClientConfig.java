@@ -0,0 +1,131 @@
+package com.example.scalpingBot.config;
+
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Конфигурация неблокирующих HTTP клиентов для API бирж
+ *
+ * Особенности:
+ * - Reactor Netty: запросы не занимают поток на время ожидания ответа
+ * - Отдельные пулы соединений для торговых запросов (ордера, отмены,
+ *   статусы) и рыночных данных (тикеры, стаканы, свечи), чтобы загрузка
+ *   истории не задерживала ордера
+ * - Keep-alive соединения с фоновым вытеснением простаивающих
+ * - TCP_NODELAY и таймауты соединения и ответа для каждого пула
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Configuration
+public class ExchangeClientConfig {
+
+    // Торговый пул: мало соединений, короткие таймауты
+    @Value("${exchanges.http.trading.max-connections:50}")
+    private int tradingMaxConnections;
+
+    @Value("${exchanges.http.trading.pending-acquire-max-count:500}")
+    private int tradingPendingAcquireMaxCount;
+
+    @Value("${exchanges.http.trading.connect-timeout-ms:2000}")
+    private int tradingConnectTimeoutMs;
+
+    @Value("${exchanges.http.trading.response-timeout-ms:5000}")
+    private long tradingResponseTimeoutMs;
+
+    // Пул рыночных данных: крупные ответы (стаканы, свечи), длиннее таймауты
+    @Value("${exchanges.http.market-data.max-connections:100}")
+    private int marketDataMaxConnections;
+
+    @Value("${exchanges.http.market-data.pending-acquire-max-count:1000}")
+    private int marketDataPendingAcquireMaxCount;
+
+    @Value("${exchanges.http.market-data.connect-timeout-ms:5000}")
+    private int marketDataConnectTimeoutMs;
+
+    @Value("${exchanges.http.market-data.response-timeout-ms:10000}")
+    private long marketDataResponseTimeoutMs;
+
+    // Общие параметры keep-alive
+    @Value("${exchanges.http.pending-acquire-timeout-ms:2000}")
+    private long pendingAcquireTimeoutMs;
+
+    @Value("${exchanges.http.max-idle-time-seconds:50}")
+    private long maxIdleTimeSeconds;
+
+    @Value("${exchanges.http.max-life-time-seconds:600}")
+    private long maxLifeTimeSeconds;
+
+    @Value("${exchanges.http.evict-interval-seconds:30}")
+    private long evictIntervalSeconds;
+
+    @Value("${exchanges.http.max-in-memory-size-kb:4096}")
+    private int maxInMemorySizeKb;
+
+    /**
+     * Клиент для ордеров, отмен и статусов
+     */
+    @Bean
+    public WebClient tradingWebClient() {
+        return buildWebClient("exchange-trading", tradingMaxConnections, tradingPendingAcquireMaxCount,
+                tradingConnectTimeoutMs, tradingResponseTimeoutMs);
+    }
+
+    /**
+     * Клиент для тикеров, стаканов и свечей
+     */
+    @Bean
+    public WebClient marketDataWebClient() {
+        return buildWebClient("exchange-market-data", marketDataMaxConnections, marketDataPendingAcquireMaxCount,
+                marketDataConnectTimeoutMs, marketDataResponseTimeoutMs);
+    }
+
+    /**
+     * Собрать WebClient с собственным пулом соединений
+     */
+    private WebClient buildWebClient(String poolName, int maxConnections, int pendingAcquireMaxCount,
+                                     int connectTimeoutMs, long responseTimeoutMs) {
+        ConnectionProvider provider = ConnectionProvider.builder(poolName)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                // Меньше серверного таймаута простоя, чтобы не получить закрытое соединение
+                .maxIdleTime(Duration.ofSeconds(maxIdleTimeSeconds))
+                .maxLifeTime(Duration.ofSeconds(maxLifeTimeSeconds))
+                .evictInBackground(Duration.ofSeconds(evictIntervalSeconds))
+                .lifo()
+                .metrics(true)
+                .build();
+
+        HttpClient httpClient = HttpClient.create(provider)
+                .keepAlive(true)
+                .compress(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs));
+
+        ExchangeStrategies strategies = ExchangeStrategies.builder()
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxInMemorySizeKb * 1024))
+                .build();
+
+        log.info("Configured {} HTTP pool: maxConnections={}, connectTimeout={}ms, responseTimeout={}ms",
+                poolName, maxConnections, connectTimeoutMs, responseTimeoutMs);
+
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .exchangeStrategies(strategies)
+                .build();
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.scalpingBot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.*;
+
+/**
+ * Конфигурация технического анализа
+ *
+ * Основные параметры:
+ * - Периоды индикаторов RSI, EMA, MACD, ATR, Bollinger Bands
+ * - Уровни перекупленности/перепроданности RSI
+ * - Основной и дополнительный таймфреймы свечей
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Configuration
+@ConfigurationProperties(prefix = "technical-analysis")
+@Validated
+@Data
+public class TechnicalAnalysisConfig {
+
+    /**
+     * Параметры индикаторов
+     */
+    private Indicators indicators = new Indicators();
+
+    /**
+     * Таймфреймы анализа
+     */
+    private Timeframes timeframes = new Timeframes();
+
+    /**
+     * Внутренний класс для параметров индикаторов
+     */
+    @Data
+    @Validated
+    public static class Indicators {
+        private Rsi rsi = new Rsi();
+        private BollingerBands bollingerBands = new BollingerBands();
+        private Ema ema = new Ema();
+        private Macd macd = new Macd();
+        private Atr atr = new Atr();
+    }
+
+    /**
+     * Параметры RSI
+     */
+    @Data
+    @Validated
+    public static class Rsi {
+
+        @Min(value = 2, message = "RSI period must be at least 2")
+        @Max(value = 100, message = "RSI period must not exceed 100")
+        private Integer period = 14;
+
+        @Min(value = 1, message = "RSI oversold level must be between 1 and 50")
+        @Max(value = 50, message = "RSI oversold level must be between 1 and 50")
+        private Integer oversold = 30;
+
+        @Min(value = 50, message = "RSI overbought level must be between 50 and 99")
+        @Max(value = 99, message = "RSI overbought level must be between 50 and 99")
+        private Integer overbought = 70;
+    }
+
+    /**
+     * Параметры Bollinger Bands
+     */
+    @Data
+    @Validated
+    public static class BollingerBands {
+
+        @Min(value = 2, message = "Bollinger Bands period must be at least 2")
+        @Max(value = 200, message = "Bollinger Bands period must not exceed 200")
+        private Integer period = 20;
+
+        @DecimalMin(value = "0.5", message = "Bollinger Bands std dev must be at least 0.5")
+        @DecimalMax(value = "5.0", message = "Bollinger Bands std dev must not exceed 5.0")
+        private Double stdDev = 2.0;
+    }
+
+    /**
+     * Параметры EMA (быстрая и медленная)
+     */
+    @Data
+    @Validated
+    public static class Ema {
+
+        @Min(value = 2, message = "EMA period must be at least 2")
+        private Integer period = 9;
+
+        @Min(value = 2, message = "Slow EMA period must be at least 2")
+        private Integer slowPeriod = 21;
+    }
+
+    /**
+     * Параметры MACD
+     */
+    @Data
+    @Validated
+    public static class Macd {
+
+        @Min(value = 2, message = "MACD fast period must be at least 2")
+        private Integer fastPeriod = 12;
+
+        @Min(value = 2, message = "MACD slow period must be at least 2")
+        private Integer slowPeriod = 26;
+
+        @Min(value = 2, message = "MACD signal period must be at least 2")
+        private Integer signalPeriod = 9;
+    }
+
+    /**
+     * Параметры ATR
+     */
+    @Data
+    @Validated
+    public static class Atr {
+
+        @Min(value = 2, message = "ATR period must be at least 2")
+        @Max(value = 100, message = "ATR period must not exceed 100")
+        private Integer period = 14;
+    }
+
+    /**
+     * Таймфреймы свечей
+     */
+    @Data
+    public static class Timeframes {
+        private String primary = "1m";
+        private String secondary = "5m";
+    }
+}
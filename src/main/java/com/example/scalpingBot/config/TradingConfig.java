@@ -113,6 +113,14 @@ public class TradingConfig {
         @DecimalMin(value = "0.01", message = "Maximum spread must be at least 0.01%")
         @DecimalMax(value = "1.0", message = "Maximum spread must not exceed 1.0%")
         private BigDecimal maxSpreadPercent = new BigDecimal("0.1");
+
+        /**
+         * Минимальная сила сигнала для открытия позиции (0-1)
+         */
+        @NotNull(message = "Minimum signal strength is required")
+        @DecimalMin(value = "0.25", message = "Minimum signal strength must be at least 0.25")
+        @DecimalMax(value = "1.0", message = "Minimum signal strength must not exceed 1.0")
+        private BigDecimal minSignalStrength = new BigDecimal("0.7");
     }
 
     /**
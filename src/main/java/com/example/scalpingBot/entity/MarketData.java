@@ -369,11 +369,18 @@ public class MarketData {
      * Получить силу бычьего сигнала (0-100)
      */
     public BigDecimal getBullishSignalStrength() {
+        return getBullishSignalStrength(new BigDecimal("30"));
+    }
+
+    /**
+     * Получить силу бычьего сигнала (0-100) с заданным уровнем перепроданности RSI
+     */
+    public BigDecimal getBullishSignalStrength(BigDecimal rsiOversold) {
         BigDecimal strength = BigDecimal.ZERO;
         int factors = 0;
 
         // RSI в зоне перепроданности
-        if (rsi != null && rsi.compareTo(new BigDecimal("30")) <= 0) {
+        if (rsi != null && rsi.compareTo(rsiOversold) <= 0) {
             strength = strength.add(new BigDecimal("25"));
         }
         factors++;
@@ -404,11 +411,18 @@ public class MarketData {
      * Получить силу медвежьего сигнала (0-100)
      */
     public BigDecimal getBearishSignalStrength() {
+        return getBearishSignalStrength(new BigDecimal("70"));
+    }
+
+    /**
+     * Получить силу медвежьего сигнала (0-100) с заданным уровнем перекупленности RSI
+     */
+    public BigDecimal getBearishSignalStrength(BigDecimal rsiOverbought) {
         BigDecimal strength = BigDecimal.ZERO;
         int factors = 0;
 
         // RSI в зоне перекупленности
-        if (rsi != null && rsi.compareTo(new BigDecimal("70")) >= 0) {
+        if (rsi != null && rsi.compareTo(rsiOverbought) >= 0) {
             strength = strength.add(new BigDecimal("25"));
         }
         factors++;
@@ -292,6 +292,18 @@ public class Trade {
     @Column(name = "signal_strength", precision = 8, scale = 4)
     private BigDecimal signalStrength;
 
+    /**
+     * Задержка по этапам от сигнала до исполнения в JSON (мкс)
+     */
+    @Column(name = "latency_breakdown", length = 512)
+    private String latencyBreakdown;
+
+    /**
+     * Полная задержка от сигнала до открытия позиции (мкс)
+     */
+    @Column(name = "signal_to_fill_micros")
+    private Long signalToFillMicros;
+
     /**
      * Дополнительные метаданные в JSON формате
      */
@@ -234,6 +234,10 @@ public class ExchangeApiException extends RuntimeException {
                 "Недостаточный баланс кошелька Bybit",
                 true, false, 400, 5
         ),
+        BYBIT_TIMESTAMP_ERROR(
+                "Ошибка временной метки Bybit",
+                true, false, 400, 1
+        ),
 
         // Прочие ошибки
         UNKNOWN_ERROR(
@@ -479,6 +483,7 @@ public class ExchangeApiException extends RuntimeException {
                 return "Проверить корректность торговой пары";
 
             case BINANCE_TIMESTAMP_ERROR:
+            case BYBIT_TIMESTAMP_ERROR:
                 return "Синхронизировать системное время";
 
             default:
@@ -251,6 +251,12 @@ public interface PositionRepository extends JpaRepository<Position, Long> {
     @Query("SELECT p FROM Position p WHERE p.openedAt BETWEEN :start AND :end ORDER BY p.openedAt ASC")
     List<Position> findPositionsOpenedBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 
+    /**
+     * Найти позиции, закрытые после указанного момента (последние первыми)
+     */
+    @Query("SELECT p FROM Position p WHERE p.isActive = false AND p.closedAt >= :since ORDER BY p.closedAt DESC")
+    List<Position> findClosedSince(@Param("since") LocalDateTime since);
+
     /**
      * Получить распределение позиций по типам пар
      */
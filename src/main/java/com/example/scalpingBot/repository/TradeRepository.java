@@ -7,9 +7,11 @@ import com.example.scalpingBot.enums.OrderType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -377,4 +379,16 @@ public interface TradeRepository extends JpaRepository<Trade, Long> {
             "ABS(SUM(CASE WHEN t.realizedPnl < 0 THEN t.realizedPnl ELSE 0 END)) " +
             "FROM Trade t WHERE t.realizedPnl IS NOT NULL")
     Double calculateProfitFactor();
-}
\ No newline at end of file
+
+    // === Задержка исполнения ===
+
+    /**
+     * Сохранить разбивку задержки от сигнала до исполнения
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Trade t SET t.latencyBreakdown = :breakdown, t.signalToFillMicros = :totalMicros " +
+            "WHERE t.id = :tradeId")
+    int updateLatencyBreakdown(@Param("tradeId") Long tradeId, @Param("breakdown") String breakdown,
+                               @Param("totalMicros") Long totalMicros);
+}
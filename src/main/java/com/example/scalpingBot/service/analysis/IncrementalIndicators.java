@@ -0,0 +1,252 @@
+package com.example.scalpingBot.service.analysis;
+
+/**
+ * Потоковый расчет индикаторов по одной торговой паре
+ *
+ * Каждая новая закрытая свеча обновляет все индикаторы за O(1):
+ * - RSI и ATR - сглаживание Уайлдера (первое значение - простое среднее за период)
+ * - EMA - рекурсивная формула, инициализация простым средним за период
+ * - MACD - разность быстрой и медленной EMA, сигнальная линия - EMA от MACD
+ * - Bollinger Bands - скользящие сумма и сумма квадратов по кольцевому окну
+ *
+ * Стоимость обновления не зависит от длины истории. Класс не потокобезопасен,
+ * синхронизация выполняется в IndicatorEngine.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public class IncrementalIndicators {
+
+    private final int rsiPeriod;
+    private final int atrPeriod;
+    private final int bbPeriod;
+    private final double bbStdDev;
+
+    private final Ema emaFast;
+    private final Ema emaSlow;
+    private final Ema macdFast;
+    private final Ema macdSlow;
+    private final Ema macdSignal;
+
+    /**
+     * Количество обработанных свечей
+     */
+    private long count = 0;
+
+    private double prevClose;
+    private double lastClose;
+
+    // RSI (Уайлдер)
+    private double avgGain;
+    private double avgLoss;
+    private int rsiSamples = 0;
+
+    // ATR (Уайлдер)
+    private double atr;
+    private int atrSamples = 0;
+
+    // Bollinger Bands (кольцевое окно цен закрытия)
+    private final double[] bbWindow;
+    private int bbIndex = 0;
+    private int bbSamples = 0;
+    private double bbSum;
+    private double bbSumSquares;
+
+    // MACD
+    private double macdLine;
+
+    public IncrementalIndicators(int rsiPeriod, int emaFastPeriod, int emaSlowPeriod,
+                                 int macdFastPeriod, int macdSlowPeriod, int macdSignalPeriod,
+                                 int atrPeriod, int bbPeriod, double bbStdDev) {
+        this.rsiPeriod = rsiPeriod;
+        this.atrPeriod = atrPeriod;
+        this.bbPeriod = bbPeriod;
+        this.bbStdDev = bbStdDev;
+
+        this.emaFast = new Ema(emaFastPeriod);
+        this.emaSlow = new Ema(emaSlowPeriod);
+        this.macdFast = new Ema(macdFastPeriod);
+        this.macdSlow = new Ema(macdSlowPeriod);
+        this.macdSignal = new Ema(macdSignalPeriod);
+
+        this.bbWindow = new double[bbPeriod];
+    }
+
+    /**
+     * Обработать закрытую свечу
+     *
+     * @param high максимальная цена
+     * @param low минимальная цена
+     * @param close цена закрытия
+     */
+    public void update(double high, double low, double close) {
+        if (count > 0) {
+            updateRsi(close - prevClose);
+            updateAtr(Math.max(high - low, Math.max(Math.abs(high - prevClose), Math.abs(low - prevClose))));
+        }
+
+        emaFast.update(close);
+        emaSlow.update(close);
+        macdFast.update(close);
+        macdSlow.update(close);
+
+        if (macdFast.isReady() && macdSlow.isReady()) {
+            macdLine = macdFast.value - macdSlow.value;
+            macdSignal.update(macdLine);
+        }
+
+        updateBollinger(close);
+
+        prevClose = close;
+        lastClose = close;
+        count++;
+    }
+
+    private void updateRsi(double change) {
+        double gain = change > 0 ? change : 0;
+        double loss = change < 0 ? -change : 0;
+
+        if (rsiSamples < rsiPeriod) {
+            // Накопление простого среднего для первого значения
+            avgGain += gain / rsiPeriod;
+            avgLoss += loss / rsiPeriod;
+            rsiSamples++;
+        } else {
+            avgGain = (avgGain * (rsiPeriod - 1) + gain) / rsiPeriod;
+            avgLoss = (avgLoss * (rsiPeriod - 1) + loss) / rsiPeriod;
+        }
+    }
+
+    private void updateAtr(double trueRange) {
+        if (atrSamples < atrPeriod) {
+            atr += trueRange / atrPeriod;
+            atrSamples++;
+        } else {
+            atr = (atr * (atrPeriod - 1) + trueRange) / atrPeriod;
+        }
+    }
+
+    private void updateBollinger(double close) {
+        if (bbSamples == bbPeriod) {
+            double removed = bbWindow[bbIndex];
+            bbSum -= removed;
+            bbSumSquares -= removed * removed;
+        } else {
+            bbSamples++;
+        }
+
+        bbWindow[bbIndex] = close;
+        bbSum += close;
+        bbSumSquares += close * close;
+        bbIndex = (bbIndex + 1) % bbPeriod;
+
+        // Раз в полный оборот окна пересчитываем суммы, чтобы не копить ошибку округления
+        // (амортизированно O(1) на свечу)
+        if (bbIndex == 0) {
+            bbSum = 0;
+            bbSumSquares = 0;
+            for (double value : bbWindow) {
+                bbSum += value;
+                bbSumSquares += value * value;
+            }
+        }
+    }
+
+    // === Результаты (NaN пока индикатор не накопил достаточно данных) ===
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getLastClose() {
+        return lastClose;
+    }
+
+    public double getRsi() {
+        if (rsiSamples < rsiPeriod) {
+            return Double.NaN;
+        }
+        if (avgLoss == 0) {
+            return avgGain == 0 ? 50.0 : 100.0;
+        }
+        double rs = avgGain / avgLoss;
+        return 100.0 - 100.0 / (1.0 + rs);
+    }
+
+    public double getEmaFast() {
+        return emaFast.isReady() ? emaFast.value : Double.NaN;
+    }
+
+    public double getEmaSlow() {
+        return emaSlow.isReady() ? emaSlow.value : Double.NaN;
+    }
+
+    public double getMacdLine() {
+        return macdFast.isReady() && macdSlow.isReady() ? macdLine : Double.NaN;
+    }
+
+    public double getMacdSignal() {
+        return macdSignal.isReady() ? macdSignal.value : Double.NaN;
+    }
+
+    public double getMacdHistogram() {
+        return macdSignal.isReady() ? macdLine - macdSignal.value : Double.NaN;
+    }
+
+    public double getAtr() {
+        return atrSamples < atrPeriod ? Double.NaN : atr;
+    }
+
+    public double getBollingerMiddle() {
+        return bbSamples < bbPeriod ? Double.NaN : bbSum / bbPeriod;
+    }
+
+    public double getBollingerUpper() {
+        return getBollingerMiddle() + bbStdDev * bollingerStdDev();
+    }
+
+    public double getBollingerLower() {
+        return getBollingerMiddle() - bbStdDev * bollingerStdDev();
+    }
+
+    /**
+     * Стандартное отклонение по окну (как в MathUtils.standardDeviation - выборочное)
+     */
+    private double bollingerStdDev() {
+        if (bbSamples < bbPeriod) {
+            return Double.NaN;
+        }
+        double mean = bbSum / bbPeriod;
+        double variance = (bbSumSquares - bbPeriod * mean * mean) / (bbPeriod - 1);
+        // Погрешность округления может дать небольшое отрицательное значение
+        return variance > 0 ? Math.sqrt(variance) : 0.0;
+    }
+
+    /**
+     * Экспоненциальная скользящая средняя с инициализацией простым средним
+     */
+    private static final class Ema {
+        private final int period;
+        private final double multiplier;
+        private double value;
+        private int samples = 0;
+
+        Ema(int period) {
+            this.period = period;
+            this.multiplier = 2.0 / (period + 1);
+        }
+
+        void update(double price) {
+            if (samples < period) {
+                value += price / period;
+                samples++;
+            } else {
+                value += (price - value) * multiplier;
+            }
+        }
+
+        boolean isReady() {
+            return samples >= period;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.scalpingBot.service.analysis;
+
+import com.example.scalpingBot.config.TechnicalAnalysisConfig;
+import com.example.scalpingBot.entity.MarketData;
+import com.example.scalpingBot.service.market.CandleRingBuffer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Движок технических индикаторов
+ *
+ * Основные функции:
+ * - Потоковое обновление RSI, EMA, MACD, ATR, Bollinger Bands по закрытым свечам
+ * - Начальный прогрев индикаторов из буфера свечей
+ * - Заполнение индикаторов в снимке MarketData
+ *
+ * В отличие от MathUtils.calculate*, которые пересчитывают индикатор по всему
+ * списку цен, здесь каждая свеча обрабатывается за O(1) независимо от длины истории.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IndicatorEngine {
+
+    private final TechnicalAnalysisConfig technicalAnalysisConfig;
+
+    /**
+     * Состояние индикаторов по торговым парам
+     */
+    private final Map<String, IncrementalIndicators> indicators = new ConcurrentHashMap<>();
+
+    /**
+     * Обработать закрытую свечу
+     *
+     * @param tradingPair торговая пара
+     * @param high максимальная цена
+     * @param low минимальная цена
+     * @param close цена закрытия
+     */
+    public void onCandleClosed(String tradingPair, double high, double low, double close) {
+        // compute блокирует ключ: свеча не попадет в состояние, которое прогрев уже заменил
+        indicators.compute(key(tradingPair), (k, state) -> {
+            IncrementalIndicators current = state != null ? state : createState();
+            synchronized (current) {
+                current.update(high, low, close);
+            }
+            return current;
+        });
+    }
+
+    /**
+     * Прогреть индикаторы пары по истории свечей
+     *
+     * Предыдущее состояние пары сбрасывается. Замена выполняется атомарно
+     * относительно onCandleClosed той же пары. Вызывающий должен прогревать
+     * пару до того, как поток начнет писать в буфер (см. MarketDataService),
+     * иначе свеча из буфера будет учтена и прогревом, и onCandleClosed.
+     *
+     * @param tradingPair торговая пара
+     * @param buffer буфер закрытых свечей
+     */
+    public void warmUp(String tradingPair, CandleRingBuffer buffer) {
+        int[] candles = new int[1];
+
+        indicators.compute(key(tradingPair), (k, previous) -> {
+            IncrementalIndicators state = createState();
+            CandleRingBuffer.CandleWindow window = buffer.window(buffer.capacity());
+
+            for (int i = 0; i < window.size(); i++) {
+                state.update(window.high(i), window.low(i), window.close(i));
+            }
+            candles[0] = window.size();
+            return state;
+        });
+
+        log.debug("Warmed up indicators for {} with {} candles", tradingPair, candles[0]);
+    }
+
+    /**
+     * Заполнить индикаторы в снимке рыночных данных
+     *
+     * Индикаторы, которые еще не накопили достаточно свечей, остаются null.
+     *
+     * @param tradingPair торговая пара
+     * @param marketData снимок рыночных данных
+     */
+    public void applyTo(String tradingPair, MarketData marketData) {
+        IncrementalIndicators state = indicators.get(key(tradingPair));
+        if (state == null) {
+            return;
+        }
+
+        synchronized (state) {
+            if (state.getCount() == 0) {
+                return;
+            }
+            applyIndicators(state, marketData);
+        }
+    }
+
+    /**
+     * Заполнить индикаторы в MarketData из состояния индикаторов
+     *
+     * Используется также бэктестом, чтобы стратегия получала те же поля,
+     * что и в живой торговле. Синхронизация - на стороне вызывающего.
+     *
+     * @param state состояние индикаторов
+     * @param marketData снимок рыночных данных
+     */
+    public static void applyIndicators(IncrementalIndicators state, MarketData marketData) {
+        marketData.setRsi(decimal(state.getRsi(), 2));
+        marketData.setEma9(decimal(state.getEmaFast(), 8));
+        marketData.setEma21(decimal(state.getEmaSlow(), 8));
+        marketData.setMacdLine(decimal(state.getMacdLine(), 8));
+        marketData.setMacdSignal(decimal(state.getMacdSignal(), 8));
+        marketData.setMacdHistogram(decimal(state.getMacdHistogram(), 8));
+        marketData.setBbUpper(decimal(state.getBollingerUpper(), 8));
+        marketData.setBbMiddle(decimal(state.getBollingerMiddle(), 8));
+        marketData.setBbLower(decimal(state.getBollingerLower(), 8));
+
+        double atr = state.getAtr();
+        double lastClose = state.getLastClose();
+        marketData.setAtr(decimal(atr, 8));
+        marketData.setAtrPercent(!Double.isNaN(atr) && lastClose > 0 ? decimal(atr / lastClose * 100.0, 4) : null);
+    }
+
+    /**
+     * Количество свечей, обработанных по паре
+     */
+    public long getProcessedCandles(String tradingPair) {
+        IncrementalIndicators state = indicators.get(key(tradingPair));
+        return state != null ? state.getCount() : 0;
+    }
+
+    /**
+     * Сбросить состояние индикаторов пары
+     */
+    public void reset(String tradingPair) {
+        indicators.remove(key(tradingPair));
+    }
+
+    /**
+     * Создать состояние индикаторов с периодами из конфигурации
+     */
+    public IncrementalIndicators createState() {
+        TechnicalAnalysisConfig.Indicators config = technicalAnalysisConfig.getIndicators();
+        return new IncrementalIndicators(
+                config.getRsi().getPeriod(),
+                config.getEma().getPeriod(),
+                config.getEma().getSlowPeriod(),
+                config.getMacd().getFastPeriod(),
+                config.getMacd().getSlowPeriod(),
+                config.getMacd().getSignalPeriod(),
+                config.getAtr().getPeriod(),
+                config.getBollingerBands().getPeriod(),
+                config.getBollingerBands().getStdDev()
+        );
+    }
+
+    private static String key(String tradingPair) {
+        return tradingPair.toUpperCase();
+    }
+
+    private static BigDecimal decimal(double value, int scale) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return null;
+        }
+        return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,471 @@
+package com.example.scalpingBot.service.backtest;
+
+import com.example.scalpingBot.config.TradingConfig;
+import com.example.scalpingBot.entity.MarketData;
+import com.example.scalpingBot.entity.TradingPair;
+import com.example.scalpingBot.enums.OrderSide;
+import com.example.scalpingBot.enums.TradingPairType;
+import com.example.scalpingBot.service.analysis.IncrementalIndicators;
+import com.example.scalpingBot.service.analysis.IndicatorEngine;
+import com.example.scalpingBot.service.history.KlineArchive;
+import com.example.scalpingBot.service.market.CandleSeries;
+import com.example.scalpingBot.service.market.MarketDataService;
+import com.example.scalpingBot.service.strategy.TradingSignal;
+import com.example.scalpingBot.service.strategy.TradingStrategy;
+import com.example.scalpingBot.utils.DateUtils;
+import com.example.scalpingBot.utils.FixedPointUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Событийный движок бэктеста
+ *
+ * Основные функции:
+ * - Воспроизведение исторических свечей (архив KlineArchive или буфер) и снимков стакана
+ * - Генерация сигналов той же реализацией TradingStrategy, что и в живой торговле
+ * - Симуляция исполнения с проскальзыванием и комиссией торговой пары
+ * - Выход по стоп-лоссу, тейк-профиту (scalping.strategy.*) и времени удержания
+ *
+ * События обрабатываются в хронологическом порядке: снимки стакана внутри
+ * свечи, затем закрытие свечи. Индикаторы обновляются за O(1) через
+ * IncrementalIndicators, учет позиции и баланса ведется в примитивах.
+ * MarketData для стратегии собирается только когда позиции нет и
+ * индикаторы прогреты, объект переиспользуется между свечами.
+ *
+ * Если внутри одной свечи достигнуты и стоп-лосс, и тейк-профит,
+ * считается, что первым сработал стоп-лосс (консервативная оценка).
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BacktestEngine {
+
+    private final TradingStrategy tradingStrategy;
+    private final TradingConfig tradingConfig;
+    private final IndicatorEngine indicatorEngine;
+    private final KlineArchive klineArchive;
+
+    @Value("${technical-analysis.timeframes.primary:1m}")
+    private String primaryInterval;
+
+    @Value("${backtest.initial-balance:10000}")
+    private double initialBalance;
+
+    @Value("${backtest.position-size-percent:10}")
+    private double positionSizePercent;
+
+    @Value("${backtest.slippage-bps:2}")
+    private double slippageBps;
+
+    @Value("${backtest.assumed-spread-percent:0.02}")
+    private double assumedSpreadPercent;
+
+    @Value("${backtest.max-book-age-ms:5000}")
+    private long maxBookAgeMs;
+
+    @Value("${backtest.warmup-candles:50}")
+    private int warmupCandles;
+
+    /**
+     * Параметры по умолчанию для торговой пары
+     *
+     * SL/TP и время удержания - из scalping.strategy.*, комиссия -
+     * TradingPair.getEffectiveFeePercent().
+     *
+     * @param tradingPair торговая пара
+     * @return параметры бэктеста
+     */
+    public BacktestParameters defaultParameters(TradingPair tradingPair) {
+        TradingConfig.Strategy strategy = tradingConfig.getStrategy();
+
+        return BacktestParameters.builder()
+                .candleInterval(primaryInterval)
+                .initialBalance(initialBalance)
+                .positionSizePercent(positionSizePercent)
+                .slippageBps(slippageBps)
+                .feePercent(tradingPair.getEffectiveFeePercent().doubleValue())
+                .targetProfitPercent(strategy.getTargetProfitPercent().doubleValue())
+                .stopLossPercent(strategy.getStopLossPercent().doubleValue())
+                .maxPositionTimeMinutes(strategy.getMaxPositionTimeMinutes())
+                .assumedSpreadPercent(assumedSpreadPercent)
+                .maxBookAgeMs(maxBookAgeMs)
+                .warmupCandles(warmupCandles)
+                .build();
+    }
+
+    /**
+     * Прогнать бэктест по свечам архива за период с параметрами по умолчанию
+     *
+     * @param tradingPair торговая пара
+     * @param fromTime начало периода (Unix ms)
+     * @param toTime конец периода (Unix ms)
+     * @param book снимки стакана за период (может быть null)
+     * @return результат бэктеста
+     */
+    public BacktestResult run(TradingPair tradingPair, long fromTime, long toTime, BookSnapshotSeries book) {
+        BacktestParameters parameters = defaultParameters(tradingPair);
+        List<? extends CandleSeries> candles = klineArchive.read(
+                tradingPair.getSymbol(), parameters.getCandleInterval(), fromTime, toTime);
+        return run(tradingPair.getSymbol(), candles, book, parameters, tradingStrategy);
+    }
+
+    /**
+     * Прогнать бэктест основной стратегии
+     */
+    public BacktestResult run(String tradingPair, List<? extends CandleSeries> candles,
+                              BookSnapshotSeries book, BacktestParameters parameters) {
+        return run(tradingPair, candles, book, parameters, tradingStrategy);
+    }
+
+    /**
+     * Прогнать бэктест
+     *
+     * Движок не хранит состояния между прогонами, поэтому прогоны
+     * можно выполнять параллельно из разных потоков.
+     *
+     * @param tradingPair торговая пара
+     * @param candles участки свечей в хронологическом порядке
+     * @param book снимки стакана (может быть null)
+     * @param parameters параметры прогона
+     * @param strategy стратегия
+     * @return результат бэктеста
+     */
+    public BacktestResult run(String tradingPair, List<? extends CandleSeries> candles,
+                              BookSnapshotSeries book, BacktestParameters parameters,
+                              TradingStrategy strategy) {
+        Simulation simulation = new Simulation(tradingPair, parameters, strategy, indicatorEngine.createState());
+        long started = System.nanoTime();
+
+        for (CandleSeries series : candles) {
+            for (int i = 0; i < series.size(); i++) {
+                long closeTime = series.openTime(i) + simulation.intervalMs;
+                if (book != null) {
+                    simulation.replayBook(book, closeTime);
+                }
+                simulation.onCandle(series, i, closeTime);
+            }
+        }
+        simulation.finish();
+
+        BacktestResult result = simulation.toResult(System.nanoTime() - started);
+        log.info("Backtest {} {}: {} candles, {} trades, net {} ({}%), max drawdown {}%, {} events/s",
+                strategy.getName(), tradingPair, result.getCandlesProcessed(), result.getTotalTrades(),
+                String.format("%.2f", result.getNetPnl()), String.format("%.2f", result.getReturnPercent()),
+                String.format("%.2f", result.getMaxDrawdownPercent()), String.format("%.0f", result.getEventsPerSecond()));
+        return result;
+    }
+
+    /**
+     * Состояние одного прогона
+     */
+    private static final class Simulation {
+
+        private static final int FLAT = 0;
+        private static final int LONG = 1;
+        private static final int SHORT = -1;
+
+        private final String tradingPair;
+        private final BacktestParameters parameters;
+        private final TradingStrategy strategy;
+        private final IncrementalIndicators indicators;
+
+        private final long intervalMs;
+        private final double slippage;
+        private final double feeRate;
+        private final long maxHoldMs;
+
+        /**
+         * Скользящий 24h объем по закрытым свечам
+         */
+        private final Volume24hWindow volumeWindow;
+
+        /**
+         * Переиспользуемый снимок для стратегии
+         */
+        private final MarketData marketData;
+
+        /**
+         * Последний снимок стакана
+         */
+        private int bookIndex;
+        private long bookTime = -1;
+        private long bidPrice;
+        private long bidQuantity;
+        private long askPrice;
+        private long askQuantity;
+
+        /**
+         * Открытая позиция
+         */
+        private int side = FLAT;
+        private double entryPrice;
+        private double quantity;
+        private double entryFee;
+        private double stopLossPrice;
+        private double takeProfitPrice;
+        private long entryTime;
+        private double lastClose;
+        private long lastCloseTime;
+
+        /**
+         * Статистика
+         */
+        private double balance;
+        private double peakEquity;
+        private double maxDrawdownPercent;
+        private double grossProfit;
+        private double grossLoss;
+        private double totalFees;
+        private long candles;
+        private long bookSnapshots;
+        private long signalsEvaluated;
+        private int winningTrades;
+        private int losingTrades;
+        private int takeProfitExits;
+        private int stopLossExits;
+        private int timeExits;
+
+        Simulation(String tradingPair, BacktestParameters parameters, TradingStrategy strategy,
+                   IncrementalIndicators indicators) {
+            this.tradingPair = tradingPair;
+            this.parameters = parameters;
+            this.strategy = strategy;
+            this.indicators = indicators;
+
+            this.intervalMs = DateUtils.intervalToMillis(parameters.getCandleInterval());
+            this.slippage = parameters.getSlippageBps() / 10_000.0;
+            this.feeRate = parameters.getFeePercent() / 100.0;
+            this.maxHoldMs = parameters.getMaxPositionTimeMinutes() * 60_000L;
+
+            this.volumeWindow = new Volume24hWindow(intervalMs);
+
+            this.balance = parameters.getInitialBalance();
+            this.peakEquity = balance;
+
+            this.marketData = MarketData.builder()
+                    .tradingPair(tradingPair)
+                    .pairType(TradingPairType.fromPairName(tradingPair))
+                    .exchangeName("backtest")
+                    .dataQuality(new BigDecimal("100"))
+                    .latencyMs(0)
+                    .build();
+        }
+
+        /**
+         * Обработать снимки стакана до закрытия свечи
+         */
+        void replayBook(BookSnapshotSeries book, long untilTime) {
+            while (bookIndex < book.size() && book.time(bookIndex) < untilTime) {
+                bookTime = book.time(bookIndex);
+                bidPrice = book.bidPrice(bookIndex);
+                bidQuantity = book.bidQuantity(bookIndex);
+                askPrice = book.askPrice(bookIndex);
+                askQuantity = book.askQuantity(bookIndex);
+                bookIndex++;
+                bookSnapshots++;
+
+                if (side != FLAT) {
+                    checkBookExit(bookTime);
+                }
+            }
+        }
+
+        /**
+         * Обработать закрытие свечи
+         */
+        void onCandle(CandleSeries series, int i, long closeTime) {
+            double open = FixedPointUtils.toDouble(series.openScaled(i));
+            double high = FixedPointUtils.toDouble(series.highScaled(i));
+            double low = FixedPointUtils.toDouble(series.lowScaled(i));
+            double close = FixedPointUtils.toDouble(series.closeScaled(i));
+            candles++;
+
+            if (side != FLAT) {
+                checkCandleExit(open, high, low, close, closeTime);
+            }
+
+            indicators.update(high, low, close);
+            volumeWindow.add(series.openTime(i), series.volume(i), series.quoteVolume(i));
+            lastClose = close;
+            lastCloseTime = closeTime;
+            markToMarket(close);
+
+            if (side == FLAT && indicators.getCount() >= parameters.getWarmupCandles()) {
+                evaluate(series, i, closeTime, close);
+            }
+        }
+
+        /**
+         * Закрыть позицию, оставшуюся открытой в конце истории
+         */
+        void finish() {
+            if (side != FLAT) {
+                closePosition(lastClose, lastCloseTime);
+                timeExits++;
+            }
+        }
+
+        private void evaluate(CandleSeries series, int i, long closeTime, double close) {
+            boolean bookFresh = bookTime >= 0 && closeTime - bookTime <= parameters.getMaxBookAgeMs();
+
+            marketData.setTimestamp(DateUtils.fromTimestampMs(closeTime));
+            marketData.setExchangeTimestamp(closeTime);
+            marketData.setOpenPrice(FixedPointUtils.toBigDecimal(series.openScaled(i)));
+            marketData.setHighPrice(FixedPointUtils.toBigDecimal(series.highScaled(i)));
+            marketData.setLowPrice(FixedPointUtils.toBigDecimal(series.lowScaled(i)));
+            marketData.setClosePrice(FixedPointUtils.toBigDecimal(series.closeScaled(i)));
+            marketData.setVolume(BigDecimal.valueOf(series.volume(i)));
+            marketData.setQuoteVolume(BigDecimal.valueOf(series.quoteVolume(i)));
+            marketData.setTradeCount(series.tradeCount(i));
+            marketData.setVolume24h(BigDecimal.valueOf(volumeWindow.volume()));
+            marketData.setQuoteVolume24h(BigDecimal.valueOf(volumeWindow.quoteVolume()));
+            marketData.setLiquidityIndex(MarketDataService.liquidityIndexFromVolume(volumeWindow.quoteVolume()));
+
+            if (bookFresh) {
+                marketData.setBidPrice(FixedPointUtils.toBigDecimal(bidPrice));
+                marketData.setBidQuantity(FixedPointUtils.toBigDecimal(bidQuantity));
+                marketData.setAskPrice(FixedPointUtils.toBigDecimal(askPrice));
+                marketData.setAskQuantity(FixedPointUtils.toBigDecimal(askQuantity));
+                marketData.calculateSpread();
+            } else {
+                marketData.setBidPrice(null);
+                marketData.setBidQuantity(null);
+                marketData.setAskPrice(null);
+                marketData.setAskQuantity(null);
+                marketData.setSpreadPercent(BigDecimal.valueOf(parameters.getAssumedSpreadPercent()));
+            }
+
+            IndicatorEngine.applyIndicators(indicators, marketData);
+            signalsEvaluated++;
+
+            if (!strategy.isMarketSuitable(marketData)) {
+                return;
+            }
+
+            TradingSignal signal = strategy.generateSignal(marketData);
+            if (!strategy.isEntrySignal(signal)) {
+                return;
+            }
+
+            // Рыночный ордер исполняется по лучшей цене стакана, без стакана - по закрытию
+            if (signal.getSide() == OrderSide.BUY) {
+                openPosition(LONG, bookFresh ? FixedPointUtils.toDouble(askPrice) : close, closeTime);
+            } else {
+                openPosition(SHORT, bookFresh ? FixedPointUtils.toDouble(bidPrice) : close, closeTime);
+            }
+        }
+
+        private void openPosition(int direction, double referencePrice, long time) {
+            double notional = balance * parameters.getPositionSizePercent() / 100.0;
+            if (notional <= 0 || referencePrice <= 0) {
+                return;
+            }
+
+            side = direction;
+            entryPrice = referencePrice * (1.0 + direction * slippage);
+            quantity = notional / entryPrice;
+            entryFee = notional * feeRate;
+            entryTime = time;
+            stopLossPrice = entryPrice * (1.0 - direction * parameters.getStopLossPercent() / 100.0);
+            takeProfitPrice = entryPrice * (1.0 + direction * parameters.getTargetProfitPercent() / 100.0);
+
+            balance -= entryFee;
+            totalFees += entryFee;
+        }
+
+        private void checkBookExit(long time) {
+            double price = FixedPointUtils.toDouble(side == LONG ? bidPrice : askPrice);
+            if (price <= 0) {
+                return;
+            }
+
+            if (side * (price - stopLossPrice) <= 0) {
+                closePosition(price, time);
+                stopLossExits++;
+            } else if (side * (price - takeProfitPrice) >= 0) {
+                closePosition(price, time);
+                takeProfitExits++;
+            }
+        }
+
+        private void checkCandleExit(double open, double high, double low, double close, long closeTime) {
+            double adverse = side == LONG ? low : high;
+            double favorable = side == LONG ? high : low;
+
+            if (side * (adverse - stopLossPrice) <= 0) {
+                // При гэпе через стоп исполнение по цене открытия
+                closePosition(side * (open - stopLossPrice) < 0 ? open : stopLossPrice, closeTime);
+                stopLossExits++;
+            } else if (side * (favorable - takeProfitPrice) >= 0) {
+                closePosition(side * (open - takeProfitPrice) > 0 ? open : takeProfitPrice, closeTime);
+                takeProfitExits++;
+            } else if (closeTime - entryTime >= maxHoldMs) {
+                closePosition(close, closeTime);
+                timeExits++;
+            }
+        }
+
+        private void closePosition(double referencePrice, long time) {
+            double exitPrice = referencePrice * (1.0 - side * slippage);
+            double pnl = side * (exitPrice - entryPrice) * quantity;
+            double exitFee = exitPrice * quantity * feeRate;
+            double net = pnl - entryFee - exitFee;
+
+            balance += pnl - exitFee;
+            totalFees += exitFee;
+
+            if (net > 0) {
+                winningTrades++;
+                grossProfit += net;
+            } else {
+                losingTrades++;
+                grossLoss -= net;
+            }
+
+            side = FLAT;
+            quantity = 0;
+            markToMarket(exitPrice);
+        }
+
+        private void markToMarket(double price) {
+            double equity = balance + (side != FLAT ? side * (price - entryPrice) * quantity : 0.0);
+            if (equity > peakEquity) {
+                peakEquity = equity;
+            } else if (peakEquity > 0) {
+                maxDrawdownPercent = Math.max(maxDrawdownPercent, (peakEquity - equity) / peakEquity * 100.0);
+            }
+        }
+
+        BacktestResult toResult(long elapsedNanos) {
+            return BacktestResult.builder()
+                    .tradingPair(tradingPair)
+                    .strategyName(strategy.getName())
+                    .parameters(parameters)
+                    .candlesProcessed(candles)
+                    .bookSnapshotsProcessed(bookSnapshots)
+                    .signalsEvaluated(signalsEvaluated)
+                    .totalTrades(winningTrades + losingTrades)
+                    .winningTrades(winningTrades)
+                    .losingTrades(losingTrades)
+                    .takeProfitExits(takeProfitExits)
+                    .stopLossExits(stopLossExits)
+                    .timeExits(timeExits)
+                    .initialBalance(parameters.getInitialBalance())
+                    .finalBalance(balance)
+                    .grossProfit(grossProfit)
+                    .grossLoss(grossLoss)
+                    .totalFees(totalFees)
+                    .maxDrawdownPercent(maxDrawdownPercent)
+                    .elapsedNanos(elapsedNanos)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.scalpingBot.service.backtest;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Параметры прогона бэктеста
+ *
+ * Значения по умолчанию заполняет BacktestEngine.defaultParameters
+ * из конфигурации стратегии и комиссии торговой пары.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Data
+@Builder(toBuilder = true)
+public class BacktestParameters {
+
+    /**
+     * Таймфрейм воспроизводимых свечей
+     */
+    private String candleInterval;
+
+    /**
+     * Начальный баланс в валюте котировки
+     */
+    private double initialBalance;
+
+    /**
+     * Размер позиции в процентах от баланса
+     */
+    private double positionSizePercent;
+
+    /**
+     * Проскальзывание при исполнении (базисные пункты)
+     */
+    private double slippageBps;
+
+    /**
+     * Комиссия за сделку в процентах (на вход и на выход)
+     */
+    private double feePercent;
+
+    /**
+     * Тейк-профит в процентах от цены входа
+     */
+    private double targetProfitPercent;
+
+    /**
+     * Стоп-лосс в процентах от цены входа
+     */
+    private double stopLossPercent;
+
+    /**
+     * Максимальное время удержания позиции в минутах
+     */
+    private int maxPositionTimeMinutes;
+
+    /**
+     * Спред, который подставляется, если снимков стакана нет (в процентах)
+     */
+    private double assumedSpreadPercent;
+
+    /**
+     * Снимок стакана старше этого возраста не используется (мс)
+     */
+    private long maxBookAgeMs;
+
+    /**
+     * Количество свечей прогрева индикаторов до первой сделки
+     */
+    private int warmupCandles;
+}
@@ -0,0 +1,78 @@
+package com.example.scalpingBot.service.backtest;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Результат прогона бэктеста
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Data
+@Builder
+public class BacktestResult {
+
+    private String tradingPair;
+    private String strategyName;
+    private BacktestParameters parameters;
+
+    /**
+     * Обработанные события
+     */
+    private long candlesProcessed;
+    private long bookSnapshotsProcessed;
+    private long signalsEvaluated;
+
+    /**
+     * Сделки
+     */
+    private int totalTrades;
+    private int winningTrades;
+    private int losingTrades;
+    private int takeProfitExits;
+    private int stopLossExits;
+    private int timeExits;
+
+    /**
+     * Финансовый результат (в валюте котировки)
+     */
+    private double initialBalance;
+    private double finalBalance;
+    private double grossProfit;
+    private double grossLoss;
+    private double totalFees;
+    private double maxDrawdownPercent;
+
+    /**
+     * Производительность прогона
+     */
+    private long elapsedNanos;
+
+    public double getNetPnl() {
+        return finalBalance - initialBalance;
+    }
+
+    public double getReturnPercent() {
+        return initialBalance > 0 ? getNetPnl() / initialBalance * 100.0 : 0.0;
+    }
+
+    public double getWinRate() {
+        return totalTrades > 0 ? (double) winningTrades / totalTrades * 100.0 : 0.0;
+    }
+
+    /**
+     * Отношение суммарной прибыли к суммарному убытку
+     */
+    public double getProfitFactor() {
+        return grossLoss > 0 ? grossProfit / grossLoss : (grossProfit > 0 ? Double.POSITIVE_INFINITY : 0.0);
+    }
+
+    public long getEventsProcessed() {
+        return candlesProcessed + bookSnapshotsProcessed;
+    }
+
+    public double getEventsPerSecond() {
+        return elapsedNanos > 0 ? getEventsProcessed() * 1_000_000_000.0 / elapsedNanos : 0.0;
+    }
+}
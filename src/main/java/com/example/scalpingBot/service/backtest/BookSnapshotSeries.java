@@ -0,0 +1,91 @@
+package com.example.scalpingBot.service.backtest;
+
+import java.util.Arrays;
+
+/**
+ * Последовательность исторических снимков лучших цен стакана
+ *
+ * Хранится в параллельных массивах примитивов, чтобы воспроизведение
+ * миллионов событий не создавало объектов. Снимки должны добавляться
+ * по возрастанию времени. Цены и количества - в формате FixedPointUtils.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public class BookSnapshotSeries {
+
+    private long[] times;
+    private long[] bidPrices;
+    private long[] bidQuantities;
+    private long[] askPrices;
+    private long[] askQuantities;
+    private int size;
+
+    public BookSnapshotSeries() {
+        this(1024);
+    }
+
+    public BookSnapshotSeries(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        this.times = new long[capacity];
+        this.bidPrices = new long[capacity];
+        this.bidQuantities = new long[capacity];
+        this.askPrices = new long[capacity];
+        this.askQuantities = new long[capacity];
+    }
+
+    /**
+     * Добавить снимок
+     *
+     * @param time время снимка (Unix ms), не меньше предыдущего
+     * @throws IllegalArgumentException если время меньше предыдущего снимка
+     */
+    public void add(long time, long bidPrice, long bidQuantity, long askPrice, long askQuantity) {
+        if (size > 0 && time < times[size - 1]) {
+            throw new IllegalArgumentException("Book snapshots must be added in time order");
+        }
+        if (size == times.length) {
+            grow();
+        }
+
+        times[size] = time;
+        bidPrices[size] = bidPrice;
+        bidQuantities[size] = bidQuantity;
+        askPrices[size] = askPrice;
+        askQuantities[size] = askQuantity;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long time(int i) {
+        return times[i];
+    }
+
+    public long bidPrice(int i) {
+        return bidPrices[i];
+    }
+
+    public long bidQuantity(int i) {
+        return bidQuantities[i];
+    }
+
+    public long askPrice(int i) {
+        return askPrices[i];
+    }
+
+    public long askQuantity(int i) {
+        return askQuantities[i];
+    }
+
+    private void grow() {
+        int capacity = times.length * 2;
+        times = Arrays.copyOf(times, capacity);
+        bidPrices = Arrays.copyOf(bidPrices, capacity);
+        bidQuantities = Arrays.copyOf(bidQuantities, capacity);
+        askPrices = Arrays.copyOf(askPrices, capacity);
+        askQuantities = Arrays.copyOf(askQuantities, capacity);
+    }
+}
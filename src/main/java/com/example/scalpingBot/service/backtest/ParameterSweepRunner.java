@@ -0,0 +1,360 @@
+package com.example.scalpingBot.service.backtest;
+
+import com.example.scalpingBot.config.TradingConfig;
+import com.example.scalpingBot.entity.TradingPair;
+import com.example.scalpingBot.service.analysis.IndicatorEngine;
+import com.example.scalpingBot.service.history.KlineArchive;
+import com.example.scalpingBot.service.market.CandleSeries;
+import com.example.scalpingBot.utils.DateUtils;
+import com.example.scalpingBot.utils.FastMathUtils;
+import com.example.scalpingBot.utils.FixedPointUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Параллельный перебор параметров стратегии
+ *
+ * Основные функции:
+ * - Подготовка общего набора данных (SweepDataset) по свечам архива
+ * - Перебор сетки TP/SL, уровней RSI и порога силы сигнала на ForkJoinPool
+ * - Ранжированная таблица результатов (PnL, доля прибыльных сделок, просадка)
+ *
+ * Сетка делится на диапазоны индексов комбинаций рекурсивно, каждый лист
+ * задачи создает собственного исполнителя (SweepWorker) со своим состоянием.
+ * Общие данные только читаются, поэтому потоки не синхронизируются между
+ * собой и производительность растет почти линейно с числом ядер.
+ *
+ * Воспроизведение облегченное: без стакана (используется предполагаемый спред),
+ * правила стратегии - в примитивах (см. SweepDataset). Лучшие комбинации
+ * стоит перепроверить полным прогоном BacktestEngine.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ParameterSweepRunner {
+
+    private final BacktestEngine backtestEngine;
+    private final IndicatorEngine indicatorEngine;
+    private final KlineArchive klineArchive;
+    private final TradingConfig tradingConfig;
+
+    @Value("${backtest.sweep.parallelism:0}")
+    private int parallelism;
+
+    @Value("${backtest.sweep.combinations-per-task:16}")
+    private int combinationsPerTask;
+
+    private ForkJoinPool pool;
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+    }
+
+    /**
+     * Подготовить набор данных по свечам архива с параметрами по умолчанию
+     *
+     * @param tradingPair торговая пара
+     * @param fromTime начало периода (Unix ms)
+     * @param toTime конец периода (Unix ms)
+     * @return набор данных для перебора
+     */
+    public SweepDataset prepare(TradingPair tradingPair, long fromTime, long toTime) {
+        BacktestParameters parameters = backtestEngine.defaultParameters(tradingPair);
+        return prepare(tradingPair.getSymbol(),
+                klineArchive.read(tradingPair.getSymbol(), parameters.getCandleInterval(), fromTime, toTime),
+                parameters);
+    }
+
+    /**
+     * Подготовить набор данных
+     *
+     * @param tradingPair торговая пара
+     * @param candles участки свечей в хронологическом порядке
+     * @param parameters базовые параметры (комиссия, проскальзывание, прогрев)
+     * @return набор данных для перебора
+     */
+    public SweepDataset prepare(String tradingPair, List<? extends CandleSeries> candles,
+                                BacktestParameters parameters) {
+        long started = System.nanoTime();
+        TradingConfig.Strategy strategy = tradingConfig.getStrategy();
+
+        SweepDataset dataset = SweepDataset.build(tradingPair, candles,
+                DateUtils.intervalToMillis(parameters.getCandleInterval()),
+                indicatorEngine.createState(), parameters,
+                strategy.getMaxSpreadPercent().doubleValue(),
+                strategy.getMinimumVolumeUsdt().doubleValue());
+
+        log.info("Prepared sweep dataset for {}: {} candles in {} ms",
+                tradingPair, dataset.size(), (System.nanoTime() - started) / 1_000_000);
+        return dataset;
+    }
+
+    /**
+     * Перебрать сетку параметров
+     *
+     * @param dataset набор данных
+     * @param grid сетка параметров
+     * @param parameters базовые параметры (комиссия, проскальзывание, размер позиции)
+     * @return результаты по убыванию PnL (при равенстве - по возрастанию просадки)
+     */
+    public List<SweepResult> run(SweepDataset dataset, SweepGrid grid, BacktestParameters parameters) {
+        long combinations = grid.size();
+        if (combinations > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Sweep grid is too large: " + combinations + " combinations");
+        }
+
+        SweepResult[] results = new SweepResult[(int) combinations];
+        long started = System.nanoTime();
+
+        getPool().invoke(new SweepTask(dataset, grid, parameters, results, 0, results.length,
+                Math.max(1, combinationsPerTask)));
+
+        long elapsed = Math.max(1, System.nanoTime() - started);
+        log.info("Swept {} combinations over {} candles in {} ms ({} candles/s, parallelism {})",
+                combinations, dataset.size(), elapsed / 1_000_000,
+                String.format("%.0f", (double) combinations * dataset.size() * 1_000_000_000.0 / elapsed),
+                getPool().getParallelism());
+
+        return Arrays.stream(results)
+                .sorted(Comparator.comparingDouble(SweepResult::getNetPnl).reversed()
+                        .thenComparingDouble(SweepResult::getMaxDrawdownPercent))
+                .toList();
+    }
+
+    /**
+     * Сформировать таблицу результатов
+     *
+     * @param results ранжированные результаты
+     * @param limit максимальное количество строк
+     * @return таблица для вывода в лог или консоль
+     */
+    public String formatTable(List<SweepResult> results, int limit) {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%5s %7s %7s %7s %7s %7s %7s %7s %12s %8s %8s%n",
+                "Rank", "TP%", "SL%", "RSI<=", "RSI>=", "MinSig", "Trades", "Win%", "PnL", "Return%", "MaxDD%"));
+
+        int rows = Math.min(limit, results.size());
+        for (int i = 0; i < rows; i++) {
+            SweepResult r = results.get(i);
+            table.append(String.format("%5d %7.2f %7.2f %7.1f %7.1f %7.2f %7d %7.1f %12.2f %8.2f %8.2f%n",
+                    i + 1, r.getTargetProfitPercent(), r.getStopLossPercent(),
+                    r.getRsiOversold(), r.getRsiOverbought(), r.getMinSignalStrength(),
+                    r.getTotalTrades(), r.getWinRate(), r.getNetPnl(), r.getReturnPercent(),
+                    r.getMaxDrawdownPercent()));
+        }
+        return table.toString();
+    }
+
+    private synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+            pool = new ForkJoinPool(threads);
+        }
+        return pool;
+    }
+
+    /**
+     * Рекурсивное деление диапазона комбинаций
+     */
+    private static final class SweepTask extends RecursiveAction {
+
+        private final SweepDataset dataset;
+        private final SweepGrid grid;
+        private final BacktestParameters parameters;
+        private final SweepResult[] results;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        SweepTask(SweepDataset dataset, SweepGrid grid, BacktestParameters parameters,
+                  SweepResult[] results, int from, int to, int threshold) {
+            this.dataset = dataset;
+            this.grid = grid;
+            this.parameters = parameters;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                SweepWorker worker = new SweepWorker(dataset, parameters);
+                double[] combination = new double[5];
+                for (int i = from; i < to; i++) {
+                    grid.combination(i, combination);
+                    results[i] = worker.run(combination);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new SweepTask(dataset, grid, parameters, results, from, middle, threshold),
+                    new SweepTask(dataset, grid, parameters, results, middle, to, threshold));
+        }
+    }
+
+    /**
+     * Исполнитель комбинаций с собственным состоянием
+     *
+     * Исполнение и выход - как в BacktestEngine без стакана: вход по закрытию
+     * свечи, стоп-лосс раньше тейк-профита внутри свечи, выход по времени
+     * удержания по закрытию.
+     */
+    private static final class SweepWorker {
+
+        private final SweepDataset dataset;
+        private final BacktestParameters parameters;
+        private final double slippage;
+        private final double feeRate;
+        private final double positionFraction;
+        private final long maxHoldMs;
+
+        /**
+         * Кривая баланса по закрытым сделкам (переиспользуется)
+         */
+        private double[] equityCurve = new double[256];
+        private int equityPoints;
+
+        SweepWorker(SweepDataset dataset, BacktestParameters parameters) {
+            this.dataset = dataset;
+            this.parameters = parameters;
+            this.slippage = parameters.getSlippageBps() / 10_000.0;
+            this.feeRate = parameters.getFeePercent() / 100.0;
+            this.positionFraction = parameters.getPositionSizePercent() / 100.0;
+            this.maxHoldMs = parameters.getMaxPositionTimeMinutes() * 60_000L;
+        }
+
+        SweepResult run(double[] combination) {
+            double targetProfit = combination[0] / 100.0;
+            double stopLoss = combination[1] / 100.0;
+            double rsiOversold = combination[2];
+            double rsiOverbought = combination[3];
+            double minStrength = combination[4];
+
+            double balance = parameters.getInitialBalance();
+            equityPoints = 0;
+            addEquity(balance);
+
+            int side = 0;
+            double entryPrice = 0;
+            double quantity = 0;
+            double entryFee = 0;
+            double stopLossPrice = 0;
+            double takeProfitPrice = 0;
+            long entryTime = 0;
+            int trades = 0;
+            int wins = 0;
+            double lastClose = 0;
+
+            long intervalMs = dataset.getIntervalMs();
+            int g = 0;
+
+            for (CandleSeries series : dataset.getSegments()) {
+                for (int i = 0; i < series.size(); i++, g++) {
+                    long closeTime = series.openTime(i) + intervalMs;
+                    double close = FixedPointUtils.toDouble(series.closeScaled(i));
+                    lastClose = close;
+
+                    if (side != 0) {
+                        double open = FixedPointUtils.toDouble(series.openScaled(i));
+                        double adverse = FixedPointUtils.toDouble(side > 0 ? series.lowScaled(i) : series.highScaled(i));
+                        double favorable = FixedPointUtils.toDouble(side > 0 ? series.highScaled(i) : series.lowScaled(i));
+
+                        double exitReference = Double.NaN;
+                        if (side * (adverse - stopLossPrice) <= 0) {
+                            exitReference = side * (open - stopLossPrice) < 0 ? open : stopLossPrice;
+                        } else if (side * (favorable - takeProfitPrice) >= 0) {
+                            exitReference = side * (open - takeProfitPrice) > 0 ? open : takeProfitPrice;
+                        } else if (closeTime - entryTime >= maxHoldMs) {
+                            exitReference = close;
+                        }
+
+                        if (!Double.isNaN(exitReference)) {
+                            double exitPrice = exitReference * (1.0 - side * slippage);
+                            double pnl = side * (exitPrice - entryPrice) * quantity;
+                            double exitFee = exitPrice * quantity * feeRate;
+                            balance += pnl - exitFee;
+                            trades++;
+                            if (pnl - entryFee - exitFee > 0) {
+                                wins++;
+                            }
+                            side = 0;
+                            addEquity(balance);
+                        }
+                    }
+
+                    if (side == 0 && dataset.isSuitable(g)) {
+                        double rsi = dataset.rsi(g);
+                        int bullish = dataset.bullishFactors(g) + (rsi <= rsiOversold ? 1 : 0);
+                        int bearish = dataset.bearishFactors(g) + (rsi >= rsiOverbought ? 1 : 0);
+                        double strength = Math.abs(bullish - bearish) * 0.25;
+
+                        if (strength >= minStrength - FastMathUtils.EPSILON) {
+                            side = bullish > bearish ? 1 : -1;
+                            double notional = balance * positionFraction;
+                            entryPrice = close * (1.0 + side * slippage);
+                            quantity = notional / entryPrice;
+                            entryFee = notional * feeRate;
+                            balance -= entryFee;
+                            stopLossPrice = entryPrice * (1.0 - side * stopLoss);
+                            takeProfitPrice = entryPrice * (1.0 + side * targetProfit);
+                            entryTime = closeTime;
+                        }
+                    }
+                }
+            }
+
+            // Позиция, открытая в конце истории, закрывается по последней цене
+            if (side != 0) {
+                double exitPrice = lastClose * (1.0 - side * slippage);
+                double pnl = side * (exitPrice - entryPrice) * quantity;
+                double exitFee = exitPrice * quantity * feeRate;
+                balance += pnl - exitFee;
+                trades++;
+                if (pnl - entryFee - exitFee > 0) {
+                    wins++;
+                }
+                addEquity(balance);
+            }
+
+            double netPnl = balance - parameters.getInitialBalance();
+            return SweepResult.builder()
+                    .targetProfitPercent(combination[0])
+                    .stopLossPercent(combination[1])
+                    .rsiOversold(rsiOversold)
+                    .rsiOverbought(rsiOverbought)
+                    .minSignalStrength(minStrength)
+                    .totalTrades(trades)
+                    .winningTrades(wins)
+                    .netPnl(netPnl)
+                    .returnPercent(parameters.getInitialBalance() > 0 ? netPnl / parameters.getInitialBalance() * 100.0 : 0.0)
+                    .maxDrawdownPercent(FastMathUtils.calculateMaxDrawdown(Arrays.copyOf(equityCurve, equityPoints)))
+                    .build();
+        }
+
+        private void addEquity(double value) {
+            if (equityPoints == equityCurve.length) {
+                equityCurve = Arrays.copyOf(equityCurve, equityPoints * 2);
+            }
+            equityCurve[equityPoints++] = value;
+        }
+    }
+}
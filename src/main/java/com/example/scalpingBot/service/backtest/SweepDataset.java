@@ -0,0 +1,173 @@
+package com.example.scalpingBot.service.backtest;
+
+import com.example.scalpingBot.service.analysis.IncrementalIndicators;
+import com.example.scalpingBot.service.market.CandleSeries;
+import com.example.scalpingBot.utils.FixedPointUtils;
+
+import java.util.List;
+
+/**
+ * Общий набор данных для перебора параметров
+ *
+ * Цены свечей читаются напрямую из участков архива (отображение файлов
+ * в память), индикаторы и части сигнала, не зависящие от перебираемых
+ * параметров, рассчитываются один раз. После создания набор только
+ * читается, поэтому один экземпляр используется всеми потоками перебора.
+ *
+ * Правила повторяют ScalpingStrategy и MarketData в примитивах:
+ * - фильтр рынка: спред, 24h объем (окно по времени, см. Volume24hWindow), индекс ликвидности, ATR%
+ * - сила сигнала: RSI, цена относительно EMA9, MACD, близость к Bollinger Bands (по 25)
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public final class SweepDataset {
+
+    private final String tradingPair;
+    private final List<? extends CandleSeries> segments;
+    private final long intervalMs;
+    private final int size;
+
+    /**
+     * RSI по закрытию свечи (NaN до прогрева)
+     */
+    private final double[] rsi;
+
+    /**
+     * Количество бычьих/медвежьих факторов без учета RSI (0-3)
+     */
+    private final byte[] bullishFactors;
+    private final byte[] bearishFactors;
+
+    /**
+     * Подходят ли рыночные условия для входа
+     */
+    private final boolean[] suitable;
+
+    private SweepDataset(String tradingPair, List<? extends CandleSeries> segments, long intervalMs, int size) {
+        this.tradingPair = tradingPair;
+        this.segments = segments;
+        this.intervalMs = intervalMs;
+        this.size = size;
+        this.rsi = new double[size];
+        this.bullishFactors = new byte[size];
+        this.bearishFactors = new byte[size];
+        this.suitable = new boolean[size];
+    }
+
+    /**
+     * Рассчитать набор данных
+     *
+     * @param tradingPair торговая пара
+     * @param segments участки свечей в хронологическом порядке
+     * @param intervalMs длительность свечи
+     * @param indicators новое состояние индикаторов
+     * @param parameters параметры бэктеста (прогрев, предполагаемый спред)
+     * @param maxSpreadPercent максимальный спред стратегии
+     * @param minimumVolume минимальный 24h объем стратегии
+     * @return набор данных
+     */
+    static SweepDataset build(String tradingPair, List<? extends CandleSeries> segments, long intervalMs,
+                              IncrementalIndicators indicators, BacktestParameters parameters,
+                              double maxSpreadPercent, double minimumVolume) {
+        int size = 0;
+        for (CandleSeries series : segments) {
+            size += series.size();
+        }
+
+        SweepDataset dataset = new SweepDataset(tradingPair, segments, intervalMs, size);
+
+        Volume24hWindow volumeWindow = new Volume24hWindow(intervalMs);
+
+        double spread = parameters.getAssumedSpreadPercent();
+        boolean spreadOk = spread <= 0.1 && spread <= maxSpreadPercent;
+
+        int g = 0;
+        for (CandleSeries series : segments) {
+            for (int i = 0; i < series.size(); i++, g++) {
+                double high = FixedPointUtils.toDouble(series.highScaled(i));
+                double low = FixedPointUtils.toDouble(series.lowScaled(i));
+                double close = FixedPointUtils.toDouble(series.closeScaled(i));
+                indicators.update(high, low, close);
+
+                volumeWindow.add(series.openTime(i), series.volume(i), series.quoteVolume(i));
+                double volume24h = volumeWindow.volume();
+                double quoteVolume24h = volumeWindow.quoteVolume();
+
+                // Округления как при заполнении MarketData
+                dataset.rsi[g] = round(indicators.getRsi(), 100.0);
+                double atrPercent = round(indicators.getAtr() / close * 100.0, 10_000.0);
+                double ema = indicators.getEmaFast();
+                double macd = indicators.getMacdLine();
+                double signal = indicators.getMacdSignal();
+
+                int bullish = 0;
+                int bearish = 0;
+                if (close > ema) {
+                    bullish++;
+                } else if (close < ema) {
+                    bearish++;
+                }
+                if (macd > signal) {
+                    bullish++;
+                } else if (macd < signal) {
+                    bearish++;
+                }
+                if (close <= indicators.getBollingerLower() * 1.005) {
+                    bullish++;
+                }
+                if (close >= indicators.getBollingerUpper() * 0.995) {
+                    bearish++;
+                }
+                dataset.bullishFactors[g] = (byte) bullish;
+                dataset.bearishFactors[g] = (byte) bearish;
+
+                double liquidity = quoteVolume24h > 0
+                        ? round(Math.min(100.0, (Math.log10(quoteVolume24h) - 6.0) * 50.0), 100.0) : Double.NaN;
+                dataset.suitable[g] = indicators.getCount() >= parameters.getWarmupCandles()
+                        && spreadOk
+                        && volume24h >= 1_000_000 && volume24h >= minimumVolume
+                        && liquidity >= 70.0
+                        && atrPercent >= 0.5 && atrPercent <= 5.0 && atrPercent <= maxSpreadPercent * 10.0;
+            }
+        }
+
+        return dataset;
+    }
+
+    private static double round(double value, double factor) {
+        return Double.isNaN(value) ? Double.NaN : Math.round(value * factor) / factor;
+    }
+
+    public String getTradingPair() {
+        return tradingPair;
+    }
+
+    public List<? extends CandleSeries> getSegments() {
+        return segments;
+    }
+
+    public long getIntervalMs() {
+        return intervalMs;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    double rsi(int g) {
+        return rsi[g];
+    }
+
+    int bullishFactors(int g) {
+        return bullishFactors[g];
+    }
+
+    int bearishFactors(int g) {
+        return bearishFactors[g];
+    }
+
+    boolean isSuitable(int g) {
+        return suitable[g];
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.scalpingBot.service.backtest;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Сетка параметров для перебора
+ *
+ * Комбинации - декартово произведение всех осей. Индекс комбинации
+ * раскладывается по осям как число в смешанной системе счисления,
+ * поэтому сетку можно делить между потоками по диапазонам индексов.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Data
+@Builder
+public class SweepGrid {
+
+    /**
+     * Тейк-профит в процентах
+     */
+    private double[] targetProfitPercents;
+
+    /**
+     * Стоп-лосс в процентах
+     */
+    private double[] stopLossPercents;
+
+    /**
+     * Уровни перепроданности RSI
+     */
+    private double[] rsiOversoldLevels;
+
+    /**
+     * Уровни перекупленности RSI
+     */
+    private double[] rsiOverboughtLevels;
+
+    /**
+     * Минимальная сила сигнала для входа (0-1)
+     */
+    private double[] minSignalStrengths;
+
+    /**
+     * Равномерная ось значений от from до to включительно
+     *
+     * @param from первое значение
+     * @param to последнее значение
+     * @param step шаг
+     * @return значения оси
+     */
+    public static double[] range(double from, double to, double step) {
+        if (step <= 0 || to < from) {
+            throw new IllegalArgumentException("Invalid sweep range: " + from + ".." + to + " step " + step);
+        }
+
+        int count = (int) Math.floor((to - from) / step + 1e-9) + 1;
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            // Округление убирает накопленную ошибку шага (0.1 + 0.2 ...)
+            values[i] = Math.round((from + i * step) * 1e8) / 1e8;
+        }
+        return values;
+    }
+
+    /**
+     * Количество комбинаций
+     */
+    public long size() {
+        return (long) targetProfitPercents.length * stopLossPercents.length
+                * rsiOversoldLevels.length * rsiOverboughtLevels.length * minSignalStrengths.length;
+    }
+
+    /**
+     * Заполнить комбинацию по индексу
+     *
+     * @param index индекс комбинации в диапазоне [0, size())
+     * @param combination массив из 5 элементов: TP, SL, RSI oversold, RSI overbought, сила сигнала
+     */
+    public void combination(long index, double[] combination) {
+        long rest = index;
+        combination[4] = minSignalStrengths[(int) (rest % minSignalStrengths.length)];
+        rest /= minSignalStrengths.length;
+        combination[3] = rsiOverboughtLevels[(int) (rest % rsiOverboughtLevels.length)];
+        rest /= rsiOverboughtLevels.length;
+        combination[2] = rsiOversoldLevels[(int) (rest % rsiOversoldLevels.length)];
+        rest /= rsiOversoldLevels.length;
+        combination[1] = stopLossPercents[(int) (rest % stopLossPercents.length)];
+        rest /= stopLossPercents.length;
+        combination[0] = targetProfitPercents[(int) (rest % targetProfitPercents.length)];
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.scalpingBot.service.backtest;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Результат одной комбинации перебора параметров
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Data
+@Builder
+public class SweepResult {
+
+    /**
+     * Параметры комбинации
+     */
+    private double targetProfitPercent;
+    private double stopLossPercent;
+    private double rsiOversold;
+    private double rsiOverbought;
+    private double minSignalStrength;
+
+    /**
+     * Результаты
+     */
+    private int totalTrades;
+    private int winningTrades;
+    private double netPnl;
+    private double returnPercent;
+    private double maxDrawdownPercent;
+
+    public double getWinRate() {
+        return totalTrades > 0 ? (double) winningTrades / totalTrades * 100.0 : 0.0;
+    }
+}
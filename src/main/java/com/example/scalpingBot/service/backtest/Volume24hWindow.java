@@ -0,0 +1,91 @@
+package com.example.scalpingBot.service.backtest;
+
+/**
+ * Скользящий объем за 24 часа по закрытым свечам
+ *
+ * Окно определяется временем открытия свечей, а не их количеством:
+ * в сумму входят свечи, открытые не раньше чем за 24 часа до последней.
+ * Поэтому разрыв в истории (пропущенные месяцы архива, простой записи)
+ * не переносит объем старых свечей в новый участок - так же, как
+ * 24h тикер биржи в живой торговле.
+ *
+ * Свечи добавляются по возрастанию времени открытия, добавление за O(1)
+ * без выделения памяти.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+final class Volume24hWindow {
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    private final long[] openTimes;
+    private final double[] volumes;
+    private final double[] quoteVolumes;
+
+    /**
+     * Индекс самой старой свечи и количество свечей в окне
+     */
+    private int head;
+    private int count;
+
+    private double volume;
+    private double quoteVolume;
+
+    /**
+     * @param intervalMs длительность свечи
+     */
+    Volume24hWindow(long intervalMs) {
+        int capacity = (int) Math.max(1, DAY_MS / intervalMs);
+        this.openTimes = new long[capacity];
+        this.volumes = new double[capacity];
+        this.quoteVolumes = new double[capacity];
+    }
+
+    /**
+     * Добавить закрытую свечу
+     *
+     * @param openTime время открытия (Unix ms)
+     * @param candleVolume объем в базовом активе
+     * @param candleQuoteVolume объем в котируемом активе
+     */
+    void add(long openTime, double candleVolume, double candleQuoteVolume) {
+        long windowStart = openTime - DAY_MS;
+        while (count > 0 && (openTimes[head] <= windowStart || count == openTimes.length)) {
+            volume -= volumes[head];
+            quoteVolume -= quoteVolumes[head];
+            head = (head + 1) % openTimes.length;
+            count--;
+        }
+
+        int tail = (head + count) % openTimes.length;
+        openTimes[tail] = openTime;
+        volumes[tail] = candleVolume;
+        quoteVolumes[tail] = candleQuoteVolume;
+        count++;
+        volume += candleVolume;
+        quoteVolume += candleQuoteVolume;
+
+        // Раз в оборот буфера пересчитываем суммы, чтобы не накапливалась ошибка округления
+        if (tail == openTimes.length - 1) {
+            recalculate();
+        }
+    }
+
+    double volume() {
+        return volume;
+    }
+
+    double quoteVolume() {
+        return quoteVolume;
+    }
+
+    private void recalculate() {
+        volume = 0;
+        quoteVolume = 0;
+        for (int k = 0, index = head; k < count; k++, index = (index + 1) % openTimes.length) {
+            volume += volumes[index];
+            quoteVolume += quoteVolumes[index];
+        }
+    }
+}
@@ -0,0 +1,531 @@
+package com.example.scalpingBot.service.exchange;
+
+import com.example.scalpingBot.exception.ExchangeApiException;
+import com.example.scalpingBot.utils.HmacSigner;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST адаптер Binance Spot API (/api/v3)
+ *
+ * Основные функции:
+ * - Рыночные данные, ордера и listenKey потока пользовательских данных
+ * - Подпись HMAC-SHA256 в строке запроса, timestamp и recvWindow
+ *   по ExchangeClockService в момент отправки
+ * - Веса REQUEST_WEIGHT и счетчики ордеров для ExchangeRateLimiter,
+ *   синхронизация по заголовкам x-mbx-* и пауза после 429/418
+ * - Разбор ответов потоковыми декодерами (BinanceResponseDecoder)
+ * - Маппинг кодов ошибок Binance в ExchangeApiException
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BinanceExchangeAdapter implements ExchangeAdapter {
+
+    private final WebClient tradingWebClient;
+    private final WebClient marketDataWebClient;
+    private final ObjectMapper objectMapper;
+    private final ExchangeRateLimiter rateLimiter;
+    private final ExchangeClockService clockService;
+
+    /**
+     * Конфигурация биржи
+     */
+    @Value("${exchanges.binance.api-key:}")
+    private String apiKey;
+
+    @Value("${exchanges.binance.secret-key:}")
+    private String secretKey;
+
+    @Value("${exchanges.binance.api-url:https://api.binance.com}")
+    private String apiUrl;
+
+    @Value("${exchanges.binance.testnet:true}")
+    private boolean testnet;
+
+    /**
+     * Константы API
+     */
+    private static final String BINANCE = "binance";
+    private static final int REQUEST_TIMEOUT_MS = 10000;
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    @Override
+    public String getName() {
+        return BINANCE;
+    }
+
+    @Override
+    public Mono<ExchangeResponses.TickerSnapshot> getTicker(String symbol) {
+        String endpoint = "/api/v3/ticker/24hr";
+        Map<String, String> params = new HashMap<>();
+        params.put("symbol", symbol);
+
+        return makeRequest(marketDataWebClient, endpoint, HttpMethod.GET, params, false,
+                ExchangeRateLimiter.Priority.MARKET_DATA, BinanceResponseDecoder::decodeTicker);
+    }
+
+    @Override
+    public Mono<List<ExchangeResponses.TickerSnapshot>> getTickers(Collection<String> symbols) {
+        String endpoint = "/api/v3/ticker/24hr";
+        Map<String, String> params = new HashMap<>();
+        params.put("symbols", buildSymbolsParam(symbols));
+
+        return makeRequest(marketDataWebClient, endpoint, HttpMethod.GET, params, false,
+                ExchangeRateLimiter.Priority.MARKET_DATA, BinanceResponseDecoder::decodeTickers);
+    }
+
+    @Override
+    public Mono<List<ExchangeResponses.BookTickerSnapshot>> getBookTickers(Collection<String> symbols) {
+        String endpoint = "/api/v3/ticker/bookTicker";
+        Map<String, String> params = new HashMap<>();
+        params.put("symbols", buildSymbolsParam(symbols));
+
+        return makeRequest(marketDataWebClient, endpoint, HttpMethod.GET, params, false,
+                ExchangeRateLimiter.Priority.MARKET_DATA, BinanceResponseDecoder::decodeBookTickers);
+    }
+
+    @Override
+    public Mono<ExchangeResponses.DepthSnapshot> getOrderBook(String symbol, int limit) {
+        String endpoint = "/api/v3/depth";
+        Map<String, String> params = new HashMap<>();
+        params.put("symbol", symbol);
+        params.put("limit", String.valueOf(limit));
+
+        return makeRequest(marketDataWebClient, endpoint, HttpMethod.GET, params, false,
+                ExchangeRateLimiter.Priority.MARKET_DATA, body -> BinanceResponseDecoder.decodeDepth(body, limit));
+    }
+
+    @Override
+    public Mono<ExchangeResponses.KlineBatch> getKlines(String symbol, String interval, long startTime, int limit) {
+        String endpoint = "/api/v3/klines";
+        Map<String, String> params = new HashMap<>();
+        params.put("symbol", symbol);
+        params.put("interval", interval);
+        params.put("limit", String.valueOf(limit));
+        if (startTime > 0) {
+            params.put("startTime", String.valueOf(startTime));
+        }
+
+        return makeRequest(marketDataWebClient, endpoint, HttpMethod.GET, params, false,
+                ExchangeRateLimiter.Priority.MARKET_DATA, body -> BinanceResponseDecoder.decodeKlines(body, limit))
+                .doOnError(e -> log.error("Failed to get Binance klines: {}", e.getMessage()));
+    }
+
+    @Override
+    public Mono<ExchangeResponses.OrderResponse> placeMarketOrder(String symbol, String side, BigDecimal quantity,
+                                                                  ExchangeRateLimiter.Priority priority) {
+        String endpoint = "/api/v3/order";
+        Map<String, String> params = new HashMap<>();
+        params.put("symbol", symbol);
+        params.put("side", side.toUpperCase());
+        params.put("type", "MARKET");
+        params.put("quantity", quantity.toString());
+
+        return makeRequest(tradingWebClient, endpoint, HttpMethod.POST, params, true, priority,
+                BinanceResponseDecoder::decodeOrder);
+    }
+
+    @Override
+    public Mono<ExchangeResponses.OrderResponse> placeLimitOrder(String symbol, String side, BigDecimal quantity,
+                                                                 BigDecimal price, ExchangeRateLimiter.Priority priority) {
+        String endpoint = "/api/v3/order";
+        Map<String, String> params = new HashMap<>();
+        params.put("symbol", symbol);
+        params.put("side", side.toUpperCase());
+        params.put("type", "LIMIT");
+        params.put("timeInForce", "GTC");
+        params.put("quantity", quantity.toString());
+        params.put("price", price.toString());
+
+        return makeRequest(tradingWebClient, endpoint, HttpMethod.POST, params, true, priority,
+                BinanceResponseDecoder::decodeOrder);
+    }
+
+    @Override
+    public Mono<ExchangeResponses.OrderResponse> placeStopOrder(String symbol, String side, BigDecimal quantity,
+                                                                BigDecimal stopPrice) {
+        String endpoint = "/api/v3/order";
+        Map<String, String> params = new HashMap<>();
+        params.put("symbol", symbol);
+        params.put("side", side.toUpperCase());
+        params.put("type", "STOP_LOSS_LIMIT");
+        params.put("timeInForce", "GTC");
+        params.put("quantity", quantity.toString());
+        params.put("price", stopPrice.toString());
+        params.put("stopPrice", stopPrice.toString());
+
+        // Стоп-лосс защищает позицию - не ждет входов и рыночных данных
+        return makeRequest(tradingWebClient, endpoint, HttpMethod.POST, params, true,
+                ExchangeRateLimiter.Priority.PROTECTIVE, BinanceResponseDecoder::decodeOrder);
+    }
+
+    @Override
+    public Mono<ExchangeResponses.OrderResponse> cancelOrder(String symbol, String orderId) {
+        String endpoint = "/api/v3/order";
+        Map<String, String> params = new HashMap<>();
+        params.put("symbol", symbol);
+        params.put("orderId", orderId);
+
+        return makeRequest(tradingWebClient, endpoint, HttpMethod.DELETE, params, true,
+                ExchangeRateLimiter.Priority.PROTECTIVE, BinanceResponseDecoder::decodeOrder);
+    }
+
+    @Override
+    public Mono<ExchangeResponses.OrderResponse> getOrderStatus(String symbol, String orderId) {
+        String endpoint = "/api/v3/order";
+        Map<String, String> params = new HashMap<>();
+        params.put("symbol", symbol);
+        params.put("orderId", orderId);
+
+        return makeRequest(tradingWebClient, endpoint, HttpMethod.GET, params, true,
+                ExchangeRateLimiter.Priority.ENTRY, BinanceResponseDecoder::decodeOrder);
+    }
+
+    /**
+     * Получить балансы счета (/api/v3/account, подписанный запрос)
+     *
+     * @return ответ счета: updateTime и массив balances [{asset, free, locked}]
+     */
+    public Mono<Map<String, Object>> getAccount() {
+        Map<String, String> params = new HashMap<>();
+        params.put("omitZeroBalances", "true");
+
+        return makeRequest(tradingWebClient, "/api/v3/account", HttpMethod.GET, params, true,
+                ExchangeRateLimiter.Priority.ENTRY, this::parseJsonResponse);
+    }
+
+    // === listenKey (USER_STREAM: только API ключ, без подписи) ===
+
+    /**
+     * Создать listenKey для потока пользовательских данных
+     *
+     * @return listenKey (действует 60 минут без продления)
+     */
+    public Mono<String> createListenKey() {
+        return makeRequest(tradingWebClient, "/api/v3/userDataStream", HttpMethod.POST,
+                new HashMap<>(), false, true, ExchangeRateLimiter.Priority.ENTRY, this::parseJsonResponse)
+                .map(response -> {
+                    Object listenKey = response.get("listenKey");
+                    if (listenKey == null) {
+                        throw new ExchangeApiException(BINANCE, ExchangeApiException.ApiErrorType.PARSING_ERROR,
+                                "No listenKey in response: " + response, 200);
+                    }
+                    return listenKey.toString();
+                });
+    }
+
+    /**
+     * Продлить (PUT) или закрыть (DELETE) listenKey
+     */
+    public Mono<Void> updateListenKey(HttpMethod method, String listenKey) {
+        Map<String, String> params = new HashMap<>();
+        params.put("listenKey", listenKey);
+
+        return makeRequest(tradingWebClient, "/api/v3/userDataStream", method, params, false, true,
+                ExchangeRateLimiter.Priority.ENTRY, this::parseJsonResponse)
+                .then();
+    }
+
+    // === Выполнение запросов ===
+
+    /**
+     * Параметр symbols: JSON массив ["BTCUSDT","ETHUSDT"], уже закодированный для URL
+     * (строка запроса собирается без экранирования)
+     */
+    private static String buildSymbolsParam(Collection<String> symbols) {
+        StringBuilder param = new StringBuilder(symbols.size() * 14 + 6).append("%5B");
+        boolean first = true;
+        for (String symbol : symbols) {
+            if (!first) {
+                param.append(',');
+            }
+            param.append("%22").append(symbol.toUpperCase()).append("%22");
+            first = false;
+        }
+        return param.append("%5D").toString();
+    }
+
+    /**
+     * Выполнить запрос к Binance API
+     *
+     * Запрос ждет разрешения rate limiter'а без блокировки потока (вес
+     * эндпоинта, окна числа ордеров, класс приоритета); подпись, timestamp
+     * (время биржи по ExchangeClockService) и recvWindow формируются в момент отправки.
+     *
+     * @param client пул соединений (торговый или рыночных данных)
+     * @param decoder разбор тела успешного ответа
+     */
+    private <T> Mono<T> makeRequest(WebClient client, String endpoint, HttpMethod method,
+                                    Map<String, String> params, boolean signed,
+                                    ExchangeRateLimiter.Priority priority, BodyDecoder<T> decoder) {
+        return makeRequest(client, endpoint, method, params, signed, signed, priority, decoder);
+    }
+
+    /**
+     * Выполнить запрос к Binance API
+     *
+     * @param withApiKey передать X-MBX-APIKEY без подписи (USER_STREAM эндпоинты)
+     */
+    private <T> Mono<T> makeRequest(WebClient client, String endpoint, HttpMethod method,
+                                    Map<String, String> params, boolean signed, boolean withApiKey,
+                                    ExchangeRateLimiter.Priority priority, BodyDecoder<T> decoder) {
+        int weight = getRequestWeight(endpoint, method, params);
+        int orders = "/api/v3/order".equals(endpoint) && HttpMethod.POST.equals(method) ? 1 : 0;
+
+        return rateLimiter.acquire(BINANCE, priority, weight, orders)
+                .then(Mono.defer(() -> {
+                    if (signed) {
+                        // Время биржи с поправкой на смещение часов, окно - по наблюдаемому RTT
+                        params.put("recvWindow", String.valueOf(clockService.getRecvWindowMs(BINANCE)));
+                        params.put("timestamp", String.valueOf(clockService.currentTimeMs(BINANCE)));
+                    }
+                    return sendRequest(client, endpoint, method, params, signed, withApiKey, decoder);
+                }));
+    }
+
+    /**
+     * Вес запроса Binance (REQUEST_WEIGHT) по документации Spot API
+     */
+    private static int getRequestWeight(String endpoint, HttpMethod method, Map<String, String> params) {
+        switch (endpoint) {
+            case "/api/v3/depth":
+                int limit = Integer.parseInt(params.getOrDefault("limit", "100"));
+                if (limit <= 100) {
+                    return 5;
+                } else if (limit <= 500) {
+                    return 25;
+                } else if (limit <= 1000) {
+                    return 50;
+                }
+                return 250;
+
+            case "/api/v3/ticker/24hr":
+                if (params.containsKey("symbol")) {
+                    return 2;
+                } else if (params.containsKey("symbols")) {
+                    // Число пар в параметре symbols = число запятых + 1
+                    int symbols = countSymbols(params.get("symbols"));
+                    return symbols <= 20 ? 2 : symbols <= 100 ? 40 : 80;
+                }
+                return 80;
+
+            case "/api/v3/ticker/bookTicker":
+                return params.containsKey("symbol") ? 2 : 4;
+
+            case "/api/v3/klines":
+            case "/api/v3/userDataStream":
+                return 2;
+
+            case "/api/v3/order":
+                return HttpMethod.GET.equals(method) ? 4 : 1;
+
+            case "/api/v3/account":
+                return 20;
+
+            default:
+                return 1;
+        }
+    }
+
+    private static int countSymbols(String symbolsParam) {
+        int count = 1;
+        for (int i = 0; i < symbolsParam.length(); i++) {
+            if (symbolsParam.charAt(i) == ',') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Отправить запрос к Binance API
+     *
+     * Тело читается как byte[] и разбирается потоковым декодером без
+     * промежуточных String и Map; в String переводятся только ответы с ошибкой.
+     */
+    private <T> Mono<T> sendRequest(WebClient client, String endpoint, HttpMethod method,
+                                    Map<String, String> params, boolean signed,
+                                    boolean withApiKey, BodyDecoder<T> decoder) {
+        String baseUrl = testnet ? "https://testnet.binance.vision" : apiUrl;
+
+        // Параметры в URL; подпись дописывается в тот же буфер без повторной сборки
+        String queryString = signed
+                ? HmacSigner.forKey(secretKey).buildSignedQuery(params, "signature")
+                : HmacSigner.buildQuery(params);
+
+        URI uri = URI.create(queryString.isEmpty() ? baseUrl + endpoint : baseUrl + endpoint + "?" + queryString);
+
+        log.debug("Binance {} request: {}", method, endpoint);
+
+        return client.method(method)
+                .uri(uri)
+                .headers(headers -> {
+                    headers.setContentType(MediaType.APPLICATION_JSON);
+                    if (withApiKey) {
+                        headers.set("X-MBX-APIKEY", apiKey);
+                    }
+                })
+                .exchangeToMono(response -> {
+                    HttpHeaders responseHeaders = response.headers().asHttpHeaders();
+                    rateLimiter.onResponseHeaders(BINANCE, responseHeaders);
+                    int statusCode = response.statusCode().value();
+
+                    // 429 - лимит превышен, 418 - IP заблокирован за продолжение после 429
+                    if (statusCode == 429 || statusCode == 418) {
+                        rateLimiter.onRateLimited(BINANCE, parseRetryAfterMs(responseHeaders));
+                    }
+
+                    return response.bodyToMono(byte[].class)
+                            .defaultIfEmpty(EMPTY_BODY)
+                            .map(body -> {
+                                if (statusCode >= 400) {
+                                    ExchangeApiException error =
+                                            handleApiError(statusCode, new String(body, StandardCharsets.UTF_8));
+                                    if (error.getErrorType() == ExchangeApiException.ApiErrorType.BINANCE_TIMESTAMP_ERROR) {
+                                        clockService.onTimestampRejected(BINANCE);
+                                    }
+                                    throw error;
+                                }
+                                return decodeBody(endpoint, body, decoder);
+                            });
+                })
+                .onErrorMap(e -> !(e instanceof ExchangeApiException), e -> {
+                    if (e instanceof WebClientRequestException) {
+                        return ExchangeApiException.connectionTimeout(BINANCE, REQUEST_TIMEOUT_MS, e);
+                    }
+                    log.error("Unexpected error in Binance request: {}", e.getMessage());
+                    return new ExchangeApiException(BINANCE, ExchangeApiException.ApiErrorType.UNKNOWN_ERROR,
+                            "Unexpected error: " + e.getMessage(), e);
+                });
+    }
+
+    /**
+     * Разобрать тело ответа, ошибки формата - PARSING_ERROR
+     */
+    private static <T> T decodeBody(String endpoint, byte[] body, BodyDecoder<T> decoder) {
+        try {
+            return decoder.decode(body);
+        } catch (IOException e) {
+            log.error("Failed to parse Binance {} response: {}", endpoint, e.getMessage());
+            throw new ExchangeApiException(BINANCE, ExchangeApiException.ApiErrorType.PARSING_ERROR,
+                    "Failed to parse response: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Парсить JSON ответ без типизированного декодера (служебные эндпоинты listenKey и счета)
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> parseJsonResponse(byte[] json) throws IOException {
+        if (json.length == 0) {
+            return new HashMap<>();
+        }
+        return objectMapper.readValue(json, Map.class);
+    }
+
+    /**
+     * Обработать ошибку Binance API
+     */
+    private ExchangeApiException handleApiError(int statusCode, String responseBody) {
+        try {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> errorResponse = objectMapper.readValue(responseBody, Map.class);
+
+            Integer code = (Integer) errorResponse.get("code");
+            String msg = (String) errorResponse.get("msg");
+
+            // Маппинг специфичных ошибок Binance
+            ExchangeApiException.ApiErrorType errorType = mapErrorCode(code, statusCode);
+
+            return new ExchangeApiException(BINANCE, errorType, msg, statusCode,
+                    code != null ? code.toString() : null, null, null, null, null, null);
+
+        } catch (Exception parseError) {
+            log.error("Failed to parse Binance error response: {}", parseError.getMessage());
+            return new ExchangeApiException(BINANCE, ExchangeApiException.ApiErrorType.UNKNOWN_ERROR,
+                    "HTTP " + statusCode + ": " + responseBody, statusCode);
+        }
+    }
+
+    /**
+     * Маппинг кодов ошибок Binance
+     */
+    private ExchangeApiException.ApiErrorType mapErrorCode(Integer code, int httpStatus) {
+        if (code == null) {
+            return ExchangeApiException.ApiErrorType.UNKNOWN_ERROR;
+        }
+
+        switch (code) {
+            case -1021: // Timestamp outside recv window
+                return ExchangeApiException.ApiErrorType.BINANCE_TIMESTAMP_ERROR;
+            case -1022: // Invalid signature
+                return ExchangeApiException.ApiErrorType.INVALID_SIGNATURE;
+            case -2010: // Insufficient balance
+                return ExchangeApiException.ApiErrorType.INSUFFICIENT_BALANCE;
+            case -2011: // Order does not exist
+                return ExchangeApiException.ApiErrorType.ORDER_NOT_FOUND;
+            case -1003: // Too many requests
+                return ExchangeApiException.ApiErrorType.RATE_LIMIT_EXCEEDED;
+            case -1013: // Invalid quantity
+                return ExchangeApiException.ApiErrorType.INVALID_QUANTITY;
+            case -1111: // Precision over maximum
+                return ExchangeApiException.ApiErrorType.PRECISION_OVER_MAXIMUM;
+            default:
+                if (httpStatus == 401) {
+                    return ExchangeApiException.ApiErrorType.AUTHENTICATION_FAILED;
+                } else if (httpStatus == 429) {
+                    return ExchangeApiException.ApiErrorType.RATE_LIMIT_EXCEEDED;
+                } else if (httpStatus >= 500) {
+                    return ExchangeApiException.ApiErrorType.INTERNAL_SERVER_ERROR;
+                } else {
+                    return ExchangeApiException.ApiErrorType.UNKNOWN_ERROR;
+                }
+        }
+    }
+
+    /**
+     * Пауза из заголовка Retry-After (секунды), 0 если заголовка нет
+     */
+    static long parseRetryAfterMs(HttpHeaders headers) {
+        String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter == null) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(retryAfter.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Разбор тела ответа в типизированную структуру
+     */
+    @FunctionalInterface
+    interface BodyDecoder<T> {
+        T decode(byte[] body) throws IOException;
+    }
+}
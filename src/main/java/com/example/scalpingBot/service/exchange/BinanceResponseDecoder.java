@@ -0,0 +1,433 @@
+package com.example.scalpingBot.service.exchange;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковые декодеры ответов Binance REST API
+ *
+ * Основные функции:
+ * - Разбор свечей, стакана, тикеров 24h, лучших цен и ответов по ордерам через JsonParser
+ * - Цены и объемы пишутся сразу в long с масштабом 10^8 (FixedPointUtils)
+ *   из буфера символов парсера, без промежуточных String и Map
+ * - Свечи и уровни стакана - в параллельные массивы примитивов
+ *
+ * Имена полей канонизируются таблицей символов Jackson, поэтому строки
+ * создаются только для текстовых полей ордера (symbol, status, side).
+ * Структуры результата общие для всех бирж (ExchangeResponses).
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public final class BinanceResponseDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Приватный конструктор для утилитарного класса
+    private BinanceResponseDecoder() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Разобрать ответ /api/v3/klines
+     *
+     * @param json массив свечей [[openTime, "open", "high", "low", "close", "volume", closeTime, "quoteVolume", trades, ...], ...]
+     * @return свечи от старых к новым
+     * @throws IOException если ответ не соответствует формату
+     */
+    public static ExchangeResponses.KlineBatch decodeKlines(byte[] json) throws IOException {
+        return decodeKlines(json, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Разобрать ответ /api/v3/klines с заранее выделенными массивами
+     *
+     * @param json массив свечей
+     * @param expectedSize ожидаемое количество свечей (limit запроса)
+     * @return свечи от старых к новым
+     * @throws IOException если ответ не соответствует формату
+     */
+    public static ExchangeResponses.KlineBatch decodeKlines(byte[] json, int expectedSize) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            DecimalChars chars = new DecimalChars();
+            ExchangeResponses.KlineBatch batch = new ExchangeResponses.KlineBatch(Math.max(1, expectedSize));
+
+            expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+            while (parser.nextToken() == JsonToken.START_ARRAY) {
+                batch.ensureCapacity(batch.size + 1);
+                int i = batch.size;
+                int field = 0;
+
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    switch (field++) {
+                        case 0:
+                            batch.openTimes[i] = parser.getLongValue();
+                            break;
+                        case 1:
+                            batch.opens[i] = chars.parse(parser);
+                            break;
+                        case 2:
+                            batch.highs[i] = chars.parse(parser);
+                            break;
+                        case 3:
+                            batch.lows[i] = chars.parse(parser);
+                            break;
+                        case 4:
+                            batch.closes[i] = chars.parse(parser);
+                            break;
+                        case 5:
+                            batch.volumes[i] = chars.parse(parser);
+                            break;
+                        case 6:
+                            batch.closeTimes[i] = parser.getLongValue();
+                            break;
+                        case 7:
+                            batch.quoteVolumes[i] = chars.parse(parser);
+                            break;
+                        case 8:
+                            batch.tradeCounts[i] = parser.getIntValue();
+                            break;
+                        default:
+                            parser.skipChildren();
+                            break;
+                    }
+                }
+
+                if (field < 9) {
+                    throw new JsonParseException(parser, "Kline has " + field + " fields, expected at least 9");
+                }
+                batch.size++;
+            }
+
+            return batch;
+        }
+    }
+
+    /**
+     * Разобрать ответ /api/v3/depth
+     *
+     * @param json {"lastUpdateId": 1, "bids": [["price", "qty"], ...], "asks": [...]}
+     * @return снимок стакана
+     * @throws IOException если ответ не соответствует формату
+     */
+    public static ExchangeResponses.DepthSnapshot decodeDepth(byte[] json) throws IOException {
+        return decodeDepth(json, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Разобрать ответ /api/v3/depth с заранее выделенными массивами
+     *
+     * @param json снимок стакана
+     * @param expectedLevels ожидаемое количество уровней на сторону (limit запроса)
+     * @return снимок стакана
+     * @throws IOException если ответ не соответствует формату
+     */
+    public static ExchangeResponses.DepthSnapshot decodeDepth(byte[] json, int expectedLevels) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            DecimalChars chars = new DecimalChars();
+            ExchangeResponses.DepthSnapshot snapshot = new ExchangeResponses.DepthSnapshot();
+
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            String fieldName;
+            while ((fieldName = parser.nextFieldName()) != null) {
+                JsonToken token = parser.nextToken();
+                switch (fieldName) {
+                    case "lastUpdateId":
+                        snapshot.lastUpdateId = parser.getLongValue();
+                        break;
+                    case "bids":
+                        expect(parser, token, JsonToken.START_ARRAY);
+                        snapshot.bids = ExchangeResponses.Levels.read(parser, chars, expectedLevels);
+                        break;
+                    case "asks":
+                        expect(parser, token, JsonToken.START_ARRAY);
+                        snapshot.asks = ExchangeResponses.Levels.read(parser, chars, expectedLevels);
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+
+            return snapshot;
+        }
+    }
+
+    /**
+     * Разобрать ответ /api/v3/ticker/24hr для одной пары
+     *
+     * @param json объект тикера
+     * @return тикер
+     * @throws IOException если ответ не соответствует формату
+     */
+    public static ExchangeResponses.TickerSnapshot decodeTicker(byte[] json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            return readTicker(parser, new DecimalChars());
+        }
+    }
+
+    /**
+     * Разобрать ответ /api/v3/ticker/24hr для нескольких пар (параметр symbols)
+     *
+     * @param json массив тикеров
+     * @return тикеры в порядке ответа
+     * @throws IOException если ответ не соответствует формату
+     */
+    public static List<ExchangeResponses.TickerSnapshot> decodeTickers(byte[] json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            DecimalChars chars = new DecimalChars();
+            List<ExchangeResponses.TickerSnapshot> tickers = new ArrayList<>();
+
+            expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                tickers.add(readTicker(parser, chars));
+            }
+            return tickers;
+        }
+    }
+
+    /**
+     * Разобрать ответ /api/v3/ticker/bookTicker для нескольких пар (параметр symbols)
+     *
+     * @param json массив [{"symbol": "...", "bidPrice": "...", "bidQty": "...", "askPrice": "...", "askQty": "..."}, ...]
+     * @return лучшие цены в порядке ответа
+     * @throws IOException если ответ не соответствует формату
+     */
+    public static List<ExchangeResponses.BookTickerSnapshot> decodeBookTickers(byte[] json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            DecimalChars chars = new DecimalChars();
+            List<ExchangeResponses.BookTickerSnapshot> bookTickers = new ArrayList<>();
+
+            expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                ExchangeResponses.BookTickerSnapshot bookTicker = new ExchangeResponses.BookTickerSnapshot();
+                String fieldName;
+                while ((fieldName = parser.nextFieldName()) != null) {
+                    JsonToken token = parser.nextToken();
+                    if (token == JsonToken.VALUE_NULL) {
+                        continue;
+                    }
+
+                    switch (fieldName) {
+                        case "symbol":
+                            bookTicker.setSymbol(parser.getText());
+                            break;
+                        case "bidPrice":
+                            bookTicker.setBidPrice(chars.parse(parser));
+                            break;
+                        case "bidQty":
+                            bookTicker.setBidQuantity(chars.parse(parser));
+                            break;
+                        case "askPrice":
+                            bookTicker.setAskPrice(chars.parse(parser));
+                            break;
+                        case "askQty":
+                            bookTicker.setAskQuantity(chars.parse(parser));
+                            break;
+                        default:
+                            parser.skipChildren();
+                            break;
+                    }
+                }
+                bookTickers.add(bookTicker);
+            }
+            return bookTickers;
+        }
+    }
+
+    /**
+     * Разобрать ответ /api/v3/time
+     *
+     * @param json {"serverTime": 1499827319559}
+     * @return время сервера (Unix ms)
+     * @throws IOException если ответ не содержит serverTime
+     */
+    public static long decodeServerTime(byte[] json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            String fieldName;
+            while ((fieldName = parser.nextFieldName()) != null) {
+                parser.nextToken();
+                if ("serverTime".equals(fieldName)) {
+                    return parser.getLongValue();
+                }
+                parser.skipChildren();
+            }
+            throw new JsonParseException(parser, "No serverTime in response");
+        }
+    }
+
+    /**
+     * Разобрать ответ на размещение, отмену или запрос ордера (/api/v3/order)
+     *
+     * Комиссии из массива fills (ответ FULL) суммируются.
+     *
+     * @param json объект ордера
+     * @return ответ по ордеру
+     * @throws IOException если ответ не соответствует формату
+     */
+    public static ExchangeResponses.OrderResponse decodeOrder(byte[] json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            DecimalChars chars = new DecimalChars();
+            ExchangeResponses.OrderResponse order = new ExchangeResponses.OrderResponse();
+
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            String fieldName;
+            while ((fieldName = parser.nextFieldName()) != null) {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+
+                switch (fieldName) {
+                    case "symbol":
+                        order.setSymbol(parser.getText());
+                        break;
+                    case "orderId":
+                        order.setOrderId(parser.getText());
+                        break;
+                    case "clientOrderId":
+                        order.setClientOrderId(parser.getText());
+                        break;
+                    case "transactTime":
+                        order.setTransactTime(parser.getLongValue());
+                        break;
+                    case "updateTime":
+                        order.setUpdateTime(parser.getLongValue());
+                        break;
+                    case "price":
+                        order.setPrice(chars.parse(parser));
+                        break;
+                    case "origQty":
+                        order.setOrigQty(chars.parse(parser));
+                        break;
+                    case "executedQty":
+                        order.setExecutedQty(chars.parse(parser));
+                        break;
+                    case "cummulativeQuoteQty":
+                        order.setCummulativeQuoteQty(chars.parse(parser));
+                        break;
+                    case "status":
+                        order.setStatus(parser.getText());
+                        break;
+                    case "type":
+                        order.setType(parser.getText());
+                        break;
+                    case "side":
+                        order.setSide(parser.getText());
+                        break;
+                    case "fills":
+                        expect(parser, token, JsonToken.START_ARRAY);
+                        readFills(parser, chars, order);
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+
+            return order;
+        }
+    }
+
+    /**
+     * Прочитать поля объекта тикера (парсер стоит на START_OBJECT)
+     */
+    private static ExchangeResponses.TickerSnapshot readTicker(JsonParser parser, DecimalChars chars) throws IOException {
+        ExchangeResponses.TickerSnapshot ticker = new ExchangeResponses.TickerSnapshot();
+        String fieldName;
+        while ((fieldName = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+
+            switch (fieldName) {
+                case "symbol":
+                    ticker.setSymbol(parser.getText());
+                    break;
+                case "lastPrice":
+                    ticker.setLastPrice(chars.parse(parser));
+                    break;
+                case "bidPrice":
+                    ticker.setBidPrice(chars.parse(parser));
+                    break;
+                case "askPrice":
+                    ticker.setAskPrice(chars.parse(parser));
+                    break;
+                case "openPrice":
+                    ticker.setOpenPrice(chars.parse(parser));
+                    break;
+                case "highPrice":
+                    ticker.setHighPrice(chars.parse(parser));
+                    break;
+                case "lowPrice":
+                    ticker.setLowPrice(chars.parse(parser));
+                    break;
+                case "weightedAvgPrice":
+                    ticker.setWeightedAvgPrice(chars.parse(parser));
+                    break;
+                case "priceChangePercent":
+                    ticker.setPriceChangePercent(chars.parse(parser));
+                    break;
+                case "volume":
+                    ticker.setVolume(chars.parse(parser));
+                    break;
+                case "quoteVolume":
+                    ticker.setQuoteVolume(chars.parse(parser));
+                    break;
+                case "openTime":
+                    ticker.setOpenTime(parser.getLongValue());
+                    break;
+                case "closeTime":
+                    ticker.setCloseTime(parser.getLongValue());
+                    break;
+                case "count":
+                    ticker.setTradeCount(parser.getLongValue());
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+
+        return ticker;
+    }
+
+    /**
+     * Прочитать массив fills и просуммировать комиссии (парсер на START_ARRAY)
+     */
+    private static void readFills(JsonParser parser, DecimalChars chars, ExchangeResponses.OrderResponse order) throws IOException {
+        long commission = 0;
+
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String fieldName;
+            while ((fieldName = parser.nextFieldName()) != null) {
+                parser.nextToken();
+                if ("commission".equals(fieldName)) {
+                    commission += chars.parse(parser);
+                } else if ("commissionAsset".equals(fieldName) && order.getCommissionAsset() == null) {
+                    order.setCommissionAsset(parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        order.setCommission(commission);
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, "Expected " + expected + " but got " + actual);
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package com.example.scalpingBot.service.exchange;
+
+import com.example.scalpingBot.exception.ExchangeApiException;
+import com.example.scalpingBot.utils.DateUtils;
+import com.example.scalpingBot.utils.HmacSigner;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * REST адаптер Bybit v5 API (спот)
+ *
+ * Основные функции:
+ * - Рыночные данные: тикеры, стакан, свечи (/v5/market/*)
+ * - Ордера: размещение, отмена, статус (/v5/order/*)
+ * - Подпись v5: HMAC-SHA256 от timestamp + apiKey + recvWindow + (query | JSON тело)
+ *   в заголовках X-BAPI-*, timestamp и recvWindow по ExchangeClockService
+ * - Разбор ответов потоковым декодером (BybitResponseDecoder) в общие структуры
+ * - Маппинг retCode Bybit в ExchangeApiException
+ *
+ * Тикеры и лучшие цены по нескольким парам берутся из одного ответа
+ * /v5/market/tickers без параметра symbol (все пары категории), одновременные
+ * запросы объединяются RequestCoalescer'ом в один HTTP запрос.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BybitExchangeAdapter implements ExchangeAdapter {
+
+    private final WebClient tradingWebClient;
+    private final WebClient marketDataWebClient;
+    private final ExchangeRateLimiter rateLimiter;
+    private final RequestCoalescer requestCoalescer;
+    private final ExchangeClockService clockService;
+
+    /**
+     * Конфигурация биржи
+     */
+    @Value("${exchanges.bybit.api-key:}")
+    private String apiKey;
+
+    @Value("${exchanges.bybit.secret-key:}")
+    private String secretKey;
+
+    @Value("${exchanges.bybit.api-url:https://api.bybit.com}")
+    private String apiUrl;
+
+    @Value("${exchanges.bybit.category:spot}")
+    private String category;
+
+    /**
+     * Константы API
+     */
+    private static final String BYBIT = "bybit";
+    private static final int REQUEST_TIMEOUT_MS = 10000;
+    private static final int MAX_DEPTH_LIMIT = 200;
+    private static final int MAX_KLINE_LIMIT = 1000;
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    @Override
+    public String getName() {
+        return BYBIT;
+    }
+
+    @Override
+    public Mono<ExchangeResponses.TickerSnapshot> getTicker(String symbol) {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("category", category);
+        params.put("symbol", symbol.toUpperCase());
+
+        return makeRequest(marketDataWebClient, "/v5/market/tickers", HttpMethod.GET, params, false,
+                ExchangeRateLimiter.Priority.MARKET_DATA, body -> {
+                    List<ExchangeResponses.TickerSnapshot> tickers = BybitResponseDecoder.decodeTickers(body, null);
+                    if (tickers.isEmpty()) {
+                        throw new IOException("No ticker for " + symbol);
+                    }
+                    return tickers.get(0);
+                });
+    }
+
+    @Override
+    public Mono<List<ExchangeResponses.TickerSnapshot>> getTickers(Collection<String> symbols) {
+        Set<String> wanted = toUpperCase(symbols);
+        return getAllTickersBody()
+                .map(body -> decodeBody("/v5/market/tickers", body,
+                        json -> BybitResponseDecoder.decodeTickers(json, wanted)));
+    }
+
+    @Override
+    public Mono<List<ExchangeResponses.BookTickerSnapshot>> getBookTickers(Collection<String> symbols) {
+        Set<String> wanted = toUpperCase(symbols);
+        return getAllTickersBody()
+                .map(body -> decodeBody("/v5/market/tickers", body,
+                        json -> BybitResponseDecoder.decodeBookTickers(json, wanted)));
+    }
+
+    @Override
+    public Mono<ExchangeResponses.DepthSnapshot> getOrderBook(String symbol, int limit) {
+        int depth = Math.min(limit, MAX_DEPTH_LIMIT);
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("category", category);
+        params.put("symbol", symbol.toUpperCase());
+        params.put("limit", String.valueOf(depth));
+
+        return makeRequest(marketDataWebClient, "/v5/market/orderbook", HttpMethod.GET, params, false,
+                ExchangeRateLimiter.Priority.MARKET_DATA, body -> BybitResponseDecoder.decodeDepth(body, depth));
+    }
+
+    @Override
+    public Mono<ExchangeResponses.KlineBatch> getKlines(String symbol, String interval, long startTime, int limit) {
+        long intervalMs;
+        String bybitInterval;
+        try {
+            intervalMs = DateUtils.intervalToMillis(interval);
+            bybitInterval = toBybitInterval(interval);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ExchangeApiException(BYBIT, ExchangeApiException.ApiErrorType.UNKNOWN_ERROR,
+                    e.getMessage(), 400));
+        }
+
+        int size = Math.min(limit, MAX_KLINE_LIMIT);
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("category", category);
+        params.put("symbol", symbol.toUpperCase());
+        params.put("interval", bybitInterval);
+        params.put("limit", String.valueOf(size));
+        if (startTime > 0) {
+            // Bybit возвращает последние свечи диапазона - диапазон ограничивается limit свечами от start
+            params.put("start", String.valueOf(startTime));
+            params.put("end", String.valueOf(startTime + size * intervalMs - 1));
+        }
+
+        return makeRequest(marketDataWebClient, "/v5/market/kline", HttpMethod.GET, params, false,
+                ExchangeRateLimiter.Priority.MARKET_DATA,
+                body -> BybitResponseDecoder.decodeKlines(body, intervalMs, size))
+                .doOnError(e -> log.error("Failed to get Bybit klines: {}", e.getMessage()));
+    }
+
+    @Override
+    public Mono<ExchangeResponses.OrderResponse> placeMarketOrder(String symbol, String side, BigDecimal quantity,
+                                                                  ExchangeRateLimiter.Priority priority) {
+        Map<String, String> params = orderParams(symbol, side, "Market", quantity);
+        // Количество рыночной покупки в базовой валюте, как у Binance quantity
+        params.put("marketUnit", "baseCoin");
+
+        return placeOrder(params, symbol, side, "MARKET", priority);
+    }
+
+    @Override
+    public Mono<ExchangeResponses.OrderResponse> placeLimitOrder(String symbol, String side, BigDecimal quantity,
+                                                                 BigDecimal price, ExchangeRateLimiter.Priority priority) {
+        Map<String, String> params = orderParams(symbol, side, "Limit", quantity);
+        params.put("price", price.toPlainString());
+        params.put("timeInForce", "GTC");
+
+        return placeOrder(params, symbol, side, "LIMIT", priority);
+    }
+
+    @Override
+    public Mono<ExchangeResponses.OrderResponse> placeStopOrder(String symbol, String side, BigDecimal quantity,
+                                                                BigDecimal stopPrice) {
+        Map<String, String> params = orderParams(symbol, side, "Limit", quantity);
+        params.put("price", stopPrice.toPlainString());
+        params.put("triggerPrice", stopPrice.toPlainString());
+        params.put("timeInForce", "GTC");
+        params.put("orderFilter", "StopOrder");
+
+        // Стоп-лосс защищает позицию - не ждет входов и рыночных данных
+        return placeOrder(params, symbol, side, "STOP_LOSS_LIMIT", ExchangeRateLimiter.Priority.PROTECTIVE);
+    }
+
+    /**
+     * Отменить ордер
+     *
+     * Ответ Bybit подтверждает только прием отмены: ордер мог исполниться
+     * до нее, поэтому статус - PENDING_CANCEL, а итог дает поток ордеров
+     * или getOrderStatus.
+     */
+    @Override
+    public Mono<ExchangeResponses.OrderResponse> cancelOrder(String symbol, String orderId) {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("category", category);
+        params.put("symbol", symbol.toUpperCase());
+        params.put("orderId", orderId);
+
+        return makeRequest(tradingWebClient, "/v5/order/cancel", HttpMethod.POST, params, true,
+                ExchangeRateLimiter.Priority.PROTECTIVE, body -> BybitResponseDecoder.decodeOrderAck(body, "PENDING_CANCEL"))
+                .doOnNext(response -> response.setSymbol(symbol.toUpperCase()));
+    }
+
+    @Override
+    public Mono<ExchangeResponses.OrderResponse> getOrderStatus(String symbol, String orderId) {
+        // Активные ордера - в /v5/order/realtime, исполненные и отмененные - в истории
+        return queryOrder("/v5/order/realtime", symbol, orderId)
+                .switchIfEmpty(Mono.defer(() -> queryOrder("/v5/order/history", symbol, orderId)))
+                .switchIfEmpty(Mono.error(() -> new ExchangeApiException(BYBIT,
+                        ExchangeApiException.ApiErrorType.ORDER_NOT_FOUND, "Order not found: " + orderId, 404)));
+    }
+
+    // === Ордера ===
+
+    private Map<String, String> orderParams(String symbol, String side, String orderType, BigDecimal quantity) {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("category", category);
+        params.put("symbol", symbol.toUpperCase());
+        params.put("side", "BUY".equalsIgnoreCase(side) ? "Buy" : "Sell");
+        params.put("orderType", orderType);
+        params.put("qty", quantity.toPlainString());
+        return params;
+    }
+
+    /**
+     * Разместить ордер; ответ Bybit содержит только ID, сторона и тип дополняются из запроса
+     */
+    private Mono<ExchangeResponses.OrderResponse> placeOrder(Map<String, String> params, String symbol, String side,
+                                                             String type, ExchangeRateLimiter.Priority priority) {
+        return makeRequest(tradingWebClient, "/v5/order/create", HttpMethod.POST, params, true, priority,
+                body -> BybitResponseDecoder.decodeOrderAck(body, "NEW"))
+                .doOnNext(response -> {
+                    response.setSymbol(symbol.toUpperCase());
+                    response.setSide(side.toUpperCase());
+                    response.setType(type);
+                });
+    }
+
+    private Mono<ExchangeResponses.OrderResponse> queryOrder(String endpoint, String symbol, String orderId) {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("category", category);
+        params.put("symbol", symbol.toUpperCase());
+        params.put("orderId", orderId);
+
+        // decodeOrder возвращает null для пустого списка - Mono завершается пустым
+        return makeRequest(tradingWebClient, endpoint, HttpMethod.GET, params, true,
+                ExchangeRateLimiter.Priority.ENTRY, BybitResponseDecoder::decodeOrder);
+    }
+
+    // === Рыночные данные ===
+
+    /**
+     * Тело /v5/market/tickers по всем парам категории
+     *
+     * Один ответ обслуживает и тикеры, и лучшие цены, поэтому одновременные
+     * запросы объединяются по сырому телу, а разбор выполняет каждый вызывающий.
+     */
+    private Mono<byte[]> getAllTickersBody() {
+        return requestCoalescer.coalesce(BYBIT, "tickers", "*", category, 0, () -> {
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("category", category);
+            return makeRequest(marketDataWebClient, "/v5/market/tickers", HttpMethod.GET, params, false,
+                    ExchangeRateLimiter.Priority.MARKET_DATA, body -> body);
+        });
+    }
+
+    private static Set<String> toUpperCase(Collection<String> symbols) {
+        return symbols.stream().map(String::toUpperCase).collect(Collectors.toSet());
+    }
+
+    /**
+     * Интервал Binance (1m, 1h, 1d, 1w) в формате Bybit (1, 60, D, W)
+     */
+    static String toBybitInterval(String interval) {
+        long minutes = DateUtils.intervalToMillis(interval) / 60_000L;
+        switch (interval.charAt(interval.length() - 1)) {
+            case 'm':
+            case 'h':
+                return String.valueOf(minutes);
+            case 'd':
+                if (minutes == 1440) {
+                    return "D";
+                }
+                break;
+            case 'w':
+                if (minutes == 10080) {
+                    return "W";
+                }
+                break;
+            default:
+                break;
+        }
+        throw new IllegalArgumentException("Unsupported Bybit kline interval: " + interval);
+    }
+
+    // === Выполнение запросов ===
+
+    /**
+     * Выполнить запрос к Bybit API
+     *
+     * Запрос ждет разрешения rate limiter'а без блокировки потока; подпись,
+     * timestamp (время биржи по ExchangeClockService) и recvWindow формируются
+     * в момент отправки. GET параметры передаются в строке запроса, POST - JSON телом.
+     *
+     * @param client пул соединений (торговый или рыночных данных)
+     * @param decoder разбор тела успешного ответа
+     */
+    private <T> Mono<T> makeRequest(WebClient client, String endpoint, HttpMethod method,
+                                    Map<String, String> params, boolean signed,
+                                    ExchangeRateLimiter.Priority priority,
+                                    BinanceExchangeAdapter.BodyDecoder<T> decoder) {
+        int orders = "/v5/order/create".equals(endpoint) ? 1 : 0;
+
+        return rateLimiter.acquire(BYBIT, priority, 1, orders)
+                .then(Mono.defer(() -> sendRequest(client, endpoint, method, params, signed, decoder)));
+    }
+
+    /**
+     * Отправить запрос к Bybit API
+     *
+     * Ответ с ошибкой Bybit приходит с HTTP 200 и ненулевым retCode, поэтому
+     * ошибки распознаются декодером и переводятся в ExchangeApiException здесь.
+     */
+    private <T> Mono<T> sendRequest(WebClient client, String endpoint, HttpMethod method,
+                                    Map<String, String> params, boolean signed,
+                                    BinanceExchangeAdapter.BodyDecoder<T> decoder) {
+        boolean post = HttpMethod.POST.equals(method);
+        String queryString = post ? "" : HmacSigner.buildQuery(params);
+        String body = post ? buildJsonBody(params) : null;
+
+        URI uri = URI.create(queryString.isEmpty() ? apiUrl + endpoint : apiUrl + endpoint + "?" + queryString);
+
+        log.debug("Bybit {} request: {}", method, endpoint);
+
+        WebClient.RequestBodySpec request = client.method(method)
+                .uri(uri)
+                .headers(headers -> {
+                    headers.setContentType(MediaType.APPLICATION_JSON);
+                    if (signed) {
+                        String timestamp = String.valueOf(clockService.currentTimeMs(BYBIT));
+                        String recvWindow = String.valueOf(clockService.getRecvWindowMs(BYBIT));
+                        String payload = timestamp + apiKey + recvWindow + (post ? body : queryString);
+                        headers.set("X-BAPI-API-KEY", apiKey);
+                        headers.set("X-BAPI-TIMESTAMP", timestamp);
+                        headers.set("X-BAPI-RECV-WINDOW", recvWindow);
+                        headers.set("X-BAPI-SIGN", HmacSigner.forKey(secretKey).sign(payload));
+                    }
+                });
+        WebClient.RequestHeadersSpec<?> spec = post ? request.bodyValue(body) : request;
+
+        return spec
+                .exchangeToMono(response -> {
+                    HttpHeaders responseHeaders = response.headers().asHttpHeaders();
+                    int statusCode = response.statusCode().value();
+
+                    // 403 - превышен лимит по IP, 429 - по эндпоинту
+                    if (statusCode == 403 || statusCode == 429) {
+                        rateLimiter.onRateLimited(BYBIT, BinanceExchangeAdapter.parseRetryAfterMs(responseHeaders));
+                    }
+
+                    return response.bodyToMono(byte[].class)
+                            .defaultIfEmpty(EMPTY_BODY)
+                            .<T>handle((responseBody, sink) -> {
+                                if (statusCode >= 400) {
+                                    sink.error(new ExchangeApiException(BYBIT, mapHttpStatus(statusCode),
+                                            "HTTP " + statusCode + ": "
+                                                    + new String(responseBody, StandardCharsets.UTF_8), statusCode));
+                                    return;
+                                }
+                                T result = decodeBody(endpoint, responseBody, decoder);
+                                if (result != null) {
+                                    sink.next(result);
+                                }
+                            });
+                })
+                .onErrorMap(e -> !(e instanceof ExchangeApiException), e -> {
+                    if (e instanceof WebClientRequestException) {
+                        return ExchangeApiException.connectionTimeout(BYBIT, REQUEST_TIMEOUT_MS, e);
+                    }
+                    log.error("Unexpected error in Bybit request: {}", e.getMessage());
+                    return new ExchangeApiException(BYBIT, ExchangeApiException.ApiErrorType.UNKNOWN_ERROR,
+                            "Unexpected error: " + e.getMessage(), e);
+                });
+    }
+
+    /**
+     * JSON тело POST запроса из строковых параметров (подписывается ровно отправляемая строка)
+     */
+    private static String buildJsonBody(Map<String, String> params) {
+        StringBuilder json = new StringBuilder(params.size() * 24).append('{');
+        boolean first = true;
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            json.append('"').append(entry.getKey()).append("\":\"").append(entry.getValue()).append('"');
+            first = false;
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Разобрать тело ответа: ненулевой retCode - ошибка Bybit, ошибки формата - PARSING_ERROR
+     */
+    private <T> T decodeBody(String endpoint, byte[] body, BinanceExchangeAdapter.BodyDecoder<T> decoder) {
+        try {
+            return decoder.decode(body);
+        } catch (BybitResponseDecoder.RetCodeException e) {
+            ExchangeApiException.ApiErrorType errorType = mapRetCode(e.getRetCode());
+            if (errorType == ExchangeApiException.ApiErrorType.BYBIT_TIMESTAMP_ERROR) {
+                clockService.onTimestampRejected(BYBIT);
+            } else if (errorType == ExchangeApiException.ApiErrorType.RATE_LIMIT_EXCEEDED) {
+                rateLimiter.onRateLimited(BYBIT, 0);
+            }
+            throw new ExchangeApiException(BYBIT, errorType, e.getMessage(), 200,
+                    String.valueOf(e.getRetCode()), null, null, null, null, null);
+        } catch (IOException e) {
+            log.error("Failed to parse Bybit {} response: {}", endpoint, e.getMessage());
+            throw new ExchangeApiException(BYBIT, ExchangeApiException.ApiErrorType.PARSING_ERROR,
+                    "Failed to parse response: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Маппинг retCode Bybit
+     */
+    private static ExchangeApiException.ApiErrorType mapRetCode(int retCode) {
+        switch (retCode) {
+            case 10002: // Timestamp outside recv_window
+                return ExchangeApiException.ApiErrorType.BYBIT_TIMESTAMP_ERROR;
+            case 10003: // Invalid API key
+                return ExchangeApiException.ApiErrorType.INVALID_API_KEY;
+            case 10004: // Invalid signature
+                return ExchangeApiException.ApiErrorType.INVALID_SIGNATURE;
+            case 10005: // Permission denied
+                return ExchangeApiException.ApiErrorType.INSUFFICIENT_PERMISSIONS;
+            case 10006: // Too many visits
+            case 10018: // Exceeded IP rate limit
+                return ExchangeApiException.ApiErrorType.RATE_LIMIT_EXCEEDED;
+            case 10016: // Server error
+                return ExchangeApiException.ApiErrorType.INTERNAL_SERVER_ERROR;
+            case 170131: // Insufficient balance
+                return ExchangeApiException.ApiErrorType.INSUFFICIENT_BALANCE;
+            case 110001: // Order does not exist
+            case 170213: // Order does not exist
+                return ExchangeApiException.ApiErrorType.ORDER_NOT_FOUND;
+            case 170121: // Invalid symbol
+                return ExchangeApiException.ApiErrorType.INVALID_SYMBOL;
+            case 170136: // Order quantity exceeded upper limit
+                return ExchangeApiException.ApiErrorType.INVALID_QUANTITY;
+            case 170134: // Order price decimal too long
+            case 170137: // Order volume decimal too long
+                return ExchangeApiException.ApiErrorType.PRECISION_OVER_MAXIMUM;
+            default:
+                return ExchangeApiException.ApiErrorType.UNKNOWN_ERROR;
+        }
+    }
+
+    private static ExchangeApiException.ApiErrorType mapHttpStatus(int httpStatus) {
+        if (httpStatus == 401) {
+            return ExchangeApiException.ApiErrorType.AUTHENTICATION_FAILED;
+        } else if (httpStatus == 403 || httpStatus == 429) {
+            return ExchangeApiException.ApiErrorType.RATE_LIMIT_EXCEEDED;
+        } else if (httpStatus >= 500) {
+            return ExchangeApiException.ApiErrorType.INTERNAL_SERVER_ERROR;
+        } else {
+            return ExchangeApiException.ApiErrorType.UNKNOWN_ERROR;
+        }
+    }
+}
@@ -0,0 +1,677 @@
+package com.example.scalpingBot.service.exchange;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Потоковые декодеры ответов Bybit v5 REST API и сообщений публичного потока
+ *
+ * Основные функции:
+ * - Разбор конверта {"retCode", "retMsg", "result", "time"}: ненулевой
+ *   retCode - RetCodeException с кодом биржи (HTTP статус у Bybit обычно 200)
+ * - Тикеры, стакан, свечи и ордера в общие структуры ExchangeResponses,
+ *   цены и объемы - сразу в long ×10^8 из буфера символов парсера
+ * - Свечи Bybit приходят от новых к старым - порядок разворачивается на месте
+ * - Статусы, стороны и типы ордеров переводятся в термины Binance
+ *   (Filled -> FILLED, Buy -> BUY), чтобы исполнение ордеров не зависело от биржи
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public final class BybitResponseDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int INITIAL_CAPACITY = 64;
+    private static final long PERCENT = 100;
+
+    // Признак пустого списка ордеров (ордер не найден в выбранной выборке)
+    private static final ExchangeResponses.OrderResponse NO_ORDER = new ExchangeResponses.OrderResponse();
+
+    // Приватный конструктор для утилитарного класса
+    private BybitResponseDecoder() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Разобрать ответ /v5/market/tickers
+     *
+     * Без параметра symbol биржа возвращает все пары категории, поэтому
+     * пары вне списка пропускаются без создания объектов.
+     *
+     * @param json конверт с result.list тикеров
+     * @param symbols нужные пары в верхнем регистре (null - все)
+     * @return тикеры в порядке ответа
+     * @throws IOException если ответ не соответствует формату или retCode != 0
+     */
+    public static List<ExchangeResponses.TickerSnapshot> decodeTickers(byte[] json, Collection<String> symbols)
+            throws IOException {
+        Envelope<List<ExchangeResponses.TickerSnapshot>> envelope =
+                decodeEnvelope(json, (parser, chars) -> readTickers(parser, chars, symbols));
+
+        // Время тикера у Bybit - время ответа
+        for (ExchangeResponses.TickerSnapshot ticker : envelope.result) {
+            ticker.setCloseTime(envelope.time);
+        }
+        return envelope.result;
+    }
+
+    /**
+     * Разобрать лучшие цены из ответа /v5/market/tickers (поля bid1/ask1)
+     *
+     * @param json конверт с result.list тикеров
+     * @param symbols нужные пары в верхнем регистре (null - все)
+     * @return лучшие цены в порядке ответа
+     * @throws IOException если ответ не соответствует формату или retCode != 0
+     */
+    public static List<ExchangeResponses.BookTickerSnapshot> decodeBookTickers(byte[] json, Collection<String> symbols)
+            throws IOException {
+        Envelope<List<ExchangeResponses.BookTickerSnapshot>> envelope =
+                decodeEnvelope(json, (parser, chars) -> readBookTickers(parser, chars, symbols));
+
+        for (ExchangeResponses.BookTickerSnapshot bookTicker : envelope.result) {
+            bookTicker.setUpdateTime(envelope.time);
+        }
+        return envelope.result;
+    }
+
+    /**
+     * Разобрать ответ /v5/market/orderbook
+     *
+     * @param json конверт с result {"s", "b": [["price", "size"], ...], "a": [...], "u", "seq", "ts"}
+     * @param expectedLevels ожидаемое количество уровней на сторону (limit запроса)
+     * @return снимок стакана, lastUpdateId - поле u
+     * @throws IOException если ответ не соответствует формату или retCode != 0
+     */
+    public static ExchangeResponses.DepthSnapshot decodeDepth(byte[] json, int expectedLevels) throws IOException {
+        return decodeEnvelope(json, (parser, chars) -> readDepth(parser, chars, expectedLevels)).result;
+    }
+
+    /**
+     * Разобрать сообщение потока orderbook.1.{symbol} (вершина стакана)
+     *
+     * @param json {"topic": "orderbook.1.BTCUSDT", "type": "snapshot", "ts": 1, "data": {"s", "b", "a", "u"}}
+     * @return лучшие цены или null, если сообщение не относится к стакану
+     * @throws IOException если сообщение не соответствует формату
+     */
+    public static ExchangeResponses.BookTickerSnapshot decodeBookTop(byte[] json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            DecimalChars chars = new DecimalChars();
+            ExchangeResponses.DepthSnapshot depth = null;
+            long time = 0;
+
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            String fieldName;
+            while ((fieldName = parser.nextFieldName()) != null) {
+                JsonToken token = parser.nextToken();
+                if ("data".equals(fieldName) && token == JsonToken.START_OBJECT) {
+                    depth = readDepth(parser, chars, 1);
+                } else if ("ts".equals(fieldName)) {
+                    time = parser.getValueAsLong();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            if (depth == null || depth.symbol == null) {
+                return null;
+            }
+
+            ExchangeResponses.BookTickerSnapshot top = new ExchangeResponses.BookTickerSnapshot();
+            top.setSymbol(depth.symbol);
+            if (depth.getBidCount() > 0) {
+                top.setBidPrice(depth.getBidPrices()[0]);
+                top.setBidQuantity(depth.getBidQuantities()[0]);
+            }
+            if (depth.getAskCount() > 0) {
+                top.setAskPrice(depth.getAskPrices()[0]);
+                top.setAskQuantity(depth.getAskQuantities()[0]);
+            }
+            top.setUpdateTime(time);
+            return top;
+        }
+    }
+
+    /**
+     * Разобрать ответ /v5/market/kline
+     *
+     * @param json конверт с result.list [["startTime", "open", "high", "low", "close", "volume", "turnover"], ...]
+     * @param intervalMs длительность свечи (Bybit не передает время закрытия)
+     * @param expectedSize ожидаемое количество свечей (limit запроса)
+     * @return свечи от старых к новым
+     * @throws IOException если ответ не соответствует формату или retCode != 0
+     */
+    public static ExchangeResponses.KlineBatch decodeKlines(byte[] json, long intervalMs, int expectedSize)
+            throws IOException {
+        ExchangeResponses.KlineBatch batch =
+                decodeEnvelope(json, (parser, chars) -> readKlines(parser, chars, expectedSize)).result;
+
+        for (int i = 0; i < batch.size; i++) {
+            batch.closeTimes[i] = batch.openTimes[i] + intervalMs - 1;
+        }
+        batch.reverse();
+        return batch;
+    }
+
+    /**
+     * Разобрать ответ /v5/market/time
+     *
+     * @param json конверт с result {"timeSecond": "...", "timeNano": "..."}
+     * @return время сервера (Unix ms)
+     * @throws IOException если ответ не содержит времени
+     */
+    public static long decodeServerTime(byte[] json) throws IOException {
+        return decodeEnvelope(json, (parser, chars) -> {
+            long timeMs = 0;
+            String fieldName;
+            while ((fieldName = parser.nextFieldName()) != null) {
+                parser.nextToken();
+                if ("timeNano".equals(fieldName)) {
+                    timeMs = chars.parseLong(parser) / 1_000_000L;
+                } else if ("timeSecond".equals(fieldName) && timeMs == 0) {
+                    timeMs = chars.parseLong(parser) * 1000L;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (timeMs == 0) {
+                throw new JsonParseException(parser, "No server time in response");
+            }
+            return timeMs;
+        }).result;
+    }
+
+    /**
+     * Разобрать ответ на размещение или отмену ордера (/v5/order/create, /v5/order/cancel)
+     *
+     * Bybit подтверждает только прием запроса ({"orderId", "orderLinkId"});
+     * исполнение приходит в потоке order или по запросу статуса.
+     *
+     * @param json конверт с result {"orderId": "...", "orderLinkId": "..."}
+     * @param status статус для ответа (NEW для размещения, PENDING_CANCEL для отмены)
+     * @return ответ по ордеру
+     * @throws IOException если ответ не соответствует формату или retCode != 0
+     */
+    public static ExchangeResponses.OrderResponse decodeOrderAck(byte[] json, String status) throws IOException {
+        Envelope<ExchangeResponses.OrderResponse> envelope = decodeEnvelope(json, (parser, chars) -> {
+            ExchangeResponses.OrderResponse order = new ExchangeResponses.OrderResponse();
+            String fieldName;
+            while ((fieldName = parser.nextFieldName()) != null) {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                if ("orderId".equals(fieldName)) {
+                    order.setOrderId(parser.getText());
+                } else if ("orderLinkId".equals(fieldName)) {
+                    order.setClientOrderId(parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return order;
+        });
+
+        if (envelope.result.getOrderId() == null) {
+            throw new IOException("No orderId in response");
+        }
+        envelope.result.setStatus(status);
+        envelope.result.setTransactTime(envelope.time);
+        return envelope.result;
+    }
+
+    /**
+     * Разобрать ответ /v5/order/realtime или /v5/order/history
+     *
+     * @param json конверт с result.list ордеров
+     * @return первый ордер списка или null, если список пуст
+     * @throws IOException если ответ не соответствует формату или retCode != 0
+     */
+    public static ExchangeResponses.OrderResponse decodeOrder(byte[] json) throws IOException {
+        return decodeEnvelope(json, (parser, chars) -> {
+            ExchangeResponses.OrderResponse order = null;
+            String fieldName;
+            while ((fieldName = parser.nextFieldName()) != null) {
+                JsonToken token = parser.nextToken();
+                if ("list".equals(fieldName) && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        if (order == null) {
+                            order = readOrder(parser, chars);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            // Пустой список - не ошибка формата, null различается вызывающим
+            return order != null ? order : NO_ORDER;
+        }).resultOrNull(NO_ORDER);
+    }
+
+    /**
+     * Перевести статус ордера Bybit в статус Binance
+     *
+     * @param status orderStatus Bybit (New, PartiallyFilled, Filled, ...)
+     * @return статус в терминах Binance
+     */
+    public static String normalizeOrderStatus(String status) {
+        switch (status) {
+            case "Created":
+            case "New":
+            case "Untriggered":
+            case "Triggered":
+            case "Active":
+                return "NEW";
+            case "PartiallyFilled":
+                return "PARTIALLY_FILLED";
+            case "Filled":
+                return "FILLED";
+            case "Cancelled":
+            case "PartiallyFilledCanceled":
+            case "Deactivated":
+                return "CANCELED";
+            case "Rejected":
+                return "REJECTED";
+            default:
+                return status.toUpperCase();
+        }
+    }
+
+    /**
+     * Перевести сторону или тип ордера Bybit (Buy, Market) в термины Binance (BUY, MARKET)
+     */
+    public static String normalizeEnum(String value) {
+        return value.toUpperCase();
+    }
+
+    // === Разбор result ===
+
+    /**
+     * Разобрать конверт ответа (парсер result стоит на START_OBJECT результата)
+     */
+    private static <T> Envelope<T> decodeEnvelope(byte[] json, ResultReader<T> reader) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            DecimalChars chars = new DecimalChars();
+            Envelope<T> envelope = new Envelope<>();
+            int retCode = 0;
+            String retMsg = null;
+
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            String fieldName;
+            while ((fieldName = parser.nextFieldName()) != null) {
+                JsonToken token = parser.nextToken();
+                switch (fieldName) {
+                    case "retCode":
+                        retCode = parser.getIntValue();
+                        break;
+                    case "retMsg":
+                        retMsg = parser.getText();
+                        break;
+                    case "result":
+                        if (token == JsonToken.START_OBJECT) {
+                            envelope.result = reader.read(parser, chars);
+                        } else {
+                            parser.skipChildren();
+                        }
+                        break;
+                    case "time":
+                        envelope.time = parser.getValueAsLong();
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+
+            if (retCode != 0) {
+                throw new RetCodeException(retCode, retMsg);
+            }
+            if (envelope.result == null) {
+                throw new JsonParseException(parser, "No result in response");
+            }
+            return envelope;
+        }
+    }
+
+    /**
+     * Прочитать result тикеров (парсер на START_OBJECT result)
+     */
+    private static List<ExchangeResponses.TickerSnapshot> readTickers(JsonParser parser, DecimalChars chars,
+                                                                      Collection<String> symbols) throws IOException {
+        List<ExchangeResponses.TickerSnapshot> tickers = new ArrayList<>(symbols != null ? symbols.size() : INITIAL_CAPACITY);
+
+        String fieldName;
+        while ((fieldName = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            if (!"list".equals(fieldName) || token != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                ExchangeResponses.TickerSnapshot ticker = new ExchangeResponses.TickerSnapshot();
+                boolean wanted = true;
+                String name;
+                while ((name = parser.nextFieldName()) != null) {
+                    JsonToken value = parser.nextToken();
+                    if (!wanted || value == JsonToken.VALUE_NULL || isEmptyString(parser, value)) {
+                        parser.skipChildren();
+                        continue;
+                    }
+
+                    switch (name) {
+                        case "symbol":
+                            ticker.setSymbol(parser.getText());
+                            wanted = symbols == null || symbols.contains(ticker.getSymbol());
+                            break;
+                        case "lastPrice":
+                            ticker.setLastPrice(chars.parse(parser));
+                            break;
+                        case "bid1Price":
+                            ticker.setBidPrice(chars.parse(parser));
+                            break;
+                        case "ask1Price":
+                            ticker.setAskPrice(chars.parse(parser));
+                            break;
+                        case "prevPrice24h":
+                            ticker.setOpenPrice(chars.parse(parser));
+                            break;
+                        case "highPrice24h":
+                            ticker.setHighPrice(chars.parse(parser));
+                            break;
+                        case "lowPrice24h":
+                            ticker.setLowPrice(chars.parse(parser));
+                            break;
+                        case "price24hPcnt":
+                            // Bybit передает долю (0.0123), Binance - проценты (1.23)
+                            ticker.setPriceChangePercent(chars.parse(parser) * PERCENT);
+                            break;
+                        case "volume24h":
+                            ticker.setVolume(chars.parse(parser));
+                            break;
+                        case "turnover24h":
+                            ticker.setQuoteVolume(chars.parse(parser));
+                            break;
+                        default:
+                            parser.skipChildren();
+                            break;
+                    }
+                }
+                if (wanted) {
+                    tickers.add(ticker);
+                }
+            }
+        }
+
+        return tickers;
+    }
+
+    /**
+     * Прочитать result тикеров как лучшие цены (парсер на START_OBJECT result)
+     */
+    private static List<ExchangeResponses.BookTickerSnapshot> readBookTickers(JsonParser parser, DecimalChars chars,
+                                                                              Collection<String> symbols) throws IOException {
+        List<ExchangeResponses.BookTickerSnapshot> bookTickers =
+                new ArrayList<>(symbols != null ? symbols.size() : INITIAL_CAPACITY);
+
+        String fieldName;
+        while ((fieldName = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            if (!"list".equals(fieldName) || token != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                ExchangeResponses.BookTickerSnapshot bookTicker = new ExchangeResponses.BookTickerSnapshot();
+                boolean wanted = true;
+                String name;
+                while ((name = parser.nextFieldName()) != null) {
+                    JsonToken value = parser.nextToken();
+                    if (!wanted || value == JsonToken.VALUE_NULL || isEmptyString(parser, value)) {
+                        parser.skipChildren();
+                        continue;
+                    }
+
+                    switch (name) {
+                        case "symbol":
+                            bookTicker.setSymbol(parser.getText());
+                            wanted = symbols == null || symbols.contains(bookTicker.getSymbol());
+                            break;
+                        case "bid1Price":
+                            bookTicker.setBidPrice(chars.parse(parser));
+                            break;
+                        case "bid1Size":
+                            bookTicker.setBidQuantity(chars.parse(parser));
+                            break;
+                        case "ask1Price":
+                            bookTicker.setAskPrice(chars.parse(parser));
+                            break;
+                        case "ask1Size":
+                            bookTicker.setAskQuantity(chars.parse(parser));
+                            break;
+                        default:
+                            parser.skipChildren();
+                            break;
+                    }
+                }
+                if (wanted) {
+                    bookTickers.add(bookTicker);
+                }
+            }
+        }
+
+        return bookTickers;
+    }
+
+    /**
+     * Прочитать стакан {"s", "b", "a", "u"} (парсер на START_OBJECT)
+     */
+    private static ExchangeResponses.DepthSnapshot readDepth(JsonParser parser, DecimalChars chars,
+                                                             int expectedLevels) throws IOException {
+        ExchangeResponses.DepthSnapshot snapshot = new ExchangeResponses.DepthSnapshot();
+
+        String fieldName;
+        while ((fieldName = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (fieldName) {
+                case "s":
+                    snapshot.symbol = parser.getText();
+                    break;
+                case "u":
+                    snapshot.lastUpdateId = parser.getValueAsLong();
+                    break;
+                case "b":
+                    expect(parser, token, JsonToken.START_ARRAY);
+                    snapshot.bids = ExchangeResponses.Levels.read(parser, chars, expectedLevels);
+                    break;
+                case "a":
+                    expect(parser, token, JsonToken.START_ARRAY);
+                    snapshot.asks = ExchangeResponses.Levels.read(parser, chars, expectedLevels);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Прочитать result свечей (парсер на START_OBJECT result)
+     */
+    private static ExchangeResponses.KlineBatch readKlines(JsonParser parser, DecimalChars chars,
+                                                           int expectedSize) throws IOException {
+        ExchangeResponses.KlineBatch batch = new ExchangeResponses.KlineBatch(Math.max(1, expectedSize));
+
+        String fieldName;
+        while ((fieldName = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            if (!"list".equals(fieldName) || token != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+
+            while (parser.nextToken() == JsonToken.START_ARRAY) {
+                batch.ensureCapacity(batch.size + 1);
+                int i = batch.size;
+                int field = 0;
+
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    switch (field++) {
+                        case 0:
+                            batch.openTimes[i] = chars.parseLong(parser);
+                            break;
+                        case 1:
+                            batch.opens[i] = chars.parse(parser);
+                            break;
+                        case 2:
+                            batch.highs[i] = chars.parse(parser);
+                            break;
+                        case 3:
+                            batch.lows[i] = chars.parse(parser);
+                            break;
+                        case 4:
+                            batch.closes[i] = chars.parse(parser);
+                            break;
+                        case 5:
+                            batch.volumes[i] = chars.parse(parser);
+                            break;
+                        case 6:
+                            batch.quoteVolumes[i] = chars.parse(parser);
+                            break;
+                        default:
+                            parser.skipChildren();
+                            break;
+                    }
+                }
+
+                if (field < 7) {
+                    throw new JsonParseException(parser, "Kline has " + field + " fields, expected at least 7");
+                }
+                batch.size++;
+            }
+        }
+
+        return batch;
+    }
+
+    /**
+     * Прочитать объект ордера из result.list (парсер на START_OBJECT)
+     */
+    private static ExchangeResponses.OrderResponse readOrder(JsonParser parser, DecimalChars chars) throws IOException {
+        ExchangeResponses.OrderResponse order = new ExchangeResponses.OrderResponse();
+
+        String fieldName;
+        while ((fieldName = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_NULL || isEmptyString(parser, token)) {
+                continue;
+            }
+
+            switch (fieldName) {
+                case "orderId":
+                    order.setOrderId(parser.getText());
+                    break;
+                case "orderLinkId":
+                    order.setClientOrderId(parser.getText());
+                    break;
+                case "symbol":
+                    order.setSymbol(parser.getText());
+                    break;
+                case "price":
+                    order.setPrice(chars.parse(parser));
+                    break;
+                case "qty":
+                    order.setOrigQty(chars.parse(parser));
+                    break;
+                case "cumExecQty":
+                    order.setExecutedQty(chars.parse(parser));
+                    break;
+                case "cumExecValue":
+                    order.setCummulativeQuoteQty(chars.parse(parser));
+                    break;
+                case "cumExecFee":
+                    order.setCommission(chars.parse(parser));
+                    break;
+                case "orderStatus":
+                    order.setStatus(normalizeOrderStatus(parser.getText()));
+                    break;
+                case "orderType":
+                    order.setType(normalizeEnum(parser.getText()));
+                    break;
+                case "side":
+                    order.setSide(normalizeEnum(parser.getText()));
+                    break;
+                case "updatedTime":
+                    order.setUpdateTime(chars.parseLong(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+
+        return order;
+    }
+
+    /**
+     * Bybit передает отсутствующие числа пустой строкой
+     */
+    private static boolean isEmptyString(JsonParser parser, JsonToken token) throws IOException {
+        return token == JsonToken.VALUE_STRING && parser.getTextLength() == 0;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, "Expected " + expected + " but got " + actual);
+        }
+    }
+
+    // === Вложенные классы ===
+
+    /**
+     * Чтение объекта result (парсер на его START_OBJECT, после чтения - на END_OBJECT)
+     */
+    @FunctionalInterface
+    private interface ResultReader<T> {
+        T read(JsonParser parser, DecimalChars chars) throws IOException;
+    }
+
+    /**
+     * Результат и время ответа сервера
+     */
+    private static final class Envelope<T> {
+        private T result;
+        private long time;
+
+        T resultOrNull(T absent) {
+            return result == absent ? null : result;
+        }
+    }
+
+    /**
+     * Ответ с ненулевым retCode
+     */
+    public static final class RetCodeException extends IOException {
+        private final int retCode;
+
+        RetCodeException(int retCode, String retMsg) {
+            super(retMsg != null ? retMsg : "retCode " + retCode);
+            this.retCode = retCode;
+        }
+
+        public int getRetCode() {
+            return retCode;
+        }
+    }
+}
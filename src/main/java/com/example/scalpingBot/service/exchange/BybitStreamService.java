@@ -0,0 +1,559 @@
+package com.example.scalpingBot.service.exchange;
+
+import com.example.scalpingBot.config.TradingConfig;
+import com.example.scalpingBot.utils.CryptoUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebSocket потоки Bybit v5 (спот)
+ *
+ * Основные функции:
+ * - Публичный поток orderbook.1 по торговым парам: лучшие bid/ask
+ *   для маршрутизации ордеров без опроса REST
+ * - Приватный поток order: аутентификация, отчеты об исполнении ордеров
+ *   в формате ExecutionReport (статусы в терминах Binance) для подписчиков
+ * - Ping каждые 20 секунд, переподключение с экспоненциальной задержкой
+ * - Номер сессии приватного потока для сверки ордеров через REST
+ *
+ * Bybit передает накопленные объем, сумму и комиссию ордера; объем, цена
+ * и комиссия последнего исполнения вычисляются по разнице с предыдущим
+ * событием ордера.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BybitStreamService {
+
+    private final TradingConfig tradingConfig;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Настройки потоков
+     */
+    @Value("${exchanges.bybit.enabled:false}")
+    private boolean bybitEnabled;
+
+    @Value("${exchanges.bybit.testnet:true}")
+    private boolean bybitTestnet;
+
+    @Value("${exchanges.bybit.ws-url:wss://stream.bybit.com}")
+    private String bybitWsUrl;
+
+    @Value("${exchanges.bybit.api-key:}")
+    private String bybitApiKey;
+
+    @Value("${exchanges.bybit.secret-key:}")
+    private String bybitSecretKey;
+
+    @Value("${exchanges.bybit.stream.enabled:true}")
+    private boolean streamEnabled;
+
+    @Value("${exchanges.bybit.stream.ping-interval-seconds:20}")
+    private int pingIntervalSeconds;
+
+    @Value("${user-data-stream.reconnect-delay-seconds:5}")
+    private int reconnectDelaySeconds;
+
+    /**
+     * Подписчики на отчеты об исполнении
+     */
+    private final List<ExecutionReportListener> executionReportListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Лучшие цены по парам (ключ - пара в верхнем регистре)
+     */
+    private final Map<String, ExchangeResponses.BookTickerSnapshot> bookTickers = new ConcurrentHashMap<>();
+
+    /**
+     * Накопленное исполнение по активным ордерам (для расчета последнего исполнения)
+     */
+    private final Map<String, Fill> fills = new ConcurrentHashMap<>();
+
+    /**
+     * Планировщик подключений и ping (все отправки в сессии - в этом потоке)
+     */
+    private final ScheduledExecutorService streamExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ScalpingBot-BybitStream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Публичный и приватный потоки
+     */
+    private final StreamChannel publicChannel = new StreamChannel("public", "/v5/public/spot");
+    private final StreamChannel privateChannel = new StreamChannel("private", "/v5/private");
+
+    /**
+     * Приватный поток аутентифицирован и подписан на ордера
+     */
+    private volatile boolean privateReady = false;
+
+    /**
+     * Номер сессии приватного потока (увеличивается при каждой аутентификации)
+     */
+    private volatile long sessionEpoch = 0;
+
+    /**
+     * Флаг остановки сервиса
+     */
+    private volatile boolean shuttingDown = false;
+
+    /**
+     * Задержка событий ордеров от времени биржи до получения
+     */
+    private Timer orderLagTimer;
+
+    /**
+     * Константы
+     */
+    private static final String BYBIT = "bybit";
+    private static final int MAX_MESSAGE_SIZE = 64 * 1024;
+    private static final int MAX_RECONNECT_DELAY_SECONDS = 60;
+    private static final int MAX_ARGS_PER_SUBSCRIBE = 10;
+    private static final long AUTH_EXPIRES_MS = 10000;
+    private static final String PING_MESSAGE = "{\"op\":\"ping\"}";
+    private static final String TESTNET_WS_URL = "wss://stream-testnet.bybit.com";
+
+    /**
+     * Инициализация сервиса
+     */
+    @PostConstruct
+    public void init() {
+        orderLagTimer = Timer.builder("exchange.user-stream.lag")
+                .description("Delay from exchange event time to receipt by the bot")
+                .tag("exchange", BYBIT)
+                .tag("event", "order")
+                .register(meterRegistry);
+
+        if (!bybitEnabled || !streamEnabled) {
+            log.info("Bybit streams are disabled");
+            return;
+        }
+
+        log.info("Bybit streams: {} (testnet: {})", streamBaseUrl(), bybitTestnet);
+        streamExecutor.execute(() -> connect(publicChannel));
+
+        if (bybitApiKey == null || bybitApiKey.isBlank() || bybitSecretKey == null || bybitSecretKey.isBlank()) {
+            log.warn("Bybit API key is not configured, order stream will not be started");
+        } else {
+            streamExecutor.execute(() -> connect(privateChannel));
+        }
+
+        streamExecutor.scheduleAtFixedRate(this::ping, pingIntervalSeconds, pingIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Остановка потоков при завершении приложения
+     */
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        streamExecutor.shutdownNow();
+        publicChannel.close(CloseStatus.NORMAL);
+        privateChannel.close(CloseStatus.NORMAL);
+        log.info("Bybit streams stopped");
+    }
+
+    /**
+     * Подписаться на отчеты об исполнении ордеров
+     *
+     * @param listener подписчик (вызывается в потоке WebSocket)
+     */
+    public void subscribeExecutionReports(ExecutionReportListener listener) {
+        executionReportListeners.add(listener);
+    }
+
+    /**
+     * Проверить, подключен ли поток ордеров
+     *
+     * @return true если сессия открыта и подписка на ордера подтверждена
+     */
+    public boolean isConnected() {
+        return privateReady && privateChannel.isOpen();
+    }
+
+    /**
+     * Номер текущей сессии потока ордеров
+     *
+     * @return номер сессии (0 - подключений еще не было)
+     */
+    public long getSessionEpoch() {
+        return sessionEpoch;
+    }
+
+    /**
+     * Лучшие цены пары из публичного потока
+     *
+     * @param symbol торговая пара
+     * @return лучшие цены (updateTime - локальное время получения, Unix ms) или null
+     */
+    public ExchangeResponses.BookTickerSnapshot getBookTicker(String symbol) {
+        return bookTickers.get(symbol.toUpperCase());
+    }
+
+    // === Подключение к потокам ===
+
+    /**
+     * Адрес потоков: ключи testnet аутентифицируются только на потоках testnet
+     */
+    private String streamBaseUrl() {
+        return bybitTestnet ? TESTNET_WS_URL : bybitWsUrl;
+    }
+
+    private void connect(StreamChannel channel) {
+        if (shuttingDown) {
+            return;
+        }
+
+        StandardWebSocketClient client = new StandardWebSocketClient();
+        client.execute(new StreamHandler(channel), streamBaseUrl() + channel.path)
+                .whenComplete((session, error) -> {
+                    if (error != null) {
+                        log.error("Failed to connect to Bybit {} stream: {}", channel.name, error.getMessage());
+                        scheduleReconnect(channel);
+                    } else {
+                        session.setTextMessageSizeLimit(MAX_MESSAGE_SIZE);
+                        channel.session = session;
+                        channel.failedAttempts = 0;
+                        log.info("Connected to Bybit {} stream", channel.name);
+                        streamExecutor.execute(() -> onConnected(channel));
+                    }
+                });
+    }
+
+    /**
+     * Подписка публичного потока или аутентификация приватного
+     */
+    private void onConnected(StreamChannel channel) {
+        if (channel == publicChannel) {
+            List<String> topics = new ArrayList<>();
+            for (String pair : tradingConfig.getTradingPairs()) {
+                topics.add("orderbook.1." + pair.toUpperCase());
+            }
+            // Биржа принимает не больше 10 топиков в одном запросе подписки
+            for (int i = 0; i < topics.size(); i += MAX_ARGS_PER_SUBSCRIBE) {
+                subscribe(channel, topics.subList(i, Math.min(i + MAX_ARGS_PER_SUBSCRIBE, topics.size())));
+            }
+        } else {
+            long expires = System.currentTimeMillis() + AUTH_EXPIRES_MS;
+            String signature = CryptoUtils.createBybitWebSocketSignature(bybitApiKey, expires, bybitSecretKey);
+            send(channel, "{\"op\":\"auth\",\"args\":[\"" + bybitApiKey + "\"," + expires + ",\"" + signature + "\"]}");
+        }
+    }
+
+    private void subscribe(StreamChannel channel, List<String> topics) {
+        StringBuilder message = new StringBuilder("{\"op\":\"subscribe\",\"args\":[");
+        for (int i = 0; i < topics.size(); i++) {
+            if (i > 0) {
+                message.append(',');
+            }
+            message.append('"').append(topics.get(i)).append('"');
+        }
+        send(channel, message.append("]}").toString());
+    }
+
+    private void ping() {
+        send(publicChannel, PING_MESSAGE);
+        send(privateChannel, PING_MESSAGE);
+    }
+
+    /**
+     * Отправить сообщение (только из streamExecutor - сессия не потокобезопасна)
+     */
+    private void send(StreamChannel channel, String message) {
+        WebSocketSession session = channel.session;
+        if (session == null || !session.isOpen()) {
+            return;
+        }
+
+        try {
+            session.sendMessage(new TextMessage(message));
+        } catch (Exception e) {
+            log.warn("Failed to send message to Bybit {} stream: {}", channel.name, e.getMessage());
+        }
+    }
+
+    /**
+     * Запланировать переподключение с экспоненциальной задержкой
+     */
+    private void scheduleReconnect(StreamChannel channel) {
+        if (shuttingDown) {
+            return;
+        }
+
+        int attempt = ++channel.failedAttempts;
+        long delay = Math.min((long) reconnectDelaySeconds << Math.min(attempt - 1, 4), MAX_RECONNECT_DELAY_SECONDS);
+
+        log.warn("Reconnecting to Bybit {} stream in {}s (attempt {})", channel.name, delay, attempt);
+        streamExecutor.schedule(() -> connect(channel), delay, TimeUnit.SECONDS);
+    }
+
+    // === Обработка сообщений ===
+
+    /**
+     * Обработать сообщение публичного потока
+     *
+     * @param payload {"topic": "orderbook.1.BTCUSDT", "data": {...}} или ответ на операцию
+     */
+    private void handlePublicMessage(byte[] payload) {
+        try {
+            ExchangeResponses.BookTickerSnapshot top = BybitResponseDecoder.decodeBookTop(payload);
+            if (top == null) {
+                return;
+            }
+
+            // Время получения для проверки свежести котировки по локальным часам
+            top.setUpdateTime(System.currentTimeMillis());
+            bookTickers.put(top.getSymbol(), top);
+
+        } catch (Exception e) {
+            log.warn("Failed to process Bybit public stream message: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Обработать сообщение приватного потока
+     *
+     * @param payload {"topic": "order", "creationTime": 1, "data": [...]} или ответ на операцию
+     */
+    private void handlePrivateMessage(String payload) {
+        try {
+            JsonNode message = objectMapper.readTree(payload);
+            String op = message.path("op").asText("");
+
+            switch (op) {
+                case "auth":
+                    if (message.path("success").asBoolean()) {
+                        streamExecutor.execute(() -> subscribe(privateChannel, List.of("order")));
+                    } else {
+                        log.error("Bybit stream authentication failed: {}", message.path("ret_msg").asText());
+                        privateChannel.close(CloseStatus.POLICY_VIOLATION);
+                    }
+                    return;
+
+                case "subscribe":
+                    if (message.path("success").asBoolean()) {
+                        privateReady = true;
+                        sessionEpoch++;
+                        log.info("Subscribed to Bybit order stream (session {})", sessionEpoch);
+                    } else {
+                        log.error("Bybit order stream subscription failed: {}", message.path("ret_msg").asText());
+                    }
+                    return;
+
+                default:
+                    break;
+            }
+
+            if ("order".equals(message.path("topic").asText())) {
+                long eventTime = message.path("creationTime").asLong();
+                if (eventTime > 0) {
+                    orderLagTimer.record(Math.max(0, System.currentTimeMillis() - eventTime), TimeUnit.MILLISECONDS);
+                }
+                for (JsonNode order : message.path("data")) {
+                    notifyExecutionReport(parseOrder(order, eventTime));
+                }
+            }
+
+        } catch (Exception e) {
+            log.warn("Failed to process Bybit order stream message: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Разобрать событие ордера в отчет об исполнении
+     */
+    private UserDataStreamService.ExecutionReport parseOrder(JsonNode order, long eventTime) {
+        String orderId = order.path("orderId").asText();
+        String status = BybitResponseDecoder.normalizeOrderStatus(order.path("orderStatus").asText());
+        BigDecimal cumulativeQuantity = decimal(order.path("cumExecQty"));
+        BigDecimal cumulativeQuote = decimal(order.path("cumExecValue"));
+        BigDecimal cumulativeFee = decimal(order.path("cumExecFee"));
+
+        // Последнее исполнение - разница с предыдущим событием ордера
+        Fill previous = fills.getOrDefault(orderId, Fill.EMPTY);
+        BigDecimal lastQuantity = cumulativeQuantity.subtract(previous.quantity).max(BigDecimal.ZERO);
+        BigDecimal lastQuote = cumulativeQuote.subtract(previous.quote).max(BigDecimal.ZERO);
+        BigDecimal lastFee = cumulativeFee.subtract(previous.fee).max(BigDecimal.ZERO);
+        BigDecimal lastPrice = lastQuantity.signum() > 0
+                ? lastQuote.divide(lastQuantity, 8, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO;
+
+        if (isFinal(status)) {
+            fills.remove(orderId);
+        } else if (cumulativeQuantity.compareTo(previous.quantity) > 0) {
+            fills.put(orderId, new Fill(cumulativeQuantity, cumulativeQuote, cumulativeFee));
+        }
+
+        String rejectReason = order.path("rejectReason").asText(null);
+        String feeCurrency = order.path("feeCurrency").asText("");
+
+        return UserDataStreamService.ExecutionReport.builder()
+                .symbol(order.path("symbol").asText())
+                .orderId(orderId)
+                .clientOrderId(order.path("orderLinkId").asText(null))
+                .side(BybitResponseDecoder.normalizeEnum(order.path("side").asText()))
+                .orderType(BybitResponseDecoder.normalizeEnum(order.path("orderType").asText()))
+                .executionType(lastQuantity.signum() > 0 ? "TRADE" : status)
+                .orderStatus(status)
+                .rejectReason("EC_NoError".equals(rejectReason) ? null : rejectReason)
+                .lastExecutedQuantity(lastQuantity)
+                .lastExecutedPrice(lastPrice)
+                .cumulativeQuantity(cumulativeQuantity)
+                .cumulativeQuoteQuantity(cumulativeQuote)
+                .commission(lastFee)
+                .commissionAsset(feeCurrency.isEmpty() ? null : feeCurrency)
+                .transactionTime(order.path("updatedTime").asLong())
+                .eventTime(eventTime)
+                .build();
+    }
+
+    /**
+     * Разослать отчет подписчикам
+     */
+    private void notifyExecutionReport(UserDataStreamService.ExecutionReport report) {
+        for (ExecutionReportListener listener : executionReportListeners) {
+            try {
+                listener.onExecutionReport(report);
+            } catch (Exception e) {
+                log.warn("Execution report listener failed for order {}: {}", report.getOrderId(), e.getMessage());
+            }
+        }
+    }
+
+    private static boolean isFinal(String status) {
+        switch (status) {
+            case "FILLED":
+            case "CANCELED":
+            case "REJECTED":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static BigDecimal decimal(JsonNode node) {
+        String text = node.asText("");
+        return text.isEmpty() ? BigDecimal.ZERO : new BigDecimal(text);
+    }
+
+    /**
+     * Обработчик WebSocket сообщений одного потока
+     */
+    private class StreamHandler extends TextWebSocketHandler {
+        private final StreamChannel channel;
+
+        StreamHandler(StreamChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+            if (channel == publicChannel) {
+                handlePublicMessage(message.asBytes());
+            } else {
+                handlePrivateMessage(message.getPayload());
+            }
+        }
+
+        @Override
+        public void handleTransportError(WebSocketSession session, Throwable exception) {
+            log.warn("Bybit {} stream transport error: {}", channel.name, exception.getMessage());
+        }
+
+        @Override
+        public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+            log.warn("Bybit {} stream closed: {}", channel.name, status);
+            if (channel.session == session) {
+                channel.session = null;
+                if (channel == privateChannel) {
+                    // Сверка ордеров через REST после следующей подписки
+                    privateReady = false;
+                }
+            }
+            scheduleReconnect(channel);
+        }
+    }
+
+    // === Вложенные классы ===
+
+    /**
+     * Состояние одного WebSocket потока
+     */
+    private static final class StreamChannel {
+        private final String name;
+        private final String path;
+        private volatile WebSocketSession session;
+        private volatile int failedAttempts = 0;
+
+        StreamChannel(String name, String path) {
+            this.name = name;
+            this.path = path;
+        }
+
+        boolean isOpen() {
+            WebSocketSession current = session;
+            return current != null && current.isOpen();
+        }
+
+        void close(CloseStatus status) {
+            WebSocketSession current = session;
+            if (current == null || !current.isOpen()) {
+                return;
+            }
+
+            try {
+                current.close(status);
+            } catch (Exception e) {
+                log.debug("Failed to close Bybit {} stream: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Накопленное исполнение ордера
+     */
+    private static final class Fill {
+        private static final Fill EMPTY = new Fill(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+
+        private final BigDecimal quantity;
+        private final BigDecimal quote;
+        private final BigDecimal fee;
+
+        Fill(BigDecimal quantity, BigDecimal quote, BigDecimal fee) {
+            this.quantity = quantity;
+            this.quote = quote;
+            this.fee = fee;
+        }
+    }
+}
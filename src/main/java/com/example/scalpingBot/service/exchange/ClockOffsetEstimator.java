@@ -0,0 +1,232 @@
+package com.example.scalpingBot.service.exchange;
+
+/**
+ * Оценка смещения локальных часов относительно часов биржи
+ *
+ * Алгоритм (по аналогии с NTP):
+ * - Раунд состоит из нескольких замеров: локальное время отправки, RTT
+ *   и время сервера из ответа
+ * - Смещение замера = время сервера - (время отправки + RTT / 2)
+ * - Замеры с RTT намного больше минимального отбрасываются (задержки в очередях
+ *   несимметричны), остальные усредняются с весом 1 / RTT^2
+ * - Дрейф часов - наклон прямой МНК по смещениям последних раундов;
+ *   скачок смещения (коррекция системных часов) сбрасывает историю
+ *
+ * Раунды добавляет одна задача синхронизации, готовая оценка публикуется
+ * неизменяемым объектом и читается без блокировок.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public class ClockOffsetEstimator {
+
+    private static final int MAX_SAMPLES_PER_ROUND = 32;
+    private static final double NANOS_PER_MS = 1_000_000.0;
+
+    // Допуск отбора замеров: RTT не больше минимального × 1.5 + 1 мс
+    private static final double RTT_FILTER_FACTOR = 1.5;
+    private static final double RTT_FILTER_SLACK_MS = 1.0;
+
+    // Время сервера в ответе округлено вниз до миллисекунды
+    private static final double SERVER_TIME_RESOLUTION_MS = 1.0;
+
+    // Затухание верхней оценки RTT между раундами
+    private static final double RTT_HIGH_DECAY = 0.9;
+
+    private final double maxDriftPerMs;
+    private final double stepThresholdMs;
+
+    // Замеры текущего раунда
+    private final long[] sampleSentMs = new long[MAX_SAMPLES_PER_ROUND];
+    private final long[] sampleRttNanos = new long[MAX_SAMPLES_PER_ROUND];
+    private final long[] sampleServerMs = new long[MAX_SAMPLES_PER_ROUND];
+    private int sampleCount = 0;
+
+    // История раундов для оценки дрейфа (кольцевой буфер)
+    private final long[] roundNanos;
+    private final double[] roundOffsets;
+    private int roundCount = 0;
+    private int roundHead = 0;
+
+    private double rttHighMs = 0;
+    private volatile Estimate estimate;
+
+    /**
+     * @param driftWindow число последних раундов для оценки дрейфа
+     * @param maxDriftPpm ограничение дрейфа (миллионные доли)
+     * @param stepThresholdMs отклонение от прогноза, после которого история дрейфа сбрасывается
+     */
+    public ClockOffsetEstimator(int driftWindow, double maxDriftPpm, double stepThresholdMs) {
+        this.roundNanos = new long[Math.max(2, driftWindow)];
+        this.roundOffsets = new double[Math.max(2, driftWindow)];
+        this.maxDriftPerMs = maxDriftPpm / 1_000_000.0;
+        this.stepThresholdMs = stepThresholdMs;
+    }
+
+    /**
+     * Добавить замер в текущий раунд
+     *
+     * @param sentMs локальное время отправки запроса (Unix ms)
+     * @param rttNanos время от отправки до получения ответа
+     * @param serverTimeMs время сервера из ответа (Unix ms)
+     */
+    public synchronized void addSample(long sentMs, long rttNanos, long serverTimeMs) {
+        if (sampleCount == MAX_SAMPLES_PER_ROUND || rttNanos <= 0) {
+            return;
+        }
+        sampleSentMs[sampleCount] = sentMs;
+        sampleRttNanos[sampleCount] = rttNanos;
+        sampleServerMs[sampleCount] = serverTimeMs;
+        sampleCount++;
+    }
+
+    /**
+     * Завершить раунд и опубликовать новую оценку
+     *
+     * @param nowNanos System.nanoTime() на момент завершения
+     * @return новая оценка или null, если в раунде нет замеров
+     */
+    public synchronized Estimate completeRound(long nowNanos) {
+        if (sampleCount == 0) {
+            return null;
+        }
+
+        long minRttNanos = Long.MAX_VALUE;
+        long maxRttNanos = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            minRttNanos = Math.min(minRttNanos, sampleRttNanos[i]);
+            maxRttNanos = Math.max(maxRttNanos, sampleRttNanos[i]);
+        }
+        double minRttMs = minRttNanos / NANOS_PER_MS;
+        double rttLimitMs = minRttMs * RTT_FILTER_FACTOR + RTT_FILTER_SLACK_MS;
+
+        double weightedOffset = 0;
+        double totalWeight = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            double rttMs = sampleRttNanos[i] / NANOS_PER_MS;
+            if (rttMs > rttLimitMs) {
+                continue;
+            }
+            double offsetMs = sampleServerMs[i] + SERVER_TIME_RESOLUTION_MS / 2 - (sampleSentMs[i] + rttMs / 2);
+            double weight = 1.0 / ((rttMs + 0.1) * (rttMs + 0.1));
+            weightedOffset += offsetMs * weight;
+            totalWeight += weight;
+        }
+        sampleCount = 0;
+
+        double roundOffset = weightedOffset / totalWeight;
+        double uncertaintyMs = minRttMs / 2 + SERVER_TIME_RESOLUTION_MS / 2;
+        rttHighMs = Math.max(maxRttNanos / NANOS_PER_MS, rttHighMs * RTT_HIGH_DECAY);
+
+        // Скачок относительно прогноза - системные часы переставлены, старый дрейф неактуален
+        Estimate previous = estimate;
+        if (previous != null && roundCount > 0) {
+            double predicted = previous.offsetAt(nowNanos);
+            if (Math.abs(roundOffset - predicted) > Math.max(stepThresholdMs, 4 * uncertaintyMs)) {
+                roundCount = 0;
+            }
+        }
+
+        roundNanos[roundHead] = nowNanos;
+        roundOffsets[roundHead] = roundOffset;
+        roundHead = (roundHead + 1) % roundNanos.length;
+        roundCount = Math.min(roundCount + 1, roundNanos.length);
+
+        double offsetMs = roundOffset;
+        double driftPerMs = 0;
+        if (roundCount >= 3) {
+            // МНК по истории: x - мс от текущего раунда (≤ 0), y - смещение
+            double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+            for (int i = 0; i < roundCount; i++) {
+                int index = Math.floorMod(roundHead - 1 - i, roundNanos.length);
+                double x = (roundNanos[index] - nowNanos) / NANOS_PER_MS;
+                double y = roundOffsets[index];
+                sumX += x;
+                sumY += y;
+                sumXX += x * x;
+                sumXY += x * y;
+            }
+            double denominator = roundCount * sumXX - sumX * sumX;
+            if (denominator > 0) {
+                driftPerMs = (roundCount * sumXY - sumX * sumY) / denominator;
+                driftPerMs = Math.max(-maxDriftPerMs, Math.min(maxDriftPerMs, driftPerMs));
+                // Значение прямой в точке текущего раунда (x = 0)
+                offsetMs = (sumY - driftPerMs * sumX) / roundCount;
+            }
+        }
+
+        Estimate next = new Estimate(offsetMs, driftPerMs, uncertaintyMs, minRttMs, rttHighMs, nowNanos);
+        estimate = next;
+        return next;
+    }
+
+    /**
+     * Последняя оценка или null до первого раунда
+     */
+    public Estimate getEstimate() {
+        return estimate;
+    }
+
+    /**
+     * Неизменяемая оценка смещения часов
+     */
+    public static final class Estimate {
+        private final double offsetMs;
+        private final double driftPerMs;
+        private final double uncertaintyMs;
+        private final double minRttMs;
+        private final double rttHighMs;
+        private final long estimatedAtNanos;
+
+        Estimate(double offsetMs, double driftPerMs, double uncertaintyMs,
+                 double minRttMs, double rttHighMs, long estimatedAtNanos) {
+            this.offsetMs = offsetMs;
+            this.driftPerMs = driftPerMs;
+            this.uncertaintyMs = uncertaintyMs;
+            this.minRttMs = minRttMs;
+            this.rttHighMs = rttHighMs;
+            this.estimatedAtNanos = estimatedAtNanos;
+        }
+
+        /**
+         * Смещение с учетом дрейфа на указанный момент
+         */
+        public double offsetAt(long nowNanos) {
+            return offsetMs + driftPerMs * ((nowNanos - estimatedAtNanos) / NANOS_PER_MS);
+        }
+
+        /**
+         * Перевести локальное время во время биржи
+         *
+         * @param localMs локальное время (Unix ms)
+         * @param nowNanos System.nanoTime() того же момента
+         * @return оценка времени биржи (Unix ms)
+         */
+        public long toServerTimeMs(long localMs, long nowNanos) {
+            return Math.round(localMs + offsetAt(nowNanos));
+        }
+
+        public double getOffsetMs() {
+            return offsetMs;
+        }
+
+        /**
+         * Дрейф в миллионных долях (мс смещения на 10^6 мс)
+         */
+        public double getDriftPpm() {
+            return driftPerMs * 1_000_000.0;
+        }
+
+        public double getUncertaintyMs() {
+            return uncertaintyMs;
+        }
+
+        public double getMinRttMs() {
+            return minRttMs;
+        }
+
+        public double getRttHighMs() {
+            return rttHighMs;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.scalpingBot.service.exchange;
+
+import com.example.scalpingBot.utils.FixedPointUtils;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * Окно в буфер символов парсера для FixedPointUtils.parse без создания строки
+ *
+ * Один экземпляр на вызов декодера: объект изменяемый и не потокобезопасный.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+final class DecimalChars implements CharSequence {
+    private char[] chars;
+    private int offset;
+    private int length;
+
+    /**
+     * Разобрать текущее значение парсера (строка или число) в long ×10^8
+     */
+    long parse(JsonParser parser) throws IOException {
+        chars = parser.getTextCharacters();
+        offset = parser.getTextOffset();
+        length = parser.getTextLength();
+        return FixedPointUtils.parse(this, 0, length);
+    }
+
+    /**
+     * Разобрать целое число, переданное строкой ("1700000000000")
+     */
+    long parseLong(JsonParser parser) throws IOException {
+        char[] text = parser.getTextCharacters();
+        int start = parser.getTextOffset();
+        int end = start + parser.getTextLength();
+        if (start == end) {
+            return 0;
+        }
+
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text[i];
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Invalid integer: " + new String(text, start, end - start));
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return chars[offset + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(chars, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, offset, length);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.scalpingBot.service.exchange;
+
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * REST адаптер одной биржи
+ *
+ * Адаптер отвечает за формат запросов и ответов биржи: эндпоинты,
+ * подпись, веса rate limit, разбор ответов в общие структуры
+ * (ExchangeResponses) и маппинг кодов ошибок в ExchangeApiException.
+ * ExchangeApiService выбирает адаптер по названию биржи и добавляет
+ * общие для всех бирж механизмы (объединение одинаковых запросов).
+ *
+ * Все методы неблокирующие; стороны ордеров - BUY/SELL, статусы
+ * в ответах - в терминах Binance (NEW, PARTIALLY_FILLED, FILLED, ...).
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public interface ExchangeAdapter {
+
+    /**
+     * @return название биржи в нижнем регистре (binance, bybit)
+     */
+    String getName();
+
+    /**
+     * Получить тикер 24h по торговой паре
+     */
+    Mono<ExchangeResponses.TickerSnapshot> getTicker(String symbol);
+
+    /**
+     * Получить тикеры 24h по нескольким парам минимальным числом запросов
+     */
+    Mono<List<ExchangeResponses.TickerSnapshot>> getTickers(Collection<String> symbols);
+
+    /**
+     * Получить лучшие bid/ask по нескольким парам минимальным числом запросов
+     */
+    Mono<List<ExchangeResponses.BookTickerSnapshot>> getBookTickers(Collection<String> symbols);
+
+    /**
+     * Получить снимок стакана
+     *
+     * @param limit желаемое количество уровней (биржа может ограничить меньшим)
+     */
+    Mono<ExchangeResponses.DepthSnapshot> getOrderBook(String symbol, int limit);
+
+    /**
+     * Получить свечи от старых к новым
+     *
+     * @param interval интервал в формате Binance (1m, 15m, 1h, 1d)
+     * @param startTime время открытия первой свечи (Unix ms), 0 - последние свечи
+     */
+    Mono<ExchangeResponses.KlineBatch> getKlines(String symbol, String interval, long startTime, int limit);
+
+    /**
+     * Разместить рыночный ордер (количество в базовой валюте)
+     */
+    Mono<ExchangeResponses.OrderResponse> placeMarketOrder(String symbol, String side, BigDecimal quantity,
+                                                           ExchangeRateLimiter.Priority priority);
+
+    /**
+     * Разместить лимитный ордер GTC
+     */
+    Mono<ExchangeResponses.OrderResponse> placeLimitOrder(String symbol, String side, BigDecimal quantity,
+                                                          BigDecimal price, ExchangeRateLimiter.Priority priority);
+
+    /**
+     * Разместить стоп ордер (лимитный по цене срабатывания)
+     */
+    Mono<ExchangeResponses.OrderResponse> placeStopOrder(String symbol, String side, BigDecimal quantity,
+                                                         BigDecimal stopPrice);
+
+    /**
+     * Отменить ордер
+     */
+    Mono<ExchangeResponses.OrderResponse> cancelOrder(String symbol, String orderId);
+
+    /**
+     * Получить статус ордера
+     */
+    Mono<ExchangeResponses.OrderResponse> getOrderStatus(String symbol, String orderId);
+}
@@ -0,0 +1,355 @@
+package com.example.scalpingBot.service.exchange;
+
+import com.example.scalpingBot.exception.ExchangeApiException;
+import com.example.scalpingBot.utils.DateUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Синхронизация времени с биржей для подписанных запросов
+ *
+ * Основные функции:
+ * - Периодические раунды замеров времени сервера каждой включенной биржи
+ *   (Binance /api/v3/time, Bybit /v5/market/time) через пул рыночных данных
+ * - Оценка смещения и дрейфа часов (ClockOffsetEstimator) отдельно по биржам
+ * - Скорректированный timestamp для подписанных запросов
+ * - Подбор recvWindow по наблюдаемому RTT вместо фиксированных 5000 мс
+ * - Внеочередная синхронизация и максимальное окно после отказа
+ *   по времени (Binance -1021, Bybit 10002)
+ *
+ * До первой успешной синхронизации (и для неизвестной биржи) используется
+ * локальное время и максимальное окно (прежнее поведение).
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExchangeClockService {
+
+    private final WebClient marketDataWebClient;
+    private final ExchangeRateLimiter rateLimiter;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Настройки
+     */
+    @Value("${exchanges.binance.enabled:true}")
+    private boolean binanceEnabled;
+
+    @Value("${exchanges.binance.api-url:https://api.binance.com}")
+    private String binanceApiUrl;
+
+    @Value("${exchanges.binance.testnet:true}")
+    private boolean binanceTestnet;
+
+    @Value("${exchanges.bybit.enabled:false}")
+    private boolean bybitEnabled;
+
+    @Value("${exchanges.bybit.api-url:https://api.bybit.com}")
+    private String bybitApiUrl;
+
+    @Value("${exchanges.clock-sync.enabled:true}")
+    private boolean enabled;
+
+    @Value("${exchanges.clock-sync.samples-per-round:5}")
+    private int samplesPerRound;
+
+    @Value("${exchanges.clock-sync.sample-spacing-ms:200}")
+    private long sampleSpacingMs;
+
+    @Value("${exchanges.clock-sync.drift-window:10}")
+    private int driftWindow;
+
+    @Value("${exchanges.clock-sync.max-drift-ppm:500}")
+    private double maxDriftPpm;
+
+    @Value("${exchanges.clock-sync.step-threshold-ms:50}")
+    private double stepThresholdMs;
+
+    @Value("${exchanges.clock-sync.recv-window-rtt-factor:3.0}")
+    private double recvWindowRttFactor;
+
+    @Value("${exchanges.clock-sync.recv-window-margin-ms:100}")
+    private long recvWindowMarginMs;
+
+    @Value("${exchanges.clock-sync.min-recv-window-ms:1000}")
+    private long minRecvWindowMs;
+
+    @Value("${exchanges.clock-sync.max-recv-window-ms:5000}")
+    private long maxRecvWindowMs;
+
+    /**
+     * Часы по биржам (ключ - название биржи в нижнем регистре)
+     */
+    private final Map<String, VenueClock> venues = new ConcurrentHashMap<>();
+
+    /**
+     * Константы
+     */
+    private static final long WARN_OFFSET_MS = 500;
+
+    /**
+     * Инициализация и первая синхронизация
+     */
+    @PostConstruct
+    public void init() {
+        if (binanceEnabled) {
+            String baseUrl = binanceTestnet ? "https://testnet.binance.vision" : binanceApiUrl;
+            registerVenue("binance", baseUrl + "/api/v3/time", BinanceResponseDecoder::decodeServerTime);
+        }
+        if (bybitEnabled) {
+            registerVenue("bybit", bybitApiUrl + "/v5/market/time", BybitResponseDecoder::decodeServerTime);
+        }
+
+        if (!enabled || venues.isEmpty()) {
+            log.info("Exchange clock sync is disabled, signed requests use local time");
+            return;
+        }
+
+        log.info("Exchange clock sync enabled for {}: {} samples per round, recvWindow {}-{}ms",
+                venues.keySet(), samplesPerRound, minRecvWindowMs, maxRecvWindowMs);
+        syncNow();
+    }
+
+    /**
+     * Создать часы биржи и их метрики
+     */
+    private void registerVenue(String exchange, String timeUrl, ServerTimeDecoder decoder) {
+        VenueClock clock = new VenueClock(exchange, URI.create(timeUrl), decoder,
+                new ClockOffsetEstimator(driftWindow, maxDriftPpm, stepThresholdMs), maxRecvWindowMs);
+
+        clock.timestampRejections = Counter.builder("exchange.clock.timestamp-rejections")
+                .description("Signed requests rejected for a timestamp outside recvWindow")
+                .tag("exchange", exchange)
+                .register(meterRegistry);
+        Gauge.builder("exchange.clock.offset-ms", clock, VenueClock::offsetMs)
+                .tag("exchange", exchange)
+                .register(meterRegistry);
+        Gauge.builder("exchange.clock.recv-window-ms", clock, venue -> venue.recvWindowMs)
+                .tag("exchange", exchange)
+                .register(meterRegistry);
+
+        venues.put(exchange, clock);
+    }
+
+    /**
+     * Плановый раунд синхронизации
+     */
+    @Scheduled(fixedDelayString = "${exchanges.clock-sync.interval-ms:30000}",
+            initialDelayString = "${exchanges.clock-sync.interval-ms:30000}")
+    public void scheduledSync() {
+        syncNow();
+    }
+
+    /**
+     * Запустить раунд замеров по всем биржам (биржи с незавершенным раундом пропускаются)
+     */
+    public void syncNow() {
+        if (!enabled) {
+            return;
+        }
+        for (VenueClock clock : venues.values()) {
+            sync(clock);
+        }
+    }
+
+    /**
+     * Текущее время биржи для подписанного запроса
+     *
+     * @param exchange название биржи
+     * @return оценка времени сервера (Unix ms)
+     */
+    public long currentTimeMs(String exchange) {
+        long localMs = DateUtils.currentTimestampMs();
+        VenueClock clock = venues.get(exchange);
+        ClockOffsetEstimator.Estimate estimate = clock != null ? clock.estimator.getEstimate() : null;
+        return estimate != null ? estimate.toServerTimeMs(localMs, System.nanoTime()) : localMs;
+    }
+
+    /**
+     * recvWindow для подписанного запроса
+     *
+     * @param exchange название биржи
+     * @return окно в миллисекундах
+     */
+    public long getRecvWindowMs(String exchange) {
+        VenueClock clock = venues.get(exchange);
+        return clock != null ? clock.recvWindowMs : maxRecvWindowMs;
+    }
+
+    /**
+     * Текущая оценка смещения (время биржи - локальное время)
+     *
+     * @param exchange название биржи
+     * @return смещение в миллисекундах, 0 до первой синхронизации
+     */
+    public double getOffsetMs(String exchange) {
+        VenueClock clock = venues.get(exchange);
+        return clock != null ? clock.offsetMs() : 0;
+    }
+
+    /**
+     * Биржа отклонила запрос из-за timestamp
+     *
+     * Окно расширяется до максимального до следующего успешного раунда.
+     *
+     * @param exchange название биржи
+     */
+    public void onTimestampRejected(String exchange) {
+        VenueClock clock = venues.get(exchange);
+        if (clock == null) {
+            return;
+        }
+
+        clock.timestampRejections.increment();
+        clock.recvWindowMs = maxRecvWindowMs;
+        log.warn("{} rejected request timestamp (offset estimate {}ms), resyncing clock",
+                exchange, String.format("%.1f", clock.offsetMs()));
+        if (enabled) {
+            sync(clock);
+        }
+    }
+
+    /**
+     * Раунд замеров одной биржи, если он еще не выполняется
+     */
+    private void sync(VenueClock clock) {
+        if (!clock.syncInFlight.compareAndSet(false, true)) {
+            return;
+        }
+
+        // Замеры последовательно, с паузой - независимые задержки сети
+        Flux.range(0, samplesPerRound)
+                .concatMap(i -> sample(clock)
+                        .delaySubscription(i == 0 ? Duration.ZERO : Duration.ofMillis(sampleSpacingMs))
+                        .onErrorResume(e -> {
+                            log.debug("{} clock sample failed: {}", clock.exchange, e.getMessage());
+                            return Mono.empty();
+                        }))
+                .then(Mono.fromRunnable(() -> completeRound(clock)))
+                .doFinally(signal -> clock.syncInFlight.set(false))
+                .subscribe(null, e -> log.warn("{} clock sync round failed: {}", clock.exchange, e.getMessage()));
+    }
+
+    /**
+     * Один замер: время отправки, RTT и время сервера
+     */
+    private Mono<Void> sample(VenueClock clock) {
+        return rateLimiter.acquire(clock.exchange, ExchangeRateLimiter.Priority.MARKET_DATA, 1, 0)
+                .then(Mono.defer(() -> {
+                    long sentMs = DateUtils.currentTimestampMs();
+                    long sentNanos = System.nanoTime();
+
+                    return marketDataWebClient.get()
+                            .uri(clock.timeUri)
+                            .retrieve()
+                            .bodyToMono(byte[].class)
+                            .map(body -> {
+                                long rttNanos = System.nanoTime() - sentNanos;
+                                clock.estimator.addSample(sentMs, rttNanos, decodeServerTime(clock, body));
+                                return body;
+                            })
+                            .then();
+                }));
+    }
+
+    /**
+     * Завершить раунд: новая оценка смещения и recvWindow
+     */
+    private void completeRound(VenueClock clock) {
+        ClockOffsetEstimator.Estimate estimate = clock.estimator.completeRound(System.nanoTime());
+        if (estimate == null) {
+            log.warn("{} clock sync round produced no samples, keeping previous estimate", clock.exchange);
+            return;
+        }
+
+        clock.recvWindowMs = tuneRecvWindow(estimate);
+
+        if (Math.abs(estimate.getOffsetMs()) > WARN_OFFSET_MS) {
+            log.warn("Local clock differs from {} by {}ms", clock.exchange, String.format("%.1f", estimate.getOffsetMs()));
+        }
+        log.debug("{} clock sync: offset {}ms ±{}ms, drift {}ppm, RTT min {}ms high {}ms, recvWindow {}ms",
+                clock.exchange, String.format("%.2f", estimate.getOffsetMs()),
+                String.format("%.2f", estimate.getUncertaintyMs()), String.format("%.1f", estimate.getDriftPpm()),
+                String.format("%.1f", estimate.getMinRttMs()), String.format("%.1f", estimate.getRttHighMs()),
+                clock.recvWindowMs);
+    }
+
+    /**
+     * Окно = запас на худший наблюдаемый RTT + погрешность оценки времени
+     *
+     * Биржа отклоняет запрос, если timestamp старше recvWindow к моменту
+     * получения, поэтому окно должно покрывать одностороннюю задержку
+     * с запасом; слишком широкое окно позволяет исполнить устаревший ордер.
+     */
+    private long tuneRecvWindow(ClockOffsetEstimator.Estimate estimate) {
+        long window = (long) Math.ceil(recvWindowRttFactor * estimate.getRttHighMs()
+                + 2 * estimate.getUncertaintyMs()) + recvWindowMarginMs;
+        return Math.max(minRecvWindowMs, Math.min(maxRecvWindowMs, window));
+    }
+
+    private static long decodeServerTime(VenueClock clock, byte[] body) {
+        try {
+            return clock.decoder.decode(body);
+        } catch (IOException e) {
+            throw new ExchangeApiException(clock.exchange, ExchangeApiException.ApiErrorType.PARSING_ERROR,
+                    "Failed to parse server time: " + e.getMessage(), e);
+        }
+    }
+
+    // === Вложенные классы ===
+
+    /**
+     * Разбор ответа эндпоинта времени сервера
+     */
+    @FunctionalInterface
+    private interface ServerTimeDecoder {
+        long decode(byte[] body) throws IOException;
+    }
+
+    /**
+     * Оценка часов и recvWindow одной биржи
+     */
+    private static final class VenueClock {
+        private final String exchange;
+        private final URI timeUri;
+        private final ServerTimeDecoder decoder;
+        private final ClockOffsetEstimator estimator;
+        private final AtomicBoolean syncInFlight = new AtomicBoolean(false);
+        private volatile long recvWindowMs;
+        private Counter timestampRejections;
+
+        VenueClock(String exchange, URI timeUri, ServerTimeDecoder decoder,
+                   ClockOffsetEstimator estimator, long recvWindowMs) {
+            this.exchange = exchange;
+            this.timeUri = timeUri;
+            this.decoder = decoder;
+            this.estimator = estimator;
+            this.recvWindowMs = recvWindowMs;
+        }
+
+        double offsetMs() {
+            ClockOffsetEstimator.Estimate estimate = estimator.getEstimate();
+            return estimate != null ? estimate.offsetAt(System.nanoTime()) : 0;
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package com.example.scalpingBot.service.exchange;
+
+import com.example.scalpingBot.exception.ExchangeApiException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limiter запросов к биржам с весами и приоритетами
+ *
+ * Основные функции:
+ * - Token bucket по весу запросов (REQUEST_WEIGHT за минуту) на каждую биржу
+ * - Отдельные окна числа ордеров (10 секунд и сутки)
+ * - Классы приоритета: защитные ордера (отмены, стопы, закрытия) >
+ *   новые входы > рыночные данные
+ * - Неблокирующее ожидание: вызывающий получает Mono разрешения,
+ *   очередь обслуживается таймером без занятых потоков
+ * - Синхронизация с фактическим расходом по заголовкам x-mbx-used-weight-1m
+ *   и x-mbx-order-count-* и пауза по Retry-After после 429/418
+ *
+ * Низкие приоритеты не могут израсходовать резерв бюджета старших классов:
+ * рыночные данные останавливаются раньше входов, входы - раньше защитных
+ * ордеров, поэтому загрузка истории не задерживает стоп-лосс.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExchangeRateLimiter {
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Лимиты бирж
+     */
+    @Value("${exchanges.binance.rate-limit:1200}")
+    private int binanceWeightPerMinute;
+
+    @Value("${exchanges.binance.order-limit-10s:100}")
+    private int binanceOrdersPer10s;
+
+    @Value("${exchanges.binance.order-limit-1d:200000}")
+    private int binanceOrdersPerDay;
+
+    @Value("${exchanges.bybit.rate-limit:600}")
+    private int bybitWeightPerMinute;
+
+    @Value("${exchanges.bybit.order-limit-10s:100}")
+    private int bybitOrdersPer10s;
+
+    @Value("${exchanges.bybit.order-limit-1d:200000}")
+    private int bybitOrdersPerDay;
+
+    /**
+     * Резервы бюджета (доля емкости, недоступная классу)
+     */
+    @Value("${exchanges.rate-limiter.entry-reserve:0.1}")
+    private double entryReserve;
+
+    @Value("${exchanges.rate-limiter.market-data-reserve:0.3}")
+    private double marketDataReserve;
+
+    @Value("${exchanges.rate-limiter.max-wait-ms:10000}")
+    private long maxWaitMs;
+
+    /**
+     * Лимитеры по биржам (ключ - название биржи в нижнем регистре)
+     */
+    private final Map<String, VenueLimiter> venues = new ConcurrentHashMap<>();
+
+    /**
+     * Константы
+     */
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long ORDER_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long DAY_NANOS = TimeUnit.DAYS.toNanos(1);
+
+    /**
+     * Инициализация лимитеров
+     */
+    @PostConstruct
+    public void init() {
+        venues.put("binance", new VenueLimiter("binance", binanceWeightPerMinute, binanceOrdersPer10s, binanceOrdersPerDay));
+        venues.put("bybit", new VenueLimiter("bybit", bybitWeightPerMinute, bybitOrdersPer10s, bybitOrdersPerDay));
+
+        log.info("Exchange rate limiter initialized: binance {} weight/min, {} orders/10s; reserves entry={}, market data={}",
+                binanceWeightPerMinute, binanceOrdersPer10s, entryReserve, marketDataReserve);
+    }
+
+    /**
+     * Получить разрешение на запрос
+     *
+     * Разрешение выдается сразу, если бюджета хватает и нет ожидающих
+     * запросов того же или более высокого приоритета; иначе запрос ждет
+     * в очереди своего класса не дольше max-wait-ms.
+     *
+     * @param exchange название биржи
+     * @param priority класс приоритета
+     * @param weight вес запроса
+     * @param orders число новых ордеров (0 для остальных запросов)
+     * @return Mono, завершающийся при выдаче разрешения
+     */
+    public Mono<Void> acquire(String exchange, Priority priority, int weight, int orders) {
+        VenueLimiter venue = venues.get(exchange.toLowerCase());
+        if (venue == null) {
+            return Mono.empty();
+        }
+
+        return Mono.<Void>create(sink -> venue.acquire(new Waiter(priority, weight, orders, sink)))
+                .timeout(Duration.ofMillis(maxWaitMs), Mono.error(() -> {
+                    log.warn("Rate limit permit for {} {} request timed out after {} ms", exchange, priority, maxWaitMs);
+                    return ExchangeApiException.rateLimitExceeded(exchange, maxWaitMs,
+                            (int) venue.weight.available(), venue.weight.capacity);
+                }));
+    }
+
+    /**
+     * Учесть фактический расход по заголовкам ответа
+     *
+     * @param exchange название биржи
+     * @param headers заголовки ответа
+     */
+    public void onResponseHeaders(String exchange, HttpHeaders headers) {
+        VenueLimiter venue = venues.get(exchange.toLowerCase());
+        if (venue == null) {
+            return;
+        }
+
+        try {
+            String usedWeight = headers.getFirst("x-mbx-used-weight-1m");
+            String orderCount10s = headers.getFirst("x-mbx-order-count-10s");
+            String orderCount1d = headers.getFirst("x-mbx-order-count-1d");
+
+            if (usedWeight != null || orderCount10s != null || orderCount1d != null) {
+                venue.syncUsage(
+                        usedWeight != null ? Integer.parseInt(usedWeight) : -1,
+                        orderCount10s != null ? Integer.parseInt(orderCount10s) : -1,
+                        orderCount1d != null ? Integer.parseInt(orderCount1d) : -1);
+            }
+
+        } catch (Exception e) {
+            log.debug("Failed to parse rate limit headers: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Приостановить запросы после ответа 429/418
+     *
+     * @param exchange название биржи
+     * @param retryAfterMs пауза из Retry-After (0 - до конца минутного окна)
+     */
+    public void onRateLimited(String exchange, long retryAfterMs) {
+        VenueLimiter venue = venues.get(exchange.toLowerCase());
+        if (venue == null) {
+            return;
+        }
+
+        long pauseMs = retryAfterMs > 0 ? retryAfterMs : TimeUnit.NANOSECONDS.toMillis(MINUTE_NANOS);
+        log.warn("Rate limit hit on {}, pausing requests for {} ms", exchange, pauseMs);
+        venue.pause(TimeUnit.MILLISECONDS.toNanos(pauseMs));
+    }
+
+    /**
+     * Оставшийся запас бюджета биржи
+     *
+     * @param exchange название биржи
+     * @return доля от 0 (лимит исчерпан или пауза) до 1
+     */
+    public double getHeadroom(String exchange) {
+        VenueLimiter venue = venues.get(exchange.toLowerCase());
+        return venue != null ? venue.headroom() : 1.0;
+    }
+
+    // === Вложенные классы ===
+
+    /**
+     * Класс приоритета запроса (в порядке убывания)
+     */
+    public enum Priority {
+        /**
+         * Отмены, стоп-лоссы и закрытия позиций
+         */
+        PROTECTIVE,
+        /**
+         * Новые входы и служебные запросы по ордерам
+         */
+        ENTRY,
+        /**
+         * Рыночные данные и история
+         */
+        MARKET_DATA
+    }
+
+    /**
+     * Запрос, ожидающий разрешения
+     */
+    private static final class Waiter {
+        private final Priority priority;
+        private final int weight;
+        private final int orders;
+        private final MonoSink<Void> sink;
+        private final long enqueuedAtNanos = System.nanoTime();
+
+        Waiter(Priority priority, int weight, int orders, MonoSink<Void> sink) {
+            this.priority = priority;
+            this.weight = weight;
+            this.orders = orders;
+            this.sink = sink;
+        }
+    }
+
+    /**
+     * Token bucket с непрерывным пополнением
+     */
+    private static final class TokenBucket {
+        private final int capacity;
+        private final double refillPerNano;
+        private double tokens;
+        private long lastRefillNanos;
+
+        TokenBucket(int capacity, long periodNanos) {
+            this.capacity = capacity;
+            this.refillPerNano = (double) capacity / periodNanos;
+            this.tokens = capacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * refillPerNano);
+            lastRefillNanos = now;
+        }
+
+        double available() {
+            return tokens;
+        }
+
+        /**
+         * Хватает ли токенов без захода в резерв
+         */
+        boolean canTake(int amount, double reserve) {
+            return amount == 0 || tokens - Math.min(amount, capacity - reserve) >= reserve;
+        }
+
+        void take(int amount) {
+            tokens -= amount;
+        }
+
+        /**
+         * Время до появления нужного количества токенов сверх резерва
+         */
+        long nanosUntil(int amount, double reserve) {
+            if (canTake(amount, reserve)) {
+                return 0;
+            }
+            double deficit = reserve + Math.min(amount, capacity - reserve) - tokens;
+            return (long) Math.ceil(deficit / refillPerNano);
+        }
+
+        /**
+         * Не превышать остаток, известный бирже
+         */
+        void syncUsed(int used) {
+            tokens = Math.min(tokens, capacity - used);
+        }
+    }
+
+    /**
+     * Бюджет и очереди одной биржи
+     */
+    private final class VenueLimiter {
+        private final String name;
+        private final TokenBucket weight;
+        private final TokenBucket orders10s;
+        private final TokenBucket orders1d;
+        private final List<ArrayDeque<Waiter>> queues = new ArrayList<>();
+        private final Timer[] waitTimers = new Timer[Priority.values().length];
+
+        private long pausedUntilNanos;
+        private Disposable scheduledDrain;
+        private long scheduledDrainAtNanos;
+
+        VenueLimiter(String name, int weightPerMinute, int ordersPer10s, int ordersPerDay) {
+            this.name = name;
+            this.weight = new TokenBucket(weightPerMinute, MINUTE_NANOS);
+            this.orders10s = new TokenBucket(ordersPer10s, ORDER_WINDOW_NANOS);
+            this.orders1d = new TokenBucket(ordersPerDay, DAY_NANOS);
+
+            for (Priority priority : Priority.values()) {
+                queues.add(new ArrayDeque<>());
+                waitTimers[priority.ordinal()] = Timer.builder("exchange.rate-limit.wait")
+                        .description("Time a request waited for a rate limit permit")
+                        .tag("exchange", name)
+                        .tag("priority", priority.name())
+                        .register(meterRegistry);
+            }
+        }
+
+        void acquire(Waiter waiter) {
+            boolean granted;
+            synchronized (this) {
+                long now = System.nanoTime();
+                refill(now);
+
+                granted = !hasWaitersAtOrAbove(waiter.priority) && tryTake(waiter, now);
+                if (!granted) {
+                    queues.get(waiter.priority.ordinal()).addLast(waiter);
+                    waiter.sink.onCancel(() -> remove(waiter));
+                    scheduleDrain(now);
+                }
+            }
+
+            if (granted) {
+                grant(waiter);
+            }
+        }
+
+        void syncUsage(int usedWeight, int orderCount10s, int orderCount1d) {
+            synchronized (this) {
+                refill(System.nanoTime());
+                if (usedWeight >= 0) {
+                    weight.syncUsed(usedWeight);
+                }
+                if (orderCount10s >= 0) {
+                    orders10s.syncUsed(orderCount10s);
+                }
+                if (orderCount1d >= 0) {
+                    orders1d.syncUsed(orderCount1d);
+                }
+            }
+        }
+
+        void pause(long pauseNanos) {
+            synchronized (this) {
+                long now = System.nanoTime();
+                pausedUntilNanos = Math.max(pausedUntilNanos, now + pauseNanos);
+                scheduleDrain(now);
+            }
+        }
+
+        double headroom() {
+            synchronized (this) {
+                long now = System.nanoTime();
+                if (now < pausedUntilNanos) {
+                    return 0;
+                }
+                refill(now);
+                double weightLeft = weight.available() / weight.capacity;
+                double ordersLeft = orders10s.available() / orders10s.capacity;
+                return Math.max(0, Math.min(weightLeft, ordersLeft));
+            }
+        }
+
+        /**
+         * Выдать разрешения ожидающим в порядке приоритета
+         *
+         * Если голова старшей очереди не проходит, младшие тоже ждут,
+         * чтобы мелкие запросы рыночных данных не обгоняли защитные ордера.
+         */
+        private void drain() {
+            List<Waiter> ready = new ArrayList<>();
+            synchronized (this) {
+                scheduledDrain = null;
+                long now = System.nanoTime();
+                refill(now);
+
+                outer:
+                for (ArrayDeque<Waiter> queue : queues) {
+                    while (!queue.isEmpty()) {
+                        Waiter head = queue.peekFirst();
+                        if (!tryTake(head, now)) {
+                            break outer;
+                        }
+                        queue.pollFirst();
+                        ready.add(head);
+                    }
+                }
+
+                scheduleDrain(now);
+            }
+
+            for (Waiter waiter : ready) {
+                grant(waiter);
+            }
+        }
+
+        private void grant(Waiter waiter) {
+            waitTimers[waiter.priority.ordinal()].record(System.nanoTime() - waiter.enqueuedAtNanos, TimeUnit.NANOSECONDS);
+            waiter.sink.success();
+        }
+
+        /**
+         * Снять отмененный запрос; следующий за ним может быть готов раньше
+         */
+        private synchronized void remove(Waiter waiter) {
+            if (queues.get(waiter.priority.ordinal()).remove(waiter)) {
+                long now = System.nanoTime();
+                refill(now);
+                scheduleDrain(now);
+            }
+        }
+
+        private boolean hasWaitersAtOrAbove(Priority priority) {
+            for (int i = 0; i <= priority.ordinal(); i++) {
+                if (!queues.get(i).isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean tryTake(Waiter waiter, long now) {
+            if (now < pausedUntilNanos) {
+                return false;
+            }
+
+            double reserve = reserveFraction(waiter.priority);
+            double weightReserve = weight.capacity * reserve;
+            double orders10sReserve = orders10s.capacity * reserve;
+            double orders1dReserve = orders1d.capacity * reserve;
+
+            if (!weight.canTake(waiter.weight, weightReserve)
+                    || !orders10s.canTake(waiter.orders, orders10sReserve)
+                    || !orders1d.canTake(waiter.orders, orders1dReserve)) {
+                return false;
+            }
+
+            weight.take(waiter.weight);
+            orders10s.take(waiter.orders);
+            orders1d.take(waiter.orders);
+            return true;
+        }
+
+        /**
+         * Запланировать обслуживание очереди к моменту готовности первого ожидающего
+         */
+        private void scheduleDrain(long now) {
+            Waiter head = firstWaiter();
+            if (head == null) {
+                return;
+            }
+
+            double reserve = reserveFraction(head.priority);
+            long delayNanos = Math.max(pausedUntilNanos - now, 0);
+            delayNanos = Math.max(delayNanos, weight.nanosUntil(head.weight, weight.capacity * reserve));
+            delayNanos = Math.max(delayNanos, orders10s.nanosUntil(head.orders, orders10s.capacity * reserve));
+            delayNanos = Math.max(delayNanos, orders1d.nanosUntil(head.orders, orders1d.capacity * reserve));
+
+            long drainAt = now + delayNanos;
+            if (scheduledDrain != null) {
+                if (scheduledDrainAtNanos <= drainAt) {
+                    return;
+                }
+                scheduledDrain.dispose();
+            }
+
+            scheduledDrainAtNanos = drainAt;
+            scheduledDrain = Schedulers.parallel().schedule(this::drain, delayNanos, TimeUnit.NANOSECONDS);
+            log.debug("Rate limit queue on {}: {} request waits {} ms", name, head.priority,
+                    TimeUnit.NANOSECONDS.toMillis(delayNanos));
+        }
+
+        private Waiter firstWaiter() {
+            for (ArrayDeque<Waiter> queue : queues) {
+                if (!queue.isEmpty()) {
+                    return queue.peekFirst();
+                }
+            }
+            return null;
+        }
+
+        private void refill(long now) {
+            weight.refill(now);
+            orders10s.refill(now);
+            orders1d.refill(now);
+        }
+    }
+
+    private double reserveFraction(Priority priority) {
+        switch (priority) {
+            case PROTECTIVE:
+                return 0;
+            case ENTRY:
+                return entryReserve;
+            case MARKET_DATA:
+            default:
+                return marketDataReserve;
+        }
+    }
+}
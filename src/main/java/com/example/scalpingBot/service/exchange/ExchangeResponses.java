@@ -0,0 +1,315 @@
+package com.example.scalpingBot.service.exchange;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Общие структуры ответов бирж
+ *
+ * Декодеры бирж (BinanceResponseDecoder, BybitResponseDecoder) заполняют
+ * одни и те же структуры, поэтому потребители не зависят от формата
+ * конкретной биржи:
+ * - Цены и объемы - long с масштабом 10^8 (FixedPointUtils)
+ * - Свечи и уровни стакана - параллельные массивы примитивов
+ * - Статусы и стороны ордеров - в терминах Binance (NEW, FILLED, BUY, ...)
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public final class ExchangeResponses {
+
+    // Приватный конструктор для утилитарного класса
+    private ExchangeResponses() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Свечи в параллельных массивах (цены и объемы ×10^8)
+     */
+    public static final class KlineBatch {
+        long[] openTimes;
+        long[] closeTimes;
+        long[] opens;
+        long[] highs;
+        long[] lows;
+        long[] closes;
+        long[] volumes;
+        long[] quoteVolumes;
+        int[] tradeCounts;
+        int size;
+
+        KlineBatch(int capacity) {
+            allocate(capacity);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public long openTime(int i) {
+            return openTimes[i];
+        }
+
+        public long closeTime(int i) {
+            return closeTimes[i];
+        }
+
+        public long open(int i) {
+            return opens[i];
+        }
+
+        public long high(int i) {
+            return highs[i];
+        }
+
+        public long low(int i) {
+            return lows[i];
+        }
+
+        public long close(int i) {
+            return closes[i];
+        }
+
+        public long volume(int i) {
+            return volumes[i];
+        }
+
+        public long quoteVolume(int i) {
+            return quoteVolumes[i];
+        }
+
+        public int tradeCount(int i) {
+            return tradeCounts[i];
+        }
+
+        void ensureCapacity(int required) {
+            if (required > openTimes.length) {
+                KlineBatch grown = new KlineBatch(Math.max(required, openTimes.length * 2));
+                System.arraycopy(openTimes, 0, grown.openTimes, 0, size);
+                System.arraycopy(closeTimes, 0, grown.closeTimes, 0, size);
+                System.arraycopy(opens, 0, grown.opens, 0, size);
+                System.arraycopy(highs, 0, grown.highs, 0, size);
+                System.arraycopy(lows, 0, grown.lows, 0, size);
+                System.arraycopy(closes, 0, grown.closes, 0, size);
+                System.arraycopy(volumes, 0, grown.volumes, 0, size);
+                System.arraycopy(quoteVolumes, 0, grown.quoteVolumes, 0, size);
+                System.arraycopy(tradeCounts, 0, grown.tradeCounts, 0, size);
+                openTimes = grown.openTimes;
+                closeTimes = grown.closeTimes;
+                opens = grown.opens;
+                highs = grown.highs;
+                lows = grown.lows;
+                closes = grown.closes;
+                volumes = grown.volumes;
+                quoteVolumes = grown.quoteVolumes;
+                tradeCounts = grown.tradeCounts;
+            }
+        }
+
+        /**
+         * Развернуть порядок свечей на месте (ответы от новых к старым)
+         */
+        void reverse() {
+            for (int i = 0, j = size - 1; i < j; i++, j--) {
+                swap(openTimes, i, j);
+                swap(closeTimes, i, j);
+                swap(opens, i, j);
+                swap(highs, i, j);
+                swap(lows, i, j);
+                swap(closes, i, j);
+                swap(volumes, i, j);
+                swap(quoteVolumes, i, j);
+                int tradeCount = tradeCounts[i];
+                tradeCounts[i] = tradeCounts[j];
+                tradeCounts[j] = tradeCount;
+            }
+        }
+
+        private void allocate(int capacity) {
+            openTimes = new long[capacity];
+            closeTimes = new long[capacity];
+            opens = new long[capacity];
+            highs = new long[capacity];
+            lows = new long[capacity];
+            closes = new long[capacity];
+            volumes = new long[capacity];
+            quoteVolumes = new long[capacity];
+            tradeCounts = new int[capacity];
+        }
+
+        private static void swap(long[] values, int i, int j) {
+            long value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+
+    /**
+     * Снимок стакана: уровни [цена, количество] ×10^8, bids по убыванию, asks по возрастанию
+     */
+    public static final class DepthSnapshot {
+        private static final Levels EMPTY = new Levels(0);
+
+        String symbol;
+        long lastUpdateId;
+        Levels bids = EMPTY;
+        Levels asks = EMPTY;
+
+        /**
+         * Торговая пара, если биржа передает ее в ответе (Bybit), иначе null
+         */
+        public String getSymbol() {
+            return symbol;
+        }
+
+        public long getLastUpdateId() {
+            return lastUpdateId;
+        }
+
+        public long[] getBidPrices() {
+            return bids.prices;
+        }
+
+        public long[] getBidQuantities() {
+            return bids.quantities;
+        }
+
+        public int getBidCount() {
+            return bids.count;
+        }
+
+        public long[] getAskPrices() {
+            return asks.prices;
+        }
+
+        public long[] getAskQuantities() {
+            return asks.quantities;
+        }
+
+        public int getAskCount() {
+            return asks.count;
+        }
+    }
+
+    /**
+     * Уровни одной стороны стакана
+     */
+    static final class Levels {
+        private long[] prices;
+        private long[] quantities;
+        private int count;
+
+        Levels(int capacity) {
+            this.prices = new long[capacity];
+            this.quantities = new long[capacity];
+        }
+
+        /**
+         * Прочитать уровни [["price", "qty"], ...] (парсер на START_ARRAY)
+         */
+        static Levels read(JsonParser parser, DecimalChars chars, int expectedLevels) throws IOException {
+            Levels levels = new Levels(Math.max(1, expectedLevels));
+
+            while (parser.nextToken() == JsonToken.START_ARRAY) {
+                levels.ensureCapacity(levels.count + 1);
+                parser.nextToken();
+                levels.prices[levels.count] = chars.parse(parser);
+                parser.nextToken();
+                levels.quantities[levels.count] = chars.parse(parser);
+                levels.count++;
+
+                // Лишние элементы уровня (если есть) пропускаются
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    parser.skipChildren();
+                }
+            }
+
+            return levels;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required > prices.length) {
+                int capacity = Math.max(required, prices.length * 2);
+                long[] grownPrices = new long[capacity];
+                long[] grownQuantities = new long[capacity];
+                System.arraycopy(prices, 0, grownPrices, 0, count);
+                System.arraycopy(quantities, 0, grownQuantities, 0, count);
+                prices = grownPrices;
+                quantities = grownQuantities;
+            }
+        }
+    }
+
+    /**
+     * Тикер 24h (цены и объемы ×10^8, изменение цены в процентах ×10^8)
+     */
+    @lombok.Data
+    public static class TickerSnapshot {
+        private String symbol;
+        private long lastPrice;
+        private long bidPrice;
+        private long askPrice;
+        private long openPrice;
+        private long highPrice;
+        private long lowPrice;
+        private long weightedAvgPrice;
+        private long priceChangePercent;
+        private long volume;
+        private long quoteVolume;
+        private long openTime;
+        private long closeTime;
+        private long tradeCount;
+    }
+
+    /**
+     * Лучшие цены и объемы (×10^8)
+     */
+    @lombok.Data
+    public static class BookTickerSnapshot {
+        private String symbol;
+        private long bidPrice;
+        private long bidQuantity;
+        private long askPrice;
+        private long askQuantity;
+        /**
+         * Время котировки (Unix ms), 0 если биржа его не передает
+         */
+        private long updateTime;
+    }
+
+    /**
+     * Ответ по ордеру (цены, количества и комиссия ×10^8)
+     *
+     * ID ордера строковый: у Binance это число, у Bybit - UUID.
+     */
+    @lombok.Data
+    public static class OrderResponse {
+        private String symbol;
+        private String orderId;
+        private String clientOrderId;
+        private long transactTime;
+        private long updateTime;
+        private long price;
+        private long origQty;
+        private long executedQty;
+        private long cummulativeQuoteQty;
+        private String status;
+        private String type;
+        private String side;
+        private long commission;
+        private String commissionAsset;
+
+        /**
+         * Время последнего изменения ордера на бирже (Unix ms)
+         */
+        public long getLastEventTime() {
+            return transactTime > 0 ? transactTime : updateTime;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.scalpingBot.service.exchange;
+
+/**
+ * Подписчик на отчеты об исполнении ордеров из потока пользовательских данных
+ *
+ * Вызывается в потоке WebSocket, поэтому реализация не должна блокировать
+ * поток (запись в БД и уведомления выполняются в другом пуле).
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface ExecutionReportListener {
+
+    /**
+     * Получен отчет об изменении ордера (executionReport)
+     *
+     * @param report отчет биржи
+     */
+    void onExecutionReport(UserDataStreamService.ExecutionReport report);
+}
@@ -0,0 +1,213 @@
+package com.example.scalpingBot.service.exchange;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одинаковых запросов рыночных данных (single-flight)
+ *
+ * Основные функции:
+ * - Одновременные запросы с одним ключом (биржа, эндпоинт, пара, параметры)
+ *   получают результат одного HTTP запроса
+ * - Успешный результат переиспользуется в течение короткого окна свежести
+ * - Ошибки не кешируются: следующий вызов после ошибки идет на биржу
+ * - Зависший запрос (в полете дольше in-flight-timeout-ms) не раздается
+ *   новым вызывающим: его место занимает новый запрос
+ *
+ * Результат общий для всех вызывающих, поэтому изменять его нельзя.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RequestCoalescer {
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Окна свежести по типам запросов
+     */
+    @Value("${exchanges.coalescing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${exchanges.coalescing.ticker-freshness-ms:250}")
+    private long tickerFreshnessMs;
+
+    @Value("${exchanges.coalescing.depth-freshness-ms:0}")
+    private long depthFreshnessMs;
+
+    @Value("${exchanges.coalescing.klines-freshness-ms:0}")
+    private long klinesFreshnessMs;
+
+    /**
+     * Сколько запрос может быть в полете, прежде чем его перестанут раздавать
+     */
+    @Value("${exchanges.coalescing.in-flight-timeout-ms:20000}")
+    private long inFlightTimeoutMs;
+
+    /**
+     * Запросы в полете и недавние результаты
+     */
+    private final Map<String, Flight<?>> flights = new ConcurrentHashMap<>();
+
+    private Counter sharedCounter;
+    private Counter freshCounter;
+    private Counter missCounter;
+
+    /**
+     * Инициализация метрик
+     */
+    @PostConstruct
+    public void init() {
+        sharedCounter = coalescedCounter("in-flight");
+        freshCounter = coalescedCounter("fresh");
+        missCounter = coalescedCounter("miss");
+
+        log.info("Request coalescing {}: ticker freshness {}ms, depth {}ms, klines {}ms",
+                enabled ? "enabled" : "disabled", tickerFreshnessMs, depthFreshnessMs, klinesFreshnessMs);
+    }
+
+    /**
+     * Выполнить запрос тикера через общий запрос
+     */
+    public <T> Mono<T> ticker(String exchange, String symbol, Supplier<Mono<T>> request) {
+        return coalesce(exchange, "ticker", symbol, "", tickerFreshnessMs, request);
+    }
+
+    /**
+     * Выполнить запрос стакана через общий запрос
+     *
+     * По умолчанию окно свежести нулевое: снимок для синхронизации
+     * локального стакана должен быть новее буферизованных событий.
+     */
+    public <T> Mono<T> depth(String exchange, String symbol, int limit, Supplier<Mono<T>> request) {
+        return coalesce(exchange, "depth", symbol, String.valueOf(limit), depthFreshnessMs, request);
+    }
+
+    /**
+     * Выполнить запрос свечей через общий запрос
+     */
+    public <T> Mono<T> klines(String exchange, String symbol, String interval, long startTime, int limit,
+                              Supplier<Mono<T>> request) {
+        return coalesce(exchange, "klines", symbol, interval + ':' + startTime + ':' + limit,
+                klinesFreshnessMs, request);
+    }
+
+    /**
+     * Выполнить запрос или присоединиться к уже выполняющемуся
+     *
+     * @param exchange название биржи
+     * @param endpoint тип запроса
+     * @param symbol торговая пара
+     * @param params остальные параметры, влияющие на ответ
+     * @param freshnessMs сколько переиспользовать успешный результат (0 - только пока запрос в полете)
+     * @param request фабрика запроса к бирже
+     * @return общий результат
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> coalesce(String exchange, String endpoint, String symbol, String params,
+                                long freshnessMs, Supplier<Mono<T>> request) {
+        if (!enabled) {
+            return Mono.defer(request);
+        }
+
+        return Mono.defer(() -> {
+            String key = exchange.toLowerCase() + '|' + endpoint + '|' + symbol + '|' + params;
+            long freshnessNanos = TimeUnit.MILLISECONDS.toNanos(freshnessMs);
+            long inFlightTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(inFlightTimeoutMs);
+            long now = System.nanoTime();
+
+            Flight<?>[] created = new Flight<?>[1];
+            Flight<?> flight = flights.compute(key, (k, existing) -> {
+                if (existing != null && existing.isReusable(now, freshnessNanos, inFlightTimeoutNanos)) {
+                    return existing;
+                }
+                if (existing != null && existing.completedAtNanos == 0) {
+                    log.warn("Request {} in flight for more than {} ms, starting a new one", k, inFlightTimeoutMs);
+                }
+                Flight<T> next = new Flight<>(now);
+                next.result = Mono.defer(request)
+                        .doOnSuccess(value -> {
+                            next.completedAtNanos = System.nanoTime();
+                            if (freshnessNanos == 0) {
+                                flights.remove(k, next);
+                            }
+                        })
+                        .doOnError(e -> flights.remove(k, next))
+                        .doOnCancel(() -> flights.remove(k, next))
+                        .cache();
+                created[0] = next;
+                return next;
+            });
+
+            if (created[0] != null) {
+                missCounter.increment();
+            } else if (flight.completedAtNanos == 0) {
+                sharedCounter.increment();
+            } else {
+                freshCounter.increment();
+            }
+            return (Mono<T>) flight.result;
+        });
+    }
+
+    /**
+     * Удалить устаревшие результаты (пары и страницы, которые больше не запрашиваются)
+     * и зависшие запросы
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long now = System.nanoTime();
+        long maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(
+                Math.max(tickerFreshnessMs, Math.max(depthFreshnessMs, klinesFreshnessMs)));
+        long inFlightTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(inFlightTimeoutMs);
+        flights.entrySet().removeIf(entry -> {
+            Flight<?> flight = entry.getValue();
+            long completedAt = flight.completedAtNanos;
+            return completedAt != 0
+                    ? now - completedAt > maxAgeNanos
+                    : now - flight.startedAtNanos > inFlightTimeoutNanos;
+        });
+    }
+
+    private Counter coalescedCounter(String result) {
+        return Counter.builder("exchange.request.coalescing")
+                .description("Market data requests served by a shared or recent exchange call")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Один запрос к бирже, время его начала и успешного завершения
+     */
+    private static final class Flight<T> {
+        private final long startedAtNanos;
+        private Mono<T> result;
+        private volatile long completedAtNanos = 0;
+
+        Flight(long startedAtNanos) {
+            this.startedAtNanos = startedAtNanos;
+        }
+
+        boolean isReusable(long now, long freshnessNanos, long inFlightTimeoutNanos) {
+            long completedAt = completedAtNanos;
+            return completedAt == 0
+                    ? now - startedAtNanos <= inFlightTimeoutNanos
+                    : now - completedAt <= freshnessNanos;
+        }
+    }
+}
@@ -0,0 +1,576 @@
+package com.example.scalpingBot.service.exchange;
+
+import com.example.scalpingBot.exception.ExchangeApiException;
+import com.example.scalpingBot.utils.CryptoUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поток пользовательских данных Binance (user data stream)
+ *
+ * Основные функции:
+ * - Получение listenKey и его продление каждые 30 минут
+ * - Подключение к wss://.../ws/{listenKey} с переподключением и новым ключом
+ * - Рассылка отчетов executionReport подписчикам (ExecutionReportListener)
+ * - Хранение балансов: снимок REST /api/v3/account при подключении,
+ *   затем события outboundAccountPosition и balanceUpdate
+ * - Номер сессии потока для сверки ордеров через REST после переподключения
+ * - Метрика задержки событий от биржи до бота
+ *
+ * Исполнение ордеров обнаруживается с задержкой потока, а не интервала
+ * опроса REST. События, пропущенные за время обрыва, не восстанавливаются -
+ * после каждого подключения подписчики сверяют состояние через REST.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserDataStreamService {
+
+    private final ExchangeApiService exchangeApiService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Настройки потока
+     */
+    @Value("${exchanges.binance.enabled:true}")
+    private boolean binanceEnabled;
+
+    @Value("${exchanges.binance.ws-url:wss://stream.binance.com:9443}")
+    private String binanceWsUrl;
+
+    @Value("${exchanges.binance.testnet:true}")
+    private boolean binanceTestnet;
+
+    @Value("${exchanges.binance.api-key:}")
+    private String binanceApiKey;
+
+    @Value("${user-data-stream.enabled:true}")
+    private boolean streamEnabled;
+
+    @Value("${user-data-stream.keep-alive-minutes:30}")
+    private int keepAliveMinutes;
+
+    @Value("${user-data-stream.reconnect-delay-seconds:5}")
+    private int reconnectDelaySeconds;
+
+    /**
+     * Подписчики на отчеты об исполнении
+     */
+    private final List<ExecutionReportListener> executionReportListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Балансы по активам (ключ - тикер актива в верхнем регистре)
+     */
+    private final Map<String, AssetBalance> balances = new ConcurrentHashMap<>();
+
+    /**
+     * Планировщик подключений и продления listenKey (REST вызовы блокирующие)
+     */
+    private final ScheduledExecutorService streamExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ScalpingBot-UserStream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Текущая WebSocket сессия и ее listenKey
+     */
+    private volatile WebSocketSession streamSession;
+    private volatile String listenKey;
+
+    /**
+     * Номер сессии потока (увеличивается при каждом подключении)
+     */
+    private volatile long sessionEpoch = 0;
+
+    /**
+     * Флаг остановки сервиса
+     */
+    private volatile boolean shuttingDown = false;
+
+    /**
+     * Количество подряд неудачных попыток подключения
+     */
+    private volatile int failedAttempts = 0;
+
+    /**
+     * Задержка событий от времени биржи до получения
+     */
+    private Timer executionReportLagTimer;
+    private Timer accountPositionLagTimer;
+
+    /**
+     * Константы
+     */
+    private static final String BINANCE = "binance";
+    private static final String LISTEN_KEY_NOT_FOUND = "-1125";
+    private static final String TESTNET_WS_URL = "wss://testnet.binance.vision";
+    private static final int MAX_MESSAGE_SIZE = 64 * 1024;
+    private static final int MAX_RECONNECT_DELAY_SECONDS = 60;
+
+    /**
+     * Инициализация сервиса
+     */
+    @PostConstruct
+    public void init() {
+        executionReportLagTimer = buildLagTimer("executionReport");
+        accountPositionLagTimer = buildLagTimer("outboundAccountPosition");
+
+        if (!binanceEnabled || !streamEnabled) {
+            log.info("User data stream is disabled, order status will be polled via REST");
+            return;
+        }
+
+        if (!CryptoUtils.isValidApiKeyFormat(binanceApiKey)) {
+            log.warn("Binance API key is not configured, user data stream will not be started");
+            return;
+        }
+
+        log.info("Binance user data stream: {} (testnet: {})", streamBaseUrl(), binanceTestnet);
+        streamExecutor.execute(this::connect);
+        streamExecutor.scheduleAtFixedRate(this::keepAlive, keepAliveMinutes, keepAliveMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Остановка потока при завершении приложения
+     */
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        streamExecutor.shutdownNow();
+
+        WebSocketSession session = streamSession;
+        if (session != null && session.isOpen()) {
+            try {
+                session.close(CloseStatus.NORMAL);
+            } catch (Exception e) {
+                log.debug("Failed to close user data stream: {}", e.getMessage());
+            }
+        }
+
+        String key = listenKey;
+        if (key != null) {
+            exchangeApiService.closeListenKeyAsync(key, BINANCE)
+                    .subscribe(null, e -> log.debug("Failed to close listenKey: {}", e.getMessage()));
+        }
+
+        log.info("User data stream stopped");
+    }
+
+    /**
+     * Подписаться на отчеты об исполнении ордеров
+     *
+     * @param listener подписчик (вызывается в потоке WebSocket)
+     */
+    public void subscribeExecutionReports(ExecutionReportListener listener) {
+        executionReportListeners.add(listener);
+    }
+
+    /**
+     * Проверить, подключен ли поток пользовательских данных
+     *
+     * @return true если WebSocket сессия открыта
+     */
+    public boolean isConnected() {
+        WebSocketSession session = streamSession;
+        return session != null && session.isOpen();
+    }
+
+    /**
+     * Номер текущей сессии потока
+     *
+     * Меняется при каждом подключении: если номер отличается от
+     * сохраненного подписчиком, часть событий могла быть пропущена.
+     *
+     * @return номер сессии (0 - подключений еще не было)
+     */
+    public long getSessionEpoch() {
+        return sessionEpoch;
+    }
+
+    /**
+     * Получить баланс актива из потока
+     *
+     * @param asset актив (например USDT)
+     * @return баланс или null если актива нет в снимке счета и событий по нему не было
+     */
+    public AssetBalance getBalance(String asset) {
+        return balances.get(asset.toUpperCase());
+    }
+
+    /**
+     * Получить свободный баланс актива из потока
+     *
+     * @param asset актив (например USDT)
+     * @return свободный баланс или null если он неизвестен
+     */
+    public BigDecimal getFreeBalance(String asset) {
+        AssetBalance balance = getBalance(asset);
+        return balance != null ? balance.getFree() : null;
+    }
+
+    // === Подключение к потоку ===
+
+    /**
+     * Адрес потока: listenKey testnet действует только на потоке testnet
+     */
+    private String streamBaseUrl() {
+        return binanceTestnet ? TESTNET_WS_URL : binanceWsUrl;
+    }
+
+    /**
+     * Получить новый listenKey и подключиться к потоку
+     */
+    private void connect() {
+        if (shuttingDown) {
+            return;
+        }
+
+        String key;
+        try {
+            key = exchangeApiService.createListenKey(BINANCE);
+        } catch (Exception e) {
+            log.error("Failed to create Binance listenKey: {}", e.getMessage());
+            scheduleReconnect();
+            return;
+        }
+
+        listenKey = key;
+
+        StandardWebSocketClient client = new StandardWebSocketClient();
+        client.execute(new UserStreamHandler(), streamBaseUrl() + "/ws/" + key)
+                .whenComplete((session, error) -> {
+                    if (error != null) {
+                        log.error("Failed to connect to Binance user data stream: {}", error.getMessage());
+                        scheduleReconnect();
+                    } else {
+                        session.setTextMessageSizeLimit(MAX_MESSAGE_SIZE);
+                        streamSession = session;
+                        failedAttempts = 0;
+                        sessionEpoch++;
+                        log.info("Connected to Binance user data stream (session {})", sessionEpoch);
+                        // Поток присылает только изменения - начальные балансы берем из REST
+                        streamExecutor.execute(this::loadBalances);
+                    }
+                });
+    }
+
+    /**
+     * Загрузить балансы счета через REST
+     *
+     * Балансы, уже обновленные событиями потока позже снимка, не перезаписываются.
+     */
+    @SuppressWarnings("unchecked")
+    private void loadBalances() {
+        if (shuttingDown) {
+            return;
+        }
+
+        try {
+            Map<String, Object> account = exchangeApiService.getAccount(BINANCE);
+            long updateTime = ((Number) account.getOrDefault("updateTime", 0L)).longValue();
+            Object assets = account.get("balances");
+            if (!(assets instanceof List)) {
+                log.warn("No balances in Binance account response");
+                return;
+            }
+
+            for (Object item : (List<Object>) assets) {
+                Map<String, Object> balance = (Map<String, Object>) item;
+                String asset = String.valueOf(balance.get("asset")).toUpperCase();
+                AssetBalance snapshot = AssetBalance.builder()
+                        .asset(asset)
+                        .free(new BigDecimal(String.valueOf(balance.get("free"))))
+                        .locked(new BigDecimal(String.valueOf(balance.get("locked"))))
+                        .updateTime(updateTime)
+                        .build();
+                balances.merge(asset, snapshot,
+                        (current, loaded) -> current.getUpdateTime() > loaded.getUpdateTime() ? current : loaded);
+            }
+
+            log.info("Loaded {} Binance balances from account snapshot", balances.size());
+        } catch (Exception e) {
+            log.warn("Failed to load Binance account balances: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Запланировать переподключение с экспоненциальной задержкой
+     */
+    private void scheduleReconnect() {
+        if (shuttingDown) {
+            return;
+        }
+
+        int attempt = ++failedAttempts;
+        long delay = Math.min((long) reconnectDelaySeconds << Math.min(attempt - 1, 4), MAX_RECONNECT_DELAY_SECONDS);
+
+        log.warn("Reconnecting to Binance user data stream in {}s (attempt {})", delay, attempt);
+        streamExecutor.schedule(this::connect, delay, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Продлить listenKey (без продления ключ истекает через 60 минут)
+     */
+    private void keepAlive() {
+        String key = listenKey;
+        if (key == null || !isConnected()) {
+            return;
+        }
+
+        try {
+            exchangeApiService.keepAliveListenKey(key, BINANCE);
+            log.debug("Binance listenKey extended");
+        } catch (ExchangeApiException e) {
+            if (LISTEN_KEY_NOT_FOUND.equals(e.getExchangeErrorCode())) {
+                // Ключ уже недействителен - переподключаемся с новым
+                log.warn("Binance listenKey expired, reconnecting user data stream");
+                closeSession();
+            } else {
+                log.warn("Failed to extend Binance listenKey: {}", e.getMessage());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to extend Binance listenKey: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Закрыть текущую сессию (переподключение выполнит обработчик закрытия)
+     */
+    private void closeSession() {
+        WebSocketSession session = streamSession;
+        if (session == null) {
+            return;
+        }
+
+        try {
+            session.close(CloseStatus.GOING_AWAY);
+        } catch (Exception e) {
+            log.debug("Failed to close user data stream: {}", e.getMessage());
+        }
+    }
+
+    // === Обработка сообщений ===
+
+    /**
+     * Обработать сообщение потока
+     *
+     * @param payload JSON событие вида {"e": "executionReport", ...}
+     */
+    private void handleStreamMessage(String payload) {
+        try {
+            JsonNode event = objectMapper.readTree(payload);
+            String eventType = event.path("e").asText("");
+
+            switch (eventType) {
+                case "executionReport":
+                    recordLag(executionReportLagTimer, event.path("E").asLong());
+                    notifyExecutionReport(parseExecutionReport(event));
+                    break;
+
+                case "outboundAccountPosition":
+                    recordLag(accountPositionLagTimer, event.path("E").asLong());
+                    applyAccountPosition(event);
+                    break;
+
+                case "balanceUpdate":
+                    applyBalanceUpdate(event);
+                    break;
+
+                case "listenKeyExpired":
+                    log.warn("Binance listenKey expired, reconnecting user data stream");
+                    closeSession();
+                    break;
+
+                default:
+                    log.debug("Ignoring user data stream event: {}", eventType);
+                    break;
+            }
+
+        } catch (Exception e) {
+            log.warn("Failed to process user data stream message: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Разобрать событие executionReport
+     */
+    private ExecutionReport parseExecutionReport(JsonNode event) {
+        return ExecutionReport.builder()
+                .symbol(event.path("s").asText())
+                .orderId(event.path("i").asText())
+                .clientOrderId(event.path("c").asText(null))
+                .side(event.path("S").asText())
+                .orderType(event.path("o").asText())
+                .executionType(event.path("x").asText())
+                .orderStatus(event.path("X").asText())
+                .rejectReason(event.path("r").asText(null))
+                .lastExecutedQuantity(decimal(event.path("l")))
+                .lastExecutedPrice(decimal(event.path("L")))
+                .cumulativeQuantity(decimal(event.path("z")))
+                .cumulativeQuoteQuantity(decimal(event.path("Z")))
+                .commission(decimal(event.path("n")))
+                .commissionAsset(event.path("N").isNull() ? null : event.path("N").asText(null))
+                .transactionTime(event.path("T").asLong())
+                .eventTime(event.path("E").asLong())
+                .build();
+    }
+
+    /**
+     * Разослать отчет подписчикам
+     */
+    private void notifyExecutionReport(ExecutionReport report) {
+        for (ExecutionReportListener listener : executionReportListeners) {
+            try {
+                listener.onExecutionReport(report);
+            } catch (Exception e) {
+                log.warn("Execution report listener failed for order {}: {}", report.getOrderId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Применить событие outboundAccountPosition (балансы измененных активов)
+     */
+    private void applyAccountPosition(JsonNode event) {
+        long updateTime = event.path("u").asLong();
+
+        for (JsonNode balance : event.path("B")) {
+            String asset = balance.path("a").asText().toUpperCase();
+            AssetBalance current = balances.get(asset);
+            if (current != null && current.getUpdateTime() > updateTime) {
+                continue;
+            }
+
+            balances.put(asset, AssetBalance.builder()
+                    .asset(asset)
+                    .free(decimal(balance.path("f")))
+                    .locked(decimal(balance.path("l")))
+                    .updateTime(updateTime)
+                    .build());
+        }
+    }
+
+    /**
+     * Применить событие balanceUpdate (ввод, вывод, перевод)
+     */
+    private void applyBalanceUpdate(JsonNode event) {
+        String asset = event.path("a").asText().toUpperCase();
+        BigDecimal delta = decimal(event.path("d"));
+
+        balances.computeIfPresent(asset, (key, current) -> AssetBalance.builder()
+                .asset(key)
+                .free(current.getFree().add(delta))
+                .locked(current.getLocked())
+                .updateTime(Math.max(current.getUpdateTime(), event.path("T").asLong()))
+                .build());
+    }
+
+    private void recordLag(Timer timer, long eventTimeMs) {
+        if (eventTimeMs > 0) {
+            timer.record(Math.max(0, System.currentTimeMillis() - eventTimeMs), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Timer buildLagTimer(String eventType) {
+        return Timer.builder("exchange.user-stream.lag")
+                .description("Delay from exchange event time to receipt by the bot")
+                .tag("exchange", BINANCE)
+                .tag("event", eventType)
+                .register(meterRegistry);
+    }
+
+    private static BigDecimal decimal(JsonNode node) {
+        return node.isMissingNode() || node.isNull() ? BigDecimal.ZERO : new BigDecimal(node.asText());
+    }
+
+    /**
+     * Обработчик WebSocket сообщений
+     */
+    private class UserStreamHandler extends TextWebSocketHandler {
+
+        @Override
+        protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+            handleStreamMessage(message.getPayload());
+        }
+
+        @Override
+        public void handleTransportError(WebSocketSession session, Throwable exception) {
+            log.warn("User data stream transport error: {}", exception.getMessage());
+        }
+
+        @Override
+        public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+            log.warn("User data stream closed: {}", status);
+            if (streamSession == session) {
+                streamSession = null;
+            }
+            // Новый listenKey и сверка ордеров через REST после подключения
+            scheduleReconnect();
+        }
+    }
+
+    // === Вложенные классы ===
+
+    /**
+     * Отчет об изменении ордера (событие executionReport)
+     */
+    @lombok.Data
+    @lombok.Builder
+    public static class ExecutionReport {
+        private String symbol;
+        private String orderId;
+        private String clientOrderId;
+        private String side;
+        private String orderType;
+        private String executionType;
+        private String orderStatus;
+        private String rejectReason;
+        private BigDecimal lastExecutedQuantity;
+        private BigDecimal lastExecutedPrice;
+        private BigDecimal cumulativeQuantity;
+        private BigDecimal cumulativeQuoteQuantity;
+        private BigDecimal commission;
+        private String commissionAsset;
+        private long transactionTime;
+        private long eventTime;
+    }
+
+    /**
+     * Баланс актива
+     */
+    @lombok.Data
+    @lombok.Builder
+    public static class AssetBalance {
+        private String asset;
+        private BigDecimal free;
+        private BigDecimal locked;
+        private long updateTime;
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.scalpingBot.service.history;
+
+import com.example.scalpingBot.service.market.CandleRingBuffer;
+import com.example.scalpingBot.utils.DateUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Архив исторических свечей в бинарных файлах с отображением в память
+ *
+ * Формат хранения:
+ * - Один файл на пару, таймфрейм и месяц (UTC): {dir}/{PAIR}/{interval}/{PAIR}-{interval}-{yyyy-MM}.bin
+ * - Заголовок 32 байта: magic "KLN1", версия, длительность интервала, размер записи
+ * - Записи фиксированной длины 64 байта (little-endian), только добавление,
+ *   строго по возрастанию времени открытия:
+ *   openTime(8) open(8) high(8) low(8) close(8) volume(8) quoteVolume(8) trades(4) reserved(4)
+ * - Цены в формате фиксированной точки ×10^8 (как в CandleRingBuffer)
+ *
+ * Чтение - через MappedByteBuffer без копирования, индекс по времени
+ * открытия - бинарный поиск по упорядоченным записям.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class KlineArchive {
+
+    /**
+     * Размер заголовка файла
+     */
+    static final int HEADER_SIZE = 32;
+
+    /**
+     * Размер записи одной свечи
+     */
+    static final int RECORD_SIZE = 64;
+
+    private static final int MAGIC = 0x4B4C4E31; // "KLN1"
+    private static final int VERSION = 1;
+
+    @Value("${history.archive.directory:data/klines}")
+    private String directory;
+
+    /**
+     * Открытые файлы для добавления записей
+     */
+    private final Map<Path, ArchiveWriter> writers = new ConcurrentHashMap<>();
+
+    @PreDestroy
+    public void shutdown() {
+        writers.values().forEach(ArchiveWriter::close);
+        writers.clear();
+    }
+
+    // === Запись ===
+
+    /**
+     * Добавить закрытую свечу в архив
+     *
+     * Свечи с временем открытия не больше последней записанной игнорируются.
+     *
+     * @return true если свеча записана
+     */
+    public boolean append(String tradingPair, String interval, long openTime,
+                          long open, long high, long low, long close,
+                          double volume, double quoteVolume, int tradeCount) {
+        Path file = monthFile(tradingPair, interval, YearMonth.from(Instant.ofEpochMilli(openTime).atZone(ZoneOffset.UTC)));
+        ArchiveWriter writer = writers.computeIfAbsent(file, f -> new ArchiveWriter(f, DateUtils.intervalToMillis(interval)));
+        return writer.append(openTime, open, high, low, close, volume, quoteVolume, tradeCount);
+    }
+
+    /**
+     * Время открытия последней свечи в архиве
+     *
+     * @return Unix ms или -1 если архив пуст
+     */
+    public long getLastOpenTime(String tradingPair, String interval) {
+        List<YearMonth> months = listMonths(tradingPair, interval);
+        for (int m = months.size() - 1; m >= 0; m--) {
+            KlineSegment segment = openMonth(tradingPair, interval, months.get(m));
+            if (segment != null && !segment.isEmpty()) {
+                return segment.openTime(segment.size() - 1);
+            }
+        }
+        return -1;
+    }
+
+    // === Чтение ===
+
+    /**
+     * Отобразить в память файл месяца
+     *
+     * @return участок со всеми свечами месяца или null если файла нет
+     */
+    public KlineSegment openMonth(String tradingPair, String interval, YearMonth month) {
+        Path file = monthFile(tradingPair, interval, month);
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long records = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+            if (records <= 0) {
+                return new KlineSegment(ByteBuffer.allocate(0));
+            }
+
+            // Отображение остается действительным после закрытия канала
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, records * RECORD_SIZE);
+            return new KlineSegment(mapped);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map kline archive " + file, e);
+        }
+    }
+
+    /**
+     * Получить свечи за период
+     *
+     * @param tradingPair торговая пара
+     * @param interval таймфрейм
+     * @param fromTime время открытия первой свечи (включительно)
+     * @param toTime время открытия последней свечи (исключительно)
+     * @return участки по месяцам в хронологическом порядке
+     */
+    public List<KlineSegment> read(String tradingPair, String interval, long fromTime, long toTime) {
+        List<KlineSegment> result = new ArrayList<>();
+        YearMonth month = YearMonth.from(Instant.ofEpochMilli(fromTime).atZone(ZoneOffset.UTC));
+        YearMonth last = YearMonth.from(Instant.ofEpochMilli(Math.max(fromTime, toTime - 1)).atZone(ZoneOffset.UTC));
+
+        for (; !month.isAfter(last); month = month.plusMonths(1)) {
+            KlineSegment segment = openMonth(tradingPair, interval, month);
+            if (segment != null) {
+                KlineSegment slice = segment.sliceByTime(fromTime, toTime);
+                if (!slice.isEmpty()) {
+                    result.add(slice);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Загрузить последние свечи архива в буфер (прогрев при старте)
+     *
+     * @param tradingPair торговая пара
+     * @param interval таймфрейм
+     * @param buffer буфер свечей
+     * @param maxCandles максимальное количество свечей
+     * @return количество загруженных свечей
+     */
+    public int loadInto(String tradingPair, String interval, CandleRingBuffer buffer, int maxCandles) {
+        List<YearMonth> months = listMonths(tradingPair, interval);
+        List<KlineSegment> segments = new ArrayList<>();
+        int collected = 0;
+
+        // Идем от последнего месяца назад, пока не наберем нужное количество
+        for (int m = months.size() - 1; m >= 0 && collected < maxCandles; m--) {
+            KlineSegment segment = openMonth(tradingPair, interval, months.get(m));
+            if (segment == null || segment.isEmpty()) {
+                continue;
+            }
+            int take = Math.min(segment.size(), maxCandles - collected);
+            segments.add(0, segment.slice(segment.size() - take, segment.size()));
+            collected += take;
+        }
+
+        int loaded = 0;
+        for (KlineSegment segment : segments) {
+            for (int i = 0; i < segment.size(); i++) {
+                if (buffer.append(segment.openTime(i), segment.openScaled(i), segment.highScaled(i),
+                        segment.lowScaled(i), segment.closeScaled(i), segment.volume(i),
+                        segment.quoteVolume(i), segment.tradeCount(i))) {
+                    loaded++;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Месяцы, за которые есть файлы архива, в хронологическом порядке
+     */
+    public List<YearMonth> listMonths(String tradingPair, String interval) {
+        Path dir = pairDirectory(tradingPair, interval);
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+
+        String prefix = tradingPair.toUpperCase() + "-" + interval + "-";
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(".bin"))
+                    .map(name -> YearMonth.parse(name.substring(prefix.length(), name.length() - 4)))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list kline archive " + dir, e);
+        }
+    }
+
+    private Path pairDirectory(String tradingPair, String interval) {
+        return Paths.get(directory, tradingPair.toUpperCase(), interval);
+    }
+
+    private Path monthFile(String tradingPair, String interval, YearMonth month) {
+        return pairDirectory(tradingPair, interval)
+                .resolve(tradingPair.toUpperCase() + "-" + interval + "-" + month + ".bin");
+    }
+
+    /**
+     * Файл месяца, открытый для добавления записей
+     */
+    private static final class ArchiveWriter {
+        private final Path file;
+        private final FileChannel channel;
+        private final ByteBuffer record = ByteBuffer.allocateDirect(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long lastOpenTime = -1;
+
+        ArchiveWriter(Path file, long intervalMs) {
+            this.file = file;
+            try {
+                Files.createDirectories(file.getParent());
+                this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+                if (channel.size() < HEADER_SIZE) {
+                    writeHeader(intervalMs);
+                } else {
+                    validateHeader();
+                    // Отбрасываем неполную запись после аварийного завершения
+                    long records = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+                    channel.truncate(HEADER_SIZE + records * RECORD_SIZE);
+                    if (records > 0) {
+                        ByteBuffer last = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                        channel.read(last, HEADER_SIZE + (records - 1) * RECORD_SIZE);
+                        lastOpenTime = last.getLong(0);
+                    }
+                }
+                channel.position(channel.size());
+
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open kline archive " + file, e);
+            }
+        }
+
+        private void writeHeader(long intervalMs) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(intervalMs).putInt(RECORD_SIZE);
+            header.clear();
+            channel.truncate(0);
+            channel.write(header, 0);
+        }
+
+        private void validateHeader() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(16) != RECORD_SIZE) {
+                throw new IOException("Not a kline archive file: " + file);
+            }
+        }
+
+        synchronized boolean append(long openTime, long open, long high, long low, long close,
+                                    double volume, double quoteVolume, int tradeCount) {
+            if (openTime <= lastOpenTime) {
+                return false;
+            }
+
+            record.clear();
+            record.putLong(openTime).putLong(open).putLong(high).putLong(low).putLong(close)
+                    .putDouble(volume).putDouble(quoteVolume).putInt(tradeCount).putInt(0);
+            record.flip();
+
+            try {
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to append to kline archive " + file, e);
+            }
+
+            lastOpenTime = openTime;
+            return true;
+        }
+
+        synchronized void close() {
+            try {
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close kline archive {}: {}", file, e.getMessage());
+            }
+        }
+    }
+}
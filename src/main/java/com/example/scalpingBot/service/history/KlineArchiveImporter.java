@@ -0,0 +1,289 @@
+package com.example.scalpingBot.service.history;
+
+import com.example.scalpingBot.config.TradingConfig;
+import com.example.scalpingBot.service.exchange.ExchangeApiService;
+import com.example.scalpingBot.service.exchange.ExchangeResponses;
+import com.example.scalpingBot.service.market.CandleAggregator;
+import com.example.scalpingBot.service.market.CandleRingBuffer;
+import com.example.scalpingBot.utils.DateUtils;
+import com.example.scalpingBot.utils.FixedPointUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Загрузка истории свечей в архив
+ *
+ * Основные функции:
+ * - Постраничная загрузка истории через ExchangeApiService.getKlines (с продолжением с места остановки)
+ * - Импорт локальных CSV выгрузок Binance (data.binance.vision)
+ * - Дозапись закрытых свечей из потока рыночных данных
+ * - Догрузка пропущенных свечей (простой приложения, обрыв потока) перед дозаписью
+ *
+ * Архив допускает только добавление в конец, поэтому все записи (загрузка при
+ * старте и дозапись из потока) выполняются одним потоком kline-archive-writer
+ * по порядку. Поток WebSocket только ставит свечу в очередь и не ждет файлового
+ * ввода-вывода. Если между последней свечой архива и новой свечой потока есть
+ * разрыв, он сначала заполняется через REST - иначе живая свеча сдвинула бы
+ * конец архива и разрыв остался бы навсегда.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KlineArchiveImporter {
+
+    private final KlineArchive klineArchive;
+    private final ExchangeApiService exchangeApiService;
+    private final CandleAggregator candleAggregator;
+    private final TradingConfig tradingConfig;
+
+    @Value("${history.archive.record-live:true}")
+    private boolean recordLive;
+
+    @Value("${history.archive.import-on-startup:false}")
+    private boolean importOnStartup;
+
+    @Value("${history.archive.import-days:30}")
+    private int importDays;
+
+    @Value("${technical-analysis.timeframes.primary:1m}")
+    private String primaryInterval;
+
+    /**
+     * Максимальное количество свечей в одном запросе Binance
+     */
+    private static final int PAGE_SIZE = 1000;
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private static final String BINANCE = "binance";
+
+    /**
+     * Единственный поток записи в архив
+     */
+    private final ExecutorService archiveExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "kline-archive-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Время открытия последней записанной свечи по парам (только поток записи)
+     */
+    private final Map<String, Long> lastArchivedTimes = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (importOnStartup) {
+            archiveExecutor.execute(() -> {
+                long from = DateUtils.currentTimestampMs() - TimeUnit.DAYS.toMillis(importDays);
+                for (String pair : tradingConfig.getTradingPairs()) {
+                    try {
+                        importFromExchange(pair, primaryInterval, from, DateUtils.currentTimestampMs());
+                    } catch (Exception e) {
+                        log.warn("Failed to import kline history for {}: {}", pair, e.getMessage());
+                    }
+                }
+            });
+        }
+
+        if (recordLive) {
+            // Дозапись закрытых свечей основного таймфрейма из потока
+            candleAggregator.subscribe((pair, interval, buffer) -> {
+                if (interval.equals(primaryInterval)) {
+                    enqueueLast(pair, interval, buffer);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Даем дописать свечи из очереди до закрытия файлов архива
+        archiveExecutor.shutdown();
+        try {
+            if (!archiveExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                archiveExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            archiveExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Загрузить историю свечей с биржи
+     *
+     * Если в архиве уже есть свечи, загрузка продолжается с последней записанной.
+     * Вызывается в потоке записи архива (или когда дозапись из потока отключена),
+     * иначе конкурентная дозапись может сдвинуть конец архива и отбросить догрузку.
+     *
+     * @param tradingPair торговая пара
+     * @param interval таймфрейм
+     * @param fromTime начало периода (Unix ms)
+     * @param toTime конец периода (Unix ms)
+     * @return количество записанных свечей
+     */
+    public int importFromExchange(String tradingPair, String interval, long fromTime, long toTime) {
+        long intervalMs = DateUtils.intervalToMillis(interval);
+        long lastArchived = klineArchive.getLastOpenTime(tradingPair, interval);
+        long start = lastArchived >= 0 ? Math.max(fromTime, lastArchived + intervalMs) : fromTime;
+        int imported = 0;
+
+        while (start < toTime) {
+            ExchangeResponses.KlineBatch klines =
+                    exchangeApiService.getKlines(tradingPair, interval, start, PAGE_SIZE, BINANCE);
+            if (klines.isEmpty()) {
+                break;
+            }
+
+            long now = DateUtils.currentTimestampMs();
+            long lastOpenTime = start;
+            for (int i = 0; i < klines.size(); i++) {
+                long openTime = klines.openTime(i);
+                if (openTime >= toTime || klines.closeTime(i) >= now) {
+                    break; // Незакрытая свеча или выход за период
+                }
+
+                if (klineArchive.append(tradingPair, interval, openTime,
+                        klines.open(i), klines.high(i), klines.low(i), klines.close(i),
+                        FixedPointUtils.toDouble(klines.volume(i)),
+                        FixedPointUtils.toDouble(klines.quoteVolume(i)),
+                        klines.tradeCount(i))) {
+                    imported++;
+                }
+                lastOpenTime = openTime;
+            }
+
+            if (klines.size() < PAGE_SIZE || lastOpenTime + intervalMs <= start) {
+                break;
+            }
+            start = lastOpenTime + intervalMs;
+        }
+
+        log.info("Imported {} {} klines for {} into archive", imported, interval, tradingPair);
+        return imported;
+    }
+
+    /**
+     * Импортировать CSV выгрузку свечей Binance
+     *
+     * Формат строки: openTime,open,high,low,close,volume,closeTime,quoteVolume,trades,...
+     * Строка заголовка пропускается, время в микросекундах переводится в миллисекунды.
+     *
+     * @param tradingPair торговая пара
+     * @param interval таймфрейм
+     * @param csvFile файл выгрузки
+     * @return количество записанных свечей
+     */
+    public int importFromCsv(String tradingPair, String interval, Path csvFile) throws IOException {
+        int imported = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(csvFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || !Character.isDigit(line.charAt(0))) {
+                    continue;
+                }
+
+                String[] fields = line.split(",");
+                long openTime = Long.parseLong(fields[0]);
+                if (openTime > 100_000_000_000_000L) {
+                    openTime /= 1000; // Выгрузки с 2025 года - в микросекундах
+                }
+
+                if (klineArchive.append(tradingPair, interval, openTime,
+                        FixedPointUtils.parse(fields[1]),
+                        FixedPointUtils.parse(fields[2]),
+                        FixedPointUtils.parse(fields[3]),
+                        FixedPointUtils.parse(fields[4]),
+                        Double.parseDouble(fields[5]),
+                        Double.parseDouble(fields[7]),
+                        Integer.parseInt(fields[8]))) {
+                    imported++;
+                }
+            }
+        }
+
+        log.info("Imported {} {} klines for {} from {}", imported, interval, tradingPair, csvFile);
+        return imported;
+    }
+
+    /**
+     * Поставить последнюю закрытую свечу буфера в очередь записи
+     *
+     * Вызывается потоком WebSocket: значения копируются, запись - в потоке архива.
+     */
+    private void enqueueLast(String tradingPair, String interval, CandleRingBuffer buffer) {
+        CandleRingBuffer.CandleWindow window = buffer.window(1);
+        if (window.size() != 1) {
+            return;
+        }
+
+        long openTime = window.openTime(0);
+        long open = window.openScaled(0);
+        long high = window.highScaled(0);
+        long low = window.lowScaled(0);
+        long close = window.closeScaled(0);
+        double volume = window.volume(0);
+        double quoteVolume = window.quoteVolume(0);
+        int tradeCount = window.tradeCount(0);
+
+        try {
+            archiveExecutor.execute(() -> appendLive(tradingPair, interval, openTime,
+                    open, high, low, close, volume, quoteVolume, tradeCount));
+        } catch (RejectedExecutionException e) {
+            log.debug("Kline archive writer stopped, {} candle for {} not archived", interval, tradingPair);
+        }
+    }
+
+    /**
+     * Записать свечу из потока, предварительно догрузив пропущенные свечи
+     */
+    private void appendLive(String tradingPair, String interval, long openTime,
+                            long open, long high, long low, long close,
+                            double volume, double quoteVolume, int tradeCount) {
+        String key = tradingPair.toUpperCase() + ":" + interval;
+
+        try {
+            long intervalMs = DateUtils.intervalToMillis(interval);
+            long lastArchived = lastArchivedTimes.computeIfAbsent(key,
+                    k -> klineArchive.getLastOpenTime(tradingPair, interval));
+
+            if (lastArchived >= 0 && openTime > lastArchived + intervalMs) {
+                long from = Math.max(lastArchived + intervalMs,
+                        openTime - TimeUnit.DAYS.toMillis(importDays));
+                log.info("Kline archive gap for {} {}: filling {} candles before {}", tradingPair, interval,
+                        (openTime - from) / intervalMs, DateUtils.fromTimestampMs(openTime));
+                importFromExchange(tradingPair, interval, from, openTime);
+            }
+
+            klineArchive.append(tradingPair, interval, openTime, open, high, low, close,
+                    volume, quoteVolume, tradeCount);
+            lastArchivedTimes.put(key, Math.max(openTime, lastArchived));
+
+        } catch (Exception e) {
+            // Следующая свеча перечитает конец архива и повторит догрузку
+            lastArchivedTimes.remove(key);
+            log.warn("Failed to archive {} candle for {}: {}", interval, tradingPair, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.scalpingBot.service.history;
+
+import com.example.scalpingBot.service.market.CandleSeries;
+import com.example.scalpingBot.utils.FixedPointUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Непрерывный участок записей архива свечей без копирования данных
+ *
+ * Оборачивает срез MappedByteBuffer файла архива. Записи упорядочены
+ * по времени открытия, поэтому поиск по времени - бинарный.
+ * Индекс 0 - самая старая свеча участка.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public class KlineSegment implements CandleSeries {
+
+    private final ByteBuffer records;
+    private final int size;
+
+    KlineSegment(ByteBuffer records) {
+        this.records = records.order(ByteOrder.LITTLE_ENDIAN);
+        this.size = records.capacity() / KlineArchive.RECORD_SIZE;
+    }
+
+    /**
+     * Количество свечей в участке
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long openTime(int i) {
+        return records.getLong(offset(i));
+    }
+
+    public long openScaled(int i) {
+        return records.getLong(offset(i) + 8);
+    }
+
+    public long highScaled(int i) {
+        return records.getLong(offset(i) + 16);
+    }
+
+    public long lowScaled(int i) {
+        return records.getLong(offset(i) + 24);
+    }
+
+    public long closeScaled(int i) {
+        return records.getLong(offset(i) + 32);
+    }
+
+    public double close(int i) {
+        return FixedPointUtils.toDouble(closeScaled(i));
+    }
+
+    public double volume(int i) {
+        return records.getDouble(offset(i) + 40);
+    }
+
+    public double quoteVolume(int i) {
+        return records.getDouble(offset(i) + 48);
+    }
+
+    public int tradeCount(int i) {
+        return records.getInt(offset(i) + 56);
+    }
+
+    /**
+     * Найти индекс первой свечи с временем открытия не меньше заданного
+     *
+     * @param openTime время открытия (Unix ms)
+     * @return индекс в диапазоне [0, size()]
+     */
+    public int lowerBound(long openTime) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (openTime(mid) < openTime) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Срез по индексам без копирования
+     *
+     * @param from начальный индекс (включительно)
+     * @param to конечный индекс (исключительно)
+     * @return участок архива
+     */
+    public KlineSegment slice(int from, int to) {
+        int start = Math.max(0, from);
+        int end = Math.min(size, to);
+        if (start >= end) {
+            return new KlineSegment(records.slice(0, 0));
+        }
+        return new KlineSegment(records.slice(start * KlineArchive.RECORD_SIZE, (end - start) * KlineArchive.RECORD_SIZE));
+    }
+
+    /**
+     * Срез по времени открытия без копирования
+     *
+     * @param fromTime время открытия первой свечи (включительно)
+     * @param toTime время открытия последней свечи (исключительно)
+     * @return участок архива
+     */
+    public KlineSegment sliceByTime(long fromTime, long toTime) {
+        return slice(lowerBound(fromTime), lowerBound(toTime));
+    }
+
+    private static int offset(int i) {
+        return i * KlineArchive.RECORD_SIZE;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.scalpingBot.service.market;
+
+/**
+ * Подписчик на закрытие свечи (бара) любого таймфрейма
+ *
+ * Вызывается в потоке рыночных данных сразу после записи бара в буфер,
+ * поэтому обработчик должен быть быстрым и не выполнять блокирующих операций.
+ * Закрытый бар - последний элемент переданного буфера.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface BarClosedListener {
+
+    /**
+     * Обработать закрытие бара
+     *
+     * @param tradingPair торговая пара
+     * @param interval таймфрейм бара (1m, 5m, 15m, 1h, ...)
+     * @param buffer буфер свечей таймфрейма, закрытый бар - последний
+     */
+    void onBarClosed(String tradingPair, String interval, CandleRingBuffer buffer);
+}
@@ -0,0 +1,23 @@
+package com.example.scalpingBot.service.market;
+
+/**
+ * Подписчик на изменение лучших цен стакана
+ *
+ * Вызывается в потоке WebSocket на каждое обновление bookTicker или
+ * diff-стакана, поэтому реализация не должна блокировать поток.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface BookChangeListener {
+
+    /**
+     * Лучшие цены пары изменились
+     *
+     * @param tradingPair торговая пара
+     * @param bidPrice лучшая цена покупки (FixedPointUtils)
+     * @param askPrice лучшая цена продажи (FixedPointUtils)
+     */
+    void onBookChanged(String tradingPair, long bidPrice, long askPrice);
+}
@@ -0,0 +1,288 @@
+package com.example.scalpingBot.service.market;
+
+import com.example.scalpingBot.config.TechnicalAnalysisConfig;
+import com.example.scalpingBot.utils.DateUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Агрегатор свечей старших таймфреймов
+ *
+ * Основные функции:
+ * - Сборка баров 5m/15m/1h (и secondary таймфрейма) из закрытых свечей основного таймфрейма
+ * - Запись собранных баров в CandleStore без дополнительных REST запросов
+ * - Восстановление старших таймфреймов из истории после начальной загрузки
+ * - Уведомление подписчиков BarClosedListener о закрытии бара любого таймфрейма
+ *
+ * Бар старшего таймфрейма закрывается, когда закрывается последняя свеча
+ * основного таймфрейма внутри его интервала. Если свечи пропущены и пришла
+ * свеча следующего интервала, незавершенный бар закрывается досрочно.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CandleAggregator {
+
+    private final CandleStore candleStore;
+    private final TechnicalAnalysisConfig technicalAnalysisConfig;
+
+    @Value("${market-data.candles.rollup-timeframes:5m,15m,1h}")
+    private List<String> rollupTimeframes;
+
+    /**
+     * Основной таймфрейм (из потока kline)
+     */
+    private String baseInterval;
+    private long baseIntervalMs;
+
+    /**
+     * Старшие таймфреймы и их длительность
+     */
+    private String[] timeframes;
+    private long[] timeframeMs;
+
+    /**
+     * Незавершенные бары по парам (индекс массива соответствует timeframes),
+     * каждый бар хранит ссылку на буфер своего таймфрейма
+     */
+    private final Map<String, PartialBar[]> partialBars = new ConcurrentHashMap<>();
+
+    /**
+     * Подписчики на закрытие баров
+     */
+    private final List<BarClosedListener> listeners = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        baseInterval = technicalAnalysisConfig.getTimeframes().getPrimary();
+        baseIntervalMs = DateUtils.intervalToMillis(baseInterval);
+
+        Set<String> configured = new LinkedHashSet<>(rollupTimeframes);
+        configured.add(technicalAnalysisConfig.getTimeframes().getSecondary());
+
+        List<String> valid = new ArrayList<>();
+        for (String timeframe : configured) {
+            String trimmed = timeframe.trim();
+            long ms = DateUtils.intervalToMillis(trimmed);
+            if (ms <= baseIntervalMs || ms % baseIntervalMs != 0) {
+                log.warn("Timeframe {} cannot be aggregated from {} candles, skipping", trimmed, baseInterval);
+                continue;
+            }
+            valid.add(trimmed);
+        }
+
+        timeframes = valid.toArray(new String[0]);
+        timeframeMs = new long[timeframes.length];
+        for (int i = 0; i < timeframes.length; i++) {
+            timeframeMs[i] = DateUtils.intervalToMillis(timeframes[i]);
+        }
+
+        log.info("Candle aggregator: {} → {}", baseInterval, valid);
+    }
+
+    /**
+     * Подписаться на закрытие баров всех таймфреймов
+     *
+     * @param listener подписчик
+     */
+    public void subscribe(BarClosedListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Отписаться от закрытия баров
+     */
+    public void unsubscribe(BarClosedListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Основной таймфрейм агрегатора
+     */
+    public String getBaseInterval() {
+        return baseInterval;
+    }
+
+    /**
+     * Старшие таймфреймы, собираемые агрегатором
+     */
+    public List<String> getTimeframes() {
+        return List.of(timeframes);
+    }
+
+    /**
+     * Обработать закрытую свечу основного таймфрейма
+     *
+     * Свеча уже должна быть записана в буфер основного таймфрейма.
+     *
+     * @param tradingPair торговая пара
+     * @param baseBuffer буфер основного таймфрейма (закрытая свеча - последняя)
+     */
+    public void onBaseCandleClosed(String tradingPair, CandleRingBuffer baseBuffer) {
+        notifyListeners(tradingPair, baseInterval, baseBuffer);
+
+        List<Integer> closed = new ArrayList<>(0);
+        PartialBar[] bars = getPartialBars(tradingPair);
+
+        synchronized (bars) {
+            CandleRingBuffer.CandleWindow window = baseBuffer.window(1);
+            if (window.size() == 0) {
+                return;
+            }
+            for (int i = 0; i < timeframes.length; i++) {
+                if (rollUp(i, bars[i], window, 0)) {
+                    closed.add(i);
+                }
+            }
+        }
+
+        // Уведомления вне блокировки - подписчик может читать другие таймфреймы
+        for (int index : closed) {
+            notifyListeners(tradingPair, timeframes[index], bars[index].buffer);
+        }
+    }
+
+    /**
+     * Пересобрать старшие таймфреймы по всей истории основного буфера
+     *
+     * Используется после начальной загрузки истории, подписчики не уведомляются.
+     *
+     * @param tradingPair торговая пара
+     * @param baseBuffer буфер основного таймфрейма
+     */
+    public void rebuild(String tradingPair, CandleRingBuffer baseBuffer) {
+        PartialBar[] bars = getPartialBars(tradingPair);
+
+        synchronized (bars) {
+            for (PartialBar bar : bars) {
+                bar.active = false;
+            }
+
+            CandleRingBuffer.CandleWindow window = baseBuffer.window(baseBuffer.capacity());
+            for (int c = 0; c < window.size(); c++) {
+                for (int i = 0; i < timeframes.length; i++) {
+                    rollUp(i, bars[i], window, c);
+                }
+            }
+        }
+
+        log.debug("Rebuilt {} timeframes for {} from {} {} candles",
+                timeframes.length, tradingPair, baseBuffer.size(), baseInterval);
+    }
+
+    /**
+     * Добавить свечу основного таймфрейма в бар старшего таймфрейма
+     *
+     * @return true если бар закрыт и записан в буфер
+     */
+    private boolean rollUp(int timeframeIndex, PartialBar bar, CandleRingBuffer.CandleWindow window, int candle) {
+        long tfMs = timeframeMs[timeframeIndex];
+        long openTime = window.openTime(candle);
+        long bucketStart = openTime - Math.floorMod(openTime, tfMs);
+        boolean closed = false;
+
+        // Свеча из следующего интервала - закрываем незавершенный бар
+        if (bar.active && bar.bucketStart != bucketStart) {
+            if (bucketStart < bar.bucketStart) {
+                return false; // Устаревшая свеча
+            }
+            flush(bar);
+            closed = true;
+        }
+
+        if (!bar.active) {
+            bar.start(bucketStart, window, candle);
+        } else {
+            bar.merge(window, candle);
+        }
+
+        if (openTime + baseIntervalMs >= bucketStart + tfMs) {
+            flush(bar);
+            closed = true;
+        }
+
+        return closed;
+    }
+
+    private void flush(PartialBar bar) {
+        bar.buffer.append(
+                bar.bucketStart, bar.open, bar.high, bar.low, bar.close,
+                bar.volume, bar.quoteVolume, bar.tradeCount);
+        bar.active = false;
+    }
+
+    private void notifyListeners(String tradingPair, String interval, CandleRingBuffer buffer) {
+        for (BarClosedListener listener : listeners) {
+            try {
+                listener.onBarClosed(tradingPair, interval, buffer);
+            } catch (Exception e) {
+                log.error("Bar closed listener failed for {} {}: {}", tradingPair, interval, e.getMessage());
+            }
+        }
+    }
+
+    private PartialBar[] getPartialBars(String tradingPair) {
+        return partialBars.computeIfAbsent(tradingPair.toUpperCase(), k -> {
+            PartialBar[] bars = new PartialBar[timeframes.length];
+            for (int i = 0; i < bars.length; i++) {
+                bars[i] = new PartialBar(candleStore.getBuffer(k, timeframes[i]));
+            }
+            return bars;
+        });
+    }
+
+    /**
+     * Незавершенный бар старшего таймфрейма
+     */
+    private static final class PartialBar {
+        private final CandleRingBuffer buffer;
+        private boolean active = false;
+        private long bucketStart;
+        private long open;
+        private long high;
+        private long low;
+        private long close;
+        private double volume;
+        private double quoteVolume;
+        private int tradeCount;
+
+        PartialBar(CandleRingBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void start(long bucketStart, CandleRingBuffer.CandleWindow window, int i) {
+            this.active = true;
+            this.bucketStart = bucketStart;
+            this.open = window.openScaled(i);
+            this.high = window.highScaled(i);
+            this.low = window.lowScaled(i);
+            this.close = window.closeScaled(i);
+            this.volume = window.volume(i);
+            this.quoteVolume = window.quoteVolume(i);
+            this.tradeCount = window.tradeCount(i);
+        }
+
+        void merge(CandleRingBuffer.CandleWindow window, int i) {
+            this.high = Math.max(high, window.highScaled(i));
+            this.low = Math.min(low, window.lowScaled(i));
+            this.close = window.closeScaled(i);
+            this.volume += window.volume(i);
+            this.quoteVolume += window.quoteVolume(i);
+            this.tradeCount += window.tradeCount(i);
+        }
+    }
+}
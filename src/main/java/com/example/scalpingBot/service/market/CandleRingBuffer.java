@@ -0,0 +1,320 @@
+package com.example.scalpingBot.service.market;
+
+import com.example.scalpingBot.utils.FixedPointUtils;
+
+/**
+ * Кольцевой буфер свечей (OHLCV) фиксированной емкости
+ *
+ * Особенности:
+ * - Данные хранятся в параллельных примитивных массивах (без объектов на свечу)
+ * - Цены хранятся в long с фиксированной точкой (масштаб 10^8)
+ * - Добавление закрытой свечи не выделяет память
+ * - Окна последних N свечей читаются без копирования через CandleWindow
+ *
+ * Объем памяти на буфер: емкость × 60 байт, емкость округляется
+ * до степени двойки (например, сутки 1m свечей: 1440 → 2048 ≈ 120 KB
+ * на пару и таймфрейм).
+ *
+ * Буфер рассчитан на одного писателя (поток WebSocket) и
+ * множество читателей: счетчик свечей публикуется через volatile
+ * после записи всех полей.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public class CandleRingBuffer {
+
+    /**
+     * Емкость буфера (степень двойки)
+     */
+    private final int capacity;
+
+    /**
+     * Маска для вычисления индекса в массиве
+     */
+    private final int mask;
+
+    /**
+     * Параллельные массивы OHLCV
+     */
+    private final long[] openTimes;
+    private final long[] opens;
+    private final long[] highs;
+    private final long[] lows;
+    private final long[] closes;
+    private final double[] volumes;
+    private final double[] quoteVolumes;
+    private final int[] tradeCounts;
+
+    /**
+     * Общее количество свечей, добавленных в буфер за все время
+     */
+    private volatile long sequence = 0;
+
+    /**
+     * Создать буфер
+     *
+     * @param requestedCapacity минимальная емкость (округляется вверх до степени двойки)
+     */
+    public CandleRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("Candle buffer capacity must be at least 2");
+        }
+
+        this.capacity = Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.mask = capacity - 1;
+
+        this.openTimes = new long[capacity];
+        this.opens = new long[capacity];
+        this.highs = new long[capacity];
+        this.lows = new long[capacity];
+        this.closes = new long[capacity];
+        this.volumes = new double[capacity];
+        this.quoteVolumes = new double[capacity];
+        this.tradeCounts = new int[capacity];
+    }
+
+    /**
+     * Добавить закрытую свечу
+     *
+     * Свеча с тем же временем открытия, что и последняя, заменяет ее
+     * (повторная доставка или корректировка). Более старые свечи игнорируются.
+     *
+     * @param openTime время открытия свечи (Unix ms)
+     * @param open цена открытия (×10^8)
+     * @param high максимальная цена (×10^8)
+     * @param low минимальная цена (×10^8)
+     * @param close цена закрытия (×10^8)
+     * @param volume объем в базовом активе
+     * @param quoteVolume объем в котируемом активе
+     * @param tradeCount количество сделок
+     * @return true если свеча добавлена или заменена
+     */
+    public boolean append(long openTime, long open, long high, long low, long close,
+                          double volume, double quoteVolume, int tradeCount) {
+        long seq = sequence;
+        long target = seq;
+
+        if (seq > 0) {
+            long lastOpenTime = openTimes[(int) ((seq - 1) & mask)];
+            if (openTime < lastOpenTime) {
+                return false;
+            }
+            if (openTime == lastOpenTime) {
+                target = seq - 1;
+            }
+        }
+
+        int index = (int) (target & mask);
+        openTimes[index] = openTime;
+        opens[index] = open;
+        highs[index] = high;
+        lows[index] = low;
+        closes[index] = close;
+        volumes[index] = volume;
+        quoteVolumes[index] = quoteVolume;
+        tradeCounts[index] = tradeCount;
+
+        if (target == seq) {
+            sequence = seq + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Получить окно последних свечей
+     *
+     * @param length желаемое количество свечей
+     * @return окно (может содержать меньше свечей, если буфер еще не заполнен)
+     */
+    public CandleWindow window(int length) {
+        return window(length, new CandleWindow());
+    }
+
+    /**
+     * Получить окно последних свечей, переиспользуя существующий объект окна
+     *
+     * @param length желаемое количество свечей
+     * @param reuse объект окна для переиспользования
+     * @return переданный объект окна, перенастроенный на последние свечи
+     */
+    public CandleWindow window(int length, CandleWindow reuse) {
+        long end = sequence;
+        int size = (int) Math.min(Math.min(length, capacity), end);
+        reuse.reset(this, end - size, size);
+        return reuse;
+    }
+
+    /**
+     * Количество свечей в буфере
+     */
+    public int size() {
+        return (int) Math.min(sequence, capacity);
+    }
+
+    /**
+     * Емкость буфера
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Общее количество добавленных свечей
+     */
+    public long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Проверить, пуст ли буфер
+     */
+    public boolean isEmpty() {
+        return sequence == 0;
+    }
+
+    /**
+     * Время открытия последней свечи
+     *
+     * @return Unix ms или -1 если буфер пуст
+     */
+    public long lastOpenTime() {
+        long seq = sequence;
+        return seq > 0 ? openTimes[(int) ((seq - 1) & mask)] : -1;
+    }
+
+    /**
+     * Цена закрытия последней свечи
+     *
+     * @return цена (×10^8) или 0 если буфер пуст
+     */
+    public long lastClose() {
+        long seq = sequence;
+        return seq > 0 ? closes[(int) ((seq - 1) & mask)] : 0;
+    }
+
+    /**
+     * Объем памяти, занимаемый массивами буфера
+     *
+     * @return размер в байтах
+     */
+    public long memoryFootprintBytes() {
+        return (long) capacity * (5 * Long.BYTES + 2 * Double.BYTES + Integer.BYTES);
+    }
+
+    // === Доступ по абсолютному номеру свечи (для CandleWindow) ===
+
+    long openTimeAt(long seq) {
+        return openTimes[(int) (seq & mask)];
+    }
+
+    long openAt(long seq) {
+        return opens[(int) (seq & mask)];
+    }
+
+    long highAt(long seq) {
+        return highs[(int) (seq & mask)];
+    }
+
+    long lowAt(long seq) {
+        return lows[(int) (seq & mask)];
+    }
+
+    long closeAt(long seq) {
+        return closes[(int) (seq & mask)];
+    }
+
+    double volumeAt(long seq) {
+        return volumes[(int) (seq & mask)];
+    }
+
+    double quoteVolumeAt(long seq) {
+        return quoteVolumes[(int) (seq & mask)];
+    }
+
+    int tradeCountAt(long seq) {
+        return tradeCounts[(int) (seq & mask)];
+    }
+
+    /**
+     * Окно последовательных свечей без копирования данных
+     *
+     * Индекс 0 - самая старая свеча окна, size() - 1 - самая новая.
+     * Окно остается корректным, пока писатель не перезапишет его начало
+     * (проверяется методом isValid()).
+     */
+    public static class CandleWindow implements CandleSeries {
+
+        private CandleRingBuffer buffer;
+        private long startSequence;
+        private int size;
+
+        void reset(CandleRingBuffer buffer, long startSequence, int size) {
+            this.buffer = buffer;
+            this.startSequence = startSequence;
+            this.size = size;
+        }
+
+        /**
+         * Количество свечей в окне
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Проверить, не перезаписаны ли свечи окна новыми данными
+         */
+        public boolean isValid() {
+            return buffer != null && buffer.sequence() - startSequence <= buffer.capacity();
+        }
+
+        public long openTime(int i) {
+            return buffer.openTimeAt(startSequence + i);
+        }
+
+        public long openScaled(int i) {
+            return buffer.openAt(startSequence + i);
+        }
+
+        public long highScaled(int i) {
+            return buffer.highAt(startSequence + i);
+        }
+
+        public long lowScaled(int i) {
+            return buffer.lowAt(startSequence + i);
+        }
+
+        public long closeScaled(int i) {
+            return buffer.closeAt(startSequence + i);
+        }
+
+        public double open(int i) {
+            return FixedPointUtils.toDouble(openScaled(i));
+        }
+
+        public double high(int i) {
+            return FixedPointUtils.toDouble(highScaled(i));
+        }
+
+        public double low(int i) {
+            return FixedPointUtils.toDouble(lowScaled(i));
+        }
+
+        public double close(int i) {
+            return FixedPointUtils.toDouble(closeScaled(i));
+        }
+
+        public double volume(int i) {
+            return buffer.volumeAt(startSequence + i);
+        }
+
+        public double quoteVolume(int i) {
+            return buffer.quoteVolumeAt(startSequence + i);
+        }
+
+        public int tradeCount(int i) {
+            return buffer.tradeCountAt(startSequence + i);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.scalpingBot.service.market;
+
+/**
+ * Последовательность свечей с доступом по индексу
+ *
+ * Общий интерфейс для окна кольцевого буфера (CandleRingBuffer.CandleWindow)
+ * и участка архива (KlineSegment), чтобы один и тот же код мог обрабатывать
+ * живые и исторические свечи. Индекс 0 - самая старая свеча,
+ * цены - в формате фиксированной точки (FixedPointUtils).
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public interface CandleSeries {
+
+    int size();
+
+    long openTime(int i);
+
+    long openScaled(int i);
+
+    long highScaled(int i);
+
+    long lowScaled(int i);
+
+    long closeScaled(int i);
+
+    double volume(int i);
+
+    double quoteVolume(int i);
+
+    int tradeCount(int i);
+}
@@ -0,0 +1,131 @@
+package com.example.scalpingBot.service.market;
+
+import com.example.scalpingBot.service.exchange.ExchangeResponses;
+import com.example.scalpingBot.utils.FixedPointUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Хранилище свечей по торговым парам и таймфреймам
+ *
+ * Основные функции:
+ * - Один кольцевой буфер фиксированной емкости на пару и таймфрейм
+ * - Добавление закрытых свечей из WebSocket потока без выделения памяти
+ * - Начальное заполнение из REST истории (ExchangeApiService.getKlines)
+ * - Предсказуемый объем памяти при любом количестве пар
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class CandleStore {
+
+    /**
+     * Емкость буфера на пару и таймфрейм (по умолчанию - сутки 1m свечей)
+     */
+    @Value("${market-data.candles.capacity:1440}")
+    private int capacity;
+
+    /**
+     * Буферы свечей (ключ - "SYMBOL:interval")
+     */
+    private final Map<String, CandleRingBuffer> buffers = new ConcurrentHashMap<>();
+
+    /**
+     * Получить буфер свечей, создав его при необходимости
+     *
+     * Ключ собирается из строк, поэтому в горячем пути буфер запрашивается
+     * один раз, а дальше используется сохраненная ссылка.
+     *
+     * @param tradingPair торговая пара
+     * @param interval таймфрейм (1m, 5m, ...)
+     * @return буфер свечей
+     */
+    public CandleRingBuffer getBuffer(String tradingPair, String interval) {
+        return buffers.computeIfAbsent(key(tradingPair, interval), k -> new CandleRingBuffer(capacity));
+    }
+
+    /**
+     * Найти существующий буфер свечей
+     *
+     * @param tradingPair торговая пара
+     * @param interval таймфрейм
+     * @return буфер или null если свечей по паре еще нет
+     */
+    public CandleRingBuffer findBuffer(String tradingPair, String interval) {
+        return buffers.get(key(tradingPair, interval));
+    }
+
+    /**
+     * Добавить закрытую свечу
+     *
+     * @return true если свеча добавлена
+     */
+    public boolean appendClosedCandle(String tradingPair, String interval, long openTime,
+                                      long open, long high, long low, long close,
+                                      double volume, double quoteVolume, int tradeCount) {
+        return getBuffer(tradingPair, interval)
+                .append(openTime, open, high, low, close, volume, quoteVolume, tradeCount);
+    }
+
+    /**
+     * Заполнить буфер историческими свечами из ExchangeApiService.getKlines
+     *
+     * Последняя свеча REST ответа еще не закрыта, поэтому она пропускается.
+     *
+     * @param tradingPair торговая пара
+     * @param interval таймфрейм
+     * @param klines свечи от старых к новым
+     * @return количество добавленных свечей
+     */
+    public int backfill(String tradingPair, String interval, ExchangeResponses.KlineBatch klines) {
+        CandleRingBuffer buffer = getBuffer(tradingPair, interval);
+        int added = 0;
+
+        for (int i = 0; i < klines.size() - 1; i++) {
+            boolean appended = buffer.append(
+                    klines.openTime(i),
+                    klines.open(i),
+                    klines.high(i),
+                    klines.low(i),
+                    klines.close(i),
+                    FixedPointUtils.toDouble(klines.volume(i)),
+                    FixedPointUtils.toDouble(klines.quoteVolume(i)),
+                    klines.tradeCount(i)
+            );
+            if (appended) {
+                added++;
+            }
+        }
+
+        log.debug("Backfilled {} {} candles for {}", added, interval, tradingPair);
+        return added;
+    }
+
+    /**
+     * Общий объем памяти всех буферов
+     *
+     * @return размер в байтах
+     */
+    public long getMemoryFootprintBytes() {
+        return buffers.values().stream()
+                .mapToLong(CandleRingBuffer::memoryFootprintBytes)
+                .sum();
+    }
+
+    /**
+     * Количество буферов (пар × таймфреймов)
+     */
+    public int getBufferCount() {
+        return buffers.size();
+    }
+
+    private static String key(String tradingPair, String interval) {
+        return tradingPair.toUpperCase() + ":" + interval;
+    }
+}
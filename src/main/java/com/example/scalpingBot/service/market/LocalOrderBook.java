@@ -0,0 +1,399 @@
+package com.example.scalpingBot.service.market;
+
+import com.example.scalpingBot.utils.FixedPointUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Локальная копия стакана (L2) одной торговой пары
+ *
+ * Особенности:
+ * - Уровни хранятся в отсортированных примитивных массивах long (цена и количество ×10^8)
+ * - Вставка/удаление уровня - бинарный поиск и System.arraycopy, без упаковки
+ * - Фиксированная глубина: уровни за пределами maxLevels отбрасываются
+ * - Один писатель (поток синхронизации) и множество читателей
+ *
+ * Чтение выполняется через оптимистичную блокировку StampedLock:
+ * лучшие цены читаются без захвата блокировки, повтор только при
+ * конкурентной записи.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public class LocalOrderBook {
+
+    private final String symbol;
+    private final BookSide bids;
+    private final BookSide asks;
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Идентификатор последнего примененного обновления биржи
+     */
+    private long lastUpdateId = -1;
+
+    /**
+     * Время последнего обновления (Unix ms)
+     */
+    private long updatedAt;
+
+    public LocalOrderBook(String symbol, int maxLevels) {
+        this.symbol = symbol;
+        this.bids = new BookSide(maxLevels, true);
+        this.asks = new BookSide(maxLevels, false);
+    }
+
+    // === Запись (только поток синхронизации) ===
+
+    /**
+     * Заменить содержимое стакана снимком
+     *
+     * @param bidPrices цены bid (×10^8)
+     * @param bidQuantities количества bid (×10^8)
+     * @param bidCount количество уровней bid
+     * @param askPrices цены ask (×10^8)
+     * @param askQuantities количества ask (×10^8)
+     * @param askCount количество уровней ask
+     * @param snapshotUpdateId lastUpdateId снимка
+     * @param timestamp время получения (Unix ms)
+     */
+    public void applySnapshot(long[] bidPrices, long[] bidQuantities, int bidCount,
+                              long[] askPrices, long[] askQuantities, int askCount,
+                              long snapshotUpdateId, long timestamp) {
+        long stamp = lock.writeLock();
+        try {
+            bids.clear();
+            asks.clear();
+            bids.apply(bidPrices, bidQuantities, bidCount);
+            asks.apply(askPrices, askQuantities, askCount);
+            lastUpdateId = snapshotUpdateId;
+            updatedAt = timestamp;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Применить инкрементальное обновление (количество 0 - удаление уровня)
+     *
+     * @param finalUpdateId идентификатор последнего обновления в событии
+     */
+    public void applyUpdate(long[] bidPrices, long[] bidQuantities, int bidCount,
+                            long[] askPrices, long[] askQuantities, int askCount,
+                            long finalUpdateId, long timestamp) {
+        long stamp = lock.writeLock();
+        try {
+            bids.apply(bidPrices, bidQuantities, bidCount);
+            asks.apply(askPrices, askQuantities, askCount);
+            lastUpdateId = finalUpdateId;
+            updatedAt = timestamp;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Очистить стакан (при потере синхронизации)
+     */
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            bids.clear();
+            asks.clear();
+            lastUpdateId = -1;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // === Чтение ===
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Идентификатор последнего примененного обновления
+     */
+    public long getLastUpdateId() {
+        long stamp = lock.tryOptimisticRead();
+        long value = lastUpdateId;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = lastUpdateId;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Прочитать вершину стакана согласованно (bid и ask из одного состояния)
+     *
+     * @param top объект для заполнения (переиспользуется вызывающим)
+     * @return true если обе стороны стакана не пусты
+     */
+    public boolean readTop(Top top) {
+        long stamp = lock.tryOptimisticRead();
+        copyTop(top);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                copyTop(top);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return top.bidPrice > 0 && top.askPrice > 0;
+    }
+
+    private void copyTop(Top top) {
+        top.bidPrice = bids.bestPrice();
+        top.bidQuantity = bids.bestQuantity();
+        top.askPrice = asks.bestPrice();
+        top.askQuantity = asks.bestQuantity();
+        top.lastUpdateId = lastUpdateId;
+        top.updatedAt = updatedAt;
+    }
+
+    /**
+     * Лучшая цена покупки (×10^8), 0 если стакан пуст
+     */
+    public long getBestBid() {
+        long stamp = lock.tryOptimisticRead();
+        long value = bids.bestPrice();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = bids.bestPrice();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Лучшая цена продажи (×10^8), 0 если стакан пуст
+     */
+    public long getBestAsk() {
+        long stamp = lock.tryOptimisticRead();
+        long value = asks.bestPrice();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = asks.bestPrice();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Спред в процентах от цены ask
+     *
+     * @return спред или NaN если стакан пуст
+     */
+    public double getSpreadPercent() {
+        Top top = new Top();
+        if (!readTop(top)) {
+            return Double.NaN;
+        }
+        return (top.askPrice - top.bidPrice) * 100.0 / top.askPrice;
+    }
+
+    /**
+     * Объем в котируемом активе (USDT) на стороне bid в пределах N б.п. от mid
+     *
+     * @param bps ширина диапазона в базисных пунктах
+     * @return объем в котируемом активе
+     */
+    public double getBidDepth(double bps) {
+        return readDepth(true, bps);
+    }
+
+    /**
+     * Объем в котируемом активе (USDT) на стороне ask в пределах N б.п. от mid
+     *
+     * @param bps ширина диапазона в базисных пунктах
+     * @return объем в котируемом активе
+     */
+    public double getAskDepth(double bps) {
+        return readDepth(false, bps);
+    }
+
+    /**
+     * Дисбаланс стакана в пределах N б.п. от mid
+     *
+     * @param bps ширина диапазона в базисных пунктах
+     * @return (bid - ask) / (bid + ask), от -1 (давление продавцов) до 1 (давление покупателей)
+     */
+    public double getImbalance(double bps) {
+        long stamp = lock.tryOptimisticRead();
+        double bidDepth = depth(bids, bps);
+        double askDepth = depth(asks, bps);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                bidDepth = depth(bids, bps);
+                askDepth = depth(asks, bps);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        double total = bidDepth + askDepth;
+        return total > 0 ? (bidDepth - askDepth) / total : 0.0;
+    }
+
+    /**
+     * Количество уровней на стороне
+     */
+    public int getLevelCount(boolean bidSide) {
+        long stamp = lock.readLock();
+        try {
+            return bidSide ? bids.size : asks.size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private double readDepth(boolean bidSide, double bps) {
+        BookSide side = bidSide ? bids : asks;
+        long stamp = lock.tryOptimisticRead();
+        double value = depth(side, bps);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = depth(side, bps);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Суммарный объем уровней стороны в пределах N б.п. от mid
+     *
+     * При оптимистичном чтении данные могут быть несогласованы, поэтому
+     * индексы ограничиваются емкостью массивов, а результат отбрасывается
+     * вызывающим кодом при неуспешной валидации.
+     */
+    private double depth(BookSide side, double bps) {
+        long bestBid = bids.bestPrice();
+        long bestAsk = asks.bestPrice();
+        if (bestBid <= 0 || bestAsk <= 0) {
+            return 0.0;
+        }
+
+        double mid = (bestBid + bestAsk) / 2.0;
+        double limit = side.descending ? mid * (1.0 - bps / 10_000.0) : mid * (1.0 + bps / 10_000.0);
+
+        double total = 0.0;
+        int count = Math.min(side.size, side.capacity);
+        for (int i = 0; i < count; i++) {
+            long price = side.price(i);
+            if (side.descending ? price < limit : price > limit) {
+                break;
+            }
+            total += FixedPointUtils.toDouble(price) * FixedPointUtils.toDouble(side.quantities[i]);
+        }
+        return total;
+    }
+
+    /**
+     * Вершина стакана (переиспользуемый объект для чтения без выделения памяти)
+     */
+    public static class Top {
+        public long bidPrice;
+        public long bidQuantity;
+        public long askPrice;
+        public long askQuantity;
+        public long lastUpdateId;
+        public long updatedAt;
+    }
+
+    /**
+     * Одна сторона стакана
+     *
+     * Ключи хранятся по возрастанию: для bid - цены со знаком минус,
+     * поэтому лучший уровень обеих сторон всегда в индексе 0.
+     */
+    private static final class BookSide {
+        private final int capacity;
+        private final boolean descending;
+        private final long[] keys;
+        private final long[] quantities;
+        private int size = 0;
+
+        BookSide(int capacity, boolean descending) {
+            this.capacity = capacity;
+            this.descending = descending;
+            this.keys = new long[capacity];
+            this.quantities = new long[capacity];
+        }
+
+        long price(int index) {
+            return descending ? -keys[index] : keys[index];
+        }
+
+        long bestPrice() {
+            return size > 0 ? price(0) : 0;
+        }
+
+        long bestQuantity() {
+            return size > 0 ? quantities[0] : 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void apply(long[] prices, long[] qtys, int count) {
+            for (int i = 0; i < count; i++) {
+                set(prices[i], qtys[i]);
+            }
+        }
+
+        void set(long price, long quantity) {
+            long key = descending ? -price : price;
+            int index = Arrays.binarySearch(keys, 0, size, key);
+
+            if (index >= 0) {
+                if (quantity == 0) {
+                    System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+                    System.arraycopy(quantities, index + 1, quantities, index, size - index - 1);
+                    size--;
+                } else {
+                    quantities[index] = quantity;
+                }
+                return;
+            }
+
+            if (quantity == 0) {
+                return; // Удаление отсутствующего уровня
+            }
+
+            int insertAt = -index - 1;
+            if (insertAt >= capacity) {
+                return; // Уровень глубже отслеживаемой глубины
+            }
+
+            int moveCount = Math.min(size, capacity - 1) - insertAt;
+            if (moveCount > 0) {
+                System.arraycopy(keys, insertAt, keys, insertAt + 1, moveCount);
+                System.arraycopy(quantities, insertAt, quantities, insertAt + 1, moveCount);
+            }
+            keys[insertAt] = key;
+            quantities[insertAt] = quantity;
+            if (size < capacity) {
+                size++;
+            }
+        }
+    }
+}
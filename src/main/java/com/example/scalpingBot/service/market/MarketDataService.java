@@ -1,4 +1,949 @@
 package com.example.scalpingBot.service.market;
 
+import com.example.scalpingBot.config.TradingConfig;
+import com.example.scalpingBot.entity.MarketData;
+import com.example.scalpingBot.enums.TradingPairType;
+import com.example.scalpingBot.service.analysis.IndicatorEngine;
+import com.example.scalpingBot.service.exchange.ExchangeApiService;
+import com.example.scalpingBot.service.exchange.ExchangeResponses;
+import com.example.scalpingBot.service.history.KlineArchive;
+import com.example.scalpingBot.utils.DateUtils;
+import com.example.scalpingBot.utils.FixedPointUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Хаб рыночных данных скальпинг-бота
+ *
+ * Основные функции:
+ * - Подписка на комбинированные WebSocket потоки Binance (ticker, kline, bookTicker)
+ * - Хранение последнего тикера, свечи и лучших bid/ask по каждой паре в памяти
+ * - Запись закрытых свечей в CandleStore (с начальной загрузкой истории)
+ * - Потоковое обновление технических индикаторов через IndicatorEngine
+ * - Сборка старших таймфреймов из потока свечей через CandleAggregator
+ * - Поддержка локальных стаканов (diff-поток @depth@100ms) для спреда и ликвидности
+ * - Уведомление подписчиков об изменении лучших цен (BookChangeListener)
+ * - Периодическая запись снимков в БД через асинхронный MarketDataWriter
+ * - Выдача снимков MarketData торговому циклу без REST запросов
+ * - Автоматическое переподключение при обрыве соединения
+ * - Опрос тикеров и лучших цен всех пар двумя REST запросами, пока поток недоступен
+ * - Оценка качества и свежести данных
+ *
+ * Торговый цикл читает только локальное состояние, поэтому
+ * время анализа не зависит от задержек и rate limits REST API.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
 public class MarketDataService {
+
+    private final TradingConfig tradingConfig;
+    private final ObjectMapper objectMapper;
+    private final CandleStore candleStore;
+    private final ExchangeApiService exchangeApiService;
+    private final IndicatorEngine indicatorEngine;
+    private final CandleAggregator candleAggregator;
+    private final KlineArchive klineArchive;
+    private final OrderBookService orderBookService;
+    private final MarketDataWriter marketDataWriter;
+
+    /**
+     * Настройки потоков
+     */
+    @Value("${exchanges.binance.enabled:true}")
+    private boolean binanceEnabled;
+
+    @Value("${exchanges.binance.ws-url:wss://stream.binance.com:9443}")
+    private String binanceWsUrl;
+
+    @Value("${technical-analysis.timeframes.primary:1m}")
+    private String klineInterval;
+
+    @Value("${market-data.stream.reconnect-delay-seconds:5}")
+    private int reconnectDelaySeconds;
+
+    @Value("${market-data.stream.stale-after-seconds:5}")
+    private int staleAfterSeconds;
+
+    @Value("${market-data.candles.backfill-limit:500}")
+    private int backfillLimit;
+
+    @Value("${market-data.candles.backfill-retry-seconds:30}")
+    private int backfillRetrySeconds;
+
+    @Value("${market-data.order-book.liquidity-depth-bps:10}")
+    private double liquidityDepthBps;
+
+    @Value("${market-data.polling.enabled:true}")
+    private boolean pollingEnabled;
+
+    /**
+     * Состояние рынка по каждой торговой паре (ключ - символ в верхнем регистре)
+     */
+    private final Map<String, PairMarketState> marketStates = new ConcurrentHashMap<>();
+
+    /**
+     * Подписчики на изменение лучших цен
+     */
+    private final List<BookChangeListener> bookChangeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Буфер чтения вершины стакана (используется только потоком WebSocket)
+     */
+    private final LocalOrderBook.Top streamBookTop = new LocalOrderBook.Top();
+
+    /**
+     * Планировщик переподключений
+     */
+    private final ScheduledExecutorService reconnectExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ScalpingBot-MarketStream-Reconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Загрузка истории свечей (одна задача за раз, повторы после ошибок)
+     */
+    private final ScheduledExecutorService backfillExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ScalpingBot-CandleBackfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Текущая WebSocket сессия
+     */
+    private volatile WebSocketSession streamSession;
+
+    /**
+     * Опрос REST во время недоступности потока
+     */
+    private final AtomicBoolean pollInFlight = new AtomicBoolean(false);
+    private volatile boolean pollingActive = false;
+
+    /**
+     * Флаг остановки сервиса
+     */
+    private volatile boolean shuttingDown = false;
+
+    /**
+     * Константы
+     */
+    private static final String BINANCE = "binance";
+    private static final int MAX_MESSAGE_SIZE = 64 * 1024;
+    private static final int MAX_RECONNECT_DELAY_SECONDS = 60;
+
+    /**
+     * Количество подряд неудачных попыток подключения
+     */
+    private volatile int failedAttempts = 0;
+
+    /**
+     * Инициализация сервиса
+     */
+    @PostConstruct
+    public void init() {
+        for (String pair : tradingConfig.getTradingPairs()) {
+            String symbol = pair.toUpperCase();
+            marketStates.put(symbol, new PairMarketState(symbol, candleStore.getBuffer(symbol, klineInterval)));
+        }
+
+        if (!binanceEnabled) {
+            log.warn("Binance is disabled, market data streams will not be started");
+            return;
+        }
+
+        log.info("Starting Binance market data streams for {} pairs ({} klines)",
+                marketStates.size(), klineInterval);
+        connect();
+
+        // История свечей загружается в фоне, чтобы не задерживать старт приложения
+        backfillExecutor.execute(this::backfillCandles);
+    }
+
+    /**
+     * Загрузить последние закрытые свечи по всем парам, история которых не загружена
+     *
+     * Выполняется при старте и после каждого подключения потока: свечи,
+     * пропущенные за время обрыва, догружаются через REST.
+     */
+    private void backfillCandles() {
+        for (PairMarketState state : marketStates.values()) {
+            backfillPair(state);
+        }
+    }
+
+    /**
+     * Загрузить историю свечей пары
+     *
+     * Сначала свечи читаются из локального архива (KlineArchive),
+     * затем недостающие последние свечи догружаются через REST. При ошибке
+     * отложенные свечи потока сбрасываются (их вернет повторная загрузка
+     * через REST), и загрузка повторяется через backfillRetrySeconds.
+     *
+     * @param state состояние торговой пары
+     */
+    private void backfillPair(PairMarketState state) {
+        if (shuttingDown || state.backfilled) {
+            return;
+        }
+
+        String pair = state.symbol;
+        CandleRingBuffer buffer = state.candles;
+        int generation;
+        synchronized (state.pendingCandles) {
+            generation = state.streamGeneration;
+        }
+
+        if (buffer.isEmpty()) {
+            try {
+                int archived = klineArchive.loadInto(pair, klineInterval, buffer, buffer.capacity());
+                if (archived > 0) {
+                    log.debug("Loaded {} {} candles for {} from archive", archived, klineInterval, pair);
+                }
+            } catch (Exception e) {
+                log.warn("Failed to load archived {} candles for {}: {}", klineInterval, pair, e.getMessage());
+            }
+        }
+
+        try {
+            candleStore.backfill(pair, klineInterval,
+                    exchangeApiService.getKlines(pair, klineInterval, backfillLimit, BINANCE));
+            completeBackfill(state, buffer, generation);
+
+        } catch (Exception e) {
+            log.warn("Failed to backfill {} candles for {}, retrying in {}s: {}",
+                    klineInterval, pair, backfillRetrySeconds, e.getMessage());
+            synchronized (state.pendingCandles) {
+                state.pendingCandles.clear();
+                if (state.backfillRetryScheduled || shuttingDown) {
+                    return;
+                }
+                state.backfillRetryScheduled = true;
+            }
+            backfillExecutor.schedule(() -> retryBackfill(state), backfillRetrySeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    private void retryBackfill(PairMarketState state) {
+        synchronized (state.pendingCandles) {
+            state.backfillRetryScheduled = false;
+        }
+        backfillPair(state);
+    }
+
+    /**
+     * Сбросить загрузку истории всех пар после обрыва потока
+     *
+     * Вызывается потоком закрытой сессии после ее последнего сообщения:
+     * до следующей загрузки истории свечи новой сессии откладываются, а
+     * история, загруженная до обрыва, не считается закрывающей пропуск.
+     */
+    private void resetBackfill() {
+        for (PairMarketState state : marketStates.values()) {
+            synchronized (state.pendingCandles) {
+                state.streamGeneration++;
+                state.backfilled = false;
+            }
+        }
+    }
+
+    /**
+     * Дописать свечи, пришедшие из потока во время загрузки истории, и прогреть индикаторы
+     *
+     * Поток подключается раньше загрузки истории: пока она идет, закрытые свечи
+     * складываются в PairMarketState, иначе живая свеча в буфере отбросила бы
+     * все более старые свечи из архива и REST. После переключения флага
+     * backfilled поток пишет в буфер напрямую и остается единственным писателем.
+     *
+     * Если поток оборвался во время загрузки, флаг не переключается: пропуск
+     * закроет загрузка после переподключения.
+     */
+    private void completeBackfill(PairMarketState state, CandleRingBuffer buffer, int generation) {
+        synchronized (state.pendingCandles) {
+            if (state.streamGeneration != generation) {
+                log.debug("Market stream dropped while backfilling {}, waiting for reconnect", state.symbol);
+                return;
+            }
+
+            for (PendingCandle candle : state.pendingCandles) {
+                buffer.append(candle.openTime, candle.open, candle.high, candle.low, candle.close,
+                        candle.volume, candle.quoteVolume, candle.tradeCount);
+            }
+            if (!state.pendingCandles.isEmpty()) {
+                log.debug("Merged {} streamed {} candles for {} after backfill",
+                        state.pendingCandles.size(), klineInterval, state.symbol);
+            }
+            state.pendingCandles.clear();
+
+            indicatorEngine.warmUp(state.symbol, buffer);
+            candleAggregator.rebuild(state.symbol, buffer);
+            state.backfilled = true;
+        }
+    }
+
+    /**
+     * Остановка потоков при завершении приложения
+     */
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        reconnectExecutor.shutdownNow();
+        backfillExecutor.shutdownNow();
+
+        WebSocketSession session = streamSession;
+        if (session != null && session.isOpen()) {
+            try {
+                session.close(CloseStatus.NORMAL);
+            } catch (Exception e) {
+                log.debug("Failed to close market data stream: {}", e.getMessage());
+            }
+        }
+
+        log.info("Market data streams stopped");
+    }
+
+    /**
+     * Получить актуальные рыночные данные по торговой паре
+     *
+     * @param tradingPair торговая пара
+     * @param exchange название биржи
+     * @return снимок рыночных данных или null если данных еще нет
+     */
+    public MarketData getCurrentMarketData(String tradingPair, String exchange) {
+        if (!BINANCE.equalsIgnoreCase(exchange)) {
+            log.debug("No market data stream for exchange {}", exchange);
+            return null;
+        }
+
+        PairMarketState state = marketStates.get(tradingPair.toUpperCase());
+        if (state == null || !state.hasPrice()) {
+            return null;
+        }
+
+        MarketData marketData = state.toMarketData(staleAfterSeconds);
+        indicatorEngine.applyTo(state.symbol, marketData);
+        applyOrderBook(state.symbol, marketData);
+        return marketData;
+    }
+
+    /**
+     * Заменить bid/ask, спред и индекс ликвидности данными локального стакана
+     *
+     * Индекс ликвидности по стакану: логарифмическая шкала суммарной глубины
+     * обеих сторон в пределах liquidityDepthBps от mid, от $10K (0) до $1M (100).
+     * Если стакан не синхронизирован, остаются значения из bookTicker и 24h объема.
+     */
+    private void applyOrderBook(String symbol, MarketData marketData) {
+        LocalOrderBook book = orderBookService.getOrderBook(symbol);
+        if (book == null) {
+            return;
+        }
+
+        LocalOrderBook.Top top = new LocalOrderBook.Top();
+        if (!book.readTop(top)) {
+            return;
+        }
+
+        marketData.setBidPrice(FixedPointUtils.toBigDecimal(top.bidPrice));
+        marketData.setBidQuantity(FixedPointUtils.toBigDecimal(top.bidQuantity));
+        marketData.setAskPrice(FixedPointUtils.toBigDecimal(top.askPrice));
+        marketData.setAskQuantity(FixedPointUtils.toBigDecimal(top.askQuantity));
+        marketData.calculateSpread();
+
+        double depth = book.getBidDepth(liquidityDepthBps) + book.getAskDepth(liquidityDepthBps);
+        if (depth > 0) {
+            marketData.setLiquidityIndex(liquidityIndexFromDepth(depth));
+        }
+    }
+
+    /**
+     * Индекс ликвидности (0-100) по 24h объему в USDT:
+     * логарифмическая шкала от $1M (0) до $100M (100)
+     *
+     * @return индекс или null если объем неизвестен
+     */
+    public static BigDecimal liquidityIndexFromVolume(double quoteVolume24h) {
+        if (!(quoteVolume24h > 0)) {
+            return null;
+        }
+        return liquidityIndex((Math.log10(quoteVolume24h) - 6.0) * 50.0);
+    }
+
+    /**
+     * Индекс ликвидности (0-100) по глубине стакана в USDT:
+     * логарифмическая шкала от $10K (0) до $1M (100)
+     *
+     * @return индекс или null если стакан пуст
+     */
+    public static BigDecimal liquidityIndexFromDepth(double depth) {
+        if (!(depth > 0)) {
+            return null;
+        }
+        return liquidityIndex((Math.log10(depth) - 4.0) * 50.0);
+    }
+
+    private static BigDecimal liquidityIndex(double index) {
+        return BigDecimal.valueOf(Math.max(0.0, Math.min(100.0, index))).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Записать снимки всех пар в БД
+     *
+     * Снимки только ставятся в очередь MarketDataWriter, вставка выполняется
+     * пакетами в отдельном потоке.
+     */
+    @Scheduled(fixedRateString = "${market-data.persistence.record-interval-ms:1000}")
+    public void recordSnapshots() {
+        for (String pair : marketStates.keySet()) {
+            MarketData marketData = getCurrentMarketData(pair, BINANCE);
+            if (marketData != null) {
+                marketDataWriter.enqueue(marketData);
+            }
+        }
+    }
+
+    /**
+     * Опросить тикеры и лучшие цены всех пар, пока WebSocket поток недоступен
+     *
+     * Два запроса на все пары (/api/v3/ticker/24hr и /api/v3/ticker/bookTicker
+     * с параметром symbols), поэтому стоимость опроса не растет с числом пар.
+     * Следующий опрос не начинается, пока не завершился предыдущий.
+     */
+    @Scheduled(fixedDelayString = "${market-data.polling.interval-ms:2000}")
+    public void pollWhileStreamDown() {
+        if (!binanceEnabled || !pollingEnabled || shuttingDown || marketStates.isEmpty()) {
+            return;
+        }
+
+        if (isStreamConnected()) {
+            if (pollingActive) {
+                pollingActive = false;
+                log.info("Market stream restored, REST polling stopped");
+            }
+            return;
+        }
+
+        if (!pollInFlight.compareAndSet(false, true)) {
+            return;
+        }
+        if (!pollingActive) {
+            pollingActive = true;
+            log.warn("Market stream unavailable, polling tickers for {} pairs via REST", marketStates.size());
+        }
+
+        List<String> symbols = List.copyOf(marketStates.keySet());
+        Mono.zip(exchangeApiService.getTickersAsync(symbols, BINANCE),
+                        exchangeApiService.getBookTickersAsync(symbols, BINANCE))
+                .doFinally(signal -> pollInFlight.set(false))
+                .subscribe(result -> applyPolledSnapshots(result.getT1(), result.getT2()),
+                        error -> log.warn("Failed to poll market data: {}", error.getMessage()));
+    }
+
+    /**
+     * Разнести результаты опроса по состояниям пар
+     */
+    private void applyPolledSnapshots(List<ExchangeResponses.TickerSnapshot> tickers,
+                                      List<ExchangeResponses.BookTickerSnapshot> bookTickers) {
+        for (ExchangeResponses.TickerSnapshot ticker : tickers) {
+            PairMarketState state = marketStates.get(ticker.getSymbol());
+            if (state != null) {
+                state.applyTicker(ticker);
+            }
+        }
+
+        for (ExchangeResponses.BookTickerSnapshot bookTicker : bookTickers) {
+            PairMarketState state = marketStates.get(bookTicker.getSymbol());
+            if (state == null) {
+                continue;
+            }
+
+            state.applyBookTicker(bookTicker);
+            if (!bookChangeListeners.isEmpty()) {
+                notifyBookChanged(state.symbol, bookTicker.getBidPrice(), bookTicker.getAskPrice());
+            }
+        }
+    }
+
+    /**
+     * Получить рыночные данные по всем торговым парам
+     *
+     * @param exchange название биржи
+     * @return карта "пара → снимок рыночных данных"
+     */
+    public CompletableFuture<Map<String, MarketData>> getAllMarketData(String exchange) {
+        Map<String, MarketData> result = new HashMap<>();
+
+        for (String pair : marketStates.keySet()) {
+            MarketData marketData = getCurrentMarketData(pair, exchange);
+            if (marketData != null) {
+                result.put(pair, marketData);
+            }
+        }
+
+        return CompletableFuture.completedFuture(result);
+    }
+
+    /**
+     * Проверить, подключен ли поток рыночных данных
+     *
+     * @return true если WebSocket сессия открыта
+     */
+    public boolean isStreamConnected() {
+        WebSocketSession session = streamSession;
+        return session != null && session.isOpen();
+    }
+
+    // === Подключение к потокам ===
+
+    /**
+     * Подключиться к комбинированному потоку Binance
+     */
+    private void connect() {
+        if (shuttingDown) {
+            return;
+        }
+
+        String url = buildCombinedStreamUrl(List.copyOf(marketStates.keySet()));
+
+        StandardWebSocketClient client = new StandardWebSocketClient();
+        client.execute(new MarketStreamHandler(), url)
+                .whenComplete((session, error) -> {
+                    if (error != null) {
+                        log.error("Failed to connect to Binance market streams: {}", error.getMessage());
+                        scheduleReconnect();
+                    } else {
+                        session.setTextMessageSizeLimit(MAX_MESSAGE_SIZE);
+                        streamSession = session;
+                        failedAttempts = 0;
+                        log.info("Connected to Binance market streams ({} pairs)", marketStates.size());
+                        // После обрыва история догружается заново (пары без обрыва пропускаются)
+                        backfillExecutor.execute(this::backfillCandles);
+                    }
+                });
+    }
+
+    /**
+     * Запланировать переподключение с экспоненциальной задержкой
+     */
+    private void scheduleReconnect() {
+        if (shuttingDown) {
+            return;
+        }
+
+        int attempt = ++failedAttempts;
+        long delay = Math.min((long) reconnectDelaySeconds << Math.min(attempt - 1, 4), MAX_RECONNECT_DELAY_SECONDS);
+
+        log.warn("Reconnecting to Binance market streams in {}s (attempt {})", delay, attempt);
+        reconnectExecutor.schedule(this::connect, delay, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Построить URL комбинированного потока
+     *
+     * @param pairs торговые пары
+     * @return URL вида wss://host/stream?streams=btcusdt@ticker/btcusdt@kline_1m/...
+     */
+    private String buildCombinedStreamUrl(List<String> pairs) {
+        StringBuilder url = new StringBuilder(binanceWsUrl).append("/stream?streams=");
+
+        boolean first = true;
+        for (String pair : pairs) {
+            String symbol = pair.toLowerCase();
+            if (!first) {
+                url.append('/');
+            }
+            url.append(symbol).append("@ticker/")
+                    .append(symbol).append("@kline_").append(klineInterval).append('/')
+                    .append(symbol).append("@bookTicker");
+            if (orderBookService.isEnabled()) {
+                url.append('/').append(symbol).append("@depth@100ms");
+            }
+            first = false;
+        }
+
+        return url.toString();
+    }
+
+    // === Обработка сообщений ===
+
+    /**
+     * Обработать сообщение комбинированного потока
+     *
+     * @param payload JSON сообщение вида {"stream": "...", "data": {...}}
+     */
+    private void handleStreamMessage(String payload) {
+        try {
+            JsonNode root = objectMapper.readTree(payload);
+            String stream = root.path("stream").asText("");
+            JsonNode data = root.path("data");
+
+            int separator = stream.indexOf('@');
+            if (separator <= 0 || data.isMissingNode()) {
+                return;
+            }
+
+            PairMarketState state = marketStates.get(stream.substring(0, separator).toUpperCase());
+            if (state == null) {
+                return;
+            }
+
+            String streamType = stream.substring(separator + 1);
+            if (streamType.equals("ticker")) {
+                state.applyTicker(data);
+            } else if (streamType.startsWith("kline_")) {
+                JsonNode kline = data.path("k");
+                state.applyKline(kline, data.path("E").asLong());
+
+                if (kline.path("x").asBoolean()) {
+                    appendClosedCandle(state, kline);
+                }
+            } else if (streamType.equals("bookTicker")) {
+                state.applyBookTicker(data);
+                if (!bookChangeListeners.isEmpty()) {
+                    notifyBookChanged(state.symbol,
+                            FixedPointUtils.parse(data.path("b").asText()),
+                            FixedPointUtils.parse(data.path("a").asText()));
+                }
+            } else if (streamType.startsWith("depth")) {
+                orderBookService.onDepthUpdate(state.symbol, data);
+                if (!bookChangeListeners.isEmpty()) {
+                    LocalOrderBook book = orderBookService.getOrderBook(state.symbol);
+                    if (book != null && book.readTop(streamBookTop)) {
+                        notifyBookChanged(state.symbol, streamBookTop.bidPrice, streamBookTop.askPrice);
+                    }
+                }
+            }
+
+        } catch (Exception e) {
+            log.debug("Failed to process market stream message: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Подписаться на изменение лучших цен стакана
+     *
+     * @param listener подписчик
+     */
+    public void subscribeBookChanges(BookChangeListener listener) {
+        bookChangeListeners.add(listener);
+    }
+
+    private void notifyBookChanged(String symbol, long bidPrice, long askPrice) {
+        for (BookChangeListener listener : bookChangeListeners) {
+            try {
+                listener.onBookChanged(symbol, bidPrice, askPrice);
+            } catch (Exception e) {
+                log.error("Book change listener failed for {}: {}", symbol, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Записать закрытую свечу в хранилище свечей
+     *
+     * Пока история пары не загружена, свеча откладывается до completeBackfill.
+     *
+     * @param state состояние торговой пары
+     * @param kline объект "k" события kline
+     */
+    private void appendClosedCandle(PairMarketState state, JsonNode kline) {
+        String symbol = state.symbol;
+        long openTime = kline.path("t").asLong();
+        long open = FixedPointUtils.parse(kline.path("o").asText());
+        long high = FixedPointUtils.parse(kline.path("h").asText());
+        long low = FixedPointUtils.parse(kline.path("l").asText());
+        long close = FixedPointUtils.parse(kline.path("c").asText());
+        double volume = kline.path("v").asDouble();
+        double quoteVolume = kline.path("q").asDouble();
+        int tradeCount = kline.path("n").asInt();
+
+        if (!state.backfilled) {
+            synchronized (state.pendingCandles) {
+                if (!state.backfilled) {
+                    state.pendingCandles.add(new PendingCandle(openTime, open, high, low, close,
+                            volume, quoteVolume, tradeCount));
+                    return;
+                }
+            }
+        }
+
+        CandleRingBuffer buffer = state.candles;
+        long sequenceBefore = buffer.sequence();
+
+        buffer.append(openTime, open, high, low, close, volume, quoteVolume, tradeCount);
+
+        // Индикаторы обновляем только по новой свече (повторная доставка не учитывается дважды)
+        if (buffer.sequence() > sequenceBefore) {
+            indicatorEngine.onCandleClosed(symbol, FixedPointUtils.toDouble(high),
+                    FixedPointUtils.toDouble(low), FixedPointUtils.toDouble(close));
+            candleAggregator.onBaseCandleClosed(symbol, buffer);
+        }
+    }
+
+    /**
+     * Обработчик WebSocket сообщений
+     */
+    private class MarketStreamHandler extends TextWebSocketHandler {
+
+        @Override
+        protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+            handleStreamMessage(message.getPayload());
+        }
+
+        @Override
+        public void handleTransportError(WebSocketSession session, Throwable exception) {
+            log.warn("Market stream transport error: {}", exception.getMessage());
+        }
+
+        @Override
+        public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+            log.warn("Market stream closed: {}", status);
+            streamSession = null;
+            // Пропущенные diff-события не восстановить - стаканы загружаются заново
+            orderBookService.resyncAll();
+            // Пропущенные свечи догружаются через REST после переподключения
+            resetBackfill();
+            scheduleReconnect();
+        }
+    }
+
+    // === Вложенные классы ===
+
+    /**
+     * Последнее известное состояние рынка по торговой паре
+     *
+     * Обновляется потоком WebSocket, читается торговым циклом.
+     */
+    private static class PairMarketState {
+
+        private final String symbol;
+
+        // Буфер закрытых свечей основного таймфрейма (без поиска в CandleStore на каждую свечу)
+        private final CandleRingBuffer candles;
+
+        // Закрытые свечи потока, пришедшие до окончания загрузки истории
+        private final List<PendingCandle> pendingCandles = new ArrayList<>();
+        private volatile boolean backfilled = false;
+
+        // Номер обрыва потока и запланированный повтор загрузки (под монитором pendingCandles)
+        private int streamGeneration = 0;
+        private boolean backfillRetryScheduled = false;
+
+        // Тикер 24h
+        private BigDecimal lastPrice;
+        private BigDecimal volume24h;
+        private BigDecimal quoteVolume24h;
+        private BigDecimal weightedAvgPrice;
+        private BigDecimal priceChange24hPercent;
+        private long tickerEventTime;
+
+        // Текущая свеча
+        private BigDecimal open;
+        private BigDecimal high;
+        private BigDecimal low;
+        private BigDecimal close;
+        private BigDecimal volume;
+        private BigDecimal quoteVolume;
+        private int tradeCount;
+        private long klineEventTime;
+
+        // Лучшие bid/ask
+        private BigDecimal bidPrice;
+        private BigDecimal bidQuantity;
+        private BigDecimal askPrice;
+        private BigDecimal askQuantity;
+        private long bookReceivedAt;
+
+        PairMarketState(String symbol, CandleRingBuffer candles) {
+            this.symbol = symbol;
+            this.candles = candles;
+        }
+
+        synchronized boolean hasPrice() {
+            return lastPrice != null || close != null;
+        }
+
+        synchronized void applyTicker(JsonNode data) {
+            lastPrice = decimal(data, "c");
+            volume24h = decimal(data, "v");
+            quoteVolume24h = decimal(data, "q");
+            weightedAvgPrice = decimal(data, "w");
+            priceChange24hPercent = decimal(data, "P");
+            tickerEventTime = data.path("E").asLong();
+        }
+
+        synchronized void applyTicker(ExchangeResponses.TickerSnapshot ticker) {
+            lastPrice = FixedPointUtils.toBigDecimal(ticker.getLastPrice());
+            volume24h = FixedPointUtils.toBigDecimal(ticker.getVolume());
+            quoteVolume24h = FixedPointUtils.toBigDecimal(ticker.getQuoteVolume());
+            weightedAvgPrice = FixedPointUtils.toBigDecimal(ticker.getWeightedAvgPrice());
+            priceChange24hPercent = FixedPointUtils.toBigDecimal(ticker.getPriceChangePercent());
+            tickerEventTime = ticker.getCloseTime();
+        }
+
+        synchronized void applyKline(JsonNode kline, long eventTime) {
+            open = decimal(kline, "o");
+            high = decimal(kline, "h");
+            low = decimal(kline, "l");
+            close = decimal(kline, "c");
+            volume = decimal(kline, "v");
+            quoteVolume = decimal(kline, "q");
+            tradeCount = kline.path("n").asInt();
+            klineEventTime = eventTime;
+        }
+
+        synchronized void applyBookTicker(JsonNode data) {
+            bidPrice = decimal(data, "b");
+            bidQuantity = decimal(data, "B");
+            askPrice = decimal(data, "a");
+            askQuantity = decimal(data, "A");
+            // bookTicker спотового рынка не содержит времени события
+            bookReceivedAt = DateUtils.currentTimestampMs();
+        }
+
+        synchronized void applyBookTicker(ExchangeResponses.BookTickerSnapshot bookTicker) {
+            bidPrice = FixedPointUtils.toBigDecimal(bookTicker.getBidPrice());
+            bidQuantity = FixedPointUtils.toBigDecimal(bookTicker.getBidQuantity());
+            askPrice = FixedPointUtils.toBigDecimal(bookTicker.getAskPrice());
+            askQuantity = FixedPointUtils.toBigDecimal(bookTicker.getAskQuantity());
+            bookReceivedAt = DateUtils.currentTimestampMs();
+        }
+
+        /**
+         * Построить снимок рыночных данных
+         *
+         * @param staleAfterSeconds возраст, после которого поток считается устаревшим
+         * @return снимок MarketData
+         */
+        synchronized MarketData toMarketData(int staleAfterSeconds) {
+            long now = DateUtils.currentTimestampMs();
+            long lastEventTime = Math.max(tickerEventTime, Math.max(klineEventTime, bookReceivedAt));
+            // Без потока свечей (опрос REST) цена свечи устаревает - берем более свежую
+            BigDecimal price = close != null && (lastPrice == null || klineEventTime >= tickerEventTime)
+                    ? close : lastPrice;
+
+            MarketData marketData = MarketData.builder()
+                    .tradingPair(symbol)
+                    .pairType(TradingPairType.fromPairName(symbol))
+                    .exchangeName(BINANCE)
+                    .timestamp(DateUtils.fromTimestampMs(lastEventTime))
+                    .exchangeTimestamp(lastEventTime)
+                    .openPrice(open != null ? open : price)
+                    .highPrice(high != null ? high : price)
+                    .lowPrice(low != null ? low : price)
+                    .closePrice(price)
+                    .volume(volume != null ? volume : BigDecimal.ZERO)
+                    .quoteVolume(quoteVolume)
+                    .volume24h(volume24h)
+                    .quoteVolume24h(quoteVolume24h)
+                    .tradeCount(tradeCount)
+                    .bidPrice(bidPrice)
+                    .bidQuantity(bidQuantity)
+                    .askPrice(askPrice)
+                    .askQuantity(askQuantity)
+                    .weightedAvgPrice(weightedAvgPrice)
+                    .priceChange24hPercent(priceChange24hPercent)
+                    .liquidityIndex(calculateLiquidityIndex())
+                    .dataQuality(calculateDataQuality(now, staleAfterSeconds * 1000L))
+                    .latencyMs((int) Math.max(0, Math.min(Integer.MAX_VALUE, now - lastEventTime)))
+                    .createdAt(DateUtils.nowMoscow())
+                    .build();
+
+            marketData.calculateSpread();
+            return marketData;
+        }
+
+        /**
+         * Оценить качество данных (0-100) по наличию и свежести каждого потока
+         *
+         * Баллы цены начисляются источнику, из которого взята цена снимка:
+         * без потока свечей (опрос REST) это более свежий тикер.
+         */
+        private BigDecimal calculateDataQuality(long now, long staleAfterMs) {
+            int quality = 0;
+
+            boolean tickerFresh = lastPrice != null && now - tickerEventTime <= staleAfterMs;
+            boolean klineFresh = close != null && now - klineEventTime <= staleAfterMs;
+            if (tickerFresh) {
+                quality += 30;
+            }
+            if (klineFresh || (tickerFresh && tickerEventTime > klineEventTime)) {
+                quality += 40;
+            }
+            if (bidPrice != null && askPrice != null && now - bookReceivedAt <= staleAfterMs) {
+                quality += 30;
+            }
+
+            return new BigDecimal(quality);
+        }
+
+        /**
+         * Оценить ликвидность (0-100) по 24h объему в USDT
+         */
+        private BigDecimal calculateLiquidityIndex() {
+            return quoteVolume24h != null ? liquidityIndexFromVolume(quoteVolume24h.doubleValue()) : null;
+        }
+
+        private static BigDecimal decimal(JsonNode node, String field) {
+            JsonNode value = node.get(field);
+            return value != null && !value.isNull() ? new BigDecimal(value.asText()) : null;
+        }
+    }
+
+    /**
+     * Закрытая свеча потока, отложенная до окончания загрузки истории
+     */
+    private static final class PendingCandle {
+        private final long openTime;
+        private final long open;
+        private final long high;
+        private final long low;
+        private final long close;
+        private final double volume;
+        private final double quoteVolume;
+        private final int tradeCount;
+
+        PendingCandle(long openTime, long open, long high, long low, long close,
+                      double volume, double quoteVolume, int tradeCount) {
+            this.openTime = openTime;
+            this.open = open;
+            this.high = high;
+            this.low = low;
+            this.close = close;
+            this.volume = volume;
+            this.quoteVolume = quoteVolume;
+            this.tradeCount = tradeCount;
+        }
+    }
 }
@@ -0,0 +1,333 @@
+package com.example.scalpingBot.service.market;
+
+import com.example.scalpingBot.entity.MarketData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Асинхронная запись снимков MarketData в базу данных (write-behind)
+ *
+ * Основные функции:
+ * - Неблокирующая постановка снимка в ограниченную очередь
+ * - Периодическая пакетная вставка (JDBC batch, MySQL переписывает в multi-row INSERT)
+ * - Политика переполнения очереди: отбросить новые или самые старые снимки
+ * - Немедленный сброс при заполнении очереди выше порога (backpressure)
+ * - Метрики: очередь, записанные, отброшенные и ошибочные снимки, время сброса
+ *
+ * Запись идет через JdbcTemplate в обход Hibernate: IDENTITY генерация id
+ * отключает JDBC batching в Hibernate, а id снимков после вставки не нужен.
+ * Торговый поток никогда не ждет MySQL.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MarketDataWriter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${market-data.persistence.enabled:true}")
+    private boolean enabled;
+
+    @Value("${market-data.persistence.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${market-data.persistence.batch-size:500}")
+    private int batchSize;
+
+    @Value("${market-data.persistence.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${market-data.persistence.drop-policy:DROP_OLDEST}")
+    private DropPolicy dropPolicy;
+
+    /**
+     * Доля заполнения очереди, при которой сброс выполняется без ожидания интервала
+     */
+    private static final double HIGH_WATER_MARK = 0.8;
+
+    /**
+     * INSERT IGNORE: повторный снимок с тем же (pair, timestamp, exchange)
+     * не должен прерывать пакет из-за уникального ключа
+     */
+    private static final String INSERT_SQL = "INSERT IGNORE INTO market_data (" +
+            "trading_pair, pair_type, exchange_name, timestamp, exchange_timestamp, " +
+            "open_price, high_price, low_price, close_price, volume, quote_volume, " +
+            "volume_24h, quote_volume_24h, trade_count, " +
+            "bid_price, bid_quantity, ask_price, ask_quantity, spread_percent, " +
+            "weighted_avg_price, price_change_24h_percent, " +
+            "rsi, ema9, ema21, macd_line, macd_signal, macd_histogram, " +
+            "bb_upper, bb_middle, bb_lower, atr, atr_percent, " +
+            "trend_strength, scalping_signal, liquidity_index, volatility_1h, " +
+            "avg_trade_size, buy_sell_ratio, data_quality, latency_ms, created_at, metadata" +
+            ") VALUES (" +
+            "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, " +
+            "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private BlockingQueue<MarketData> queue;
+    private Thread writerThread;
+    private volatile boolean running = false;
+
+    private Counter enqueuedCounter;
+    private Counter droppedCounter;
+    private Counter writtenCounter;
+    private Counter failedCounter;
+    private Timer flushTimer;
+
+    /**
+     * Политика при переполнении очереди
+     */
+    public enum DropPolicy {
+        /** Отбросить новый снимок */
+        DROP_NEWEST,
+        /** Вытеснить самый старый снимок из очереди */
+        DROP_OLDEST
+    }
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        enqueuedCounter = meterRegistry.counter("market.data.writer.enqueued");
+        droppedCounter = meterRegistry.counter("market.data.writer.dropped", "policy", dropPolicy.name());
+        writtenCounter = meterRegistry.counter("market.data.writer.written");
+        failedCounter = meterRegistry.counter("market.data.writer.failed");
+        flushTimer = meterRegistry.timer("market.data.writer.flush");
+        meterRegistry.gauge("market.data.writer.queue.size", queue, BlockingQueue::size);
+
+        if (!enabled) {
+            log.info("Market data persistence is disabled");
+            return;
+        }
+
+        running = true;
+        writerThread = new Thread(this::runWriter, "market-data-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        log.info("Market data writer started (queue: {}, batch: {}, flush: {} ms, policy: {})",
+                queueCapacity, batchSize, flushIntervalMs, dropPolicy);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Сбрасываем остаток очереди
+        List<MarketData> remaining = new ArrayList<>(queue.size());
+        queue.drainTo(remaining);
+        for (int from = 0; from < remaining.size(); from += batchSize) {
+            flush(remaining.subList(from, Math.min(remaining.size(), from + batchSize)));
+        }
+
+        log.info("Market data writer stopped");
+    }
+
+    /**
+     * Поставить снимок в очередь записи (не блокирует)
+     *
+     * @param marketData снимок рыночных данных
+     * @return true если снимок принят в очередь
+     */
+    public boolean enqueue(MarketData marketData) {
+        if (!running || marketData == null) {
+            return false;
+        }
+
+        if (queue.offer(marketData)) {
+            enqueuedCounter.increment();
+            return true;
+        }
+
+        if (dropPolicy == DropPolicy.DROP_OLDEST) {
+            // Вытесняем самый старый снимок, свежие данные важнее
+            if (queue.poll() != null) {
+                droppedCounter.increment();
+            }
+            if (queue.offer(marketData)) {
+                enqueuedCounter.increment();
+                return true;
+            }
+        }
+
+        droppedCounter.increment();
+        return false;
+    }
+
+    /**
+     * Текущий размер очереди
+     */
+    public int getQueueSize() {
+        return queue != null ? queue.size() : 0;
+    }
+
+    // === Поток записи ===
+
+    private void runWriter() {
+        List<MarketData> batch = new ArrayList<>(batchSize);
+        long lastFlush = System.currentTimeMillis();
+        int highWater = (int) (queueCapacity * HIGH_WATER_MARK);
+
+        while (running) {
+            try {
+                long waitMs = Math.max(1, flushIntervalMs - (System.currentTimeMillis() - lastFlush));
+                MarketData first = queue.poll(waitMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+
+                boolean intervalElapsed = System.currentTimeMillis() - lastFlush >= flushIntervalMs;
+                boolean backpressure = queue.size() >= highWater;
+
+                if (!batch.isEmpty() && (batch.size() >= batchSize || intervalElapsed || backpressure)) {
+                    flush(batch);
+                    batch.clear();
+                    lastFlush = System.currentTimeMillis();
+                } else if (batch.isEmpty() && intervalElapsed) {
+                    lastFlush = System.currentTimeMillis();
+                }
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("Unexpected error in market data writer: {}", e.getMessage());
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    /**
+     * Записать пакет снимков одной пакетной вставкой
+     */
+    private void flush(List<MarketData> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    bind(ps, batch.get(i));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return batch.size();
+                }
+            });
+            writtenCounter.increment(batch.size());
+            log.debug("Flushed {} market data snapshots", batch.size());
+
+        } catch (Exception e) {
+            failedCounter.increment(batch.size());
+            log.error("Failed to write {} market data snapshots: {}", batch.size(), e.getMessage());
+        } finally {
+            sample.stop(flushTimer);
+        }
+    }
+
+    private static void bind(PreparedStatement ps, MarketData data) throws SQLException {
+        LocalDateTime now = LocalDateTime.now();
+        int i = 1;
+
+        ps.setString(i++, data.getTradingPair());
+        ps.setString(i++, data.getPairType() != null ? data.getPairType().name() : null);
+        ps.setString(i++, data.getExchangeName());
+        ps.setTimestamp(i++, Timestamp.valueOf(data.getTimestamp() != null ? data.getTimestamp() : now));
+        setLong(ps, i++, data.getExchangeTimestamp());
+        ps.setBigDecimal(i++, data.getOpenPrice());
+        ps.setBigDecimal(i++, data.getHighPrice());
+        ps.setBigDecimal(i++, data.getLowPrice());
+        ps.setBigDecimal(i++, data.getClosePrice());
+        ps.setBigDecimal(i++, data.getVolume() != null ? data.getVolume() : BigDecimal.ZERO);
+        ps.setBigDecimal(i++, data.getQuoteVolume());
+        ps.setBigDecimal(i++, data.getVolume24h());
+        ps.setBigDecimal(i++, data.getQuoteVolume24h());
+        setInteger(ps, i++, data.getTradeCount());
+        ps.setBigDecimal(i++, data.getBidPrice());
+        ps.setBigDecimal(i++, data.getBidQuantity());
+        ps.setBigDecimal(i++, data.getAskPrice());
+        ps.setBigDecimal(i++, data.getAskQuantity());
+        ps.setBigDecimal(i++, data.getSpreadPercent());
+        ps.setBigDecimal(i++, data.getWeightedAvgPrice());
+        ps.setBigDecimal(i++, data.getPriceChange24hPercent());
+        ps.setBigDecimal(i++, data.getRsi());
+        ps.setBigDecimal(i++, data.getEma9());
+        ps.setBigDecimal(i++, data.getEma21());
+        ps.setBigDecimal(i++, data.getMacdLine());
+        ps.setBigDecimal(i++, data.getMacdSignal());
+        ps.setBigDecimal(i++, data.getMacdHistogram());
+        ps.setBigDecimal(i++, data.getBbUpper());
+        ps.setBigDecimal(i++, data.getBbMiddle());
+        ps.setBigDecimal(i++, data.getBbLower());
+        ps.setBigDecimal(i++, data.getAtr());
+        ps.setBigDecimal(i++, data.getAtrPercent());
+        ps.setBigDecimal(i++, data.getTrendStrength());
+        ps.setBigDecimal(i++, data.getScalpingSignal());
+        ps.setBigDecimal(i++, data.getLiquidityIndex());
+        ps.setBigDecimal(i++, data.getVolatility1h());
+        ps.setBigDecimal(i++, data.getAvgTradeSize());
+        ps.setBigDecimal(i++, data.getBuySellRatio());
+        ps.setBigDecimal(i++, data.getDataQuality());
+        setInteger(ps, i++, data.getLatencyMs());
+        ps.setTimestamp(i++, Timestamp.valueOf(data.getCreatedAt() != null ? data.getCreatedAt() : now));
+        ps.setString(i, data.getMetadata());
+    }
+
+    private static void setLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value != null) {
+            ps.setLong(index, value);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+
+    private static void setInteger(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value != null) {
+            ps.setInt(index, value);
+        } else {
+            ps.setNull(index, Types.INTEGER);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.example.scalpingBot.service.market;
+
+import com.example.scalpingBot.config.TradingConfig;
+import com.example.scalpingBot.service.exchange.ExchangeApiService;
+import com.example.scalpingBot.service.exchange.ExchangeResponses;
+import com.example.scalpingBot.utils.DateUtils;
+import com.example.scalpingBot.utils.FixedPointUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сервис локальных стаканов (L2) торговых пар
+ *
+ * Основные функции:
+ * - Синхронизация стакана по REST снимку и diff-потоку @depth@100ms
+ * - Контроль последовательности обновлений (U/u) и пересинхронизация при разрыве
+ * - Быстрое чтение лучших цен, глубины в пределах N б.п. и дисбаланса
+ *
+ * Алгоритм синхронизации (Binance):
+ * 1. События diff-потока буферизуются, пока загружается REST снимок
+ * 2. События с u <= lastUpdateId снимка отбрасываются
+ * 3. Первое применяемое событие должно покрывать lastUpdateId + 1
+ * 4. Каждое следующее событие должно начинаться с u предыдущего + 1,
+ *    иначе стакан помечается несинхронизированным и загружается заново
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderBookService {
+
+    private final TradingConfig tradingConfig;
+    private final ExchangeApiService exchangeApiService;
+
+    @Value("${market-data.order-book.enabled:true}")
+    private boolean enabled;
+
+    @Value("${market-data.order-book.max-levels:1000}")
+    private int maxLevels;
+
+    @Value("${market-data.order-book.snapshot-limit:1000}")
+    private int snapshotLimit;
+
+    @Value("${market-data.order-book.max-buffered-events:2000}")
+    private int maxBufferedEvents;
+
+    private static final String BINANCE = "binance";
+
+    /**
+     * Пауза перед повторной загрузкой снимка после ошибки REST
+     */
+    private static final long SNAPSHOT_RETRY_DELAY_MS = 5000;
+
+    /**
+     * Состояние синхронизации по торговым парам
+     */
+    private final Map<String, PairBook> books = new ConcurrentHashMap<>();
+
+    /**
+     * Поток загрузки REST снимков (не блокирует поток WebSocket)
+     */
+    private final ExecutorService snapshotExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "order-book-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Количество пересинхронизаций из-за разрыва последовательности
+     */
+    private final AtomicLong resyncCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("Local order books are disabled");
+            return;
+        }
+
+        for (String pair : tradingConfig.getTradingPairs()) {
+            String symbol = pair.toUpperCase();
+            books.put(symbol, new PairBook(new LocalOrderBook(symbol, maxLevels)));
+        }
+        log.info("Local order books initialized for {} pairs (max {} levels)", books.size(), maxLevels);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshotExecutor.shutdownNow();
+    }
+
+    /**
+     * Включены ли локальные стаканы
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Обработать событие diff-потока глубины
+     *
+     * @param symbol торговая пара
+     * @param event объект "data" события depthUpdate
+     */
+    public void onDepthUpdate(String symbol, JsonNode event) {
+        PairBook pairBook = books.get(symbol);
+        if (pairBook == null) {
+            return;
+        }
+
+        synchronized (pairBook) {
+            if (!pairBook.synced) {
+                bufferEvent(pairBook, event);
+                return;
+            }
+
+            long firstUpdateId = event.path("U").asLong();
+            long finalUpdateId = event.path("u").asLong();
+            long lastUpdateId = pairBook.book.getLastUpdateId();
+
+            if (finalUpdateId <= lastUpdateId) {
+                return; // Устаревшее событие
+            }
+
+            // Первое событие после снимка может начинаться раньше lastUpdateId + 1
+            boolean contiguous = pairBook.awaitingFirstEvent
+                    ? firstUpdateId <= lastUpdateId + 1
+                    : firstUpdateId == lastUpdateId + 1;
+            if (!contiguous) {
+                log.warn("Order book gap for {}: expected U={}, got U={}", symbol, lastUpdateId + 1, firstUpdateId);
+                resyncCount.incrementAndGet();
+                pairBook.synced = false;
+                pairBook.book.clear();
+                bufferEvent(pairBook, event);
+                return;
+            }
+
+            applyEvent(pairBook, event);
+            pairBook.awaitingFirstEvent = false;
+        }
+    }
+
+    /**
+     * Запросить пересинхронизацию всех стаканов (например, после переподключения потока)
+     */
+    public void resyncAll() {
+        for (PairBook pairBook : books.values()) {
+            synchronized (pairBook) {
+                pairBook.synced = false;
+                pairBook.pending.clear();
+                pairBook.book.clear();
+            }
+        }
+    }
+
+    /**
+     * Получить синхронизированный стакан пары
+     *
+     * @param tradingPair торговая пара
+     * @return стакан или null если стакан не синхронизирован
+     */
+    public LocalOrderBook getOrderBook(String tradingPair) {
+        PairBook pairBook = books.get(tradingPair.toUpperCase());
+        return pairBook != null && pairBook.synced ? pairBook.book : null;
+    }
+
+    /**
+     * Проверить, синхронизирован ли стакан пары
+     */
+    public boolean isSynced(String tradingPair) {
+        PairBook pairBook = books.get(tradingPair.toUpperCase());
+        return pairBook != null && pairBook.synced;
+    }
+
+    /**
+     * Количество пересинхронизаций из-за разрыва последовательности
+     */
+    public long getResyncCount() {
+        return resyncCount.get();
+    }
+
+    // === Синхронизация ===
+
+    private void bufferEvent(PairBook pairBook, JsonNode event) {
+        if (pairBook.pending.size() >= maxBufferedEvents) {
+            pairBook.pending.pollFirst();
+        }
+        pairBook.pending.addLast(event);
+
+        if (!pairBook.snapshotRequested && DateUtils.currentTimestampMs() >= pairBook.retryNotBefore) {
+            pairBook.snapshotRequested = true;
+            snapshotExecutor.execute(() -> loadSnapshot(pairBook));
+        }
+    }
+
+    /**
+     * Загрузить REST снимок и применить буферизованные события
+     */
+    private void loadSnapshot(PairBook pairBook) {
+        String symbol = pairBook.book.getSymbol();
+        ExchangeResponses.DepthSnapshot snapshot;
+
+        try {
+            snapshot = exchangeApiService.getOrderBook(symbol, BINANCE, snapshotLimit);
+        } catch (Exception e) {
+            log.warn("Failed to load order book snapshot for {}: {}", symbol, e.getMessage());
+            synchronized (pairBook) {
+                pairBook.snapshotRequested = false;
+                pairBook.retryNotBefore = DateUtils.currentTimestampMs() + SNAPSHOT_RETRY_DELAY_MS;
+            }
+            return;
+        }
+
+        synchronized (pairBook) {
+            pairBook.snapshotRequested = false;
+            pairBook.book.applySnapshot(
+                    snapshot.getBidPrices(), snapshot.getBidQuantities(), snapshot.getBidCount(),
+                    snapshot.getAskPrices(), snapshot.getAskQuantities(), snapshot.getAskCount(),
+                    snapshot.getLastUpdateId(), DateUtils.currentTimestampMs());
+
+            // Применяем буферизованные события поверх снимка
+            boolean first = true;
+            while (!pairBook.pending.isEmpty()) {
+                JsonNode event = pairBook.pending.pollFirst();
+                long firstUpdateId = event.path("U").asLong();
+                long finalUpdateId = event.path("u").asLong();
+                long lastUpdateId = pairBook.book.getLastUpdateId();
+
+                if (finalUpdateId <= lastUpdateId) {
+                    continue;
+                }
+
+                boolean contiguous = first
+                        ? firstUpdateId <= lastUpdateId + 1
+                        : firstUpdateId == lastUpdateId + 1;
+                if (!contiguous) {
+                    // Снимок старше буфера или в буфере разрыв - загружаем заново
+                    log.debug("Order book snapshot for {} does not match buffered events, retrying", symbol);
+                    pairBook.book.clear();
+                    pairBook.pending.addFirst(event);
+                    pairBook.snapshotRequested = true;
+                    snapshotExecutor.execute(() -> loadSnapshot(pairBook));
+                    return;
+                }
+
+                applyEvent(pairBook, event);
+                first = false;
+            }
+
+            pairBook.awaitingFirstEvent = first;
+            pairBook.synced = true;
+            log.info("Order book for {} synchronized at update {}", symbol, pairBook.book.getLastUpdateId());
+        }
+    }
+
+    private void applyEvent(PairBook pairBook, JsonNode event) {
+        pairBook.bidScratch.fill(event.path("b"));
+        pairBook.askScratch.fill(event.path("a"));
+        pairBook.book.applyUpdate(
+                pairBook.bidScratch.prices, pairBook.bidScratch.quantities, pairBook.bidScratch.count,
+                pairBook.askScratch.prices, pairBook.askScratch.quantities, pairBook.askScratch.count,
+                event.path("u").asLong(), event.path("E").asLong());
+    }
+
+    /**
+     * Состояние синхронизации стакана одной пары
+     */
+    private static final class PairBook {
+        private final LocalOrderBook book;
+        private final Deque<JsonNode> pending = new ArrayDeque<>();
+        private final Levels bidScratch = new Levels(64);
+        private final Levels askScratch = new Levels(64);
+        private volatile boolean synced = false;
+        private boolean snapshotRequested = false;
+        private boolean awaitingFirstEvent = false;
+        private long retryNotBefore = 0;
+
+        PairBook(LocalOrderBook book) {
+            this.book = book;
+        }
+    }
+
+    /**
+     * Переиспользуемый буфер уровней [цена, количество] для разбора событий
+     */
+    private static final class Levels {
+        private long[] prices;
+        private long[] quantities;
+        private int count;
+
+        Levels(int capacity) {
+            this.prices = new long[capacity];
+            this.quantities = new long[capacity];
+        }
+
+        void fill(JsonNode levels) {
+            ensureCapacity(levels.size());
+            count = 0;
+            for (JsonNode level : levels) {
+                prices[count] = FixedPointUtils.parse(level.path(0).asText());
+                quantities[count] = FixedPointUtils.parse(level.path(1).asText());
+                count++;
+            }
+        }
+
+        private void ensureCapacity(int size) {
+            if (size > prices.length) {
+                prices = new long[size];
+                quantities = new long[size];
+            }
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.example.scalpingBot.service.risk;
+
+import com.example.scalpingBot.entity.Position;
+import com.example.scalpingBot.enums.OrderSide;
+import com.example.scalpingBot.enums.TradingPairType;
+import com.example.scalpingBot.repository.PositionRepository;
+import com.example.scalpingBot.service.market.MarketDataService;
+import com.example.scalpingBot.utils.DateUtils;
+import com.example.scalpingBot.utils.FixedPointUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Риск-книга портфеля в памяти
+ *
+ * Основные функции:
+ * - Количество открытых позиций, экспозиция по сторонам и типам пар
+ * - Дневной реализованный и нереализованный P&L, серия убытков
+ * - Инкрементальное обновление при исполнениях, закрытиях и тиках цены
+ *   (лучшие цены стакана из MarketDataService)
+ * - Резервирование входов, ордера по которым еще исполняются
+ * - Периодическая сверка с БД
+ *
+ * Изменения выполняются под монитором книги и публикуются неизменяемым
+ * срезом RiskSnapshot, поэтому пре-трейд проверки читают состояние одним
+ * volatile-чтением без блокировок и обращений к БД.
+ *
+ * Тик цены только записывает цену оценки в позицию, без монитора и без
+ * пересборки среза. Нереализованный P&L пересчитывается при изменении
+ * позиций и по расписанию, не чаще одного раза за интервал публикации.
+ *
+ * Резерв учитывается в срезе как открытая позиция (количество, экспозиция,
+ * занятая пара), пока по паре нет исполненной позиции, и снимается
+ * после завершения всех ордеров на вход. Так параллельные сигналы
+ * в одном цикле видят входы друг друга до исполнения.
+ *
+ * Сверка не применяется, если во время чтения из БД позиции открывались
+ * или закрывались - результат БД мог их не увидеть; сверка повторится
+ * в следующем цикле.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RiskBook {
+
+    private final PositionRepository positionRepository;
+    private final MarketDataService marketDataService;
+
+    private static final double DRIFT_TOLERANCE = 0.01;
+
+    /**
+     * Резерв, не снятый за это время, считается потерянным и снимается при сверке
+     */
+    private static final long RESERVATION_TIMEOUT_MS = 5 * 60_000L;
+
+    /**
+     * Открытые позиции по торговым парам: изменяются под монитором книги,
+     * тики цены читают без блокировки
+     */
+    private final Map<String, PositionRisk> positions = new ConcurrentHashMap<>();
+
+    /**
+     * Цена оценки изменилась после последней публикации среза
+     */
+    private final AtomicBoolean marksChanged = new AtomicBoolean();
+
+    /**
+     * Зарезервированные входы по торговым парам (под монитором книги)
+     */
+    private final Map<String, PositionRisk> reservations = new HashMap<>();
+
+    private double realizedPnlToday;
+    private int consecutiveLosses;
+    private LocalDate tradingDay = LocalDate.MIN;
+
+    /**
+     * Счетчик открытий и закрытий (тики цены не учитываются)
+     */
+    private long structureVersion;
+
+    private volatile RiskSnapshot snapshot = RiskSnapshot.EMPTY;
+
+    @PostConstruct
+    public void init() {
+        reconcile();
+        marketDataService.subscribeBookChanges(this::onBookChanged);
+    }
+
+    /**
+     * Текущий срез риск-состояния (без блокировок)
+     */
+    public RiskSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Зарезервировать вход до отправки ордера
+     *
+     * @param tradingPair торговая пара
+     * @param side сторона входа
+     * @param entryValue ожидаемая стоимость входа (USDT)
+     * @return false, если по паре уже есть позиция или резерв
+     */
+    public synchronized boolean reserve(String tradingPair, OrderSide side, double entryValue) {
+        if (positions.containsKey(tradingPair) || reservations.containsKey(tradingPair)) {
+            return false;
+        }
+
+        reservations.put(tradingPair, PositionRisk.reserved(tradingPair, side, entryValue));
+        publish();
+        return true;
+    }
+
+    /**
+     * Снять резерв после завершения ордеров на вход (исполненная часть уже учтена как позиция)
+     *
+     * @param tradingPair торговая пара
+     */
+    public synchronized void release(String tradingPair) {
+        if (reservations.remove(tradingPair) != null) {
+            publish();
+        }
+    }
+
+    /**
+     * Позиция открыта или изменена (исполнение, увеличение, частичное закрытие)
+     *
+     * @param position позиция после изменения
+     */
+    public synchronized void onPositionChanged(Position position) {
+        if (!Boolean.TRUE.equals(position.getIsActive())) {
+            onPositionClosed(position);
+            return;
+        }
+
+        rollDay();
+        PositionRisk previous = positions.get(position.getTradingPair());
+        PositionRisk current = PositionRisk.from(position);
+
+        double previousRealized = previous != null ? previous.realizedPnl : 0;
+        realizedPnlToday += current.realizedPnl - previousRealized;
+        if (previous != null && previous.currentPrice > 0) {
+            // Тики из стакана свежее цены, сохраненной в позиции
+            current.currentPrice = previous.currentPrice;
+        }
+
+        positions.put(position.getTradingPair(), current);
+        structureVersion++;
+        publish();
+    }
+
+    /**
+     * Позиция закрыта полностью
+     *
+     * @param position закрытая позиция с итоговым реализованным P&L
+     */
+    public synchronized void onPositionClosed(Position position) {
+        rollDay();
+        PositionRisk previous = positions.remove(position.getTradingPair());
+
+        double realized = toDouble(position.getRealizedPnl());
+        double previousRealized = previous != null ? previous.realizedPnl : 0;
+        realizedPnlToday += realized - previousRealized;
+        consecutiveLosses = realized < 0 ? consecutiveLosses + 1 : 0;
+
+        structureVersion++;
+        publish();
+    }
+
+    /**
+     * Новая рыночная цена по паре
+     *
+     * @param tradingPair торговая пара
+     * @param price цена оценки позиции
+     */
+    public void onPriceTick(String tradingPair, double price) {
+        if (price <= 0) {
+            return;
+        }
+
+        PositionRisk position = positions.get(tradingPair);
+        if (position == null || position.currentPrice == price) {
+            return;
+        }
+        position.currentPrice = price;
+        marksChanged.set(true);
+    }
+
+    /**
+     * Опубликовать срез с новыми ценами оценки, если были тики
+     */
+    @Scheduled(fixedDelayString = "${risk.book.mark-publish-interval-ms:250}")
+    public void publishMarks() {
+        if (marksChanged.getAndSet(false)) {
+            synchronized (this) {
+                publish();
+            }
+        }
+    }
+
+    /**
+     * Лучшие цены стакана: длинная позиция оценивается по bid, короткая - по ask
+     */
+    private void onBookChanged(String tradingPair, long bidPrice, long askPrice) {
+        OrderSide side = snapshot.getOpenPairs().get(tradingPair);
+        if (side == null) {
+            return;
+        }
+        onPriceTick(tradingPair, FixedPointUtils.toDouble(side == OrderSide.BUY ? bidPrice : askPrice));
+    }
+
+    /**
+     * Сбросить дневной реализованный P&L
+     */
+    public synchronized void resetDaily() {
+        realizedPnlToday = 0;
+        tradingDay = DateUtils.nowMoscow().toLocalDate();
+        publish();
+    }
+
+    /**
+     * Сверка с БД
+     */
+    @Scheduled(fixedRateString = "${risk.book.reconcile-interval-seconds:60}000",
+            initialDelayString = "${risk.book.reconcile-interval-seconds:60}000")
+    public void reconcile() {
+        try {
+            long startVersion;
+            synchronized (this) {
+                startVersion = structureVersion;
+            }
+
+            LocalDateTime now = DateUtils.nowMoscow();
+            LocalDateTime dayStart = now.toLocalDate().atStartOfDay();
+            List<Position> active = positionRepository.findByIsActiveTrueOrderByOpenedAtDesc();
+            List<Position> closed = positionRepository.findClosedSince(now.minusHours(24));
+
+            Map<String, PositionRisk> loaded = new HashMap<>();
+            double realized = 0;
+            for (Position position : active) {
+                PositionRisk risk = PositionRisk.from(position);
+                loaded.put(position.getTradingPair(), risk);
+                realized += risk.realizedPnl;
+            }
+
+            int losses = 0;
+            boolean streak = true;
+            for (Position position : closed) {
+                double pnl = toDouble(position.getRealizedPnl());
+                if (position.getClosedAt() != null && !position.getClosedAt().isBefore(dayStart)) {
+                    realized += pnl;
+                }
+                if (streak && pnl < 0) {
+                    losses++;
+                } else {
+                    streak = false;
+                }
+            }
+
+            synchronized (this) {
+                if (structureVersion != startVersion) {
+                    log.debug("Positions changed during reconciliation, retrying next cycle");
+                    return;
+                }
+
+                if (loaded.size() != positions.size() || Math.abs(realized - realizedPnlToday) > DRIFT_TOLERANCE) {
+                    log.warn("Risk book drift: positions {} -> {}, realized P&L {} -> {}",
+                            positions.size(), loaded.size(), realizedPnlToday, realized);
+                }
+
+                for (Map.Entry<String, PositionRisk> entry : loaded.entrySet()) {
+                    PositionRisk previous = positions.get(entry.getKey());
+                    if (previous != null && previous.currentPrice > 0) {
+                        entry.getValue().currentPrice = previous.currentPrice;
+                    }
+                }
+
+                long expiredBefore = System.currentTimeMillis() - RESERVATION_TIMEOUT_MS;
+                reservations.values().removeIf(reservation -> {
+                    if (reservation.reservedAtMillis < expiredBefore) {
+                        log.warn("Dropping stale entry reservation for {}", reservation.tradingPair);
+                        return true;
+                    }
+                    return false;
+                });
+
+                positions.clear();
+                positions.putAll(loaded);
+                realizedPnlToday = realized;
+                consecutiveLosses = losses;
+                tradingDay = now.toLocalDate();
+                publish();
+            }
+
+        } catch (Exception e) {
+            log.error("Failed to reconcile risk book: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Переход на новый торговый день
+     */
+    private void rollDay() {
+        LocalDate today = DateUtils.nowMoscow().toLocalDate();
+        if (!today.equals(tradingDay)) {
+            realizedPnlToday = 0;
+            tradingDay = today;
+        }
+    }
+
+    /**
+     * Опубликовать новый срез (под монитором книги)
+     */
+    private void publish() {
+        marksChanged.set(false);
+
+        Map<String, OrderSide> openPairs = new HashMap<>((positions.size() + reservations.size()) * 2);
+        Map<TradingPairType, Double> exposureByPairType = new EnumMap<>(TradingPairType.class);
+        Map<TradingPairType, Integer> positionsByPairType = new EnumMap<>(TradingPairType.class);
+        double longExposure = 0;
+        double shortExposure = 0;
+        double unrealizedPnl = 0;
+
+        for (PositionRisk position : positions.values()) {
+            openPairs.put(position.tradingPair, position.side);
+            if (position.side == OrderSide.BUY) {
+                longExposure += position.entryValue;
+            } else {
+                shortExposure += position.entryValue;
+            }
+            if (position.pairType != null) {
+                exposureByPairType.merge(position.pairType, position.entryValue, Double::sum);
+                positionsByPairType.merge(position.pairType, 1, Integer::sum);
+            }
+            unrealizedPnl += position.unrealizedPnl();
+        }
+
+        // Резерв по паре с исполненной позицией уже учтен позицией
+        for (PositionRisk reservation : reservations.values()) {
+            if (openPairs.putIfAbsent(reservation.tradingPair, reservation.side) != null) {
+                continue;
+            }
+            if (reservation.side == OrderSide.BUY) {
+                longExposure += reservation.entryValue;
+            } else {
+                shortExposure += reservation.entryValue;
+            }
+            if (reservation.pairType != null) {
+                exposureByPairType.merge(reservation.pairType, reservation.entryValue, Double::sum);
+                positionsByPairType.merge(reservation.pairType, 1, Integer::sum);
+            }
+        }
+
+        snapshot = new RiskSnapshot(openPairs, openPairs.size(), longExposure, shortExposure,
+                exposureByPairType, positionsByPairType, realizedPnlToday, unrealizedPnl,
+                consecutiveLosses, tradingDay, System.currentTimeMillis());
+    }
+
+    private static double toDouble(BigDecimal value) {
+        return value != null ? value.doubleValue() : 0;
+    }
+
+    /**
+     * Риск-параметры открытой позиции
+     */
+    private static final class PositionRisk {
+        private String tradingPair;
+        private OrderSide side;
+        private TradingPairType pairType;
+        private double size;
+        private double entryPrice;
+        private double entryValue;
+        private volatile double currentPrice;
+        private double realizedPnl;
+        private double storedUnrealizedPnl;
+        private long reservedAtMillis;
+
+        static PositionRisk from(Position position) {
+            PositionRisk risk = new PositionRisk();
+            risk.tradingPair = position.getTradingPair();
+            risk.side = position.getSide();
+            risk.pairType = position.getPairType();
+            risk.size = toDouble(position.getSize());
+            risk.entryPrice = toDouble(position.getEntryPrice());
+            risk.entryValue = toDouble(position.getEntryValue());
+            risk.currentPrice = toDouble(position.getCurrentPrice());
+            risk.realizedPnl = toDouble(position.getRealizedPnl());
+            risk.storedUnrealizedPnl = toDouble(position.getUnrealizedPnl());
+            return risk;
+        }
+
+        static PositionRisk reserved(String tradingPair, OrderSide side, double entryValue) {
+            PositionRisk risk = new PositionRisk();
+            risk.tradingPair = tradingPair;
+            risk.side = side;
+            risk.pairType = TradingPairType.fromPairName(tradingPair);
+            risk.entryValue = entryValue;
+            risk.reservedAtMillis = System.currentTimeMillis();
+            return risk;
+        }
+
+        double unrealizedPnl() {
+            if (currentPrice <= 0 || entryPrice <= 0) {
+                return storedUnrealizedPnl;
+            }
+            double priceDiff = currentPrice - entryPrice;
+            return size * (side == OrderSide.BUY ? priceDiff : -priceDiff);
+        }
+    }
+}
@@ -3,12 +3,12 @@ package com.example.scalpingBot.service.risk;
 import com.example.scalpingBot.config.RiskManagementConfig;
 import com.example.scalpingBot.entity.Position;
 import com.example.scalpingBot.entity.RiskEvent;
-import com.example.scalpingBot.entity.Trade;
 import com.example.scalpingBot.enums.RiskLevel;
 import com.example.scalpingBot.exception.RiskManagementException;
 import com.example.scalpingBot.repository.PositionRepository;
 import com.example.scalpingBot.repository.RiskEventRepository;
-import com.example.scalpingBot.repository.TradeRepository;
+import com.example.scalpingBot.service.exchange.UserDataStreamService;
+import com.example.scalpingBot.service.trading.PositionBook;
 import com.example.scalpingBot.utils.DateUtils;
 import com.example.scalpingBot.utils.MathUtils;
 import lombok.RequiredArgsConstructor;
@@ -38,20 +38,29 @@ import java.util.stream.Collectors;
  * Система работает в реальном времени и может
  * автоматически закрывать позиции при превышении лимитов.
  *
+ * Пре-трейд проверки (isTradingAllowed, canOpenNewPosition, validateNewPosition)
+ * читают срез RiskBook в памяти и не обращаются к БД.
+ *
  * @author ScalpingBot Team
  * @version 1.0
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
-@Transactional
 public class RiskManager {
 
     private final RiskManagementConfig riskConfig;
     private final PositionRepository positionRepository;
-    private final TradeRepository tradeRepository;
     private final RiskEventRepository riskEventRepository;
     private final NotificationService notificationService;
+    private final RiskBook riskBook;
+    private final PositionBook positionBook;
+    private final UserDataStreamService userDataStreamService;
+
+    /**
+     * Максимальная доля баланса в открытых позициях
+     */
+    private static final double MAX_EXPOSURE_RATIO = 0.8;
 
     /**
      * Кеш для текущих риск-метрик
@@ -115,8 +124,10 @@ public class RiskManager {
                 return false;
             }
 
+            RiskSnapshot risk = riskBook.getSnapshot();
+
             // Проверяем количество позиций
-            long activePositions = positionRepository.countActivePositions();
+            int activePositions = risk.getOpenPositions();
             if (activePositions >= riskConfig.getMaxSimultaneousPositions()) {
                 log.debug("Position limit reached: {} of {} maximum",
                         activePositions, riskConfig.getMaxSimultaneousPositions());
@@ -124,10 +135,10 @@ public class RiskManager {
             }
 
             // Проверяем экспозицию портфеля
-            BigDecimal totalExposure = positionRepository.calculateTotalExposure();
-            BigDecimal maxExposure = getAvailableBalance().multiply(new BigDecimal("0.8")); // 80% максимум
+            double totalExposure = risk.getTotalExposure();
+            double maxExposure = getAccountEquity().doubleValue() * MAX_EXPOSURE_RATIO;
 
-            if (totalExposure.compareTo(maxExposure) >= 0) {
+            if (totalExposure >= maxExposure) {
                 log.debug("Portfolio exposure limit reached: {} of {} maximum", totalExposure, maxExposure);
                 return false;
             }
@@ -198,6 +209,7 @@ public class RiskManager {
      * Мониторинг рисков - выполняется каждые 5 секунд
      */
     @Scheduled(fixedRateString = "${scheduler.tasks.risk-monitoring.fixed-rate-seconds:5}000")
+    @Transactional
     public void monitorRisks() {
         if (!riskConfig.getEmergencyStop().getEnabled()) {
             return;
@@ -240,6 +252,8 @@ public class RiskManager {
      */
     private void updateRiskMetrics() {
         try {
+            RiskSnapshot risk = riskBook.getSnapshot();
+
             // Дневной P&L
             BigDecimal dailyPnl = calculateDailyPnL();
             riskMetricsCache.put("dailyPnl", dailyPnl);
@@ -249,15 +263,15 @@ public class RiskManager {
             riskMetricsCache.put("dailyPnlPercent", dailyPnlPercent);
 
             // Количество активных позиций
-            long activePositions = positionRepository.countActivePositions();
+            int activePositions = risk.getOpenPositions();
             riskMetricsCache.put("activePositions", new BigDecimal(activePositions));
 
             // Общая экспозиция
-            BigDecimal totalExposure = positionRepository.calculateTotalExposure();
+            BigDecimal totalExposure = toMoney(risk.getTotalExposure());
             riskMetricsCache.put("totalExposure", totalExposure);
 
             // Нереализованный P&L
-            BigDecimal unrealizedPnl = positionRepository.calculateTotalUnrealizedPnl();
+            BigDecimal unrealizedPnl = toMoney(risk.getUnrealizedPnl());
             riskMetricsCache.put("unrealizedPnl", unrealizedPnl);
 
             log.debug("Risk metrics updated: Daily P&L: {}%, Active positions: {}, Exposure: {}",
@@ -297,21 +311,8 @@ public class RiskManager {
      */
     private void checkConsecutiveLosses() {
         try {
-            List<Trade> recentTrades = tradeRepository.findTradesSince(DateUtils.nowMoscow().minusHours(24));
-
-            int consecutiveLosses = 0;
-            BigDecimal totalLoss = BigDecimal.ZERO;
-
-            // Подсчитываем последовательные убытки
-            for (int i = recentTrades.size() - 1; i >= 0; i--) {
-                Trade trade = recentTrades.get(i);
-                if (trade.isLoss()) {
-                    consecutiveLosses++;
-                    totalLoss = totalLoss.add(trade.getRealizedPnl().abs());
-                } else {
-                    break; // Прерываем серию
-                }
-            }
+            // Серия убытков по закрытым позициям ведется в RiskBook
+            int consecutiveLosses = riskBook.getSnapshot().getConsecutiveLosses();
 
             // Проверяем лимит
             if (consecutiveLosses >= riskConfig.getProtection().getMaxConsecutiveLosses()) {
@@ -365,7 +366,7 @@ public class RiskManager {
      */
     private void monitorPositionRisks() {
         try {
-            List<Position> activePositions = positionRepository.findByIsActiveTrueOrderByOpenedAtDesc();
+            List<Position> activePositions = positionBook.getActivePositions();
 
             for (Position position : activePositions) {
                 // Проверяем индивидуальные риски позиции
@@ -391,7 +392,7 @@ public class RiskManager {
      */
     private void checkCorrelationRisks() {
         try {
-            List<Position> activePositions = positionRepository.findByIsActiveTrueOrderByOpenedAtDesc();
+            List<Position> activePositions = positionBook.getActivePositions();
 
             if (activePositions.size() < 2) {
                 return; // Нужно минимум 2 позиции для корреляции
@@ -503,12 +504,13 @@ public class RiskManager {
      * @return true если лимит превышен
      */
     private boolean isDailyLossLimitExceeded() {
-        BigDecimal dailyPnlPercent = riskMetricsCache.get("dailyPnlPercent");
-        if (dailyPnlPercent == null) {
-            dailyPnlPercent = calculateDailyPnLPercent();
+        double balance = getAccountEquity().doubleValue();
+        if (balance <= 0) {
+            return false;
         }
 
-        return dailyPnlPercent.abs().compareTo(riskConfig.getMaxDailyLossPercent()) >= 0;
+        double dailyPnlPercent = riskBook.getSnapshot().getDailyPnl() / balance * 100.0;
+        return Math.abs(dailyPnlPercent) >= riskConfig.getMaxDailyLossPercent().doubleValue();
     }
 
     /**
@@ -517,10 +519,11 @@ public class RiskManager {
      * @return дневной P&L в USDT
      */
     public BigDecimal calculateDailyPnL() {
-        BigDecimal realizedPnl = tradeRepository.calculateDailyPnl();
-        BigDecimal unrealizedPnl = positionRepository.calculateTotalUnrealizedPnl();
+        return toMoney(riskBook.getSnapshot().getDailyPnl());
+    }
 
-        return realizedPnl.add(unrealizedPnl);
+    private static BigDecimal toMoney(double value) {
+        return BigDecimal.valueOf(value).setScale(2, BigDecimal.ROUND_HALF_UP);
     }
 
     /**
@@ -530,7 +533,7 @@ public class RiskManager {
      */
     public BigDecimal calculateDailyPnLPercent() {
         BigDecimal dailyPnl = calculateDailyPnL();
-        BigDecimal balance = getAvailableBalance();
+        BigDecimal balance = getAccountEquity();
 
         if (balance.compareTo(BigDecimal.ZERO) <= 0) {
             return BigDecimal.ZERO;
@@ -543,14 +546,54 @@ public class RiskManager {
     /**
      * Получить доступный баланс
      *
+     * Свободный баланс USDT берется из потока пользовательских данных
+     * (снимок счета и outboundAccountPosition); пока баланс неизвестен -
+     * фиксированное значение. Уменьшается при открытии позиций, поэтому
+     * используется только для проверки, хватит ли средств на ордер.
+     *
      * @return доступный баланс в USDT
      */
     public BigDecimal getAvailableBalance() {
-        // Здесь должна быть логика получения баланса от биржи
+        BigDecimal streamBalance = userDataStreamService.getFreeBalance("USDT");
+        if (streamBalance != null) {
+            return streamBalance;
+        }
+
         // Для демонстрации возвращаем фиксированное значение
         return new BigDecimal("10000"); // $10,000 для примера
     }
 
+    /**
+     * Получить капитал счета
+     *
+     * USDT на счете (свободные и в ордерах) плюс стоимость входа открытых
+     * длинных позиций: открытие позиции не меняет капитал, поэтому лимиты
+     * экспозиции, дневных потерь и размера позиции от него не сужаются.
+     *
+     * @return капитал в USDT
+     */
+    public BigDecimal getAccountEquity() {
+        UserDataStreamService.AssetBalance usdt = userDataStreamService.getBalance("USDT");
+        if (usdt == null) {
+            // Для демонстрации возвращаем фиксированное значение
+            return new BigDecimal("10000");
+        }
+
+        return usdt.getFree()
+                .add(usdt.getLocked())
+                .add(BigDecimal.valueOf(riskBook.getSnapshot().getLongExposure()));
+    }
+
+    /**
+     * Проверить, хватает ли свободного баланса на ордер
+     *
+     * @param orderValue стоимость ордера в USDT
+     * @return true если свободного баланса достаточно
+     */
+    public boolean canAffordOrder(BigDecimal orderValue) {
+        return orderValue.compareTo(getAvailableBalance()) <= 0;
+    }
+
     /**
      * Получить максимальный размер позиции в процентах
      *
@@ -650,7 +693,7 @@ public class RiskManager {
                     .affectedPositionsCount(affectedPositions)
                     .affectedPairs(affectedPairs != null ? String.join(",", affectedPairs) : null)
                     .portfolioExposure(portfolioExposure)
-                    .accountBalance(getAvailableBalance())
+                    .accountBalance(getAccountEquity())
                     .dailyPnl(riskMetricsCache.get("dailyPnl"))
                     .dailyPnlPercent(riskMetricsCache.get("dailyPnlPercent"))
                     .timestamp(DateUtils.nowMoscow())
@@ -711,6 +754,7 @@ public class RiskManager {
             // Очищаем кеш дневных метрик
             riskMetricsCache.remove("dailyPnl");
             riskMetricsCache.remove("dailyPnlPercent");
+            riskBook.resetDaily();
 
             // Сбрасываем уровень риска
             currentSystemRiskLevel = RiskLevel.MEDIUM;
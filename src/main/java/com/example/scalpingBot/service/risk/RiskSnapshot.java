@@ -0,0 +1,139 @@
+package com.example.scalpingBot.service.risk;
+
+import com.example.scalpingBot.enums.OrderSide;
+import com.example.scalpingBot.enums.TradingPairType;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Неизменяемый срез риск-состояния портфеля
+ *
+ * Публикуется RiskBook после каждого изменения. Читатели получают
+ * согласованные значения одним volatile-чтением, без блокировок и БД.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public final class RiskSnapshot {
+
+    static final RiskSnapshot EMPTY = new RiskSnapshot(Collections.emptyMap(), 0, 0, 0,
+            new EnumMap<>(TradingPairType.class), new EnumMap<>(TradingPairType.class),
+            0, 0, 0, LocalDate.MIN, 0);
+
+    /**
+     * Сторона открытой позиции по паре
+     */
+    private final Map<String, OrderSide> openPairs;
+    private final int openPositions;
+    private final double longExposure;
+    private final double shortExposure;
+    private final Map<TradingPairType, Double> exposureByPairType;
+    private final Map<TradingPairType, Integer> positionsByPairType;
+    private final double realizedPnlToday;
+    private final double unrealizedPnl;
+    private final int consecutiveLosses;
+    private final LocalDate tradingDay;
+    private final long updatedAtMillis;
+
+    RiskSnapshot(Map<String, OrderSide> openPairs, int openPositions, double longExposure, double shortExposure,
+                 Map<TradingPairType, Double> exposureByPairType, Map<TradingPairType, Integer> positionsByPairType,
+                 double realizedPnlToday, double unrealizedPnl, int consecutiveLosses,
+                 LocalDate tradingDay, long updatedAtMillis) {
+        this.openPairs = Collections.unmodifiableMap(openPairs);
+        this.openPositions = openPositions;
+        this.longExposure = longExposure;
+        this.shortExposure = shortExposure;
+        this.exposureByPairType = Collections.unmodifiableMap(exposureByPairType);
+        this.positionsByPairType = Collections.unmodifiableMap(positionsByPairType);
+        this.realizedPnlToday = realizedPnlToday;
+        this.unrealizedPnl = unrealizedPnl;
+        this.consecutiveLosses = consecutiveLosses;
+        this.tradingDay = tradingDay;
+        this.updatedAtMillis = updatedAtMillis;
+    }
+
+    public boolean hasPosition(String tradingPair) {
+        return openPairs.containsKey(tradingPair);
+    }
+
+    public Map<String, OrderSide> getOpenPairs() {
+        return openPairs;
+    }
+
+    public int getOpenPositions() {
+        return openPositions;
+    }
+
+    /**
+     * Экспозиция длинных позиций (стоимость входа, USDT)
+     */
+    public double getLongExposure() {
+        return longExposure;
+    }
+
+    /**
+     * Экспозиция коротких позиций (стоимость входа, USDT)
+     */
+    public double getShortExposure() {
+        return shortExposure;
+    }
+
+    /**
+     * Общая экспозиция, как PositionRepository.calculateTotalExposure()
+     */
+    public double getTotalExposure() {
+        return longExposure + shortExposure;
+    }
+
+    public double getExposure(TradingPairType pairType) {
+        return exposureByPairType.getOrDefault(pairType, 0.0);
+    }
+
+    public int getPositionCount(TradingPairType pairType) {
+        return positionsByPairType.getOrDefault(pairType, 0);
+    }
+
+    public Map<TradingPairType, Double> getExposureByPairType() {
+        return exposureByPairType;
+    }
+
+    public Map<TradingPairType, Integer> getPositionsByPairType() {
+        return positionsByPairType;
+    }
+
+    public double getRealizedPnlToday() {
+        return realizedPnlToday;
+    }
+
+    public double getUnrealizedPnl() {
+        return unrealizedPnl;
+    }
+
+    /**
+     * Дневной P&L: реализованный за день плюс нереализованный
+     */
+    public double getDailyPnl() {
+        return realizedPnlToday + unrealizedPnl;
+    }
+
+    public int getConsecutiveLosses() {
+        return consecutiveLosses;
+    }
+
+    public LocalDate getTradingDay() {
+        return tradingDay;
+    }
+
+    public long getUpdatedAtMillis() {
+        return updatedAtMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RiskSnapshot{positions=%d, long=%.2f, short=%.2f, realized=%.2f, unrealized=%.2f, losses=%d}",
+                openPositions, longExposure, shortExposure, realizedPnlToday, unrealizedPnl, consecutiveLosses);
+    }
+}
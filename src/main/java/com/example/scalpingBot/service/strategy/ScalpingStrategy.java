@@ -0,0 +1,200 @@
+package com.example.scalpingBot.service.strategy;
+
+import com.example.scalpingBot.config.TechnicalAnalysisConfig;
+import com.example.scalpingBot.config.TradingConfig;
+import com.example.scalpingBot.entity.MarketData;
+import com.example.scalpingBot.enums.OrderSide;
+import com.example.scalpingBot.utils.DateUtils;
+import com.example.scalpingBot.utils.MathUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Скальпинг-стратегия на основе технических индикаторов
+ *
+ * Основные функции:
+ * - Фильтр рыночных условий (спред, объем, волатильность)
+ * - Сила сигнала по RSI, EMA9, MACD и Bollinger Bands (MarketData)
+ *   с уровнями RSI из technical-analysis.indicators.rsi.*
+ * - Порог входа scalping.strategy.min-signal-strength
+ * - Уверенность по ликвидности, спреду и подтверждающим индикаторам
+ *
+ * Используется как в живой торговле, так и в бэктесте.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Component
+@RequiredArgsConstructor
+public class ScalpingStrategy implements TradingStrategy {
+
+    private final TradingConfig tradingConfig;
+    private final TechnicalAnalysisConfig technicalAnalysisConfig;
+
+    /**
+     * Константы стратегии
+     */
+    private static final BigDecimal MIN_VOLATILITY = new BigDecimal("0.5");
+    private static final BigDecimal MAX_VOLATILITY_TO_SPREAD = new BigDecimal("10");
+    private static final BigDecimal BASE_CONFIDENCE = new BigDecimal("0.5");
+    private static final BigDecimal HIGH_LIQUIDITY = new BigDecimal("80");
+    private static final BigDecimal LIQUIDITY_BONUS = new BigDecimal("0.2");
+    private static final BigDecimal LOW_SPREAD = new BigDecimal("0.05");
+    private static final BigDecimal SPREAD_BONUS = new BigDecimal("0.15");
+    private static final BigDecimal INDICATOR_BONUS = new BigDecimal("0.1");
+    private static final BigDecimal MACD_MIN_DIFF = new BigDecimal("0.1");
+    private static final BigDecimal HUNDRED = new BigDecimal("100");
+
+    @Override
+    public String getName() {
+        return "ScalpingStrategy";
+    }
+
+    /**
+     * Проверить, подходят ли рыночные условия для скальпинга
+     *
+     * @param marketData рыночные данные
+     * @return true если условия подходят
+     */
+    @Override
+    public boolean isMarketSuitable(MarketData marketData) {
+        // Проверяем базовые условия
+        if (!marketData.isSuitableForScalping()) {
+            return false;
+        }
+
+        TradingConfig.Strategy strategy = tradingConfig.getStrategy();
+
+        // Проверяем волатильность (не слишком высокая и не слишком низкая)
+        if (marketData.getAtrPercent() != null) {
+            BigDecimal maxVol = strategy.getMaxSpreadPercent().multiply(MAX_VOLATILITY_TO_SPREAD);
+
+            if (marketData.getAtrPercent().compareTo(MIN_VOLATILITY) < 0 ||
+                    marketData.getAtrPercent().compareTo(maxVol) > 0) {
+                return false;
+            }
+        }
+
+        // Проверяем спред
+        if (marketData.getSpreadPercent() != null &&
+                marketData.getSpreadPercent().compareTo(strategy.getMaxSpreadPercent()) > 0) {
+            return false;
+        }
+
+        // Проверяем объем
+        if (marketData.getVolume24h() != null &&
+                marketData.getVolume24h().compareTo(strategy.getMinimumVolumeUsdt()) < 0) {
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Генерировать торговый сигнал на основе технического анализа
+     *
+     * Время сигнала берется из рыночных данных, чтобы в бэктесте
+     * сигнал относился к моменту исторического события.
+     *
+     * @param marketData рыночные данные
+     * @return торговый сигнал
+     */
+    @Override
+    public TradingSignal generateSignal(MarketData marketData) {
+        BigDecimal bullishStrength = marketData.getBullishSignalStrength(rsiOversold());
+        BigDecimal bearishStrength = marketData.getBearishSignalStrength(rsiOverbought());
+
+        // Определяем общую силу сигнала
+        BigDecimal netStrength = bullishStrength.subtract(bearishStrength).divide(HUNDRED);
+
+        // Определяем направление
+        OrderSide side = netStrength.compareTo(BigDecimal.ZERO) > 0 ? OrderSide.BUY : OrderSide.SELL;
+
+        // Определяем уровень уверенности
+        BigDecimal confidence = calculateSignalConfidence(marketData);
+
+        return TradingSignal.builder()
+                .side(side)
+                .strength(netStrength.abs())
+                .confidence(confidence)
+                .timestamp(marketData.getTimestamp() != null ? marketData.getTimestamp() : DateUtils.nowMoscow())
+                .build();
+    }
+
+    @Override
+    public boolean isEntrySignal(TradingSignal signal) {
+        return signal.getStrength().abs().compareTo(tradingConfig.getStrategy().getMinSignalStrength()) >= 0;
+    }
+
+    /**
+     * Рассчитать уровень уверенности в сигнале
+     *
+     * @param marketData рыночные данные
+     * @return уровень уверенности (0-1)
+     */
+    private BigDecimal calculateSignalConfidence(MarketData marketData) {
+        BigDecimal confidence = BASE_CONFIDENCE; // Базовый уровень
+
+        // Увеличиваем уверенность при хорошей ликвидности
+        if (marketData.getLiquidityIndex() != null &&
+                marketData.getLiquidityIndex().compareTo(HIGH_LIQUIDITY) >= 0) {
+            confidence = confidence.add(LIQUIDITY_BONUS);
+        }
+
+        // Увеличиваем при низком спреде
+        if (marketData.getSpreadPercent() != null &&
+                marketData.getSpreadPercent().compareTo(LOW_SPREAD) <= 0) {
+            confidence = confidence.add(SPREAD_BONUS);
+        }
+
+        // Увеличиваем при подтверждении нескольких индикаторов
+        int confirmingIndicators = countConfirmingIndicators(marketData);
+        confidence = confidence.add(INDICATOR_BONUS.multiply(BigDecimal.valueOf(confirmingIndicators)));
+
+        return MathUtils.clamp(confidence, BigDecimal.ZERO, BigDecimal.ONE);
+    }
+
+    /**
+     * Подсчитать количество подтверждающих индикаторов
+     *
+     * @param marketData рыночные данные
+     * @return количество подтверждающих индикаторов
+     */
+    private int countConfirmingIndicators(MarketData marketData) {
+        int count = 0;
+
+        // RSI
+        if (marketData.getRsi() != null) {
+            if (marketData.getRsi().compareTo(rsiOversold()) <= 0 ||
+                    marketData.getRsi().compareTo(rsiOverbought()) >= 0) {
+                count++;
+            }
+        }
+
+        // MACD
+        if (marketData.getMacdLine() != null && marketData.getMacdSignal() != null) {
+            // Проверяем пересечение MACD
+            BigDecimal macdDiff = marketData.getMacdLine().subtract(marketData.getMacdSignal());
+            if (macdDiff.abs().compareTo(MACD_MIN_DIFF) >= 0) {
+                count++;
+            }
+        }
+
+        // Bollinger Bands
+        if (marketData.isBollingerBreakout()) {
+            count++;
+        }
+
+        return count;
+    }
+
+    private BigDecimal rsiOversold() {
+        return BigDecimal.valueOf(technicalAnalysisConfig.getIndicators().getRsi().getOversold());
+    }
+
+    private BigDecimal rsiOverbought() {
+        return BigDecimal.valueOf(technicalAnalysisConfig.getIndicators().getRsi().getOverbought());
+    }
+}
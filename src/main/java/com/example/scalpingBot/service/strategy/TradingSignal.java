@@ -0,0 +1,39 @@
+package com.example.scalpingBot.service.strategy;
+
+import com.example.scalpingBot.enums.OrderSide;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Торговый сигнал стратегии
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Data
+@Builder
+public class TradingSignal {
+
+    /**
+     * Направление сделки
+     */
+    private OrderSide side;
+
+    /**
+     * Сила сигнала (0-1)
+     */
+    private BigDecimal strength;
+
+    /**
+     * Уверенность в сигнале (0-1)
+     */
+    private BigDecimal confidence;
+
+    /**
+     * Время генерации сигнала
+     */
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,46 @@
+package com.example.scalpingBot.service.strategy;
+
+import com.example.scalpingBot.entity.MarketData;
+
+/**
+ * Торговая стратегия: оценка рынка и генерация сигналов
+ *
+ * Реализация не должна зависеть от источника данных, поэтому одна и та же
+ * стратегия используется в живой торговле (TradingService) и в бэктесте
+ * (BacktestEngine). Методы вызываются на горячем пути и не должны
+ * обращаться к сети или БД.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public interface TradingStrategy {
+
+    /**
+     * Название стратегии (сохраняется в Trade.strategyName)
+     */
+    String getName();
+
+    /**
+     * Проверить, подходят ли рыночные условия для входа
+     *
+     * @param marketData рыночные данные
+     * @return true если условия подходят
+     */
+    boolean isMarketSuitable(MarketData marketData);
+
+    /**
+     * Сгенерировать торговый сигнал
+     *
+     * @param marketData рыночные данные
+     * @return торговый сигнал
+     */
+    TradingSignal generateSignal(MarketData marketData);
+
+    /**
+     * Достаточно ли силен сигнал для открытия позиции
+     *
+     * @param signal торговый сигнал
+     * @return true если нужно открывать позицию
+     */
+    boolean isEntrySignal(TradingSignal signal);
+}
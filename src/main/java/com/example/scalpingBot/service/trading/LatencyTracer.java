@@ -0,0 +1,144 @@
+package com.example.scalpingBot.service.trading;
+
+import com.example.scalpingBot.entity.Trade;
+import com.example.scalpingBot.repository.TradeRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сквозная трассировка задержки от сигнала до исполнения
+ *
+ * Основные функции:
+ * - Создание трассировки при сигнале на вход и привязка к сделке
+ * - Отметки этапов из сервисов исполнения по идентификатору сделки
+ * - Таймеры по этапам с гистограммами перцентилей (Prometheus),
+ *   теги: pair, exchange, stage
+ * - Сохранение разбивки по этапам в сделке для разбора медленных исполнений
+ *
+ * Отметки из сервисов без привязанной трассировки (закрытие позиций,
+ * повторные попытки) игнорируются.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LatencyTracer {
+
+    private final MeterRegistry meterRegistry;
+    private final TradeRepository tradeRepository;
+
+    @Value("${monitoring.latency.slow-threshold-ms:500}")
+    private long slowThresholdMs;
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    /**
+     * Трассировки размещенных, но еще не завершенных сделок
+     */
+    private final Map<Long, TradeLatencyTrace> activeTraces = new ConcurrentHashMap<>();
+
+    /**
+     * Начать трассировку сделки
+     *
+     * @param tradingPair торговая пара
+     * @param exchangeName биржа
+     * @param startNanos момент запуска анализа (System.nanoTime())
+     * @return трассировка
+     */
+    public TradeLatencyTrace start(String tradingPair, String exchangeName, long startNanos) {
+        return new TradeLatencyTrace(tradingPair, exchangeName, startNanos);
+    }
+
+    /**
+     * Привязать трассировку к сохраненной сделке
+     *
+     * @param trade сделка с идентификатором
+     * @param trace трассировка
+     */
+    public void attach(Trade trade, TradeLatencyTrace trace) {
+        if (trade.getId() != null) {
+            activeTraces.put(trade.getId(), trace);
+        }
+    }
+
+    /**
+     * Отметить окончание этапа сделки
+     *
+     * @param trade сделка
+     * @param stage завершенный этап
+     */
+    public void mark(Trade trade, TradeLatencyTrace.Stage stage) {
+        if (trade.getId() == null) {
+            return;
+        }
+        TradeLatencyTrace trace = activeTraces.get(trade.getId());
+        if (trace != null) {
+            trace.mark(stage);
+        }
+    }
+
+    /**
+     * Завершить трассировку: опубликовать метрики и сохранить разбивку в сделке
+     *
+     * Разбивка записывается и в переданный объект сделки, чтобы последующие
+     * сохранения этого экземпляра не затерли ее.
+     *
+     * @param trade сделка
+     * @param trace трассировка
+     * @param outcome итог (статус ордера или ERROR)
+     */
+    public void complete(Trade trade, TradeLatencyTrace trace, String outcome) {
+        Long tradeId = trade.getId();
+        if (tradeId != null) {
+            activeTraces.remove(tradeId);
+        }
+
+        String breakdown = trace.toJson();
+        long totalMicros = TimeUnit.NANOSECONDS.toMicros(trace.getTotalNanos());
+        trade.setLatencyBreakdown(breakdown);
+        trade.setSignalToFillMicros(totalMicros);
+
+        try {
+            for (TradeLatencyTrace.Stage stage : TradeLatencyTrace.Stage.values()) {
+                if (trace.isMarked(stage)) {
+                    timer("trading.latency.stage", trace, "stage", stage.name())
+                            .record(trace.getStageNanos(stage), TimeUnit.NANOSECONDS);
+                }
+            }
+            timer("trading.latency.total", trace, "outcome", outcome)
+                    .record(trace.getTotalNanos(), TimeUnit.NANOSECONDS);
+
+            if (tradeId != null) {
+                tradeRepository.updateLatencyBreakdown(tradeId, breakdown, totalMicros);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to record latency for trade {}: {}", tradeId, e.getMessage());
+        }
+
+        if (TimeUnit.NANOSECONDS.toMillis(trace.getTotalNanos()) >= slowThresholdMs) {
+            log.warn("Slow signal-to-fill for trade {} ({}): {}", tradeId, outcome, trace);
+        } else {
+            log.debug("Signal-to-fill for trade {} ({}): {}", tradeId, outcome, trace);
+        }
+    }
+
+    private Timer timer(String name, TradeLatencyTrace trace, String tagKey, String tagValue) {
+        return Timer.builder(name)
+                .tag("pair", trace.getTradingPair())
+                .tag("exchange", trace.getExchangeName())
+                .tag(tagKey, tagValue)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
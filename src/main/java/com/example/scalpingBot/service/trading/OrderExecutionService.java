@@ -6,20 +6,29 @@ import com.example.scalpingBot.enums.OrderType;
 import com.example.scalpingBot.exception.ExchangeApiException;
 import com.example.scalpingBot.exception.TradingException;
 import com.example.scalpingBot.repository.TradeRepository;
+import com.example.scalpingBot.service.exchange.BybitStreamService;
 import com.example.scalpingBot.service.exchange.ExchangeApiService;
+import com.example.scalpingBot.service.exchange.ExchangeRateLimiter;
+import com.example.scalpingBot.service.exchange.ExchangeResponses;
+import com.example.scalpingBot.service.exchange.UserDataStreamService;
 import com.example.scalpingBot.utils.DateUtils;
+import com.example.scalpingBot.utils.FixedPointUtils;
 import com.example.scalpingBot.utils.ValidationUtils;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -27,7 +36,9 @@ import java.util.concurrent.ConcurrentHashMap;
  *
  * Основные функции:
  * - Размещение ордеров на биржах (Binance, Bybit)
- * - Мониторинг статуса исполнения в реальном времени
+ * - Мониторинг статуса исполнения в реальном времени по потоку
+ *   пользовательских данных (executionReport), REST опрос - только
+ *   сверка после переподключения или при отключенном потоке
  * - Автоматическая отмена просроченных ордеров
  * - Retry логика для обработки временных сбоев
  * - Расчет slippage и комиссий
@@ -48,6 +59,10 @@ public class OrderExecutionService {
     private final TradeRepository tradeRepository;
     private final ExchangeApiService exchangeApiService;
     private final NotificationService notificationService;
+    private final LatencyTracer latencyTracer;
+    private final OrderRouter orderRouter;
+    private final UserDataStreamService userDataStreamService;
+    private final BybitStreamService bybitStreamService;
 
     /**
      * Кеш активных ордеров для быстрого мониторинга
@@ -59,6 +74,25 @@ public class OrderExecutionService {
      */
     private final Map<Long, Integer> retryCounters = new ConcurrentHashMap<>();
 
+    /**
+     * Отчеты потока по ордерам, еще не зарегистрированным в кеше
+     * (событие пришло раньше ответа REST на размещение)
+     */
+    private final Map<String, UserDataStreamService.ExecutionReport> earlyReports = new ConcurrentHashMap<>();
+
+    /**
+     * Ожидания окончательного статуса ордеров, принятых биржей без исполнения
+     * (Bybit отвечает на размещение только подтверждением)
+     */
+    private final Map<String, CompletableFuture<Trade>> completions = new ConcurrentHashMap<>();
+
+    /**
+     * Сессия потока пользовательских данных, после подключения которой
+     * активные ордера сверены через REST
+     */
+    private volatile long reconciledStreamEpoch = 0;
+    private volatile long reconciledBybitStreamEpoch = 0;
+
     /**
      * Константы для исполнения ордеров
      */
@@ -66,14 +100,32 @@ public class OrderExecutionService {
     private static final int RETRY_DELAY_MS = 1000;
     private static final int ORDER_TIMEOUT_SECONDS = 30;
     private static final BigDecimal MAX_SLIPPAGE_PERCENT = new BigDecimal("0.5");
+    private static final long EARLY_REPORT_TTL_MS = 60000;
+
+    /**
+     * Подписка на отчеты об исполнении из потока пользовательских данных
+     */
+    @PostConstruct
+    public void init() {
+        userDataStreamService.subscribeExecutionReports(this::onExecutionReport);
+        bybitStreamService.subscribeExecutionReports(this::onExecutionReport);
+    }
 
     /**
      * Исполнить ордер асинхронно
      *
+     * Запрос к бирже неблокирующий: поток вызывающего освобождается сразу
+     * после отправки, ответ обрабатывается в пуле для блокирующих операций
+     * (сохранение в БД), поэтому число ордеров в полете не ограничено
+     * размером пулов потоков.
+     *
+     * Результат завершается окончательным статусом ордера: если биржа
+     * ответила только подтверждением приема, исполнение приходит отчетом
+     * потока, сверкой REST или отменой по таймауту.
+     *
      * @param trade торговая операция для исполнения
-     * @return CompletableFuture с результатом исполнения
+     * @return CompletableFuture с завершенным ордером
      */
-    @Async
     @Retryable(value = {ExchangeApiException.class}, maxAttempts = MAX_RETRY_ATTEMPTS,
             backoff = @Backoff(delay = RETRY_DELAY_MS))
     public CompletableFuture<Trade> executeOrder(Trade trade) {
@@ -87,15 +139,22 @@ public class OrderExecutionService {
 
             // Обновляем статус на "отправлен"
             updateOrderStatus(trade, OrderStatus.SUBMITTED);
-
-            // Добавляем в кеш для мониторинга
-            activeOrdersCache.put(trade.getExchangeOrderId(), trade);
-
-            // Исполняем ордер на бирже
-            Trade executedTrade = executeOrderOnExchange(trade);
-
-            // Обрабатываем результат исполнения
-            return CompletableFuture.completedFuture(processExecutionResult(executedTrade));
+            latencyTracer.mark(trade, TradeLatencyTrace.Stage.DISPATCH);
+
+            // Исполняем ордер на бирже и обрабатываем результат
+            return executeOrderOnExchange(trade)
+                    .thenApply(this::processExecutionResult)
+                    .thenCompose(this::awaitCompletion)
+                    .thenApply(completedTrade -> {
+                        latencyTracer.mark(completedTrade, TradeLatencyTrace.Stage.FILL);
+                        return completedTrade;
+                    })
+                    .exceptionallyCompose(error -> {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        log.error("Failed to execute order {}: {}", trade.getId(), cause.getMessage());
+                        return handleOrderExecutionError(trade, cause);
+                    });
 
         } catch (Exception e) {
             log.error("Failed to execute order {}: {}", trade.getId(), e.getMessage());
@@ -142,61 +201,74 @@ public class OrderExecutionService {
      * Исполнить ордер на бирже
      *
      * @param trade торговая операция
-     * @return обновленная торговая операция
-     * @throws ExchangeApiException если ошибка API биржи
+     * @return обновленная торговая операция; ошибки API - ExchangeApiException
      */
-    private Trade executeOrderOnExchange(Trade trade) throws ExchangeApiException {
-        try {
-            Map<String, Object> orderParams = buildOrderParameters(trade);
-            Map<String, Object> result;
-
-            // Размещаем ордер в зависимости от типа
-            switch (trade.getOrderType()) {
-                case MARKET:
-                    result = exchangeApiService.placeMarketOrder(
-                            trade.getTradingPair(),
-                            trade.getOrderSide().getCode(),
-                            trade.getQuantity(),
-                            trade.getExchangeName()
-                    );
-                    break;
-
-                case LIMIT:
-                    result = exchangeApiService.placeLimitOrder(
-                            trade.getTradingPair(),
-                            trade.getOrderSide().getCode(),
-                            trade.getQuantity(),
-                            trade.getPrice(),
-                            trade.getExchangeName()
-                    );
-                    break;
-
-                case STOP_LOSS:
-                    result = exchangeApiService.placeStopOrder(
-                            trade.getTradingPair(),
-                            trade.getOrderSide().getCode(),
-                            trade.getQuantity(),
-                            trade.getStopLossPrice(),
-                            trade.getExchangeName()
-                    );
-                    break;
-
-                default:
-                    throw new TradingException(TradingException.TradingErrorType.INVALID_POSITION_SIZE,
-                            "Unsupported order type: " + trade.getOrderType());
-            }
+    private CompletableFuture<Trade> executeOrderOnExchange(Trade trade) {
+        Map<String, Object> orderParams = buildOrderParameters(trade);
+        Mono<ExchangeResponses.OrderResponse> request;
+
+        // Закрытие позиции получает бюджет rate limit раньше новых входов
+        ExchangeRateLimiter.Priority priority = trade.getCloseReason() != null
+                ? ExchangeRateLimiter.Priority.PROTECTIVE
+                : ExchangeRateLimiter.Priority.ENTRY;
+
+        // Размещаем ордер в зависимости от типа
+        switch (trade.getOrderType()) {
+            case MARKET:
+                request = exchangeApiService.placeMarketOrderAsync(
+                        trade.getTradingPair(),
+                        trade.getOrderSide().getCode(),
+                        trade.getQuantity(),
+                        trade.getExchangeName(),
+                        priority
+                );
+                break;
 
-            // Обновляем торговую операцию данными от биржи
-            return updateTradeFromExchangeResponse(trade, result);
+            case LIMIT:
+                request = exchangeApiService.placeLimitOrderAsync(
+                        trade.getTradingPair(),
+                        trade.getOrderSide().getCode(),
+                        trade.getQuantity(),
+                        trade.getPrice(),
+                        trade.getExchangeName(),
+                        priority
+                );
+                break;
 
-        } catch (ExchangeApiException e) {
-            log.error("Exchange API error for order {}: {}", trade.getId(), e.getMessage());
-            throw e;
-        } catch (Exception e) {
-            log.error("Unexpected error executing order {}: {}", trade.getId(), e.getMessage());
-            throw new ExchangeApiException("binance", ExchangeApiException.ApiErrorType.UNKNOWN_ERROR,
-                    "Unexpected execution error: " + e.getMessage(), e);
+            case STOP_LOSS:
+                request = exchangeApiService.placeStopOrderAsync(
+                        trade.getTradingPair(),
+                        trade.getOrderSide().getCode(),
+                        trade.getQuantity(),
+                        trade.getStopLossPrice(),
+                        trade.getExchangeName()
+                );
+                break;
+
+            default:
+                throw new TradingException(TradingException.TradingErrorType.INVALID_POSITION_SIZE,
+                        "Unsupported order type: " + trade.getOrderType());
         }
+
+        long sentAtNanos = System.nanoTime();
+
+        return request
+                .doOnNext(result -> {
+                    latencyTracer.mark(trade, TradeLatencyTrace.Stage.EXCHANGE);
+                    orderRouter.recordFillLatency(trade.getExchangeName(), System.nanoTime() - sentAtNanos);
+                })
+                // Дальше сохранение в БД - уходим с event loop
+                .publishOn(Schedulers.boundedElastic())
+                // Обновляем торговую операцию данными от биржи
+                .map(result -> updateTradeFromExchangeResponse(trade, result))
+                .onErrorMap(e -> !(e instanceof ExchangeApiException), e -> {
+                    log.error("Unexpected error executing order {}: {}", trade.getId(), e.getMessage());
+                    return new ExchangeApiException(trade.getExchangeName(), ExchangeApiException.ApiErrorType.UNKNOWN_ERROR,
+                            "Unexpected execution error: " + e.getMessage(), e);
+                })
+                .doOnError(ExchangeApiException.class, e ->
+                        log.error("Exchange API error for order {}: {}", trade.getId(), e.getMessage()))
+                .toFuture();
     }
 
     /**
@@ -244,32 +316,28 @@ public class OrderExecutionService {
      * @param exchangeResponse ответ биржи
      * @return обновленная торговая операция
      */
-    private Trade updateTradeFromExchangeResponse(Trade trade, Map<String, Object> exchangeResponse) {
+    private Trade updateTradeFromExchangeResponse(Trade trade, ExchangeResponses.OrderResponse exchangeResponse) {
         try {
             // Обновляем основные поля
-            trade.setExchangeOrderId(exchangeResponse.get("orderId").toString());
-            trade.setExchangeTimestamp((Long) exchangeResponse.get("transactTime"));
+            trade.setExchangeOrderId(exchangeResponse.getOrderId());
+            if (exchangeResponse.getLastEventTime() > 0) {
+                trade.setExchangeTimestamp(exchangeResponse.getLastEventTime());
+            }
 
             // Обновляем статус
-            String exchangeStatus = exchangeResponse.get("status").toString();
-            OrderStatus newStatus = mapExchangeStatusToOrderStatus(exchangeStatus);
+            OrderStatus newStatus = mapExchangeStatusToOrderStatus(exchangeResponse.getStatus());
             trade.setStatus(newStatus);
 
-            // Обновляем исполненные данные
-            if (exchangeResponse.containsKey("executedQty")) {
-                BigDecimal executedQty = new BigDecimal(exchangeResponse.get("executedQty").toString());
-                trade.setExecutedQuantity(executedQty);
-            }
+            // Обновляем исполненные данные (комиссию накапливает поток пользовательских данных)
+            trade.setExecutedQuantity(FixedPointUtils.toBigDecimal(exchangeResponse.getExecutedQty()));
 
-            if (exchangeResponse.containsKey("cummulativeQuoteQty")) {
-                BigDecimal cummulativeQuoteQty = new BigDecimal(exchangeResponse.get("cummulativeQuoteQty").toString());
-                trade.setTotalValue(cummulativeQuoteQty);
+            BigDecimal cummulativeQuoteQty = FixedPointUtils.toBigDecimal(exchangeResponse.getCummulativeQuoteQty());
+            trade.setTotalValue(cummulativeQuoteQty);
 
-                // Рассчитываем среднюю цену
-                if (trade.getExecutedQuantity() != null && trade.getExecutedQuantity().compareTo(BigDecimal.ZERO) > 0) {
-                    BigDecimal avgPrice = cummulativeQuoteQty.divide(trade.getExecutedQuantity(), 8, BigDecimal.ROUND_HALF_UP);
-                    trade.setAvgPrice(avgPrice);
-                }
+            // Рассчитываем среднюю цену
+            if (trade.getExecutedQuantity().compareTo(BigDecimal.ZERO) > 0) {
+                BigDecimal avgPrice = cummulativeQuoteQty.divide(trade.getExecutedQuantity(), 8, BigDecimal.ROUND_HALF_UP);
+                trade.setAvgPrice(avgPrice);
             }
 
             // Рассчитываем slippage для рыночных ордеров
@@ -361,9 +429,19 @@ public class OrderExecutionService {
             // Отправляем уведомления
             sendExecutionNotification(trade);
 
-            // Удаляем из кеша если ордер завершен
+            // Удаляем из кеша если ордер завершен, иначе ждем событий потока
             if (trade.isCompleted()) {
                 activeOrdersCache.remove(trade.getExchangeOrderId());
+                CompletableFuture<Trade> completion = trade.getExchangeOrderId() != null
+                        ? completions.remove(trade.getExchangeOrderId()) : null;
+                if (completion != null) {
+                    completion.complete(trade);
+                }
+            } else {
+                if (trade.getExchangeOrderId() != null) {
+                    completions.putIfAbsent(trade.getExchangeOrderId(), new CompletableFuture<>());
+                }
+                registerActiveOrder(trade);
             }
 
             return trade;
@@ -374,6 +452,24 @@ public class OrderExecutionService {
         }
     }
 
+    /**
+     * Дождаться окончательного статуса ордера
+     *
+     * Ожидание создается до регистрации ордера в кеше активных, поэтому
+     * отчет, завершивший ордер сразу после регистрации, его не минует.
+     *
+     * @param trade обработанная торговая операция
+     * @return CompletableFuture с завершенным ордером
+     */
+    private CompletableFuture<Trade> awaitCompletion(Trade trade) {
+        if (trade.isCompleted() || trade.getExchangeOrderId() == null) {
+            return CompletableFuture.completedFuture(trade);
+        }
+        CompletableFuture<Trade> completion = completions.get(trade.getExchangeOrderId());
+        // Нет ожидания - ордер уже завершен отчетом потока
+        return completion != null ? completion : CompletableFuture.completedFuture(trade);
+    }
+
     /**
      * Логировать результат исполнения
      *
@@ -527,6 +623,11 @@ public class OrderExecutionService {
     /**
      * Отменить ордер
      *
+     * Ордер мог исполниться (целиком или частично) до того, как отмена
+     * подействовала, поэтому статус и исполненный объем берутся из ответа
+     * биржи. Если биржа только приняла отмену, ордер остается активным
+     * до отчета потока или сверки REST.
+     *
      * @param trade торговая операция для отмены
      * @return CompletableFuture с результатом отмены
      */
@@ -544,26 +645,30 @@ public class OrderExecutionService {
             }
 
             // Отменяем на бирже
-            Map<String, Object> result = exchangeApiService.cancelOrder(
-                    trade.getTradingPair(),
-                    trade.getExchangeOrderId(),
-                    trade.getExchangeName()
-            );
-
-            // Обновляем статус
-            String exchangeStatus = result.get("status").toString();
-            OrderStatus newStatus = mapExchangeStatusToOrderStatus(exchangeStatus);
-
-            updateOrderStatus(trade, newStatus);
-            trade.setCancelledAt(DateUtils.nowMoscow());
+            ExchangeResponses.OrderResponse result = requestCancel(trade);
+
+            // Ордер из БД (очистка просроченных) обновляется через экземпляр из кеша
+            Trade activeTrade = activeOrdersCache.getOrDefault(trade.getExchangeOrderId(), trade);
+            synchronized (activeTrade) {
+                // Отчет потока мог завершить ордер, пока шла отмена
+                if (activeTrade.isCompleted()) {
+                    return CompletableFuture.completedFuture(activeTrade);
+                }
 
-            // Удаляем из активных ордеров
-            activeOrdersCache.remove(trade.getExchangeOrderId());
+                updateTradeFromExchangeResponse(activeTrade, result);
+                if (!activeTrade.isCompleted()) {
+                    log.info("Cancel of order {} accepted, awaiting final status", activeTrade.getId());
+                    return CompletableFuture.completedFuture(tradeRepository.save(activeTrade));
+                }
 
-            // Сохраняем
-            trade = tradeRepository.save(trade);
+                if (activeTrade.getStatus() == OrderStatus.CANCELLED || activeTrade.getStatus() == OrderStatus.EXPIRED) {
+                    activeTrade.setCancelledAt(DateUtils.nowMoscow());
+                }
+                trade = processExecutionResult(activeTrade);
+            }
 
-            log.info("Order cancelled successfully: {}", trade.getId());
+            log.info("Order {} cancelled with status {}, executed {}",
+                    trade.getId(), trade.getStatus(), trade.getExecutedQuantity());
             return CompletableFuture.completedFuture(trade);
 
         } catch (Exception e) {
@@ -572,6 +677,41 @@ public class OrderExecutionService {
         }
     }
 
+    /**
+     * Отменить ордер на бирже и получить его состояние
+     *
+     * Bybit подтверждает только прием отмены (PENDING_CANCEL), а отмена
+     * уже завершенного ордера отклоняется (ORDER_NOT_FOUND) - в обоих
+     * случаях состояние берется из статуса ордера.
+     *
+     * @param trade торговая операция
+     * @return ответ биржи с исполненным объемом
+     */
+    private ExchangeResponses.OrderResponse requestCancel(Trade trade) {
+        try {
+            ExchangeResponses.OrderResponse result = exchangeApiService.cancelOrder(
+                    trade.getTradingPair(),
+                    trade.getExchangeOrderId(),
+                    trade.getExchangeName()
+            );
+            if (!"PENDING_CANCEL".equalsIgnoreCase(result.getStatus())) {
+                return result;
+            }
+        } catch (ExchangeApiException e) {
+            if (e.getErrorType() != ExchangeApiException.ApiErrorType.ORDER_NOT_FOUND) {
+                throw e;
+            }
+            log.info("Order {} is no longer open on {}, querying its status",
+                    trade.getExchangeOrderId(), trade.getExchangeName());
+        }
+
+        return exchangeApiService.getOrderStatus(
+                trade.getTradingPair(),
+                trade.getExchangeOrderId(),
+                trade.getExchangeName()
+        );
+    }
+
     /**
      * Обновить статус ордера
      *
@@ -586,24 +726,171 @@ public class OrderExecutionService {
         log.debug("Order {} status changed: {} → {}", trade.getId(), oldStatus, newStatus);
     }
 
+    /**
+     * Зарегистрировать активный ордер для отслеживания по потоку
+     *
+     * Если отчет потока пришел раньше ответа на размещение, он применяется сразу.
+     * Ордер попадает в кеш до чтения earlyReports, а onExecutionReport
+     * перепроверяет кеш после записи в earlyReports - отложенный отчет
+     * забирает ровно одна из сторон, при любом порядке он не теряется.
+     *
+     * @param trade сохраненная торговая операция с ID ордера биржи
+     */
+    private void registerActiveOrder(Trade trade) {
+        if (trade.getExchangeOrderId() == null) {
+            return;
+        }
+
+        activeOrdersCache.put(trade.getExchangeOrderId(), trade);
+
+        UserDataStreamService.ExecutionReport earlyReport = earlyReports.remove(trade.getExchangeOrderId());
+        if (earlyReport != null) {
+            Schedulers.boundedElastic().schedule(() -> applyExecutionReport(trade, earlyReport));
+        }
+    }
+
+    /**
+     * Обработать отчет об исполнении из потока пользовательских данных
+     *
+     * Вызывается в потоке WebSocket: запись в БД выполняется в пуле
+     * для блокирующих операций.
+     *
+     * @param report отчет биржи
+     */
+    private void onExecutionReport(UserDataStreamService.ExecutionReport report) {
+        Trade trade = activeOrdersCache.get(report.getOrderId());
+        UserDataStreamService.ExecutionReport pending = report;
+
+        if (trade == null) {
+            // Ответ на размещение еще не обработан (или ордер не наш)
+            earlyReports.merge(report.getOrderId(), report, (current, next) ->
+                    next.getCumulativeQuantity().compareTo(current.getCumulativeQuantity()) >= 0 ? next : current);
+
+            // Ордер мог быть зарегистрирован между проверкой кеша и записью отчета
+            trade = activeOrdersCache.get(report.getOrderId());
+            if (trade == null) {
+                return;
+            }
+            pending = earlyReports.remove(report.getOrderId());
+            if (pending == null) {
+                // Отчет уже забрал registerActiveOrder
+                return;
+            }
+        }
+
+        Trade activeTrade = trade;
+        UserDataStreamService.ExecutionReport activeReport = pending;
+        Schedulers.boundedElastic().schedule(() -> applyExecutionReport(activeTrade, activeReport));
+    }
+
+    /**
+     * Применить отчет об исполнении к торговой операции
+     *
+     * @param trade торговая операция из кеша активных ордеров
+     * @param report отчет биржи
+     */
+    private void applyExecutionReport(Trade trade, UserDataStreamService.ExecutionReport report) {
+        try {
+            synchronized (trade) {
+                // Ордер уже завершен другим отчетом или сверкой REST
+                if (activeOrdersCache.get(trade.getExchangeOrderId()) != trade) {
+                    return;
+                }
+
+                // Отчеты могут прийти не по порядку - исполненный объем не уменьшается
+                BigDecimal executedQty = trade.getExecutedQuantity() != null ? trade.getExecutedQuantity() : BigDecimal.ZERO;
+                int progress = report.getCumulativeQuantity().compareTo(executedQty);
+                if (progress < 0) {
+                    return;
+                }
+
+                OrderStatus newStatus = mapExchangeStatusToOrderStatus(report.getOrderStatus());
+                updateOrderStatus(trade, newStatus);
+                trade.setExchangeTimestamp(report.getTransactionTime());
+
+                if (progress > 0) {
+                    trade.setExecutedQuantity(report.getCumulativeQuantity());
+                    trade.setTotalValue(report.getCumulativeQuoteQuantity());
+                    trade.setAvgPrice(report.getCumulativeQuoteQuantity()
+                            .divide(report.getCumulativeQuantity(), 8, BigDecimal.ROUND_HALF_UP));
+
+                    // Комиссия в отчете - за последнее исполнение
+                    if (report.getCommissionAsset() != null) {
+                        BigDecimal commission = trade.getCommission() != null ? trade.getCommission() : BigDecimal.ZERO;
+                        trade.setCommission(commission.add(report.getCommission()));
+                        trade.setCommissionAsset(report.getCommissionAsset());
+                    }
+
+                    if (trade.getOrderType() == OrderType.MARKET && trade.getPrice() != null) {
+                        trade.setSlippagePercent(calculateSlippage(trade.getPrice(), trade.getAvgPrice(), trade.getOrderSide()));
+                    }
+
+                    trade.setExecutedAt(DateUtils.nowMoscow());
+                }
+
+                if (newStatus == OrderStatus.CANCELLED || newStatus == OrderStatus.EXPIRED) {
+                    trade.setCancelledAt(DateUtils.nowMoscow());
+                }
+
+                log.debug("Execution report applied to order {}: {} {} of {}",
+                        trade.getId(), report.getOrderStatus(), report.getCumulativeQuantity(), trade.getQuantity());
+
+                if (trade.isCompleted()) {
+                    activeOrdersCache.remove(trade.getExchangeOrderId());
+                    processExecutionResult(trade);
+                }
+            }
+
+        } catch (Exception e) {
+            log.error("Failed to apply execution report to order {}: {}", trade.getId(), e.getMessage());
+        }
+    }
+
     /**
      * Мониторинг активных ордеров - выполняется каждые 10 секунд
+     *
+     * Пока поток пользовательских данных подключен и активные ордера сверены
+     * после подключения, проверяются только таймауты; статусы по REST
+     * запрашиваются при отключенном потоке и один раз после переподключения.
+     * Потоки ордеров Binance и Bybit учитываются для ордеров своей биржи.
      */
     @Scheduled(fixedRate = 10000)
     public void monitorActiveOrders() {
         try {
-            if (activeOrdersCache.isEmpty()) {
-                return;
-            }
+            pruneEarlyReports();
+
+            boolean streamConnected = userDataStreamService.isConnected();
+            long streamEpoch = userDataStreamService.getSessionEpoch();
+            boolean pollStatus = !streamConnected || streamEpoch != reconciledStreamEpoch;
 
-            log.debug("Monitoring {} active orders", activeOrdersCache.size());
+            // Поток ордеров Bybit сверяется независимо от потока Binance
+            boolean bybitStreamConnected = bybitStreamService.isConnected();
+            long bybitStreamEpoch = bybitStreamService.getSessionEpoch();
+            boolean pollBybitStatus = !bybitStreamConnected || bybitStreamEpoch != reconciledBybitStreamEpoch;
 
-            for (Trade trade : activeOrdersCache.values()) {
-                try {
-                    monitorSingleOrder(trade);
-                } catch (Exception e) {
-                    log.error("Failed to monitor order {}: {}", trade.getId(), e.getMessage());
+            if (!activeOrdersCache.isEmpty()) {
+                if ((pollStatus && streamConnected) || (pollBybitStatus && bybitStreamConnected)) {
+                    log.info("Order stream session started (binance {}, bybit {}), reconciling {} active orders via REST",
+                            streamEpoch, bybitStreamEpoch, activeOrdersCache.size());
+                } else {
+                    log.debug("Monitoring {} active orders", activeOrdersCache.size());
                 }
+
+                for (Trade trade : activeOrdersCache.values()) {
+                    try {
+                        boolean bybit = "bybit".equalsIgnoreCase(trade.getExchangeName());
+                        monitorSingleOrder(trade, bybit ? pollBybitStatus : pollStatus);
+                    } catch (Exception e) {
+                        log.error("Failed to monitor order {}: {}", trade.getId(), e.getMessage());
+                    }
+                }
+            }
+
+            if (streamConnected) {
+                reconciledStreamEpoch = streamEpoch;
+            }
+            if (bybitStreamConnected) {
+                reconciledBybitStreamEpoch = bybitStreamEpoch;
             }
 
         } catch (Exception e) {
@@ -615,8 +902,9 @@ public class OrderExecutionService {
      * Мониторить один ордер
      *
      * @param trade торговая операция
+     * @param pollStatus запросить статус у биржи через REST
      */
-    private void monitorSingleOrder(Trade trade) {
+    private void monitorSingleOrder(Trade trade, boolean pollStatus) {
         try {
             // Проверяем таймаут
             if (DateUtils.hasElapsedSeconds(trade.getCreatedAt(), ORDER_TIMEOUT_SECONDS)) {
@@ -626,18 +914,24 @@ public class OrderExecutionService {
             }
 
             // Запрашиваем статус у биржи
-            if (trade.getExchangeOrderId() != null) {
-                Map<String, Object> orderStatus = exchangeApiService.getOrderStatus(
+            if (pollStatus && trade.getExchangeOrderId() != null) {
+                ExchangeResponses.OrderResponse orderStatus = exchangeApiService.getOrderStatus(
                         trade.getTradingPair(),
                         trade.getExchangeOrderId(),
                         trade.getExchangeName()
                 );
 
-                // Обновляем данные ордера
-                Trade updatedTrade = updateTradeFromExchangeResponse(trade, orderStatus);
+                synchronized (trade) {
+                    if (activeOrdersCache.get(trade.getExchangeOrderId()) != trade) {
+                        return;
+                    }
 
-                if (updatedTrade.isCompleted()) {
-                    processExecutionResult(updatedTrade);
+                    // Обновляем данные ордера
+                    Trade updatedTrade = updateTradeFromExchangeResponse(trade, orderStatus);
+
+                    if (updatedTrade.isCompleted()) {
+                        processExecutionResult(updatedTrade);
+                    }
                 }
             }
 
@@ -646,6 +940,15 @@ public class OrderExecutionService {
         }
     }
 
+    /**
+     * Удалить отчеты потока по ордерам, так и не зарегистрированным в кеше
+     * (ордера других клиентов или завершенные сразу при размещении)
+     */
+    private void pruneEarlyReports() {
+        long threshold = System.currentTimeMillis() - EARLY_REPORT_TTL_MS;
+        earlyReports.values().removeIf(report -> report.getEventTime() < threshold);
+    }
+
     /**
      * Очистка просроченных ордеров - выполняется каждую минуту
      */
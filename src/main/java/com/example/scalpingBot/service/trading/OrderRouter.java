@@ -0,0 +1,465 @@
+package com.example.scalpingBot.service.trading;
+
+import com.example.scalpingBot.enums.OrderSide;
+import com.example.scalpingBot.service.exchange.BybitStreamService;
+import com.example.scalpingBot.service.exchange.ExchangeApiService;
+import com.example.scalpingBot.service.exchange.ExchangeResponses;
+import com.example.scalpingBot.service.market.LocalOrderBook;
+import com.example.scalpingBot.service.market.OrderBookService;
+import com.example.scalpingBot.utils.FixedPointUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Маршрутизатор ордеров между биржами (Binance, Bybit)
+ *
+ * Основные функции:
+ * - Выбор биржи для каждого ордера по вершине локального стакана,
+ *   комиссии taker, недавней задержке исполнения и запасу rate limit
+ * - Разделение родительского ордера между биржами: лучшая биржа получает
+ *   объем своего лучшего уровня, остаток - следующая и т.д.; то, что не
+ *   покрыто лучшими уровнями, уходит на лучшую биржу
+ * - Откат на биржу по умолчанию, если свежих котировок нет
+ *
+ * Решение принимается только по локальному состоянию (стаканы в памяти,
+ * скользящее среднее задержки, счетчики rate limit) без запросов к бирже
+ * и БД и занимает единицы микросекунд.
+ *
+ * Котировки Binance берутся из OrderBookService, Bybit - из потока
+ * orderbook.1 (BybitStreamService); для других бирж источник регистрируется
+ * через registerQuoteSource - без него биржа не участвует в маршрутизации.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderRouter {
+
+    private final OrderBookService orderBookService;
+    private final ExchangeApiService exchangeApiService;
+    private final BybitStreamService bybitStreamService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${routing.enabled:true}")
+    private boolean routingEnabled;
+
+    @Value("${routing.default-venue:binance}")
+    private String defaultVenue;
+
+    @Value("${routing.split-enabled:true}")
+    private boolean splitEnabled;
+
+    @Value("${routing.max-quote-age-ms:2000}")
+    private long maxQuoteAgeMs;
+
+    @Value("${routing.min-rate-limit-headroom:0.2}")
+    private double minRateLimitHeadroom;
+
+    @Value("${routing.latency-penalty-bps-per-100ms:1.0}")
+    private double latencyPenaltyBpsPer100Ms;
+
+    @Value("${routing.latency-ewma-alpha:0.2}")
+    private double latencyEwmaAlpha;
+
+    @Value("${routing.min-child-notional:10}")
+    private double minChildNotional;
+
+    @Value("${exchanges.binance.enabled:true}")
+    private boolean binanceEnabled;
+
+    @Value("${exchanges.bybit.enabled:false}")
+    private boolean bybitEnabled;
+
+    @Value("${routing.venues.binance.taker-fee-percent:0.1}")
+    private double binanceTakerFeePercent;
+
+    @Value("${routing.venues.bybit.taker-fee-percent:0.1}")
+    private double bybitTakerFeePercent;
+
+    /**
+     * Площадки; при равной оценке предпочтение в порядке массива
+     */
+    private Venue[] venues = new Venue[0];
+
+    private Timer decisionTimer;
+
+    /**
+     * Источник вершины стакана биржи
+     */
+    @FunctionalInterface
+    public interface QuoteSource {
+
+        /**
+         * @param tradingPair торговая пара
+         * @param top объект для заполнения
+         * @return true если обе стороны стакана не пусты
+         */
+        boolean readTop(String tradingPair, LocalOrderBook.Top top);
+    }
+
+    @PostConstruct
+    public void init() {
+        decisionTimer = Timer.builder("trading.routing.decision")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        venues = new Venue[]{
+                new Venue("binance", binanceEnabled, binanceTakerFeePercent / 100, meterRegistry),
+                new Venue("bybit", bybitEnabled, bybitTakerFeePercent / 100, meterRegistry)
+        };
+
+        registerQuoteSource("binance", (tradingPair, top) -> {
+            LocalOrderBook book = orderBookService.getOrderBook(tradingPair);
+            return book != null && book.readTop(top);
+        });
+        registerQuoteSource("bybit", (tradingPair, top) -> {
+            ExchangeResponses.BookTickerSnapshot quote = bybitStreamService.getBookTicker(tradingPair);
+            if (quote == null || quote.getBidPrice() == 0 || quote.getAskPrice() == 0) {
+                return false;
+            }
+            top.bidPrice = quote.getBidPrice();
+            top.bidQuantity = quote.getBidQuantity();
+            top.askPrice = quote.getAskPrice();
+            top.askQuantity = quote.getAskQuantity();
+            top.lastUpdateId = 0;
+            top.updatedAt = quote.getUpdateTime();
+            return true;
+        });
+
+        log.info("Order router initialized: enabled={}, split={}, venues={}",
+                routingEnabled, splitEnabled, describeVenues());
+    }
+
+    /**
+     * Зарегистрировать источник котировок биржи
+     *
+     * @param venue биржа
+     * @param source источник вершины стакана
+     */
+    public void registerQuoteSource(String venue, QuoteSource source) {
+        Venue target = findVenue(venue);
+        if (target == null) {
+            log.warn("Quote source for unknown venue {} ignored", venue);
+            return;
+        }
+        target.quoteSource = source;
+    }
+
+    /**
+     * Учесть задержку ответа биржи на ордер
+     *
+     * @param venue биржа
+     * @param latencyNanos время запроса к бирже (нс)
+     */
+    public void recordFillLatency(String venue, long latencyNanos) {
+        Venue target = findVenue(venue);
+        if (target != null && latencyNanos > 0) {
+            target.recordLatency(latencyNanos, latencyEwmaAlpha);
+        }
+    }
+
+    /**
+     * Выбрать биржи для ордера
+     *
+     * @param tradingPair торговая пара
+     * @param side сторона ордера
+     * @param quantity объем родительского ордера
+     * @return план с одним или несколькими дочерними ордерами
+     */
+    public RoutePlan route(String tradingPair, OrderSide side, BigDecimal quantity) {
+        long startNanos = System.nanoTime();
+        RoutePlan plan = routingEnabled ? buildPlan(tradingPair, side, quantity) : null;
+        if (plan == null) {
+            plan = fallbackPlan(tradingPair, side, quantity);
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        plan.setDecisionNanos(elapsed);
+
+        decisionTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        Venue primary = findVenue(plan.getPrimaryLeg().getVenue());
+        if (primary != null) {
+            (plan.isSplit() ? primary.splitCounter : primary.routedCounter).increment();
+        }
+
+        log.debug("Routed {} {} {}: {}", side, quantity, tradingPair, plan);
+        return plan;
+    }
+
+    /**
+     * Оценить площадки и распределить объем
+     *
+     * @return план или null если ни одна биржа не подходит
+     */
+    private RoutePlan buildPlan(String tradingPair, OrderSide side, BigDecimal quantity) {
+        long nowMillis = System.currentTimeMillis();
+        boolean buy = side == OrderSide.BUY;
+
+        Candidate[] candidates = new Candidate[venues.length];
+        int count = 0;
+
+        for (Venue venue : venues) {
+            Candidate candidate = evaluate(venue, tradingPair, buy, nowMillis);
+            if (candidate == null) {
+                continue;
+            }
+            // Вставка по оценке: для покупки - меньшая эффективная цена, для продажи - большая
+            int index = count++;
+            while (index > 0 && candidate.isBetterThan(candidates[index - 1], buy)) {
+                candidates[index] = candidates[index - 1];
+                index--;
+            }
+            candidates[index] = candidate;
+        }
+
+        if (count == 0) {
+            return null;
+        }
+
+        // Распределение объема по лучшим уровням
+        double total = quantity.doubleValue();
+        double remaining = total;
+        double[] allocated = new double[count];
+        int legs = 0;
+
+        if (splitEnabled) {
+            for (int i = 0; i < count && remaining > 0; i++) {
+                double take = Math.min(remaining, candidates[i].available);
+                if (i > 0 && take * candidates[i].price < minChildNotional) {
+                    break;
+                }
+                allocated[i] = take;
+                remaining -= take;
+                legs = i + 1;
+            }
+        }
+        if (legs == 0) {
+            legs = 1;
+        }
+
+        // Дочерние ордера кроме первого округляются вниз до точности родительского,
+        // первый получает остаток - сумма объемов совпадает с родительским
+        List<RouteLeg> routeLegs = new ArrayList<>(legs);
+        BigDecimal primaryQuantity = quantity;
+        for (int i = 1; i < legs; i++) {
+            BigDecimal legQuantity = BigDecimal.valueOf(allocated[i])
+                    .setScale(quantity.scale(), RoundingMode.DOWN);
+            if (legQuantity.signum() <= 0) {
+                continue;
+            }
+            primaryQuantity = primaryQuantity.subtract(legQuantity);
+            routeLegs.add(candidates[i].toLeg(legQuantity));
+        }
+        routeLegs.add(0, candidates[0].toLeg(primaryQuantity));
+
+        return RoutePlan.builder()
+                .tradingPair(tradingPair)
+                .side(side)
+                .quantity(quantity)
+                .legs(routeLegs)
+                .fallback(false)
+                .build();
+    }
+
+    /**
+     * Оценить биржу по вершине стакана
+     *
+     * @return кандидат или null если биржа выключена, котировка устарела
+     *         или запас rate limit недостаточен
+     */
+    private Candidate evaluate(Venue venue, String tradingPair, boolean buy, long nowMillis) {
+        QuoteSource source = venue.quoteSource;
+        if (!venue.enabled || source == null) {
+            return null;
+        }
+
+        LocalOrderBook.Top top = new LocalOrderBook.Top();
+        if (!source.readTop(tradingPair, top) || nowMillis - top.updatedAt > maxQuoteAgeMs) {
+            return null;
+        }
+
+        double headroom = exchangeApiService.getRateLimitHeadroom(venue.name);
+        if (headroom < minRateLimitHeadroom) {
+            return null;
+        }
+
+        double price = FixedPointUtils.toDouble(buy ? top.askPrice : top.bidPrice);
+        double available = FixedPointUtils.toDouble(buy ? top.askQuantity : top.bidQuantity);
+
+        // Задержка учитывается как риск сдвига цены за время исполнения
+        double latencyPenalty = venue.getLatencyMillis() / 100.0 * latencyPenaltyBpsPer100Ms / 10_000;
+        double cost = venue.takerFee + latencyPenalty;
+        double effectivePrice = buy ? price * (1 + cost) : price * (1 - cost);
+
+        return new Candidate(venue.name, price, available, effectivePrice);
+    }
+
+    /**
+     * План на бирже по умолчанию
+     */
+    private RoutePlan fallbackPlan(String tradingPair, OrderSide side, BigDecimal quantity) {
+        List<RouteLeg> legs = new ArrayList<>(1);
+        legs.add(RouteLeg.builder()
+                .venue(defaultVenue)
+                .quantity(quantity)
+                .build());
+
+        return RoutePlan.builder()
+                .tradingPair(tradingPair)
+                .side(side)
+                .quantity(quantity)
+                .legs(legs)
+                .fallback(true)
+                .build();
+    }
+
+    private Venue findVenue(String name) {
+        for (Venue venue : venues) {
+            if (venue.name.equalsIgnoreCase(name)) {
+                return venue;
+            }
+        }
+        return null;
+    }
+
+    private String describeVenues() {
+        StringBuilder description = new StringBuilder();
+        for (Venue venue : venues) {
+            if (description.length() > 0) {
+                description.append(", ");
+            }
+            description.append(venue.name).append(venue.enabled ? "" : " (disabled)");
+        }
+        return description.toString();
+    }
+
+    // === Вложенные классы ===
+
+    /**
+     * Состояние биржи для маршрутизации
+     */
+    private static final class Venue {
+        private final String name;
+        private final boolean enabled;
+        private final double takerFee;
+        private final Counter routedCounter;
+        private final Counter splitCounter;
+        private volatile QuoteSource quoteSource;
+
+        /**
+         * Скользящее среднее задержки (нс, 0 - нет данных)
+         */
+        private final AtomicLong latencyEwmaNanos = new AtomicLong();
+
+        Venue(String name, boolean enabled, double takerFee, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.enabled = enabled;
+            this.takerFee = takerFee;
+            this.routedCounter = meterRegistry.counter("trading.routing.orders", "venue", name, "split", "false");
+            this.splitCounter = meterRegistry.counter("trading.routing.orders", "venue", name, "split", "true");
+        }
+
+        void recordLatency(long latencyNanos, double alpha) {
+            long previous;
+            long next;
+            do {
+                previous = latencyEwmaNanos.get();
+                next = previous == 0 ? latencyNanos : (long) (previous + alpha * (latencyNanos - previous));
+            } while (!latencyEwmaNanos.compareAndSet(previous, next));
+        }
+
+        double getLatencyMillis() {
+            return latencyEwmaNanos.get() / 1_000_000.0;
+        }
+    }
+
+    /**
+     * Оценка биржи для конкретного ордера
+     */
+    private static final class Candidate {
+        private final String venue;
+        private final double price;
+        private final double available;
+        private final double effectivePrice;
+
+        Candidate(String venue, double price, double available, double effectivePrice) {
+            this.venue = venue;
+            this.price = price;
+            this.available = available;
+            this.effectivePrice = effectivePrice;
+        }
+
+        boolean isBetterThan(Candidate other, boolean buy) {
+            return buy ? effectivePrice < other.effectivePrice : effectivePrice > other.effectivePrice;
+        }
+
+        RouteLeg toLeg(BigDecimal quantity) {
+            return RouteLeg.builder()
+                    .venue(venue)
+                    .quantity(quantity)
+                    .expectedPrice(BigDecimal.valueOf(price))
+                    .effectivePrice(effectivePrice)
+                    .build();
+        }
+    }
+
+    /**
+     * План маршрутизации родительского ордера
+     */
+    @lombok.Data
+    @lombok.Builder
+    public static class RoutePlan {
+        private String tradingPair;
+        private OrderSide side;
+        private BigDecimal quantity;
+        /**
+         * Дочерние ордера, лучшая биржа первой
+         */
+        private List<RouteLeg> legs;
+        /**
+         * Свежих котировок не было - ордер отправлен на биржу по умолчанию
+         */
+        private boolean fallback;
+        private long decisionNanos;
+
+        public RouteLeg getPrimaryLeg() {
+            return legs.get(0);
+        }
+
+        public boolean isSplit() {
+            return legs.size() > 1;
+        }
+    }
+
+    /**
+     * Дочерний ордер на одной бирже
+     */
+    @lombok.Data
+    @lombok.Builder
+    public static class RouteLeg {
+        private String venue;
+        private BigDecimal quantity;
+        /**
+         * Лучшая цена биржи на момент решения (null при откате)
+         */
+        private BigDecimal expectedPrice;
+        /**
+         * Цена с учетом комиссии и штрафа за задержку
+         */
+        private double effectivePrice;
+    }
+}
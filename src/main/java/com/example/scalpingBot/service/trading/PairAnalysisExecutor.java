@@ -0,0 +1,344 @@
+package com.example.scalpingBot.service.trading;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Параллельный анализ торговых пар в торговом цикле
+ *
+ * Основные функции:
+ * - Анализ пар на отдельном ограниченном пуле потоков
+ * - Дедлайн цикла: пары, не начавшиеся до дедлайна, пропускаются,
+ *   не завершившиеся - помечаются как опоздавшие и не задерживают цикл
+ * - Запуск анализа пары по событию (закрытие бара, изменение стакана)
+ *   со схлопыванием всплесков событий
+ * - Изоляция пар: одна пара никогда не анализируется двумя потоками
+ *   одновременно - ни циклом, ни событиями
+ * - Разбивка задержки по этапам для каждой пары (последний анализ и метрики)
+ *
+ * Опоздавшие задачи не прерываются: анализ может находиться в середине
+ * размещения ордера, поэтому он дорабатывает, а пара пропускает следующие циклы.
+ *
+ * События, пришедшие во время анализа пары, не ставятся в очередь по одному:
+ * взводится флаг, и после завершения текущего анализа выполняется ровно
+ * один повторный - по самым свежим данным.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PairAnalysisExecutor {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${scheduler.pair-analysis.threads:8}")
+    private int threads;
+
+    @Value("${scheduler.pair-analysis.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${scheduler.pair-analysis.deadline-ms:10000}")
+    private long deadlineMs;
+
+    private static final String TRIGGER_CYCLE = "cycle";
+    private static final String TRIGGER_EVENT = "event";
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Состояние запуска анализа по парам
+     */
+    private final Map<String, PairSlot> slots = new ConcurrentHashMap<>();
+
+    /**
+     * Разбивка задержки последнего анализа по парам
+     */
+    private final Map<String, PairAnalysisTimings> lastTimings = new ConcurrentHashMap<>();
+
+    /**
+     * Анализ одной пары
+     */
+    @FunctionalInterface
+    public interface PairTask {
+        void analyze(String tradingPair, PairAnalysisTimings timings) throws Exception;
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "pair-analysis-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        log.info("Pair analysis executor: {} threads, queue {}, deadline {} ms", threads, queueCapacity, deadlineMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Проанализировать пары параллельно с дедлайном
+     *
+     * Метод возвращается не позже дедлайна (плюс время постановки задач).
+     *
+     * @param tradingPairs торговые пары
+     * @param task анализ одной пары
+     * @return отчет о цикле
+     */
+    public CycleReport analyzeAll(List<String> tradingPairs, PairTask task) {
+        long cycleStart = System.nanoTime();
+        long deadline = cycleStart + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+
+        List<PairAnalysisTimings> timings = new ArrayList<>(tradingPairs.size());
+        List<Future<?>> futures = new ArrayList<>(tradingPairs.size());
+
+        for (String pair : tradingPairs) {
+            PairAnalysisTimings pairTimings = new PairAnalysisTimings(pair, System.nanoTime());
+            timings.add(pairTimings);
+
+            PairSlot slot = getSlot(pair);
+            if (!slot.running.compareAndSet(false, true)) {
+                log.debug("Analysis of {} is still running, skipping", pair);
+                pairTimings.finish(PairAnalysisTimings.Outcome.SKIPPED);
+                futures.add(null);
+                continue;
+            }
+
+            try {
+                futures.add(executor.submit(() -> {
+                    try {
+                        analyzePair(pair, task, pairTimings, deadline);
+                    } finally {
+                        release(pair, slot);
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                slot.running.set(false);
+                log.warn("Pair analysis queue is full, skipping {}", pair);
+                pairTimings.finish(PairAnalysisTimings.Outcome.SKIPPED);
+                futures.add(null);
+            }
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            Future<?> future = futures.get(i);
+            if (future == null) {
+                continue;
+            }
+
+            try {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                timings.get(i).finish(PairAnalysisTimings.Outcome.LATE);
+            } catch (ExecutionException e) {
+                timings.get(i).finish(PairAnalysisTimings.Outcome.FAILED);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (int j = i; j < timings.size(); j++) {
+                    timings.get(j).finish(PairAnalysisTimings.Outcome.LATE);
+                }
+                break;
+            }
+        }
+
+        CycleReport report = buildReport(timings, System.nanoTime() - cycleStart);
+        if (report.getLate() > 0 || report.getSkipped() > 0 || report.getFailed() > 0) {
+            log.warn("Pair analysis cycle: {} completed, {} late, {} skipped, {} failed in {} ms",
+                    report.getCompleted(), report.getLate(), report.getSkipped(), report.getFailed(),
+                    report.getElapsedMs());
+        } else {
+            log.debug("Pair analysis cycle: {} pairs in {} ms", report.getCompleted(), report.getElapsedMs());
+        }
+        return report;
+    }
+
+    /**
+     * Запустить анализ пары по событию
+     *
+     * Не блокирует вызывающий поток (поток WebSocket). Если пара уже
+     * анализируется, запрос схлопывается в один повторный анализ после текущего.
+     *
+     * @param tradingPair торговая пара
+     * @param task анализ пары
+     */
+    public void trigger(String tradingPair, PairTask task) {
+        PairSlot slot = getSlot(tradingPair);
+        slot.pendingTask = task;
+        if (!slot.pending.getAndSet(true)) {
+            slot.pendingSince = System.nanoTime();
+        } else {
+            meterRegistry.counter("trading.pair.analysis.coalesced", "pair", tradingPair).increment();
+        }
+
+        if (slot.running.compareAndSet(false, true)) {
+            submitDrain(tradingPair, slot);
+        }
+    }
+
+    /**
+     * Разбивка задержки последнего анализа по парам
+     */
+    public Map<String, PairAnalysisTimings> getLastTimings() {
+        return Collections.unmodifiableMap(lastTimings);
+    }
+
+    private void analyzePair(String pair, PairTask task, PairAnalysisTimings timings, long deadline) {
+        timings.mark(PairAnalysisTimings.Stage.QUEUE);
+        if (System.nanoTime() >= deadline) {
+            timings.finish(PairAnalysisTimings.Outcome.SKIPPED);
+            return;
+        }
+
+        try {
+            task.analyze(pair, timings);
+            timings.finish(PairAnalysisTimings.Outcome.COMPLETED);
+        } catch (Exception e) {
+            log.error("Error analyzing {}: {}", pair, e.getMessage());
+            timings.finish(PairAnalysisTimings.Outcome.FAILED);
+        }
+    }
+
+    /**
+     * Освободить пару и выполнить накопившийся запрос по событию
+     */
+    private void release(String pair, PairSlot slot) {
+        slot.running.set(false);
+        if (slot.pending.get() && slot.running.compareAndSet(false, true)) {
+            submitDrain(pair, slot);
+        }
+    }
+
+    private void submitDrain(String pair, PairSlot slot) {
+        try {
+            executor.execute(() -> drain(pair, slot));
+        } catch (RejectedExecutionException e) {
+            // Флаг pending остается - запрос выполнит следующее событие или цикл
+            slot.running.set(false);
+            log.warn("Pair analysis queue is full, deferring event for {}", pair);
+        }
+    }
+
+    /**
+     * Выполнять анализ пары, пока есть запросы по событиям
+     */
+    private void drain(String pair, PairSlot slot) {
+        try {
+            while (slot.pending.getAndSet(false)) {
+                PairAnalysisTimings timings = new PairAnalysisTimings(pair, slot.pendingSince);
+                analyzePair(pair, slot.pendingTask, timings, Long.MAX_VALUE);
+                record(timings, TRIGGER_EVENT);
+            }
+        } finally {
+            release(pair, slot);
+        }
+    }
+
+    private PairSlot getSlot(String pair) {
+        return slots.computeIfAbsent(pair, k -> new PairSlot());
+    }
+
+    private void record(PairAnalysisTimings timings, String trigger) {
+        PairAnalysisTimings.Outcome outcome = timings.getOutcome();
+        lastTimings.put(timings.getTradingPair(), timings);
+        meterRegistry.counter("trading.pair.analysis.outcome",
+                "pair", timings.getTradingPair(), "outcome", outcome.name(), "trigger", trigger).increment();
+
+        if (outcome == PairAnalysisTimings.Outcome.COMPLETED) {
+            for (PairAnalysisTimings.Stage stage : PairAnalysisTimings.Stage.values()) {
+                meterRegistry.timer("trading.pair.analysis.stage",
+                        "pair", timings.getTradingPair(), "stage", stage.name(), "trigger", trigger)
+                        .record(timings.getStageNanos(stage), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private CycleReport buildReport(List<PairAnalysisTimings> timings, long elapsedNanos) {
+        int completed = 0;
+        int late = 0;
+        int skipped = 0;
+        int failed = 0;
+
+        for (PairAnalysisTimings pairTimings : timings) {
+            record(pairTimings, TRIGGER_CYCLE);
+
+            switch (pairTimings.getOutcome()) {
+                case COMPLETED:
+                    completed++;
+                    break;
+                case LATE:
+                    late++;
+                    break;
+                case SKIPPED:
+                    skipped++;
+                    break;
+                case FAILED:
+                    failed++;
+                    break;
+            }
+        }
+
+        return CycleReport.builder()
+                .completed(completed)
+                .late(late)
+                .skipped(skipped)
+                .failed(failed)
+                .elapsedMs(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .pairs(timings)
+                .build();
+    }
+
+    /**
+     * Состояние запуска анализа пары
+     */
+    private static final class PairSlot {
+        private final AtomicBoolean running = new AtomicBoolean();
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private volatile PairTask pendingTask;
+        private volatile long pendingSince;
+    }
+
+    /**
+     * Отчет о цикле анализа
+     */
+    @lombok.Data
+    @lombok.Builder
+    public static class CycleReport {
+        private int completed;
+        private int late;
+        private int skipped;
+        private int failed;
+        private long elapsedMs;
+        private List<PairAnalysisTimings> pairs;
+    }
+}
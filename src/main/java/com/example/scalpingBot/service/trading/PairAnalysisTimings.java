@@ -0,0 +1,118 @@
+package com.example.scalpingBot.service.trading;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Разбивка времени анализа одной торговой пары по этапам
+ *
+ * Этапы отмечаются вызовом mark() в конце каждого этапа: время этапа -
+ * интервал от предыдущей отметки. Пишет только поток анализа пары,
+ * итог фиксируется один раз (первый вызов finish выигрывает).
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public class PairAnalysisTimings {
+
+    /**
+     * Этапы анализа пары
+     */
+    public enum Stage {
+        QUEUE,           // Ожидание свободного потока
+        MARKET_DATA,     // Получение рыночных данных
+        POSITION_CHECK,  // Проверка активной позиции
+        SIGNAL,          // Фильтр рынка и генерация сигнала
+        EXECUTION        // Риск-проверки и размещение ордера
+    }
+
+    /**
+     * Итог анализа пары в цикле
+     */
+    public enum Outcome {
+        COMPLETED,  // Анализ завершен до дедлайна
+        SKIPPED,    // Не запускался: дедлайн, переполнение очереди или предыдущий анализ не завершен
+        LATE,       // Не успел к дедлайну, продолжает выполняться
+        FAILED      // Завершился с ошибкой
+    }
+
+    private final String tradingPair;
+    private final long[] stageNanos = new long[Stage.values().length];
+    private final long submittedAt;
+    private long lastMark;
+    private volatile long totalNanos;
+    private volatile Outcome outcome;
+
+    public PairAnalysisTimings(String tradingPair, long submittedAtNanos) {
+        this.tradingPair = tradingPair;
+        this.submittedAt = submittedAtNanos;
+        this.lastMark = submittedAtNanos;
+    }
+
+    /**
+     * Отметить окончание этапа
+     *
+     * @param stage завершенный этап
+     */
+    public void mark(Stage stage) {
+        long now = System.nanoTime();
+        stageNanos[stage.ordinal()] += now - lastMark;
+        lastMark = now;
+    }
+
+    /**
+     * Зафиксировать итог анализа
+     *
+     * @return true если итог зафиксирован этим вызовом
+     */
+    public synchronized boolean finish(Outcome result) {
+        if (outcome != null) {
+            return false;
+        }
+        outcome = result;
+        totalNanos = System.nanoTime() - submittedAt;
+        return true;
+    }
+
+    public String getTradingPair() {
+        return tradingPair;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Момент постановки в очередь или первого события (System.nanoTime())
+     */
+    public long getSubmittedAtNanos() {
+        return submittedAt;
+    }
+
+    public long getStageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    /**
+     * Время от постановки в очередь до фиксации итога (мс)
+     */
+    public double getTotalMillis() {
+        return totalNanos / 1_000_000.0;
+    }
+
+    /**
+     * Время по этапам (мс)
+     */
+    public Map<Stage, Double> getStageMillis() {
+        Map<Stage, Double> result = new EnumMap<>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            result.put(stage, stageNanos[stage.ordinal()] / 1_000_000.0);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s in %.1f ms %s", tradingPair, outcome, getTotalMillis(), getStageMillis());
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.scalpingBot.service.trading;
+
+import com.example.scalpingBot.entity.Position;
+import com.example.scalpingBot.repository.PositionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Книга активных позиций в памяти - единственный источник истины
+ *
+ * Основные функции:
+ * - Позиции по интернированному id торговой пары (слот в массиве)
+ * - Чтение без JDBC и без блокировок: hasActivePosition, getActivePositions
+ * - Открытия, исполнения и закрытия сохраняются синхронно вызывающим
+ *   кодом и попадают в книгу после фиксации его транзакции; при откате
+ *   позиция пары перечитывается из БД
+ * - Изменения от цены (P&L, трейлинг-стоп, экстремумы) помечают позицию
+ *   грязной и записываются пакетом JDBC UPDATE с фиксированным интервалом
+ *
+ * Пакетное обновление не трогает version позиции и пишет только в активные
+ * строки, поэтому не конфликтует с последующим сохранением через JPA и не
+ * может "оживить" уже закрытую позицию.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PositionBook {
+
+    private final PositionRepository positionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${positions.persistence.batch-size:200}")
+    private int batchSize;
+
+    private static final int INITIAL_SLOTS = 32;
+
+    private static final String UPDATE_SQL = "UPDATE positions SET " +
+            "current_price = ?, current_value = ?, unrealized_pnl = ?, unrealized_pnl_percent = ?, " +
+            "max_profit = ?, max_profit_percent = ?, max_drawdown = ?, max_drawdown_percent = ?, " +
+            "stop_loss_price = ?, trailing_stop_max_price = ?, updated_at = ? " +
+            "WHERE id = ? AND is_active = true";
+
+    /**
+     * Интернированные id торговых пар
+     */
+    private final Map<String, Integer> pairIds = new ConcurrentHashMap<>();
+
+    /**
+     * Активная позиция по id пары; массив заменяется под монитором книги при росте
+     */
+    private volatile AtomicReferenceArray<Position> slots = new AtomicReferenceArray<>(INITIAL_SLOTS);
+
+    /**
+     * Пары с незаписанными изменениями от цены (под монитором книги)
+     */
+    private final BitSet dirty = new BitSet();
+
+    private Counter flushedCounter;
+    private Counter failedCounter;
+    private Timer flushTimer;
+
+    @PostConstruct
+    public void init() {
+        flushedCounter = meterRegistry.counter("positions.book.flushed");
+        failedCounter = meterRegistry.counter("positions.book.flush.failed");
+        flushTimer = meterRegistry.timer("positions.book.flush");
+        meterRegistry.gauge("positions.book.size", this, PositionBook::size);
+
+        List<Position> active = positionRepository.findByIsActiveTrueOrderByOpenedAtDesc();
+        for (Position position : active) {
+            put(position);
+        }
+        log.info("Position book loaded: {} active positions", active.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Интернированный id торговой пары
+     *
+     * @param tradingPair торговая пара
+     * @return постоянный id пары на время работы приложения
+     */
+    public int pairId(String tradingPair) {
+        Integer id = pairIds.get(tradingPair);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            return pairIds.computeIfAbsent(tradingPair, k -> {
+                int next = pairIds.size();
+                ensureCapacity(next + 1);
+                return next;
+            });
+        }
+    }
+
+    /**
+     * Активная позиция по id пары
+     */
+    public Position get(int pairId) {
+        AtomicReferenceArray<Position> current = slots;
+        return pairId >= 0 && pairId < current.length() ? current.get(pairId) : null;
+    }
+
+    /**
+     * Активная позиция по торговой паре
+     */
+    public Position get(String tradingPair) {
+        Integer id = pairIds.get(tradingPair);
+        return id != null ? get(id) : null;
+    }
+
+    public boolean contains(String tradingPair) {
+        return get(tradingPair) != null;
+    }
+
+    /**
+     * Активные позиции, новые первыми
+     */
+    public List<Position> getActivePositions() {
+        AtomicReferenceArray<Position> current = slots;
+        List<Position> result = new ArrayList<>();
+        for (int i = 0; i < current.length(); i++) {
+            Position position = current.get(i);
+            if (position != null) {
+                result.add(position);
+            }
+        }
+        result.sort(Comparator.comparing(Position::getOpenedAt,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        return result;
+    }
+
+    public int size() {
+        AtomicReferenceArray<Position> current = slots;
+        int count = 0;
+        for (int i = 0; i < current.length(); i++) {
+            if (current.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Поместить сохраненную позицию в книгу
+     *
+     * Вызывается после синхронного сохранения открытия или исполнения.
+     *
+     * @param position сохраненная активная позиция
+     */
+    public void put(Position position) {
+        int id = pairId(position.getTradingPair());
+        synchronized (this) {
+            slots.set(id, position);
+            dirty.clear(id);
+        }
+    }
+
+    /**
+     * Убрать закрытую позицию из книги
+     *
+     * Вызывается после синхронного сохранения закрытия.
+     *
+     * @param tradingPair торговая пара
+     */
+    public void remove(String tradingPair) {
+        Integer id = pairIds.get(tradingPair);
+        if (id == null) {
+            return;
+        }
+        synchronized (this) {
+            slots.set(id, null);
+            dirty.clear(id);
+        }
+    }
+
+    /**
+     * Перечитать активную позицию пары из БД
+     *
+     * Вызывается после отката транзакции, изменявшей позицию.
+     *
+     * @param tradingPair торговая пара
+     */
+    public void reload(String tradingPair) {
+        positionRepository.findByTradingPairAndIsActiveTrue(tradingPair)
+                .ifPresentOrElse(this::put, () -> remove(tradingPair));
+    }
+
+    /**
+     * Обновить цену позиции (P&L, экстремумы, трейлинг-стоп) без записи в БД
+     *
+     * @param position позиция из книги
+     * @param price текущая цена
+     */
+    public void updatePrice(Position position, BigDecimal price) {
+        int id = pairId(position.getTradingPair());
+        synchronized (this) {
+            position.updateCurrentPrice(price);
+            if (slots.get(id) == position) {
+                dirty.set(id);
+            }
+        }
+    }
+
+    /**
+     * Записать накопленные изменения от цены одним пакетом
+     */
+    @Scheduled(fixedDelayString = "${positions.persistence.flush-interval-ms:1000}")
+    public void flush() {
+        List<Object[]> rows;
+        BitSet flushed;
+        synchronized (this) {
+            if (dirty.isEmpty()) {
+                return;
+            }
+            flushed = (BitSet) dirty.clone();
+            rows = new ArrayList<>(flushed.cardinality());
+            for (int id = flushed.nextSetBit(0); id >= 0; id = flushed.nextSetBit(id + 1)) {
+                Position position = slots.get(id);
+                if (position != null && position.getId() != null) {
+                    rows.add(toRow(position));
+                }
+            }
+            dirty.clear();
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            for (int from = 0; from < rows.size(); from += batchSize) {
+                List<Object[]> batch = rows.subList(from, Math.min(rows.size(), from + batchSize));
+                jdbcTemplate.batchUpdate(UPDATE_SQL, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Object[] row = batch.get(i);
+                        for (int column = 0; column < row.length; column++) {
+                            ps.setObject(column + 1, row[column]);
+                        }
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                });
+            }
+            flushedCounter.increment(rows.size());
+            log.debug("Flushed {} position updates", rows.size());
+
+        } catch (Exception e) {
+            failedCounter.increment(rows.size());
+            log.error("Failed to flush {} position updates: {}", rows.size(), e.getMessage());
+
+            // Повторяем в следующем цикле для позиций, которые еще в книге
+            synchronized (this) {
+                for (int id = flushed.nextSetBit(0); id >= 0; id = flushed.nextSetBit(id + 1)) {
+                    if (slots.get(id) != null) {
+                        dirty.set(id);
+                    }
+                }
+            }
+        } finally {
+            sample.stop(flushTimer);
+        }
+    }
+
+    /**
+     * Значения для UPDATE_SQL (копируются под монитором книги)
+     */
+    private static Object[] toRow(Position position) {
+        return new Object[]{
+                position.getCurrentPrice(),
+                position.getCurrentValue(),
+                position.getUnrealizedPnl(),
+                position.getUnrealizedPnlPercent(),
+                position.getMaxProfit(),
+                position.getMaxProfitPercent(),
+                position.getMaxDrawdown(),
+                position.getMaxDrawdownPercent(),
+                position.getStopLossPrice(),
+                position.getTrailingStopMaxPrice(),
+                Timestamp.valueOf(LocalDateTime.now()),
+                position.getId()
+        };
+    }
+
+    /**
+     * Увеличить массив слотов (под монитором книги)
+     */
+    private void ensureCapacity(int required) {
+        AtomicReferenceArray<Position> current = slots;
+        if (required <= current.length()) {
+            return;
+        }
+        AtomicReferenceArray<Position> grown = new AtomicReferenceArray<>(Math.max(required, current.length() * 2));
+        for (int i = 0; i < current.length(); i++) {
+            grown.set(i, current.get(i));
+        }
+        slots = grown;
+    }
+}
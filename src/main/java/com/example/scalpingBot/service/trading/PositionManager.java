@@ -7,6 +7,8 @@ import com.example.scalpingBot.enums.OrderSide;
 import com.example.scalpingBot.enums.RiskLevel;
 import com.example.scalpingBot.enums.TradingPairType;
 import com.example.scalpingBot.repository.PositionRepository;
+import com.example.scalpingBot.service.market.MarketDataService;
+import com.example.scalpingBot.service.risk.RiskBook;
 import com.example.scalpingBot.utils.DateUtils;
 import com.example.scalpingBot.utils.MathUtils;
 import lombok.RequiredArgsConstructor;
@@ -15,12 +17,13 @@ import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -40,24 +43,25 @@ import java.util.stream.Collectors;
  * Все операции оптимизированы для скальпинг-стратегии
  * с акцентом на быстрое открытие/закрытие позиций.
  *
+ * Активные позиции читаются из PositionBook без обращения к БД.
+ * Открытия, исполнения и закрытия сохраняются синхронно и попадают в
+ * книги позиций и риска только после фиксации транзакции; изменения
+ * от цены записываются книгой пакетами.
+ *
  * @author ScalpingBot Team
  * @version 1.0
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
-@Transactional
 public class PositionManager {
 
     private final PositionRepository positionRepository;
     private final TradingConfig tradingConfig;
     private final MarketDataService marketDataService;
     private final NotificationService notificationService;
-
-    /**
-     * Кеш активных позиций для быстрого доступа
-     */
-    private final Map<String, Position> activePositionsCache = new ConcurrentHashMap<>();
+    private final RiskBook riskBook;
+    private final PositionBook positionBook;
 
     /**
      * Кеш последних цен для обновления P&L
@@ -77,12 +81,11 @@ public class PositionManager {
                     trade.getOrderSide(), trade.getQuantity(), trade.getTradingPair(), trade.getAvgPrice());
 
             // Проверяем, есть ли уже активная позиция по этой паре
-            Optional<Position> existingPosition = positionRepository
-                    .findByTradingPairAndIsActiveTrue(trade.getTradingPair());
+            Position existingPosition = positionBook.get(trade.getTradingPair());
 
-            if (existingPosition.isPresent()) {
+            if (existingPosition != null) {
                 // Обновляем существующую позицию
-                return updateExistingPosition(existingPosition.get(), trade);
+                return updateExistingPosition(existingPosition, trade);
             } else {
                 // Создаем новую позицию
                 return createNewPosition(trade);
@@ -101,7 +104,8 @@ public class PositionManager {
      * @return новая позиция
      */
     private Position createNewPosition(Trade trade) {
-        BigDecimal entryValue = trade.getQuantity().multiply(trade.getAvgPrice());
+        BigDecimal size = filledQuantity(trade);
+        BigDecimal entryValue = size.multiply(trade.getAvgPrice());
 
         Position position = Position.builder()
                 .tradingPair(trade.getTradingPair())
@@ -109,7 +113,7 @@ public class PositionManager {
                 .side(trade.getOrderSide())
                 .status(Position.PositionStatus.OPEN)
                 .isActive(true)
-                .size(trade.getQuantity())
+                .size(size)
                 .entryPrice(trade.getAvgPrice())
                 .currentPrice(trade.getAvgPrice())
                 .entryValue(entryValue)
@@ -135,8 +139,8 @@ public class PositionManager {
         // Сохраняем позицию
         position = positionRepository.save(position);
 
-        // Добавляем в кеш
-        activePositionsCache.put(trade.getTradingPair(), position);
+        // Добавляем в книгу позиций
+        applyToBooks(position);
 
         // Связываем торговую операцию с позицией
         trade.setPositionId(position.getId());
@@ -176,11 +180,12 @@ public class PositionManager {
      */
     private Position increasePosition(Position position, Trade trade) {
         BigDecimal oldSize = position.getSize();
-        BigDecimal newSize = oldSize.add(trade.getQuantity());
+        BigDecimal addedSize = filledQuantity(trade);
+        BigDecimal newSize = oldSize.add(addedSize);
 
         // Рассчитываем новую среднюю цену входа
         BigDecimal oldValue = oldSize.multiply(position.getEntryPrice());
-        BigDecimal newValue = trade.getQuantity().multiply(trade.getAvgPrice());
+        BigDecimal newValue = addedSize.multiply(trade.getAvgPrice());
         BigDecimal totalValue = oldValue.add(newValue);
         BigDecimal newAvgPrice = totalValue.divide(newSize, 8, BigDecimal.ROUND_HALF_UP);
 
@@ -196,7 +201,7 @@ public class PositionManager {
         updatePositionPnL(position);
 
         position = positionRepository.save(position);
-        activePositionsCache.put(position.getTradingPair(), position);
+        applyToBooks(position);
 
         log.info("Increased position {}: {} → {} at avg price {}",
                 position.getId(), oldSize, newSize, newAvgPrice);
@@ -204,6 +209,23 @@ public class PositionManager {
         return position;
     }
 
+    /**
+     * Учесть исполненную часть закрытия позиции на одной из бирж
+     *
+     * @param position позиция
+     * @param trade исполненный ордер на закрытие
+     * @return обновленная позиция (закрытая, если исполнен весь объем)
+     */
+    @Transactional
+    public Position reducePosition(Position position, Trade trade) {
+        BigDecimal closedSize = filledQuantity(trade);
+
+        if (closedSize.compareTo(position.getSize()) >= 0) {
+            return closePosition(position, trade.getAvgPrice(), trade.getCloseReason());
+        }
+        return partiallyClosePosition(position, trade, closedSize);
+    }
+
     /**
      * Уменьшить размер позиции или закрыть ее
      *
@@ -213,26 +235,37 @@ public class PositionManager {
      */
     private Position decreasePosition(Position position, Trade trade) {
         BigDecimal currentSize = position.getSize();
-        BigDecimal closeSize = trade.getQuantity();
+        BigDecimal closeSize = filledQuantity(trade);
 
         if (closeSize.compareTo(currentSize) >= 0) {
             // Полное закрытие позиции
             return closePosition(position, trade.getAvgPrice(), "Fully closed by opposite trade");
         } else {
             // Частичное закрытие позиции
-            return partiallyClosePosition(position, trade);
+            return partiallyClosePosition(position, trade, closeSize);
         }
     }
 
+    /**
+     * Исполненный объем ордера (ордер мог быть отменен после частичного исполнения)
+     *
+     * @param trade торговая операция
+     * @return исполненный объем, а если он неизвестен - объем ордера
+     */
+    private static BigDecimal filledQuantity(Trade trade) {
+        return trade.getExecutedQuantity() != null && trade.getExecutedQuantity().signum() > 0
+                ? trade.getExecutedQuantity() : trade.getQuantity();
+    }
+
     /**
      * Частично закрыть позицию
      *
      * @param position позиция
      * @param trade торговая операция
+     * @param closedSize закрываемый размер
      * @return обновленная позиция
      */
-    private Position partiallyClosePosition(Position position, Trade trade) {
-        BigDecimal closedSize = trade.getQuantity();
+    private Position partiallyClosePosition(Position position, Trade trade, BigDecimal closedSize) {
         BigDecimal remainingSize = position.getSize().subtract(closedSize);
 
         // Рассчитываем реализованный P&L для закрываемой части
@@ -250,7 +283,7 @@ public class PositionManager {
         updatePositionPnL(position);
 
         position = positionRepository.save(position);
-        activePositionsCache.put(position.getTradingPair(), position);
+        applyToBooks(position);
 
         log.info("Partially closed position {}: {} → {} (closed {}), realized P&L: {}",
                 position.getId(), position.getSize().add(closedSize), remainingSize, closedSize, realizedPnl);
@@ -258,6 +291,44 @@ public class PositionManager {
         return position;
     }
 
+    /**
+     * Применить сохраненную позицию к книгам позиций и риска после фиксации транзакции
+     *
+     * При откате позиция пары перечитывается из БД: объект из книги мог
+     * быть изменен до отката.
+     *
+     * @param position сохраненная позиция (активная или закрытая)
+     */
+    private void applyToBooks(Position position) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            updateBooks(position);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    updateBooks(position);
+                } else {
+                    log.warn("Position {} change rolled back, reloading {} from database",
+                            position.getId(), position.getTradingPair());
+                    positionBook.reload(position.getTradingPair());
+                }
+            }
+        });
+    }
+
+    private void updateBooks(Position position) {
+        if (Boolean.TRUE.equals(position.getIsActive())) {
+            positionBook.put(position);
+            riskBook.onPositionChanged(position);
+        } else {
+            positionBook.remove(position.getTradingPair());
+            riskBook.onPositionClosed(position);
+        }
+    }
+
     /**
      * Рассчитать частичный P&L
      *
@@ -299,8 +370,8 @@ public class PositionManager {
             // Сохраняем в БД
             position = positionRepository.save(position);
 
-            // Удаляем из кеша активных позиций
-            activePositionsCache.remove(position.getTradingPair());
+            // Удаляем из книги активных позиций
+            applyToBooks(position);
 
             // Отправляем уведомление
             sendPositionClosedNotification(position);
@@ -381,7 +452,7 @@ public class PositionManager {
      * @return список активных позиций
      */
     public List<Position> getActivePositions() {
-        return positionRepository.findByIsActiveTrueOrderByOpenedAtDesc();
+        return positionBook.getActivePositions();
     }
 
     /**
@@ -391,13 +462,7 @@ public class PositionManager {
      * @return true если есть активная позиция
      */
     public boolean hasActivePosition(String tradingPair) {
-        // Сначала проверяем кеш
-        if (activePositionsCache.containsKey(tradingPair)) {
-            return true;
-        }
-
-        // Проверяем в БД
-        return positionRepository.hasActivePositionForPair(tradingPair);
+        return positionBook.contains(tradingPair);
     }
 
     /**
@@ -407,20 +472,20 @@ public class PositionManager {
      * @return позиция или null
      */
     public Position getActivePosition(String tradingPair) {
-        // Сначала проверяем кеш
-        Position cachedPosition = activePositionsCache.get(tradingPair);
-        if (cachedPosition != null) {
-            return cachedPosition;
-        }
-
-        // Загружаем из БД и добавляем в кеш
-        Optional<Position> position = positionRepository.findByTradingPairAndIsActiveTrue(tradingPair);
-        if (position.isPresent()) {
-            activePositionsCache.put(tradingPair, position.get());
-            return position.get();
-        }
+        return positionBook.get(tradingPair);
+    }
 
-        return null;
+    /**
+     * Обновить цену позиции из книги (P&L, экстремумы, трейлинг-стоп)
+     *
+     * Изменение выполняется под монитором книги, как и пакетная запись в БД.
+     *
+     * @param position активная позиция из книги
+     * @param currentPrice текущая цена
+     */
+    public void updateCurrentPrice(Position position, BigDecimal currentPrice) {
+        positionBook.updatePrice(position, currentPrice);
+        riskBook.onPriceTick(position.getTradingPair(), currentPrice.doubleValue());
     }
 
     /**
@@ -463,14 +528,8 @@ public class PositionManager {
             BigDecimal currentPrice = getCurrentPrice(position.getTradingPair(), position.getExchangeName());
 
             if (currentPrice != null) {
-                // Обновляем цену и P&L
-                position.updateCurrentPrice(currentPrice);
-
-                // Сохраняем изменения
-                positionRepository.save(position);
-
-                // Обновляем кеш
-                activePositionsCache.put(position.getTradingPair(), position);
+                // Обновляем цену и P&L, запись в БД - пакетом из книги позиций
+                updateCurrentPrice(position, currentPrice);
             }
 
         } catch (Exception e) {
@@ -542,7 +601,9 @@ public class PositionManager {
     public void monitorExpiredPositions() {
         try {
             LocalDateTime now = DateUtils.nowMoscow();
-            List<Position> expiredPositions = positionRepository.findExpiredPositions(now);
+            List<Position> expiredPositions = positionBook.getActivePositions().stream()
+                    .filter(p -> p.getForceCloseAt() != null && p.getForceCloseAt().isBefore(now))
+                    .collect(Collectors.toList());
 
             if (!expiredPositions.isEmpty()) {
                 log.info("Found {} expired positions that need to be closed", expiredPositions.size());
@@ -634,9 +695,6 @@ public class PositionManager {
                 }
             }
 
-            // Очищаем кеш
-            activePositionsCache.clear();
-
             log.warn("Emergency closure completed: {} of {} positions closed", closedCount, activePositions.size());
             return closedCount;
 
@@ -646,29 +704,6 @@ public class PositionManager {
         }
     }
 
-    /**
-     * Обновить кеш активных позиций
-     */
-    @Scheduled(fixedRate = 300000) // Каждые 5 минут
-    public void refreshActivePositionsCache() {
-        try {
-            List<Position> activePositions = positionRepository.findByIsActiveTrueOrderByOpenedAtDesc();
-
-            // Очищаем старый кеш
-            activePositionsCache.clear();
-
-            // Заполняем новыми данными
-            for (Position position : activePositions) {
-                activePositionsCache.put(position.getTradingPair(), position);
-            }
-
-            log.debug("Refreshed active positions cache: {} positions", activePositions.size());
-
-        } catch (Exception e) {
-            log.error("Failed to refresh positions cache: {}", e.getMessage());
-        }
-    }
-
     // === Вложенные классы ===
 
     /**
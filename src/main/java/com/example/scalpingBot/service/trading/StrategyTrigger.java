@@ -0,0 +1,106 @@
+package com.example.scalpingBot.service.trading;
+
+import com.example.scalpingBot.service.market.CandleAggregator;
+import com.example.scalpingBot.service.market.MarketDataService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Запуск торговой стратегии по рыночным событиям
+ *
+ * Основные функции:
+ * - Анализ пары сразу после закрытия бара основного таймфрейма
+ * - Анализ пары при смещении середины спреда больше порога (в б.п.)
+ *   от цены на момент предыдущего запуска
+ * - Торговый цикл с фиксированным интервалом как резервный пульс
+ *   (мониторинг позиций и анализ пар, для которых не было событий)
+ *
+ * Схлопывание всплесков и запрет параллельного анализа одной пары
+ * обеспечивает PairAnalysisExecutor.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StrategyTrigger {
+
+    private final TradingService tradingService;
+    private final CandleAggregator candleAggregator;
+    private final MarketDataService marketDataService;
+
+    @Value("${scheduler.event-trigger.enabled:true}")
+    private boolean eventTriggerEnabled;
+
+    @Value("${scheduler.event-trigger.book-change-bps:5}")
+    private double bookChangeBps;
+
+    @Value("${scheduler.tasks.trading-analysis.enabled:true}")
+    private boolean heartbeatEnabled;
+
+    /**
+     * Середина спреда на момент последнего запуска по стакану (FixedPointUtils)
+     */
+    private final Map<String, AtomicLong> referenceMids = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (!eventTriggerEnabled) {
+            log.info("Event-driven strategy trigger disabled, using fixed-rate cycle only");
+            return;
+        }
+
+        candleAggregator.subscribe((pair, interval, buffer) -> {
+            if (interval.equals(candleAggregator.getBaseInterval())) {
+                tradingService.onMarketEvent(pair);
+            }
+        });
+
+        if (bookChangeBps > 0) {
+            marketDataService.subscribeBookChanges(this::onBookChanged);
+        }
+
+        log.info("Event-driven strategy trigger: bar close ({}), book move >= {} bps",
+                candleAggregator.getBaseInterval(), bookChangeBps);
+    }
+
+    /**
+     * Резервный торговый цикл
+     */
+    @Scheduled(fixedRateString = "${scheduler.tasks.trading-analysis.fixed-rate-seconds:15}000",
+            initialDelayString = "${scheduler.tasks.trading-analysis.initial-delay-seconds:30}000")
+    public void heartbeat() {
+        if (heartbeatEnabled) {
+            tradingService.executeScalpingCycle();
+        }
+    }
+
+    private void onBookChanged(String tradingPair, long bidPrice, long askPrice) {
+        if (bidPrice <= 0 || askPrice <= 0) {
+            return;
+        }
+
+        long mid = (bidPrice + askPrice) >>> 1;
+        AtomicLong reference = referenceMids.computeIfAbsent(tradingPair, k -> new AtomicLong());
+        long previous = reference.get();
+
+        if (previous == 0) {
+            reference.compareAndSet(0, mid);
+            return;
+        }
+
+        if (Math.abs(mid - previous) * 10_000.0 >= bookChangeBps * previous
+                && reference.compareAndSet(previous, mid)) {
+            tradingService.onMarketEvent(tradingPair);
+        }
+    }
+}
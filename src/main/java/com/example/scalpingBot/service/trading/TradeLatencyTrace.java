@@ -0,0 +1,134 @@
+package com.example.scalpingBot.service.trading;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Трассировка задержки сделки от сигнала до открытия позиции
+ *
+ * Хранит монотонные отметки System.nanoTime() по этапам: время этапа -
+ * интервал от предыдущей отметки. Этапы выполняются разными потоками
+ * (анализ пары, пул исполнения ордеров, обработчик результата), но строго
+ * последовательно - передача через пул и CompletableFuture обеспечивает
+ * видимость отметок.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public class TradeLatencyTrace {
+
+    /**
+     * Этапы сделки
+     */
+    public enum Stage {
+        ANALYSIS,   // От запуска анализа (цикл или событие) до сигнала на вход
+        SIZING,     // Ожидание исполнения, расчет параметров позиции, риск-проверки
+        ROUTING,    // Выбор бирж для ордера по локальному состоянию
+        PERSIST,    // Создание ордера и сохранение в БД
+        DISPATCH,   // Передача в пул исполнения, валидация, статус SUBMITTED
+        EXCHANGE,   // Запрос к бирже до получения ответа
+        FILL,       // Обработка ответа биржи и сохранение исполнения
+        POSITION    // Создание позиции по исполненному ордеру
+    }
+
+    private static final long NOT_MARKED = -1L;
+
+    private final String tradingPair;
+    private final String exchangeName;
+    private final long startNanos;
+    private final long[] stageNanos = new long[Stage.values().length];
+    private long lastMark;
+
+    public TradeLatencyTrace(String tradingPair, String exchangeName, long startNanos) {
+        this.tradingPair = tradingPair;
+        this.exchangeName = exchangeName;
+        this.startNanos = startNanos;
+        this.lastMark = startNanos;
+        Arrays.fill(stageNanos, NOT_MARKED);
+    }
+
+    /**
+     * Копия трассировки для дочернего ордера на другой бирже
+     *
+     * Отметки до разделения ордера общие, последующие ведутся независимо.
+     *
+     * @param venue биржа дочернего ордера
+     * @return новая трассировка с теми же отметками
+     */
+    public TradeLatencyTrace forVenue(String venue) {
+        TradeLatencyTrace copy = new TradeLatencyTrace(tradingPair, venue, startNanos);
+        System.arraycopy(stageNanos, 0, copy.stageNanos, 0, stageNanos.length);
+        copy.lastMark = lastMark;
+        return copy;
+    }
+
+    /**
+     * Отметить окончание этапа
+     *
+     * @param stage завершенный этап
+     */
+    public void mark(Stage stage) {
+        long now = System.nanoTime();
+        stageNanos[stage.ordinal()] = now - lastMark;
+        lastMark = now;
+    }
+
+    public boolean isMarked(Stage stage) {
+        return stageNanos[stage.ordinal()] != NOT_MARKED;
+    }
+
+    public long getStageNanos(Stage stage) {
+        return Math.max(0, stageNanos[stage.ordinal()]);
+    }
+
+    /**
+     * Время от запуска анализа до последней отметки
+     */
+    public long getTotalNanos() {
+        return lastMark - startNanos;
+    }
+
+    public String getTradingPair() {
+        return tradingPair;
+    }
+
+    public String getExchangeName() {
+        return exchangeName;
+    }
+
+    /**
+     * Время по отмеченным этапам (мкс)
+     */
+    public Map<Stage, Long> getStageMicros() {
+        Map<Stage, Long> result = new EnumMap<>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            if (isMarked(stage)) {
+                result.put(stage, stageNanos[stage.ordinal()] / 1_000);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Разбивка по этапам в JSON для сохранения в сделке (мкс)
+     *
+     * @return например {"ANALYSIS":1520,"SIZING":310,"EXCHANGE":48211}
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(160).append('{');
+        for (Map.Entry<Stage, Long> entry : getStageMicros().entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append('"').append(entry.getKey().name()).append("\":").append(entry.getValue());
+        }
+        return json.append('}').toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%s in %.1f ms %s", tradingPair, exchangeName,
+                getTotalNanos() / 1_000_000.0, getStageMicros());
+    }
+}
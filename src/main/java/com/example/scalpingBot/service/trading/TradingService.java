@@ -10,7 +10,12 @@ import com.example.scalpingBot.enums.OrderType;
 import com.example.scalpingBot.enums.RiskLevel;
 import com.example.scalpingBot.exception.TradingException;
 import com.example.scalpingBot.repository.TradeRepository;
+import com.example.scalpingBot.service.market.MarketDataService;
+import com.example.scalpingBot.service.notification.NotificationService;
+import com.example.scalpingBot.service.risk.RiskBook;
 import com.example.scalpingBot.service.risk.RiskManager;
+import com.example.scalpingBot.service.strategy.TradingSignal;
+import com.example.scalpingBot.service.strategy.TradingStrategy;
 import com.example.scalpingBot.utils.DateUtils;
 import com.example.scalpingBot.utils.MathUtils;
 import com.example.scalpingBot.utils.ValidationUtils;
@@ -21,9 +26,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Основной сервис для управления торговыми операциями скальпинг-бота
@@ -52,9 +62,26 @@ public class TradingService {
     private final TradeRepository tradeRepository;
     private final MarketDataService marketDataService;
     private final RiskManager riskManager;
+    private final RiskBook riskBook;
     private final PositionManager positionManager;
     private final OrderExecutionService orderExecutionService;
     private final NotificationService notificationService;
+    private final TradingStrategy tradingStrategy;
+    private final PairAnalysisExecutor pairAnalysisExecutor;
+    private final LatencyTracer latencyTracer;
+    private final OrderRouter orderRouter;
+
+    /**
+     * Блокировка исполнения сигналов при параллельном анализе пар:
+     * риск-проверка и резерв входа в RiskBook выполняются атомарно
+     */
+    private final Object executionLock = new Object();
+
+    /**
+     * Позиции, ордера на закрытие которых еще не получили окончательного
+     * статуса: повторное закрытие не отправляется
+     */
+    private final Set<Long> closingPositions = ConcurrentHashMap.newKeySet();
 
     /**
      * Константы для торговли
@@ -104,20 +131,41 @@ public class TradingService {
         return CompletableFuture.completedFuture(null);
     }
 
+    /**
+     * Проанализировать пару по рыночному событию (закрытие бара, движение стакана)
+     *
+     * Вызывается из потока рыночных данных и не блокирует его: анализ
+     * выполняется на PairAnalysisExecutor, всплески событий по паре схлопываются.
+     *
+     * @param tradingPair торговая пара
+     */
+    public void onMarketEvent(String tradingPair) {
+        if (!tradingConfig.isTradingAllowed()) {
+            return;
+        }
+        pairAnalysisExecutor.trigger(tradingPair, this::analyzeOnEvent);
+    }
+
+    /**
+     * Анализ пары по событию с проверкой общих ограничений риска
+     */
+    private void analyzeOnEvent(String tradingPair, PairAnalysisTimings timings) {
+        if (!riskManager.canOpenNewPosition()) {
+            return;
+        }
+        analyzeAndTradeSymbol(tradingPair, timings);
+    }
+
     /**
      * Анализировать рынок и принимать торговые решения
+     *
+     * Пары анализируются параллельно на PairAnalysisExecutor с дедлайном цикла,
+     * медленная пара не задерживает остальные.
      */
     private void analyzeAndTrade() {
         try {
             List<String> tradingPairs = tradingConfig.getTradingPairs();
-
-            for (String pair : tradingPairs) {
-                try {
-                    analyzeAndTradeSymbol(pair);
-                } catch (Exception e) {
-                    log.error("Error analyzing {}: {}", pair, e.getMessage());
-                }
-            }
+            pairAnalysisExecutor.analyzeAll(tradingPairs, this::analyzeAndTradeSymbol);
 
         } catch (Exception e) {
             log.error("Error in analyze and trade: {}", e.getMessage());
@@ -128,13 +176,15 @@ public class TradingService {
      * Анализировать конкретную торговую пару и принять решение
      *
      * @param tradingPair торговая пара для анализа
+     * @param timings разбивка времени анализа по этапам
      */
-    private void analyzeAndTradeSymbol(String tradingPair) {
+    private void analyzeAndTradeSymbol(String tradingPair, PairAnalysisTimings timings) {
         log.debug("Analyzing trading opportunity for {}", tradingPair);
 
         try {
             // Получаем актуальные рыночные данные
             MarketData marketData = marketDataService.getCurrentMarketData(tradingPair, "binance");
+            timings.mark(PairAnalysisTimings.Stage.MARKET_DATA);
 
             if (marketData == null || !marketData.isHighQualityData()) {
                 log.debug("Poor quality market data for {}, skipping", tradingPair);
@@ -142,23 +192,34 @@ public class TradingService {
             }
 
             // Проверяем, есть ли уже активная позиция по этой паре
-            if (positionManager.hasActivePosition(tradingPair)) {
+            boolean hasActivePosition = positionManager.hasActivePosition(tradingPair);
+            timings.mark(PairAnalysisTimings.Stage.POSITION_CHECK);
+            if (hasActivePosition) {
                 log.debug("Active position already exists for {}, skipping", tradingPair);
                 return;
             }
 
             // Проверяем рыночные условия
-            if (!isMarketSuitableForScalping(marketData)) {
+            if (!tradingStrategy.isMarketSuitable(marketData)) {
                 log.debug("Market conditions not suitable for scalping {}", tradingPair);
                 return;
             }
 
             // Генерируем торговый сигнал
-            TradingSignal signal = generateTradingSignal(marketData);
-
-            if (signal.getStrength().abs().compareTo(new BigDecimal("0.7")) >= 0) {
-                // Сильный сигнал - пытаемся открыть позицию
-                executeTradeSignal(tradingPair, signal, marketData);
+            TradingSignal signal = tradingStrategy.generateSignal(marketData);
+            boolean entrySignal = tradingStrategy.isEntrySignal(signal);
+            timings.mark(PairAnalysisTimings.Stage.SIGNAL);
+
+            if (entrySignal) {
+                TradeLatencyTrace trace = latencyTracer.start(tradingPair, "binance", timings.getSubmittedAtNanos());
+                trace.mark(TradeLatencyTrace.Stage.ANALYSIS);
+
+                // Сильный сигнал - пытаемся открыть позицию.
+                // Проверка и резерв последовательны, чтобы риск-проверки видели входы других пар
+                synchronized (executionLock) {
+                    executeTradeSignal(tradingPair, signal, marketData, trace);
+                }
+                timings.mark(PairAnalysisTimings.Stage.EXECUTION);
             }
 
         } catch (Exception e) {
@@ -166,141 +227,16 @@ public class TradingService {
         }
     }
 
-    /**
-     * Проверить, подходят ли рыночные условия для скальпинга
-     *
-     * @param marketData рыночные данные
-     * @return true если условия подходят
-     */
-    private boolean isMarketSuitableForScalping(MarketData marketData) {
-        // Проверяем базовые условия
-        if (!marketData.isSuitableForScalping()) {
-            return false;
-        }
-
-        // Проверяем волатильность (не слишком высокая и не слишком низкая)
-        if (marketData.getAtrPercent() != null) {
-            BigDecimal minVol = new BigDecimal("0.5");
-            BigDecimal maxVol = tradingConfig.getStrategy().getMaxSpreadPercent().multiply(new BigDecimal("10"));
-
-            if (marketData.getAtrPercent().compareTo(minVol) < 0 ||
-                    marketData.getAtrPercent().compareTo(maxVol) > 0) {
-                return false;
-            }
-        }
-
-        // Проверяем спред
-        if (marketData.getSpreadPercent() != null &&
-                marketData.getSpreadPercent().compareTo(tradingConfig.getStrategy().getMaxSpreadPercent()) > 0) {
-            return false;
-        }
-
-        // Проверяем объем
-        if (marketData.getVolume24h() != null &&
-                marketData.getVolume24h().compareTo(tradingConfig.getStrategy().getMinimumVolumeUsdt()) < 0) {
-            return false;
-        }
-
-        return true;
-    }
-
-    /**
-     * Генерировать торговый сигнал на основе технического анализа
-     *
-     * @param marketData рыночные данные
-     * @return торговый сигнал
-     */
-    private TradingSignal generateTradingSignal(MarketData marketData) {
-        BigDecimal bullishStrength = marketData.getBullishSignalStrength();
-        BigDecimal bearishStrength = marketData.getBearishSignalStrength();
-
-        // Определяем общую силу сигнала
-        BigDecimal netStrength = bullishStrength.subtract(bearishStrength).divide(new BigDecimal("100"));
-
-        // Определяем направление
-        OrderSide side = netStrength.compareTo(BigDecimal.ZERO) > 0 ? OrderSide.BUY : OrderSide.SELL;
-
-        // Определяем уровень уверенности
-        BigDecimal confidence = calculateSignalConfidence(marketData);
-
-        return TradingSignal.builder()
-                .side(side)
-                .strength(netStrength.abs())
-                .confidence(confidence)
-                .timestamp(DateUtils.nowMoscow())
-                .build();
-    }
-
-    /**
-     * Рассчитать уровень уверенности в сигнале
-     *
-     * @param marketData рыночные данные
-     * @return уровень уверенности (0-1)
-     */
-    private BigDecimal calculateSignalConfidence(MarketData marketData) {
-        BigDecimal confidence = new BigDecimal("0.5"); // Базовый уровень
-
-        // Увеличиваем уверенность при хорошей ликвидности
-        if (marketData.getLiquidityIndex() != null &&
-                marketData.getLiquidityIndex().compareTo(new BigDecimal("80")) >= 0) {
-            confidence = confidence.add(new BigDecimal("0.2"));
-        }
-
-        // Увеличиваем при низком спреде
-        if (marketData.getSpreadPercent() != null &&
-                marketData.getSpreadPercent().compareTo(new BigDecimal("0.05")) <= 0) {
-            confidence = confidence.add(new BigDecimal("0.15"));
-        }
-
-        // Увеличиваем при подтверждении нескольких индикаторов
-        int confirmingIndicators = countConfirmingIndicators(marketData);
-        confidence = confidence.add(new BigDecimal(confirmingIndicators * 0.1));
-
-        return MathUtils.clamp(confidence, BigDecimal.ZERO, BigDecimal.ONE);
-    }
-
-    /**
-     * Подсчитать количество подтверждающих индикаторов
-     *
-     * @param marketData рыночные данные
-     * @return количество подтверждающих индикаторов
-     */
-    private int countConfirmingIndicators(MarketData marketData) {
-        int count = 0;
-
-        // RSI
-        if (marketData.getRsi() != null) {
-            if (marketData.getRsi().compareTo(new BigDecimal("30")) <= 0 ||
-                    marketData.getRsi().compareTo(new BigDecimal("70")) >= 0) {
-                count++;
-            }
-        }
-
-        // MACD
-        if (marketData.getMacdLine() != null && marketData.getMacdSignal() != null) {
-            // Проверяем пересечение MACD
-            BigDecimal macdDiff = marketData.getMacdLine().subtract(marketData.getMacdSignal());
-            if (macdDiff.abs().compareTo(new BigDecimal("0.1")) >= 0) {
-                count++;
-            }
-        }
-
-        // Bollinger Bands
-        if (marketData.isBollingerBreakout()) {
-            count++;
-        }
-
-        return count;
-    }
-
     /**
      * Выполнить торговый сигнал
      *
      * @param tradingPair торговая пара
      * @param signal торговый сигнал
      * @param marketData рыночные данные
+     * @param trace трассировка задержки сделки
      */
-    private void executeTradeSignal(String tradingPair, TradingSignal signal, MarketData marketData) {
+    private void executeTradeSignal(String tradingPair, TradingSignal signal, MarketData marketData,
+                                    TradeLatencyTrace trace) {
         try {
             log.info("Executing {} signal for {} with strength {}",
                     signal.getSide(), tradingPair, signal.getStrength());
@@ -319,8 +255,22 @@ public class TradingService {
                 return;
             }
 
+            // Резервируем вход до исполнения ордеров
+            double entryValue = params.getQuantity().multiply(params.getPrice()).doubleValue();
+            if (!riskBook.reserve(tradingPair, params.getSide(), entryValue)) {
+                log.debug("Entry already in progress for {}, skipping", tradingPair);
+                return;
+            }
+            trace.mark(TradeLatencyTrace.Stage.SIZING);
+
             // Размещаем ордер
-            Trade trade = placeOrder(params);
+            Trade trade;
+            try {
+                trade = placeOrder(params, trace);
+            } catch (RuntimeException e) {
+                riskBook.release(tradingPair);
+                throw e;
+            }
 
             if (trade != null) {
                 log.info("Successfully placed {} order for {}: {} at {}",
@@ -349,7 +299,7 @@ public class TradingService {
     private PositionParameters calculatePositionParameters(String tradingPair, TradingSignal signal, MarketData marketData) {
         try {
             BigDecimal currentPrice = marketData.getClosePrice();
-            BigDecimal accountBalance = riskManager.getAvailableBalance();
+            BigDecimal accountBalance = riskManager.getAccountEquity();
 
             // Определяем размер позиции на основе риска
             BigDecimal riskPercent = tradingConfig.getStrategy().getStopLossPercent();
@@ -386,6 +336,14 @@ public class TradingService {
                 return null;
             }
 
+            // Покупка оплачивается свободным USDT
+            BigDecimal orderValue = quantity.multiply(currentPrice);
+            if (signal.getSide() == OrderSide.BUY && !riskManager.canAffordOrder(orderValue)) {
+                log.warn("Insufficient free balance for {}: order value {} exceeds {}",
+                        tradingPair, orderValue, riskManager.getAvailableBalance());
+                return null;
+            }
+
             return PositionParameters.builder()
                     .tradingPair(tradingPair)
                     .side(signal.getSide())
@@ -405,12 +363,19 @@ public class TradingService {
     }
 
     /**
-     * Разместить ордер на бирже
+     * Разместить ордер на биржах
+     *
+     * Биржи выбирает OrderRouter; при разделении каждый дочерний ордер
+     * исполняется независимо, а позиция создается из исполненных частей
+     * последовательно после того, как все дочерние ордера получили
+     * окончательный статус (Bybit сообщает исполнение потоком ордеров
+     * уже после ответа на размещение). Затем снимается резерв входа в RiskBook.
      *
      * @param params параметры позиции
-     * @return созданная торговая операция
+     * @param trace трассировка задержки сделки
+     * @return торговая операция на основной бирже
      */
-    private Trade placeOrder(PositionParameters params) {
+    private Trade placeOrder(PositionParameters params, TradeLatencyTrace trace) {
         try {
             // Валидируем параметры
             ValidationUtils.validateOrderParameters(
@@ -421,42 +386,66 @@ public class TradingService {
                     params.getPrice()
             );
 
-            // Создаем объект Trade
-            Trade trade = Trade.builder()
-                    .tradingPair(params.getTradingPair())
-                    .orderType(OrderType.MARKET)
-                    .orderSide(params.getSide())
-                    .quantity(params.getQuantity())
-                    .price(params.getPrice())
-                    .stopLossPrice(params.getStopLossPrice())
-                    .takeProfitPrice(params.getTakeProfitPrice())
-                    .status(OrderStatus.PENDING)
-                    .exchangeName("binance")
-                    .isScalping(true)
-                    .strategyName("ScalpingStrategy")
-                    .signalStrength(params.getSignalStrength())
-                    .createdAt(DateUtils.nowMoscow())
-                    .build();
+            // Выбираем биржи по локальным стаканам, комиссиям, задержкам и rate limit
+            OrderRouter.RoutePlan plan = orderRouter.route(params.getTradingPair(), params.getSide(), params.getQuantity());
+            trace.mark(TradeLatencyTrace.Stage.ROUTING);
+
+            List<Trade> legTrades = new ArrayList<>(plan.getLegs().size());
+            List<TradeLatencyTrace> legTraces = new ArrayList<>(plan.getLegs().size());
+            List<CompletableFuture<Trade>> executions = new ArrayList<>(plan.getLegs().size());
+
+            for (OrderRouter.RouteLeg leg : plan.getLegs()) {
+                TradeLatencyTrace legTrace = trace.forVenue(leg.getVenue());
+
+                // Создаем объект Trade
+                Trade trade = Trade.builder()
+                        .tradingPair(params.getTradingPair())
+                        .orderType(OrderType.MARKET)
+                        .orderSide(params.getSide())
+                        .quantity(leg.getQuantity())
+                        .price(params.getPrice())
+                        .stopLossPrice(params.getStopLossPrice())
+                        .takeProfitPrice(params.getTakeProfitPrice())
+                        .status(OrderStatus.PENDING)
+                        .exchangeName(leg.getVenue())
+                        .isScalping(true)
+                        .strategyName("ScalpingStrategy")
+                        .signalStrength(params.getSignalStrength())
+                        .createdAt(DateUtils.nowMoscow())
+                        .build();
+
+                // Сохраняем в БД
+                trade = tradeRepository.save(trade);
+                legTrace.mark(TradeLatencyTrace.Stage.PERSIST);
+                latencyTracer.attach(trade, legTrace);
+
+                legTrades.add(trade);
+                legTraces.add(legTrace);
+            }
 
-            // Сохраняем в БД
-            trade = tradeRepository.save(trade);
+            if (plan.isSplit()) {
+                log.info("Splitting {} {} {} across {} venues", params.getSide(), params.getQuantity(),
+                        params.getTradingPair(), plan.getLegs().size());
+            }
 
             // Отправляем на исполнение
-            CompletableFuture<Trade> executionResult = orderExecutionService.executeOrder(trade);
+            for (Trade trade : legTrades) {
+                executions.add(orderExecutionService.executeOrder(trade));
+            }
 
             // Асинхронно обрабатываем результат
-            executionResult.thenAccept(executedTrade -> {
-                if (executedTrade.getStatus() == OrderStatus.FILLED) {
-                    // Создаем позицию
-                    positionManager.createPositionFromTrade(executedTrade);
-                } else if (executedTrade.getStatus() == OrderStatus.REJECTED) {
-                    notificationService.sendErrorAlert("Order Rejected",
-                            String.format("Order rejected for %s: %s",
-                                    executedTrade.getTradingPair(), executedTrade.getNotes()));
-                }
-            });
-
-            return trade;
+            CompletableFuture.allOf(executions.toArray(new CompletableFuture[0]))
+                    .whenComplete((ignored, error) -> {
+                        try {
+                            for (int i = 0; i < legTrades.size(); i++) {
+                                completeLeg(legTrades.get(i), executions.get(i), legTraces.get(i));
+                            }
+                        } finally {
+                            riskBook.release(params.getTradingPair());
+                        }
+                    });
+
+            return legTrades.get(0);
 
         } catch (Exception e) {
             log.error("Failed to place order: {}", e.getMessage());
@@ -465,6 +454,50 @@ public class TradingService {
         }
     }
 
+    /**
+     * Обработать результат дочернего ордера на вход
+     *
+     * Вызывается последовательно для всех частей, поэтому первая исполненная
+     * часть открывает позицию, а следующие ее увеличивают. Часть, отмененная
+     * после частичного исполнения, учитывается исполненным объемом. Сделка
+     * связывается с позицией, чтобы закрытие знало объем на каждой бирже.
+     *
+     * @param submittedTrade отправленная торговая операция
+     * @param execution завершенный ордер
+     * @param trace трассировка задержки части
+     */
+    private void completeLeg(Trade submittedTrade, CompletableFuture<Trade> execution, TradeLatencyTrace trace) {
+        if (execution.isCompletedExceptionally()) {
+            latencyTracer.complete(submittedTrade, trace, "ERROR");
+            return;
+        }
+
+        Trade executedTrade = execution.join();
+        String outcome = executedTrade.getStatus().name();
+        try {
+            if (hasFill(executedTrade)) {
+                // Создаем позицию
+                Position position = positionManager.createPositionFromTrade(executedTrade);
+                trace.mark(TradeLatencyTrace.Stage.POSITION);
+
+                if (position != null && position.getId() != null) {
+                    executedTrade.setPositionId(position.getId());
+                    tradeRepository.save(executedTrade);
+                }
+            } else if (executedTrade.getStatus() == OrderStatus.REJECTED) {
+                notificationService.sendErrorAlert("Order Rejected",
+                        String.format("Order rejected for %s on %s: %s",
+                                executedTrade.getTradingPair(), executedTrade.getExchangeName(),
+                                executedTrade.getNotes()));
+            }
+        } catch (Exception e) {
+            log.error("Failed to process filled order {}: {}", executedTrade.getId(), e.getMessage());
+            outcome = "ERROR";
+        }
+
+        latencyTracer.complete(executedTrade, trace, outcome);
+    }
+
     /**
      * Мониторить существующие позиции
      */
@@ -501,7 +534,7 @@ public class TradingService {
         MarketData marketData = marketDataService.getCurrentMarketData(position.getTradingPair(), position.getExchangeName());
 
         if (marketData != null && marketData.getClosePrice() != null) {
-            position.updateCurrentPrice(marketData.getClosePrice());
+            positionManager.updateCurrentPrice(position, marketData.getClosePrice());
         }
 
         // Проверяем условия закрытия
@@ -547,24 +580,76 @@ public class TradingService {
     /**
      * Закрыть позицию
      *
+     * Позиция, набранная на нескольких биржах, закрывается на каждой бирже
+     * своим объемом; цена выхода - средневзвешенная по исполненным частям.
+     * Если исполнились не все части, исполненные уменьшают позицию, и
+     * следующая попытка закрывает только остаток на оставшихся биржах.
+     *
+     * Пока ордера на закрытие не исполнены или не отклонены, позиция
+     * помечена закрывающейся и следующие циклы мониторинга ее не закрывают.
+     *
      * @param position позиция для закрытия
      * @param reason причина закрытия
      */
     private void closePosition(Position position, String reason) {
+        if (!closingPositions.add(position.getId())) {
+            log.debug("Close of position {} is already in flight", position.getId());
+            return;
+        }
+
+        boolean dispatched = false;
         try {
             log.info("Closing position {} for {}: {}", position.getId(), position.getTradingPair(), reason);
 
-            // Размещаем ордер на закрытие
+            // Размещаем ордера на закрытие
             OrderSide closeSide = position.getSide().getOpposite();
+            Map<String, BigDecimal> allocation = getVenueAllocation(position);
+            if (allocation.isEmpty()) {
+                log.error("Position {} has no open volume on any venue, not closing", position.getId());
+                return;
+            }
+
+            List<CompletableFuture<Trade>> executions = new ArrayList<>(allocation.size());
+            for (Map.Entry<String, BigDecimal> entry : allocation.entrySet()) {
+                executions.add(submitCloseOrder(position, closeSide, entry.getKey(), entry.getValue(), reason));
+            }
+
+            dispatched = true;
+            CompletableFuture.allOf(executions.toArray(new CompletableFuture[0])).whenComplete((ignored, error) -> {
+                try {
+                    completeClose(position, reason, executions);
+                } finally {
+                    closingPositions.remove(position.getId());
+                }
+            });
 
+        } catch (Exception e) {
+            log.error("Failed to close position {}: {}", position.getId(), e.getMessage());
+            notificationService.sendErrorAlert("Position Close Failed",
+                    String.format("Failed to close position %d: %s", position.getId(), e.getMessage()));
+        } finally {
+            if (!dispatched) {
+                closingPositions.remove(position.getId());
+            }
+        }
+    }
+
+    /**
+     * Сохранить и отправить ордер на закрытие части позиции на одной бирже
+     *
+     * @return завершенный ордер или ошибка, если ордер не удалось отправить
+     */
+    private CompletableFuture<Trade> submitCloseOrder(Position position, OrderSide closeSide, String venue,
+                                                      BigDecimal quantity, String reason) {
+        try {
             Trade closeTrade = Trade.builder()
                     .tradingPair(position.getTradingPair())
                     .orderType(OrderType.MARKET)
                     .orderSide(closeSide)
-                    .quantity(position.getSize())
+                    .quantity(quantity)
                     .positionId(position.getId())
                     .status(OrderStatus.PENDING)
-                    .exchangeName(position.getExchangeName())
+                    .exchangeName(venue)
                     .isScalping(true)
                     .closeReason(reason)
                     .createdAt(DateUtils.nowMoscow())
@@ -573,23 +658,165 @@ public class TradingService {
             closeTrade = tradeRepository.save(closeTrade);
 
             // Выполняем ордер на закрытие
-            orderExecutionService.executeOrder(closeTrade).thenAccept(executedTrade -> {
-                if (executedTrade.getStatus() == OrderStatus.FILLED) {
-                    positionManager.closePosition(position, executedTrade.getAvgPrice(), reason);
+            return orderExecutionService.executeOrder(closeTrade);
 
-                    notificationService.sendTradeAlert("Position Closed",
-                            String.format("Closed %s position in %s. P&L: %.2f",
-                                    position.getSide(), position.getTradingPair(), position.getRealizedPnl()));
+        } catch (Exception e) {
+            log.error("Failed to submit close of position {} on {}: {}", position.getId(), venue, e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Применить завершенные ордера на закрытие к позиции
+     *
+     * @param position позиция
+     * @param reason причина закрытия
+     * @param executions ордера на закрытие по биржам
+     */
+    private void completeClose(Position position, String reason, List<CompletableFuture<Trade>> executions) {
+        try {
+            BigDecimal filledQuantity = BigDecimal.ZERO;
+            BigDecimal filledValue = BigDecimal.ZERO;
+            List<Trade> filledTrades = new ArrayList<>(executions.size());
+            boolean allFilled = true;
+
+            for (CompletableFuture<Trade> execution : executions) {
+                Trade executedTrade = execution.isCompletedExceptionally() ? null : execution.join();
+                if (executedTrade == null || executedTrade.getStatus() != OrderStatus.FILLED) {
+                    allFilled = false;
                 }
-            });
+                if (executedTrade != null && hasFill(executedTrade)) {
+                    BigDecimal quantity = executedTrade.getExecutedQuantity() != null
+                            ? executedTrade.getExecutedQuantity() : executedTrade.getQuantity();
+                    filledQuantity = filledQuantity.add(quantity);
+                    filledValue = filledValue.add(quantity.multiply(executedTrade.getAvgPrice()));
+                    filledTrades.add(executedTrade);
+                }
+            }
+
+            if (!allFilled) {
+                if (!filledTrades.isEmpty()) {
+                    reduceByFilledLegs(position, filledTrades);
+                    log.error("Position {} closed partially: {} of {} venues filled",
+                            position.getId(), filledTrades.size(), executions.size());
+                    notificationService.sendErrorAlert("Position Close Incomplete",
+                            String.format("Position %d in %s filled on %d of %d venues",
+                                    position.getId(), position.getTradingPair(),
+                                    filledTrades.size(), executions.size()));
+                }
+                return;
+            }
+
+            BigDecimal exitPrice = executions.size() == 1
+                    ? executions.get(0).join().getAvgPrice()
+                    : filledValue.divide(filledQuantity, 8, RoundingMode.HALF_UP);
+            positionManager.closePosition(position, exitPrice, reason);
+
+            notificationService.sendTradeAlert("Position Closed",
+                    String.format("Closed %s position in %s. P&L: %.2f",
+                            position.getSide(), position.getTradingPair(), position.getRealizedPnl()));
 
         } catch (Exception e) {
-            log.error("Failed to close position {}: {}", position.getId(), e.getMessage());
+            log.error("Failed to apply close of position {}: {}", position.getId(), e.getMessage());
             notificationService.sendErrorAlert("Position Close Failed",
-                    String.format("Failed to close position %d: %s", position.getId(), e.getMessage()));
+                    String.format("Failed to apply close of position %d: %s", position.getId(), e.getMessage()));
         }
     }
 
+    /**
+     * Уменьшить позицию на исполненные части закрытия
+     *
+     * Остаток на каждой бирже затем считается по связанным сделкам
+     * (getVenueAllocation), поэтому повторное закрытие не затрагивает
+     * уже закрытые биржи.
+     *
+     * @param position позиция
+     * @param filledTrades исполненные ордера на закрытие
+     */
+    private void reduceByFilledLegs(Position position, List<Trade> filledTrades) {
+        Position current = position;
+        for (Trade trade : filledTrades) {
+            try {
+                current = positionManager.reducePosition(current, trade);
+            } catch (Exception e) {
+                log.error("Failed to apply close fill {} to position {}: {}",
+                        trade.getId(), position.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Объем позиции по биржам из связанных с ней исполненных сделок
+     *
+     * Закрывающие сделки вычитаются из объема своей биржи, поэтому после
+     * частичного закрытия остаются только остатки. Позиция из одной сделки
+     * закрывается на бирже позиции. Объем по биржам никогда не превышает
+     * размер позиции; если связанных сделок не хватает до размера,
+     * закрывается известная часть, а остаток требует ручной проверки.
+     *
+     * @param position позиция
+     * @return объем по биржам (пустой, если по связанным сделкам закрывать нечего)
+     */
+    private Map<String, BigDecimal> getVenueAllocation(Position position) {
+        Map<String, BigDecimal> allocation = new LinkedHashMap<>();
+        boolean linkedTrades = false;
+
+        if (position.getId() != null && position.getTradesCount() != null && position.getTradesCount() > 1) {
+            for (Trade trade : tradeRepository.findByPositionIdOrderByCreatedAtAsc(position.getId())) {
+                if (!hasFill(trade) || trade.getExchangeName() == null) {
+                    continue;
+                }
+                linkedTrades = true;
+                BigDecimal quantity = trade.getExecutedQuantity() != null
+                        ? trade.getExecutedQuantity() : trade.getQuantity();
+                allocation.merge(trade.getExchangeName(),
+                        trade.getOrderSide() == position.getSide() ? quantity : quantity.negate(),
+                        BigDecimal::add);
+            }
+            allocation.values().removeIf(quantity -> quantity.signum() <= 0);
+        }
+
+        if (!linkedTrades) {
+            allocation.put(position.getExchangeName(), position.getSize());
+            return allocation;
+        }
+
+        BigDecimal allocated = allocation.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (allocated.compareTo(position.getSize()) != 0) {
+            log.warn("Venue allocation {} of position {} does not match size {}",
+                    allocation, position.getId(), position.getSize());
+            notificationService.sendErrorAlert("Position Allocation Mismatch",
+                    String.format("Position %d in %s: venues %s, size %s",
+                            position.getId(), position.getTradingPair(), allocation, position.getSize()));
+
+            // Не закрываем больше размера позиции
+            BigDecimal remaining = position.getSize();
+            for (Map.Entry<String, BigDecimal> entry : allocation.entrySet()) {
+                BigDecimal quantity = entry.getValue().min(remaining);
+                entry.setValue(quantity);
+                remaining = remaining.subtract(quantity);
+            }
+            allocation.values().removeIf(quantity -> quantity.signum() <= 0);
+        }
+        return allocation;
+    }
+
+    /**
+     * Есть ли у завершенного ордера исполненный объем
+     *
+     * Ордер, отмененный после частичного исполнения, тоже меняет позицию.
+     *
+     * @param trade завершенная торговая операция
+     * @return true если ордер исполнен целиком или частично
+     */
+    private static boolean hasFill(Trade trade) {
+        if (trade.getStatus() == OrderStatus.FILLED) {
+            return true;
+        }
+        return trade.getExecutedQuantity() != null && trade.getExecutedQuantity().signum() > 0
+                && trade.getAvgPrice() != null;
+    }
+
     /**
      * Обновить рыночные данные для всех активных пар
      */
@@ -677,18 +904,6 @@ public class TradingService {
 
     // === Вложенные классы ===
 
-    /**
-     * Торговый сигнал
-     */
-    @lombok.Data
-    @lombok.Builder
-    private static class TradingSignal {
-        private OrderSide side;
-        private BigDecimal strength;
-        private BigDecimal confidence;
-        private LocalDateTime timestamp;
-    }
-
     /**
      * Параметры позиции
      */
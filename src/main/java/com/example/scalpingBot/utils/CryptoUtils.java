@@ -4,10 +4,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.codec.binary.Hex;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
@@ -37,7 +34,6 @@ public class CryptoUtils {
     /**
      * Алгоритмы хеширования и подписи
      */
-    private static final String HMAC_SHA256 = "HmacSHA256";
     private static final String SHA256 = "SHA-256";
     private static final String MD5 = "MD5";
 
@@ -61,17 +57,10 @@ public class CryptoUtils {
      */
     public static String createHmacSha256Signature(String data, String secretKey) {
         try {
-            Mac mac = Mac.getInstance(HMAC_SHA256);
-            SecretKeySpec secretKeySpec = new SecretKeySpec(
-                    secretKey.getBytes(StandardCharsets.UTF_8),
-                    HMAC_SHA256
-            );
-            mac.init(secretKeySpec);
+            // Mac переиспользуется в пределах потока для каждого ключа
+            return HmacSigner.forKey(secretKey).sign(data);
 
-            byte[] signature = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            return Hex.encodeHexString(signature);
-
-        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+        } catch (IllegalStateException e) {
             log.error("Failed to create HMAC-SHA256 signature", e);
             throw new RuntimeException("Error creating signature: " + e.getMessage(), e);
         }
@@ -414,6 +414,41 @@ public class DateUtils {
         return currentTimestampMs();
     }
 
+    /**
+     * Перевести интервал свечей биржи в миллисекунды
+     *
+     * @param interval интервал вида "1m", "15m", "1h", "4h", "1d", "1w"
+     * @return длительность интервала в миллисекундах
+     * @throws IllegalArgumentException если формат интервала не поддерживается
+     */
+    public static long intervalToMillis(String interval) {
+        if (interval == null || interval.length() < 2) {
+            throw new IllegalArgumentException("Invalid candle interval: " + interval);
+        }
+
+        long amount;
+        try {
+            amount = Long.parseLong(interval.substring(0, interval.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid candle interval: " + interval);
+        }
+
+        switch (interval.charAt(interval.length() - 1)) {
+            case 's':
+                return amount * 1000L;
+            case 'm':
+                return amount * 60_000L;
+            case 'h':
+                return amount * 3_600_000L;
+            case 'd':
+                return amount * 86_400_000L;
+            case 'w':
+                return amount * 604_800_000L;
+            default:
+                throw new IllegalArgumentException("Invalid candle interval: " + interval);
+        }
+    }
+
     /**
      * Рассчитать время до следующего сброса дневной статистики
      *
@@ -0,0 +1,384 @@
+package com.example.scalpingBot.utils;
+
+/**
+ * Быстрые математические утилиты на примитивах double
+ *
+ * Основные функции:
+ * - Технические индикаторы (RSI, MACD, Bollinger Bands, EMA, ATR)
+ * - Статистические функции (среднее, стандартное отклонение, корреляция, просадка)
+ * - Процентные вычисления для анализа сигналов
+ *
+ * Параллельная реализация аналитических функций MathUtils для горячего пути
+ * анализа: без BigDecimal, без упаковки и без итеративного sqrt. Алгоритмы
+ * совпадают с MathUtils, результаты отличаются только погрешностью double
+ * и отсутствием округления.
+ *
+ * BigDecimal остается только на границе ордеров и учета
+ * (MathUtils.calculatePnL, roundToTickSize, roundToLotSize).
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public class FastMathUtils {
+
+    /**
+     * Минимальное значение делителя (как MathUtils.EPSILON)
+     */
+    public static final double EPSILON = 0.0000001;
+
+    // Приватный конструктор для утилитарного класса
+    private FastMathUtils() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Безопасное деление с возвратом нуля при малом делителе
+     *
+     * @param dividend делимое
+     * @param divisor делитель
+     * @return результат деления или ноль
+     */
+    public static double safeDivide(double dividend, double divisor) {
+        return divisor < EPSILON ? 0.0 : dividend / divisor;
+    }
+
+    /**
+     * Вычислить процентное изменение
+     *
+     * @param oldValue старое значение
+     * @param newValue новое значение
+     * @return процентное изменение
+     */
+    public static double percentageChange(double oldValue, double newValue) {
+        if (oldValue < EPSILON) {
+            return 0.0;
+        }
+        return (newValue - oldValue) / oldValue * 100.0;
+    }
+
+    /**
+     * Ограничить значение диапазоном
+     */
+    public static double clamp(double value, double min, double max) {
+        return value < min ? min : Math.min(value, max);
+    }
+
+    /**
+     * Найти минимальное значение
+     *
+     * @param values массив значений
+     * @return минимальное значение или NaN если массив пуст
+     */
+    public static double min(double[] values) {
+        if (values == null || values.length == 0) {
+            return Double.NaN;
+        }
+        double min = values[0];
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] < min) {
+                min = values[i];
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Найти максимальное значение
+     *
+     * @param values массив значений
+     * @return максимальное значение или NaN если массив пуст
+     */
+    public static double max(double[] values) {
+        if (values == null || values.length == 0) {
+            return Double.NaN;
+        }
+        double max = values[0];
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] > max) {
+                max = values[i];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Рассчитать среднее арифметическое
+     *
+     * @param values массив значений
+     * @return среднее значение
+     */
+    public static double average(double[] values) {
+        if (values == null || values.length == 0) {
+            return 0.0;
+        }
+        return sum(values, 0, values.length) / values.length;
+    }
+
+    /**
+     * Рассчитать стандартное отклонение (выборочное)
+     *
+     * @param values массив значений
+     * @return стандартное отклонение
+     */
+    public static double standardDeviation(double[] values) {
+        if (values == null || values.length < 2) {
+            return 0.0;
+        }
+        return standardDeviation(values, 0, values.length);
+    }
+
+    /**
+     * Рассчитать RSI (Relative Strength Index)
+     *
+     * @param closes массив цен закрытия
+     * @param period период для расчета (обычно 14)
+     * @return значение RSI (0-100)
+     */
+    public static double calculateRSI(double[] closes, int period) {
+        if (closes == null || closes.length < period + 1) {
+            return 50.0; // Нейтральное значение
+        }
+
+        double sumGains = 0.0;
+        double sumLosses = 0.0;
+
+        for (int i = 1; i <= period; i++) {
+            double change = closes[i] - closes[i - 1];
+            if (change > 0) {
+                sumGains += change;
+            } else {
+                sumLosses -= change;
+            }
+        }
+
+        double avgGain = sumGains / period;
+        double avgLoss = sumLosses / period;
+
+        if (avgLoss < EPSILON) {
+            return 100.0; // Все движения положительные
+        }
+
+        double rs = avgGain / avgLoss;
+        return 100.0 - 100.0 / (1.0 + rs);
+    }
+
+    /**
+     * Рассчитать EMA (Exponential Moving Average)
+     *
+     * @param prices массив цен
+     * @param period период для расчета
+     * @return значение EMA
+     */
+    public static double calculateEMA(double[] prices, int period) {
+        if (prices == null || prices.length == 0) {
+            return 0.0;
+        }
+        return calculateEMA(prices, prices.length, period);
+    }
+
+    /**
+     * Рассчитать Bollinger Bands
+     *
+     * @param prices массив цен
+     * @param period период для расчета (обычно 20)
+     * @param stdDevMultiplier множитель стандартного отклонения (обычно 2)
+     * @return массив [нижняя полоса, средняя линия, верхняя полоса]
+     */
+    public static double[] calculateBollingerBands(double[] prices, int period, double stdDevMultiplier) {
+        if (prices == null || prices.length < period) {
+            double middle = prices != null && prices.length > 0 ? prices[prices.length - 1] : 0.0;
+            return new double[]{middle, middle, middle};
+        }
+
+        int from = prices.length - period;
+        double middle = sum(prices, from, prices.length) / period; // SMA
+        double deviation = standardDeviation(prices, from, prices.length) * stdDevMultiplier;
+
+        return new double[]{
+                middle - deviation,     // Нижняя полоса
+                middle,                 // Средняя линия (SMA)
+                middle + deviation      // Верхняя полоса
+        };
+    }
+
+    /**
+     * Рассчитать MACD (Moving Average Convergence Divergence)
+     *
+     * @param prices массив цен
+     * @param fastPeriod быстрый период (обычно 12)
+     * @param slowPeriod медленный период (обычно 26)
+     * @param signalPeriod период сигнальной линии (обычно 9)
+     * @return массив [MACD линия, сигнальная линия, гистограмма]
+     */
+    public static double[] calculateMACD(double[] prices, int fastPeriod, int slowPeriod, int signalPeriod) {
+        if (prices == null || prices.length < slowPeriod) {
+            return new double[]{0.0, 0.0, 0.0};
+        }
+
+        double fastMultiplier = 2.0 / (fastPeriod + 1);
+        double slowMultiplier = 2.0 / (slowPeriod + 1);
+        double fastEMA = prices[0];
+        double slowEMA = prices[0];
+
+        // История MACD значений для сигнальной линии (начиная с прогрева медленной EMA)
+        double[] macdHistory = new double[prices.length - slowPeriod + 1];
+        int macdCount = 0;
+
+        for (int i = 1; i < prices.length; i++) {
+            fastEMA += (prices[i] - fastEMA) * fastMultiplier;
+            slowEMA += (prices[i] - slowEMA) * slowMultiplier;
+
+            if (i >= slowPeriod - 1) {
+                macdHistory[macdCount++] = fastEMA - slowEMA;
+            }
+        }
+
+        double macdLine = macdCount > 0 ? macdHistory[macdCount - 1] : fastEMA - slowEMA;
+        double signalLine = macdCount > 0 ? calculateEMA(macdHistory, macdCount, signalPeriod) : 0.0;
+
+        return new double[]{macdLine, signalLine, macdLine - signalLine};
+    }
+
+    /**
+     * Рассчитать ATR (Average True Range)
+     *
+     * @param highs массив максимальных цен
+     * @param lows массив минимальных цен
+     * @param closes массив цен закрытия
+     * @param period период для расчета (обычно 14)
+     * @return значение ATR
+     */
+    public static double calculateATR(double[] highs, double[] lows, double[] closes, int period) {
+        if (highs == null || lows == null || closes == null ||
+                highs.length < period + 1 || lows.length < period + 1 || closes.length < period + 1) {
+            return 0.0;
+        }
+
+        double sumTR = 0.0;
+
+        for (int i = 1; i <= period; i++) {
+            double prevClose = closes[i - 1];
+
+            // True Range = max(high-low, abs(high-prevClose), abs(low-prevClose))
+            double trueRange = Math.max(highs[i] - lows[i],
+                    Math.max(Math.abs(highs[i] - prevClose), Math.abs(lows[i] - prevClose)));
+            sumTR += trueRange;
+        }
+
+        return sumTR / period;
+    }
+
+    /**
+     * Рассчитать P&L в процентах
+     *
+     * @param entryPrice цена входа
+     * @param currentPrice текущая цена
+     * @param side сторона позиции (1 для long, -1 для short)
+     * @return P&L в процентах
+     */
+    public static double calculatePnLPercent(double entryPrice, double currentPrice, int side) {
+        if (entryPrice < EPSILON) {
+            return 0.0;
+        }
+        return (currentPrice - entryPrice) / entryPrice * 100.0 * side;
+    }
+
+    /**
+     * Рассчитать корреляцию между двумя рядами данных
+     *
+     * @param series1 первый ряд данных
+     * @param series2 второй ряд данных
+     * @return коэффициент корреляции (-1 до 1)
+     */
+    public static double calculateCorrelation(double[] series1, double[] series2) {
+        if (series1 == null || series2 == null || series1.length != series2.length || series1.length < 2) {
+            return 0.0;
+        }
+
+        double mean1 = average(series1);
+        double mean2 = average(series2);
+
+        double numerator = 0.0;
+        double sumSq1 = 0.0;
+        double sumSq2 = 0.0;
+
+        for (int i = 0; i < series1.length; i++) {
+            double diff1 = series1[i] - mean1;
+            double diff2 = series2[i] - mean2;
+
+            numerator += diff1 * diff2;
+            sumSq1 += diff1 * diff1;
+            sumSq2 += diff2 * diff2;
+        }
+
+        return safeDivide(numerator, Math.sqrt(sumSq1 * sumSq2));
+    }
+
+    /**
+     * Рассчитать максимальную просадку
+     *
+     * @param equityCurve кривая капитала
+     * @return максимальная просадка в процентах
+     */
+    public static double calculateMaxDrawdown(double[] equityCurve) {
+        if (equityCurve == null || equityCurve.length < 2) {
+            return 0.0;
+        }
+
+        double maxDrawdown = 0.0;
+        double peak = equityCurve[0];
+
+        for (double value : equityCurve) {
+            if (value > peak) {
+                peak = value;
+            }
+
+            double drawdown = safeDivide(peak - value, peak) * 100.0;
+            if (drawdown > maxDrawdown) {
+                maxDrawdown = drawdown;
+            }
+        }
+
+        return maxDrawdown;
+    }
+
+    private static double sum(double[] values, int from, int to) {
+        double sum = 0.0;
+        for (int i = from; i < to; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    private static double standardDeviation(double[] values, int from, int to) {
+        int n = to - from;
+        if (n < 2) {
+            return 0.0;
+        }
+
+        double mean = sum(values, from, to) / n;
+        double sumSquaredDiffs = 0.0;
+
+        for (int i = from; i < to; i++) {
+            double diff = values[i] - mean;
+            sumSquaredDiffs += diff * diff;
+        }
+
+        return Math.sqrt(sumSquaredDiffs / (n - 1));
+    }
+
+    private static double calculateEMA(double[] prices, int length, int period) {
+        if (length == 1) {
+            return prices[0];
+        }
+
+        double multiplier = 2.0 / (period + 1);
+        double ema = prices[0]; // Начинаем с первой цены
+
+        for (int i = 1; i < length; i++) {
+            ema += (prices[i] - ema) * multiplier;
+        }
+
+        return ema;
+    }
+}
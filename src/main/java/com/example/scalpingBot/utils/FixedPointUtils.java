@@ -0,0 +1,154 @@
+package com.example.scalpingBot.utils;
+
+import java.math.BigDecimal;
+
+/**
+ * Утилиты для работы с ценами в формате фиксированной точки
+ *
+ * Основные функции:
+ * - Хранение цен и объемов в long с масштабом 10^8 (как satoshi)
+ * - Парсинг десятичных строк бирж без создания BigDecimal
+ * - Конвертация в double для индикаторов и в BigDecimal для ордеров
+ *
+ * Масштаб 10^8 покрывает точность всех пар Binance/Bybit
+ * и позволяет хранить цены до ~92 миллиардов без переполнения.
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public class FixedPointUtils {
+
+    /**
+     * Количество знаков после запятой
+     */
+    public static final int SCALE_DIGITS = 8;
+
+    /**
+     * Множитель масштаба (10^8)
+     */
+    public static final long SCALE = 100_000_000L;
+
+    // Приватный конструктор для утилитарного класса
+    private FixedPointUtils() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Распарсить десятичную строку в значение фиксированной точки
+     *
+     * Лишние знаки после 8-го отбрасываются.
+     *
+     * @param value строка вида "12345.678"
+     * @return значение, умноженное на 10^8
+     * @throws NumberFormatException если строка не является десятичным числом
+     */
+    public static long parse(CharSequence value) {
+        return parse(value, 0, value.length());
+    }
+
+    /**
+     * Распарсить фрагмент строки в значение фиксированной точки
+     *
+     * @param value исходная строка
+     * @param start начальный индекс (включительно)
+     * @param end конечный индекс (исключительно)
+     * @return значение, умноженное на 10^8
+     * @throws NumberFormatException если фрагмент не является десятичным числом
+     */
+    public static long parse(CharSequence value, int start, int end) {
+        if (start >= end) {
+            throw new NumberFormatException("Empty decimal value");
+        }
+
+        int i = start;
+        boolean negative = false;
+        char first = value.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+
+        long integerPart = 0;
+        long fractionPart = 0;
+        int fractionDigits = 0;
+        boolean inFraction = false;
+        boolean hasDigits = false;
+
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+
+            if (c == '.') {
+                if (inFraction) {
+                    throw new NumberFormatException("Invalid decimal value: " + value.subSequence(start, end));
+                }
+                inFraction = true;
+                continue;
+            }
+
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Invalid decimal value: " + value.subSequence(start, end));
+            }
+
+            hasDigits = true;
+            if (inFraction) {
+                if (fractionDigits < SCALE_DIGITS) {
+                    fractionPart = fractionPart * 10 + (c - '0');
+                    fractionDigits++;
+                }
+            } else {
+                integerPart = integerPart * 10 + (c - '0');
+            }
+        }
+
+        if (!hasDigits) {
+            throw new NumberFormatException("Invalid decimal value: " + value.subSequence(start, end));
+        }
+
+        for (; fractionDigits < SCALE_DIGITS; fractionDigits++) {
+            fractionPart *= 10;
+        }
+
+        long result = integerPart * SCALE + fractionPart;
+        return negative ? -result : result;
+    }
+
+    /**
+     * Конвертировать значение фиксированной точки в double
+     *
+     * @param scaled значение, умноженное на 10^8
+     * @return значение double
+     */
+    public static double toDouble(long scaled) {
+        return scaled / (double) SCALE;
+    }
+
+    /**
+     * Конвертировать double в значение фиксированной точки
+     *
+     * @param value значение
+     * @return значение, умноженное на 10^8 (с округлением)
+     */
+    public static long fromDouble(double value) {
+        return Math.round(value * SCALE);
+    }
+
+    /**
+     * Конвертировать значение фиксированной точки в BigDecimal
+     *
+     * @param scaled значение, умноженное на 10^8
+     * @return BigDecimal со scale = 8
+     */
+    public static BigDecimal toBigDecimal(long scaled) {
+        return BigDecimal.valueOf(scaled, SCALE_DIGITS);
+    }
+
+    /**
+     * Конвертировать BigDecimal в значение фиксированной точки
+     *
+     * @param value значение
+     * @return значение, умноженное на 10^8 (лишние знаки отбрасываются)
+     */
+    public static long fromBigDecimal(BigDecimal value) {
+        return value.movePointRight(SCALE_DIGITS).longValue();
+    }
+}
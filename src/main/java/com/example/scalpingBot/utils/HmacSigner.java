@@ -0,0 +1,210 @@
+package com.example.scalpingBot.utils;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Подпись запросов HMAC-SHA256 без лишних аллокаций
+ *
+ * Основные функции:
+ * - Один экземпляр на секретный ключ, Mac инициализируется ключом один раз
+ *   на поток и переиспользуется (doFinal сбрасывает состояние)
+ * - Строка запроса собирается в переиспользуемый буфер потока,
+ *   параметры сортируются по ключу без Stream API
+ * - Hex подписи пишется прямо в буфер запроса или массив символов,
+ *   без промежуточных строк
+ *
+ * На подписанный запрос создается одна строка - итоговый query string.
+ * Буферы привязаны к потоку, поэтому экземпляр потокобезопасен, но методы
+ * не реентерабельны (результат одного вызова нельзя собирать внутри другого).
+ *
+ * @author ScalpingBot Team
+ * @version 1.0
+ */
+public final class HmacSigner {
+
+    private static final String HMAC_SHA256 = "HmacSHA256";
+    private static final int DIGEST_LENGTH = 32;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Подписчики по секретным ключам (ключей единицы - по одному на биржу)
+     */
+    private static final Map<String, HmacSigner> SIGNERS = new ConcurrentHashMap<>();
+
+    /**
+     * Буфер строки запроса потока (общий для всех ключей)
+     */
+    private static final ThreadLocal<QueryBuffer> QUERY_BUFFERS = ThreadLocal.withInitial(QueryBuffer::new);
+
+    private final SecretKeySpec keySpec;
+    private final ThreadLocal<MacBuffer> macBuffers;
+
+    public HmacSigner(String secretKey) {
+        this.keySpec = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), HMAC_SHA256);
+        this.macBuffers = ThreadLocal.withInitial(this::newMacBuffer);
+    }
+
+    /**
+     * Общий подписчик для секретного ключа
+     *
+     * @param secretKey секретный ключ
+     * @return подписчик
+     */
+    public static HmacSigner forKey(String secretKey) {
+        return SIGNERS.computeIfAbsent(secretKey, HmacSigner::new);
+    }
+
+    /**
+     * Подписать данные
+     *
+     * @param data данные для подписи
+     * @return подпись в hex формате
+     */
+    public String sign(CharSequence data) {
+        MacBuffer local = macBuffers.get();
+        digest(local, data, 0, data.length());
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            int value = local.digest[i] & 0xFF;
+            local.hex[i * 2] = HEX_DIGITS[value >>> 4];
+            local.hex[i * 2 + 1] = HEX_DIGITS[value & 0x0F];
+        }
+        return new String(local.hex);
+    }
+
+    /**
+     * Собрать строку запроса с параметрами по возрастанию ключа (без подписи)
+     *
+     * @param params параметры запроса
+     * @return строка вида a=1&b=2 (без URL-кодирования)
+     */
+    public static String buildQuery(Map<String, String> params) {
+        return appendQuery(QUERY_BUFFERS.get(), params).toString();
+    }
+
+    /**
+     * Собрать строку запроса и добавить к ней подпись
+     *
+     * @param params параметры запроса (не изменяются)
+     * @param signatureParam имя параметра подписи
+     * @return строка вида a=1&b=2&signature=hex
+     */
+    public String buildSignedQuery(Map<String, String> params, String signatureParam) {
+        MacBuffer local = macBuffers.get();
+        StringBuilder query = appendQuery(QUERY_BUFFERS.get(), params);
+        int dataLength = query.length();
+        digest(local, query, 0, dataLength);
+
+        if (dataLength > 0) {
+            query.append('&');
+        }
+        query.append(signatureParam).append('=');
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            int value = local.digest[i] & 0xFF;
+            query.append(HEX_DIGITS[value >>> 4]).append(HEX_DIGITS[value & 0x0F]);
+        }
+        return query.toString();
+    }
+
+    /**
+     * Записать параметры в буфер запроса потока
+     */
+    private static StringBuilder appendQuery(QueryBuffer local, Map<String, String> params) {
+        StringBuilder query = local.query;
+        query.setLength(0);
+
+        int count = params.size();
+        if (local.keys.length < count) {
+            local.keys = new String[Math.max(count, local.keys.length * 2)];
+        }
+        String[] keys = local.keys;
+        int index = 0;
+        for (String key : params.keySet()) {
+            keys[index++] = key;
+        }
+        // Для малых массивов сортировка вставками без аллокаций
+        Arrays.sort(keys, 0, count);
+
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                query.append('&');
+            }
+            query.append(keys[i]).append('=').append(params.get(keys[i]));
+            keys[i] = null;
+        }
+        return query;
+    }
+
+    /**
+     * Вычислить HMAC диапазона символов в буфер digest потока
+     */
+    private static void digest(MacBuffer local, CharSequence data, int start, int end) {
+        Mac mac = local.mac;
+        mac.reset();
+
+        int length = end - start;
+        if (local.bytes.length < length) {
+            local.bytes = new byte[Math.max(length, local.bytes.length * 2)];
+        }
+        byte[] bytes = local.bytes;
+        for (int i = 0; i < length; i++) {
+            char c = data.charAt(start + i);
+            if (c >= 0x80) {
+                // Не ASCII - кодируем через строку (в запросах к биржам не встречается)
+                byte[] encoded = data.subSequence(start, end).toString().getBytes(StandardCharsets.UTF_8);
+                mac.update(encoded);
+                doFinal(mac, local.digest);
+                return;
+            }
+            bytes[i] = (byte) c;
+        }
+        mac.update(bytes, 0, length);
+        doFinal(mac, local.digest);
+    }
+
+    private static void doFinal(Mac mac, byte[] digest) {
+        try {
+            mac.doFinal(digest, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException("Digest buffer too small", e);
+        }
+    }
+
+    private MacBuffer newMacBuffer() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_SHA256);
+            mac.init(keySpec);
+            return new MacBuffer(mac);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error creating signature: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Буфер строки запроса потока
+     */
+    private static final class QueryBuffer {
+        private final StringBuilder query = new StringBuilder(256);
+        private String[] keys = new String[16];
+    }
+
+    /**
+     * Mac и буферы подписи потока для одного ключа
+     */
+    private static final class MacBuffer {
+        private final Mac mac;
+        private final byte[] digest = new byte[DIGEST_LENGTH];
+        private final char[] hex = new char[DIGEST_LENGTH * 2];
+        private byte[] bytes = new byte[256];
+
+        MacBuffer(Mac mac) {
+            this.mac = mac;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -20,6 +21,7 @@ import java.util.List;
  *
  * Все расчеты оптимизированы для скальпинг-стратегии
  * с учетом требований точности и производительности.
+ * Для горячего пути анализа сигналов см. FastMathUtils (double).
  *
  * @author ScalpingBot Team
  * @version 1.0
@@ -390,13 +392,26 @@ public class MathUtils {
             return new BigDecimal[]{ZERO, ZERO, ZERO};
         }
 
-        BigDecimal fastEMA = calculateEMA(prices, fastPeriod);
-        BigDecimal slowEMA = calculateEMA(prices, slowPeriod);
-        BigDecimal macdLine = fastEMA.subtract(slowEMA);
+        BigDecimal fastMultiplier = TWO.divide(new BigDecimal(fastPeriod + 1), HIGH_PRECISION);
+        BigDecimal slowMultiplier = TWO.divide(new BigDecimal(slowPeriod + 1), HIGH_PRECISION);
+        BigDecimal fastEMA = prices.get(0);
+        BigDecimal slowEMA = prices.get(0);
 
-        // Для сигнальной линии нужна история MACD значений
-        // Упрощенная версия - используем текущее значение
-        BigDecimal signalLine = macdLine; // В реальной реализации нужна история
+        // История MACD значений для сигнальной линии (начиная с прогрева медленной EMA)
+        List<BigDecimal> macdHistory = new ArrayList<>(prices.size() - slowPeriod + 1);
+
+        for (int i = 1; i < prices.size(); i++) {
+            BigDecimal price = prices.get(i);
+            fastEMA = price.multiply(fastMultiplier).add(fastEMA.multiply(ONE.subtract(fastMultiplier)));
+            slowEMA = price.multiply(slowMultiplier).add(slowEMA.multiply(ONE.subtract(slowMultiplier)));
+
+            if (i >= slowPeriod - 1) {
+                macdHistory.add(fastEMA.subtract(slowEMA));
+            }
+        }
+
+        BigDecimal macdLine = macdHistory.isEmpty() ? fastEMA.subtract(slowEMA) : macdHistory.get(macdHistory.size() - 1);
+        BigDecimal signalLine = calculateEMA(macdHistory, signalPeriod);
         BigDecimal histogram = macdLine.subtract(signalLine);
 
         return new BigDecimal[]{
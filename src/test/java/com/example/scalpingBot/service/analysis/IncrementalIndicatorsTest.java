@@ -0,0 +1,134 @@
+package com.example.scalpingBot.service.analysis;
+
+import com.example.scalpingBot.utils.MathUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Проверка потоковых индикаторов IncrementalIndicators против пакетных расчетов MathUtils
+ *
+ * RSI и ATR в MathUtils - простое среднее за первые period изменений, что совпадает
+ * с первым значением сглаживания Уайлдера, поэтому они сравниваются на period + 1 свечах.
+ * EMA в MathUtils начинается с первой цены, а не со среднего - на длинном ряду
+ * разница начальных значений затухает, поэтому EMA, MACD и Bollinger сравниваются по всему ряду.
+ */
+class IncrementalIndicatorsTest {
+
+    private static final int SIZE = 300;
+
+    private static final int RSI_PERIOD = 14;
+    private static final int EMA_FAST = 9;
+    private static final int EMA_SLOW = 21;
+    private static final int MACD_FAST = 12;
+    private static final int MACD_SLOW = 26;
+    private static final int MACD_SIGNAL = 9;
+    private static final int ATR_PERIOD = 14;
+    private static final int BB_PERIOD = 20;
+    private static final double BB_STD_DEV = 2.0;
+
+    private double[] closes;
+    private double[] highs;
+    private double[] lows;
+
+    @BeforeEach
+    void setUp() {
+        // Детерминированное случайное блуждание цены около 30000
+        Random random = new Random(42);
+        closes = new double[SIZE];
+        highs = new double[SIZE];
+        lows = new double[SIZE];
+
+        double price = 30000.0;
+        for (int i = 0; i < SIZE; i++) {
+            price += random.nextGaussian() * 25.0;
+            closes[i] = round(price);
+            highs[i] = round(price + random.nextDouble() * 20.0);
+            lows[i] = round(price - random.nextDouble() * 20.0);
+        }
+    }
+
+    @Test
+    void rsiMatchesBatchOnFirstPeriod() {
+        IncrementalIndicators indicators = replay(RSI_PERIOD + 1);
+
+        assertThat(indicators.getRsi())
+                .isCloseTo(MathUtils.calculateRSI(toList(closes, RSI_PERIOD + 1), RSI_PERIOD).doubleValue(),
+                        within(0.01));
+    }
+
+    @Test
+    void rsiIsUndefinedUntilPeriodCollected() {
+        IncrementalIndicators indicators = replay(RSI_PERIOD);
+
+        assertThat(Double.isNaN(indicators.getRsi())).isTrue();
+    }
+
+    @Test
+    void emaMatchesBatch() {
+        IncrementalIndicators indicators = replay(SIZE);
+
+        assertThat(indicators.getEmaFast())
+                .isCloseTo(MathUtils.calculateEMA(toList(closes, SIZE), EMA_FAST).doubleValue(), within(1e-6));
+        assertThat(indicators.getEmaSlow())
+                .isCloseTo(MathUtils.calculateEMA(toList(closes, SIZE), EMA_SLOW).doubleValue(), within(1e-6));
+    }
+
+    @Test
+    void macdMatchesBatch() {
+        IncrementalIndicators indicators = replay(SIZE);
+        BigDecimal[] batch = MathUtils.calculateMACD(toList(closes, SIZE), MACD_FAST, MACD_SLOW, MACD_SIGNAL);
+
+        assertThat(indicators.getMacdLine()).isCloseTo(batch[0].doubleValue(), within(1e-6));
+        assertThat(indicators.getMacdSignal()).isCloseTo(batch[1].doubleValue(), within(1e-6));
+        assertThat(indicators.getMacdHistogram()).isCloseTo(batch[2].doubleValue(), within(1e-6));
+    }
+
+    @Test
+    void bollingerBandsMatchBatch() {
+        IncrementalIndicators indicators = replay(SIZE);
+        BigDecimal[] batch = MathUtils.calculateBollingerBands(toList(closes, SIZE), BB_PERIOD,
+                BigDecimal.valueOf(BB_STD_DEV));
+
+        assertThat(indicators.getBollingerLower()).isCloseTo(batch[0].doubleValue(), within(1e-4));
+        assertThat(indicators.getBollingerMiddle()).isCloseTo(batch[1].doubleValue(), within(1e-4));
+        assertThat(indicators.getBollingerUpper()).isCloseTo(batch[2].doubleValue(), within(1e-4));
+    }
+
+    @Test
+    void atrMatchesBatchOnFirstPeriod() {
+        IncrementalIndicators indicators = replay(ATR_PERIOD + 1);
+
+        assertThat(indicators.getAtr())
+                .isCloseTo(MathUtils.calculateATR(toList(highs, ATR_PERIOD + 1), toList(lows, ATR_PERIOD + 1),
+                        toList(closes, ATR_PERIOD + 1), ATR_PERIOD).doubleValue(), within(1e-6));
+    }
+
+    private IncrementalIndicators replay(int candles) {
+        IncrementalIndicators indicators = new IncrementalIndicators(RSI_PERIOD, EMA_FAST, EMA_SLOW,
+                MACD_FAST, MACD_SLOW, MACD_SIGNAL, ATR_PERIOD, BB_PERIOD, BB_STD_DEV);
+        for (int i = 0; i < candles; i++) {
+            indicators.update(highs[i], lows[i], closes[i]);
+        }
+        return indicators;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    private static List<BigDecimal> toList(double[] values, int length) {
+        List<BigDecimal> result = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            result.add(BigDecimal.valueOf(values[i]));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.scalpingBot.service.backtest;
+
+import com.example.scalpingBot.config.TechnicalAnalysisConfig;
+import com.example.scalpingBot.config.TradingConfig;
+import com.example.scalpingBot.entity.MarketData;
+import com.example.scalpingBot.enums.OrderSide;
+import com.example.scalpingBot.service.analysis.IndicatorEngine;
+import com.example.scalpingBot.service.market.CandleRingBuffer;
+import com.example.scalpingBot.service.strategy.ScalpingStrategy;
+import com.example.scalpingBot.service.strategy.TradingSignal;
+import com.example.scalpingBot.service.strategy.TradingStrategy;
+import com.example.scalpingBot.utils.FixedPointUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Проверка BacktestEngine на фиксированном ряду свечей
+ *
+ * Ожидаемые сделки и PnL посчитаны вручную по правилам движка:
+ * вход по закрытию свечи ± проскальзывание, комиссия с объема входа и выхода,
+ * стоп-лосс раньше тейк-профита, если свеча задела оба уровня.
+ */
+class BacktestEngineTest {
+
+    private static final String PAIR = "BTCUSDT";
+    private static final long START = 1_700_000_000_000L - 1_700_000_000_000L % 60_000L;
+    private static final long MINUTE = 60_000L;
+
+    private final TradingConfig tradingConfig = new TradingConfig();
+    private final TechnicalAnalysisConfig technicalAnalysisConfig = new TechnicalAnalysisConfig();
+
+    private IndicatorEngine indicatorEngine;
+    private BacktestEngine backtestEngine;
+
+    @BeforeEach
+    void setUp() {
+        indicatorEngine = new IndicatorEngine(technicalAnalysisConfig);
+        backtestEngine = new BacktestEngine(new ScalpingStrategy(tradingConfig, technicalAnalysisConfig),
+                tradingConfig, indicatorEngine, null);
+    }
+
+    @Test
+    void fillsAndPnlMatchHandCalculation() {
+        CandleRingBuffer buffer = new CandleRingBuffer(64);
+        append(buffer, 0, 100.0, 100.0, 100.0, 100.0);
+        append(buffer, 1, 100.0, 100.0, 100.0, 100.0);
+        append(buffer, 2, 100.0, 100.0, 100.0, 100.0);   // оценка #0: BUY по 100 → вход 100.1, TP 101.101
+        append(buffer, 3, 100.5, 101.2, 100.4, 101.0);   // тейк-профит по 101.101
+        append(buffer, 4, 101.0, 101.0, 101.0, 101.0);   // оценка #2: SELL по 101 → вход 100.899, SL 101.403495
+        append(buffer, 5, 101.2, 101.8, 99.5, 100.0);    // задеты оба уровня - стоп-лосс
+        append(buffer, 6, 101.0, 101.0, 101.0, 101.0);   // оценка #4: BUY по 101 → вход 101.101
+        for (int i = 7; i <= 11; i++) {
+            append(buffer, i, 101.0, 101.0, 101.0, 101.0); // выход по времени через 5 минут по 101
+        }
+
+        ScriptedStrategy strategy = new ScriptedStrategy(Map.of(0, OrderSide.BUY, 2, OrderSide.SELL, 4, OrderSide.BUY));
+        BacktestResult result = backtestEngine.run(PAIR, List.of(buffer.window(12)), null, parameters(), strategy);
+
+        assertThat(result.getCandlesProcessed()).isEqualTo(12L);
+        assertThat(result.getSignalsEvaluated()).isEqualTo(6L);
+        assertThat(result.getTotalTrades()).isEqualTo(3);
+        assertThat(result.getWinningTrades()).isEqualTo(1);
+        assertThat(result.getLosingTrades()).isEqualTo(2);
+        assertThat(result.getTakeProfitExits()).isEqualTo(1);
+        assertThat(result.getStopLossExits()).isEqualTo(1);
+        assertThat(result.getTimeExits()).isEqualTo(1);
+
+        // Сделка 1: +6.98101, сделка 2: -8.016597, сделка 3: -3.995590 (чистыми, с комиссиями)
+        assertThat(result.getGrossProfit()).isCloseTo(6.98101, within(1e-6));
+        assertThat(result.getGrossLoss()).isCloseTo(8.016597490601274 + 3.9955901748287723, within(1e-6));
+        assertThat(result.getFinalBalance()).isCloseTo(9994.96882233457, within(1e-6));
+        assertThat(result.getNetPnl()).isCloseTo(result.getGrossProfit() - result.getGrossLoss(), within(1e-6));
+    }
+
+    @Test
+    void positionOpenAtEndIsClosedAtLastClose() {
+        CandleRingBuffer buffer = new CandleRingBuffer(64);
+        for (int i = 0; i < 5; i++) {
+            append(buffer, i, 100.0, 100.0, 100.0, 100.0);
+        }
+
+        BacktestResult result = backtestEngine.run(PAIR, List.of(buffer.window(5)), null, parameters(),
+                new ScriptedStrategy(Map.of(0, OrderSide.BUY)));
+
+        // Вход 100.1, выход 99.9: -0.2 × (1000 / 100.1) и комиссии 1.0 + 0.998
+        double quantity = 1000.0 / 100.1;
+        double expectedNet = (99.9 - 100.1) * quantity - 1.0 - 99.9 * quantity * 0.001;
+        assertThat(result.getTotalTrades()).isEqualTo(1);
+        assertThat(result.getTimeExits()).isEqualTo(1);
+        assertThat(result.getNetPnl()).isCloseTo(expectedNet, within(1e-9));
+    }
+
+    @Test
+    void strategySeesSameSignalsAsLivePath() {
+        CandleRingBuffer history = new CandleRingBuffer(256);
+        Random random = new Random(7);
+        double price = 30000.0;
+        int size = 120;
+        for (int i = 0; i < size; i++) {
+            double open = price;
+            price += random.nextGaussian() * 40.0;
+            append(history, i, open, Math.max(open, price) + random.nextDouble() * 15.0,
+                    Math.min(open, price) - random.nextDouble() * 15.0, price);
+        }
+
+        RecordingStrategy recording = new RecordingStrategy(new ScalpingStrategy(tradingConfig, technicalAnalysisConfig));
+        BacktestParameters parameters = parameters().toBuilder().warmupCandles(50).build();
+        backtestEngine.run(PAIR, List.of(history.window(size)), null, parameters, recording);
+
+        assertThat(recording.evaluations).hasSize(size - 50 + 1);
+        for (Evaluation evaluation : recording.evaluations) {
+            // Живой путь: свечи до закрытой включительно → IndicatorEngine → MarketData → стратегия
+            int candles = (int) ((evaluation.closeTime - START) / MINUTE);
+            CandleRingBuffer live = new CandleRingBuffer(256);
+            CandleRingBuffer.CandleWindow window = history.window(size);
+            for (int i = 0; i < candles; i++) {
+                live.append(window.openTime(i), window.openScaled(i), window.highScaled(i), window.lowScaled(i),
+                        window.closeScaled(i), window.volume(i), window.quoteVolume(i), window.tradeCount(i));
+            }
+            indicatorEngine.warmUp(PAIR, live);
+
+            MarketData marketData = MarketData.builder()
+                    .tradingPair(PAIR)
+                    .closePrice(FixedPointUtils.toBigDecimal(window.closeScaled(candles - 1)))
+                    .build();
+            indicatorEngine.applyTo(PAIR, marketData);
+            TradingSignal signal = recording.delegate.generateSignal(marketData);
+
+            assertThat(evaluation.rsi).isEqualTo(marketData.getRsi());
+            assertThat(evaluation.ema9).isEqualTo(marketData.getEma9());
+            assertThat(evaluation.macdLine).isEqualTo(marketData.getMacdLine());
+            assertThat(evaluation.macdSignal).isEqualTo(marketData.getMacdSignal());
+            assertThat(evaluation.bbLower).isEqualTo(marketData.getBbLower());
+            assertThat(evaluation.atrPercent).isEqualTo(marketData.getAtrPercent());
+            assertThat(evaluation.side).isEqualTo(signal.getSide());
+            assertThat(evaluation.strength).isEqualByComparingTo(signal.getStrength());
+        }
+    }
+
+    @Test
+    void volume24hDoesNotSpanArchiveGap() {
+        CandleRingBuffer before = new CandleRingBuffer(8);
+        CandleRingBuffer after = new CandleRingBuffer(8);
+        for (int i = 0; i < 5; i++) {
+            append(before, i, 100.0, 100.0, 100.0, 100.0);
+            append(after, 2 * 24 * 60 + i, 100.0, 100.0, 100.0, 100.0);
+        }
+
+        RecordingStrategy recording = new RecordingStrategy(new ScalpingStrategy(tradingConfig, technicalAnalysisConfig));
+        BacktestParameters parameters = parameters().toBuilder().warmupCandles(1).build();
+        backtestEngine.run(PAIR, List.of(before.window(5), after.window(5)), null, parameters, recording);
+
+        // По 10 на свечу: после разрыва в двое суток окно начинается заново
+        assertThat(recording.evaluations).hasSize(10);
+        for (int k = 0; k < 10; k++) {
+            assertThat(recording.evaluations.get(k).volume24h)
+                    .isEqualByComparingTo(BigDecimal.valueOf(10.0 * (k % 5 + 1)));
+        }
+    }
+
+    private static BacktestParameters parameters() {
+        return BacktestParameters.builder()
+                .candleInterval("1m")
+                .initialBalance(10_000.0)
+                .positionSizePercent(10.0)
+                .slippageBps(10.0)
+                .feePercent(0.1)
+                .targetProfitPercent(1.0)
+                .stopLossPercent(0.5)
+                .maxPositionTimeMinutes(5)
+                .assumedSpreadPercent(0.02)
+                .maxBookAgeMs(5000)
+                .warmupCandles(3)
+                .build();
+    }
+
+    private static void append(CandleRingBuffer buffer, int minute, double open, double high, double low, double close) {
+        buffer.append(START + minute * MINUTE, FixedPointUtils.fromDouble(open), FixedPointUtils.fromDouble(high),
+                FixedPointUtils.fromDouble(low), FixedPointUtils.fromDouble(close), 10.0, 10.0 * close, 100);
+    }
+
+    /**
+     * Стратегия с заранее заданными входами по номеру оценки
+     */
+    private static final class ScriptedStrategy implements TradingStrategy {
+        private final Map<Integer, OrderSide> entries;
+        private int evaluation = -1;
+
+        ScriptedStrategy(Map<Integer, OrderSide> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public String getName() {
+            return "Scripted";
+        }
+
+        @Override
+        public boolean isMarketSuitable(MarketData marketData) {
+            evaluation++;
+            return entries.containsKey(evaluation);
+        }
+
+        @Override
+        public TradingSignal generateSignal(MarketData marketData) {
+            return TradingSignal.builder()
+                    .side(entries.get(evaluation))
+                    .strength(BigDecimal.ONE)
+                    .confidence(BigDecimal.ONE)
+                    .build();
+        }
+
+        @Override
+        public boolean isEntrySignal(TradingSignal signal) {
+            return signal.getSide() != null;
+        }
+    }
+
+    /**
+     * Запоминает, что стратегия получила и ответила на каждой оценке, не открывая позиций
+     */
+    private static final class RecordingStrategy implements TradingStrategy {
+        private final TradingStrategy delegate;
+        private final List<Evaluation> evaluations = new ArrayList<>();
+
+        RecordingStrategy(TradingStrategy delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String getName() {
+            return delegate.getName();
+        }
+
+        @Override
+        public boolean isMarketSuitable(MarketData marketData) {
+            TradingSignal signal = delegate.generateSignal(marketData);
+            evaluations.add(new Evaluation(marketData.getExchangeTimestamp(), marketData.getRsi(), marketData.getEma9(),
+                    marketData.getMacdLine(), marketData.getMacdSignal(), marketData.getBbLower(),
+                    marketData.getAtrPercent(), marketData.getVolume24h(), signal.getSide(), signal.getStrength()));
+            return false;
+        }
+
+        @Override
+        public TradingSignal generateSignal(MarketData marketData) {
+            return delegate.generateSignal(marketData);
+        }
+
+        @Override
+        public boolean isEntrySignal(TradingSignal signal) {
+            return delegate.isEntrySignal(signal);
+        }
+    }
+
+    private static final class Evaluation {
+        private final long closeTime;
+        private final BigDecimal rsi;
+        private final BigDecimal ema9;
+        private final BigDecimal macdLine;
+        private final BigDecimal macdSignal;
+        private final BigDecimal bbLower;
+        private final BigDecimal atrPercent;
+        private final BigDecimal volume24h;
+        private final OrderSide side;
+        private final BigDecimal strength;
+
+        Evaluation(long closeTime, BigDecimal rsi, BigDecimal ema9, BigDecimal macdLine, BigDecimal macdSignal,
+                   BigDecimal bbLower, BigDecimal atrPercent, BigDecimal volume24h, OrderSide side,
+                   BigDecimal strength) {
+            this.closeTime = closeTime;
+            this.rsi = rsi;
+            this.ema9 = ema9;
+            this.macdLine = macdLine;
+            this.macdSignal = macdSignal;
+            this.bbLower = bbLower;
+            this.atrPercent = atrPercent;
+            this.volume24h = volume24h;
+            this.side = side;
+            this.strength = strength;
+        }
+    }
+}
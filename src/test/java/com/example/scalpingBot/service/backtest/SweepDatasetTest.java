@@ -0,0 +1,182 @@
+package com.example.scalpingBot.service.backtest;
+
+import com.example.scalpingBot.config.TechnicalAnalysisConfig;
+import com.example.scalpingBot.config.TradingConfig;
+import com.example.scalpingBot.entity.MarketData;
+import com.example.scalpingBot.service.analysis.IncrementalIndicators;
+import com.example.scalpingBot.service.analysis.IndicatorEngine;
+import com.example.scalpingBot.service.market.CandleRingBuffer;
+import com.example.scalpingBot.service.market.CandleSeries;
+import com.example.scalpingBot.service.market.MarketDataService;
+import com.example.scalpingBot.service.strategy.ScalpingStrategy;
+import com.example.scalpingBot.utils.FixedPointUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Проверка SweepDataset против правил MarketData и ScalpingStrategy на фиксированном ряду
+ *
+ * Ряд состоит из двух участков с разрывом в двое суток между ними, чтобы
+ * 24h объем в начале второго участка не включал свечи первого.
+ */
+class SweepDatasetTest {
+
+    private static final String PAIR = "BTCUSDT";
+    private static final long MINUTE = 60_000L;
+    private static final long DAY = 24 * 60 * MINUTE;
+    private static final long START = 1_700_000_000_000L - 1_700_000_000_000L % MINUTE;
+    private static final int SEGMENT = 400;
+    private static final double CANDLE_VOLUME = 40_000.0;
+
+    private final TradingConfig tradingConfig = new TradingConfig();
+    private final TechnicalAnalysisConfig technicalAnalysisConfig = new TechnicalAnalysisConfig();
+    private final IndicatorEngine indicatorEngine = new IndicatorEngine(technicalAnalysisConfig);
+    private final ScalpingStrategy strategy = new ScalpingStrategy(tradingConfig, technicalAnalysisConfig);
+
+    private List<CandleSeries> segments;
+    private BacktestParameters parameters;
+
+    @BeforeEach
+    void setUp() {
+        // Детерминированное случайное блуждание с ATR около 0.5-1% цены
+        Random random = new Random(11);
+        CandleRingBuffer first = new CandleRingBuffer(SEGMENT);
+        CandleRingBuffer second = new CandleRingBuffer(SEGMENT);
+        double price = 30000.0;
+        for (int i = 0; i < 2 * SEGMENT; i++) {
+            long openTime = START + i * MINUTE + (i >= SEGMENT ? 2 * DAY : 0);
+            double open = price;
+            price *= 1.0 + random.nextGaussian() * 0.004;
+            double high = Math.max(open, price) * (1.0 + random.nextDouble() * 0.003);
+            double low = Math.min(open, price) * (1.0 - random.nextDouble() * 0.003);
+            (i < SEGMENT ? first : second).append(openTime, FixedPointUtils.fromDouble(open),
+                    FixedPointUtils.fromDouble(high), FixedPointUtils.fromDouble(low), FixedPointUtils.fromDouble(price),
+                    CANDLE_VOLUME, CANDLE_VOLUME * price, 500);
+        }
+        segments = List.of(first.window(SEGMENT), second.window(SEGMENT));
+
+        parameters = BacktestParameters.builder()
+                .candleInterval("1m")
+                .assumedSpreadPercent(0.02)
+                .warmupCandles(50)
+                .build();
+    }
+
+    @Test
+    void matchesMarketDataAndStrategyRules() {
+        SweepDataset dataset = build();
+        IncrementalIndicators indicators = indicatorEngine.createState();
+        BigDecimal rsiOversold = BigDecimal.valueOf(technicalAnalysisConfig.getIndicators().getRsi().getOversold());
+        BigDecimal rsiOverbought = BigDecimal.valueOf(technicalAnalysisConfig.getIndicators().getRsi().getOverbought());
+        List<long[]> history = new ArrayList<>();
+        int suitableCandles = 0;
+
+        int g = 0;
+        for (CandleSeries series : segments) {
+            for (int i = 0; i < series.size(); i++, g++) {
+                indicators.update(FixedPointUtils.toDouble(series.highScaled(i)),
+                        FixedPointUtils.toDouble(series.lowScaled(i)), FixedPointUtils.toDouble(series.closeScaled(i)));
+                history.add(new long[]{series.openTime(i), g});
+
+                MarketData marketData = marketData(series, i, history);
+                IndicatorEngine.applyIndicators(indicators, marketData);
+
+                boolean expected = indicators.getCount() >= parameters.getWarmupCandles()
+                        && strategy.isMarketSuitable(marketData);
+                assertThat(dataset.isSuitable(g)).isEqualTo(expected);
+                if (!expected) {
+                    continue;
+                }
+                suitableCandles++;
+
+                double rsi = dataset.rsi(g);
+                assertThat(rsi).isEqualTo(marketData.getRsi().doubleValue());
+                int bullish = dataset.bullishFactors(g) + (rsi <= rsiOversold.doubleValue() ? 1 : 0);
+                int bearish = dataset.bearishFactors(g) + (rsi >= rsiOverbought.doubleValue() ? 1 : 0);
+                assertThat(BigDecimal.valueOf(bullish * 25L))
+                        .isEqualByComparingTo(marketData.getBullishSignalStrength(rsiOversold));
+                assertThat(BigDecimal.valueOf(bearish * 25L))
+                        .isEqualByComparingTo(marketData.getBearishSignalStrength(rsiOverbought));
+            }
+        }
+
+        // Ряд проверяет обе ветки фильтра
+        assertThat(suitableCandles).isGreaterThan(0);
+        assertThat(suitableCandles).isLessThan(2 * SEGMENT);
+    }
+
+    @Test
+    void volumeWindowDoesNotSpanSegmentGap() {
+        SweepDataset dataset = build();
+
+        // Первые свечи второго участка: за сутки меньше 1M объема, хотя прогрев индикаторов уже пройден
+        int firstOfSecond = SEGMENT;
+        assertThat(dataset.isSuitable(firstOfSecond)).isFalse();
+
+        Volume24hWindow window = new Volume24hWindow(MINUTE);
+        for (CandleSeries series : segments) {
+            for (int i = 0; i < series.size(); i++) {
+                window.add(series.openTime(i), series.volume(i), series.quoteVolume(i));
+            }
+            // В конце каждого участка в окне только свечи этого участка
+            assertThat(window.volume()).isCloseTo(CANDLE_VOLUME * series.size(), within(1e-3));
+        }
+    }
+
+    @Test
+    void volumeWindowKeepsLastDayOfContiguousCandles() {
+        Volume24hWindow window = new Volume24hWindow(MINUTE);
+        int candles = 1440 + 100;
+        for (int i = 0; i < candles; i++) {
+            window.add(START + i * MINUTE, i, 2.0 * i);
+        }
+
+        // Свечи 100..1539 - ровно сутки
+        double expected = 0;
+        for (int i = candles - 1440; i < candles; i++) {
+            expected += i;
+        }
+        assertThat(window.volume()).isCloseTo(expected, within(1e-6));
+        assertThat(window.quoteVolume()).isCloseTo(2.0 * expected, within(1e-6));
+    }
+
+    private SweepDataset build() {
+        return SweepDataset.build(PAIR, segments, MINUTE, indicatorEngine.createState(), parameters,
+                tradingConfig.getStrategy().getMaxSpreadPercent().doubleValue(),
+                tradingConfig.getStrategy().getMinimumVolumeUsdt().doubleValue());
+    }
+
+    /**
+     * Снимок как в BacktestEngine без стакана, 24h объем - прямым суммированием по времени
+     */
+    private MarketData marketData(CandleSeries series, int i, List<long[]> history) {
+        long openTime = series.openTime(i);
+        double volume24h = 0;
+        double quoteVolume24h = 0;
+        for (long[] candle : history) {
+            if (candle[0] > openTime - DAY) {
+                CandleSeries source = segments.get(candle[1] < SEGMENT ? 0 : 1);
+                int index = (int) (candle[1] % SEGMENT);
+                volume24h += source.volume(index);
+                quoteVolume24h += source.quoteVolume(index);
+            }
+        }
+
+        return MarketData.builder()
+                .tradingPair(PAIR)
+                .closePrice(FixedPointUtils.toBigDecimal(series.closeScaled(i)))
+                .volume24h(BigDecimal.valueOf(volume24h))
+                .quoteVolume24h(BigDecimal.valueOf(quoteVolume24h))
+                .liquidityIndex(MarketDataService.liquidityIndexFromVolume(quoteVolume24h))
+                .spreadPercent(BigDecimal.valueOf(parameters.getAssumedSpreadPercent()))
+                .build();
+    }
+}
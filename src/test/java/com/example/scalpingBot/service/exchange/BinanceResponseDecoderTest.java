@@ -0,0 +1,180 @@
+package com.example.scalpingBot.service.exchange;
+
+import com.example.scalpingBot.utils.FixedPointUtils;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Проверка эквивалентности потоковых декодеров и разбора через ObjectMapper
+ */
+class BinanceResponseDecoderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Пример ответа из документации Binance API (POST /api/v3/order, FULL)
+    private static final String ORDER = "{\"symbol\":\"BTCUSDT\",\"orderId\":28,\"orderListId\":-1,"
+            + "\"clientOrderId\":\"6gCrw2kRUAF9CvJDGP16IP\",\"transactTime\":1507725176595,"
+            + "\"price\":\"0.00000000\",\"origQty\":\"10.00000000\",\"executedQty\":\"10.00000000\","
+            + "\"cummulativeQuoteQty\":\"10.00000000\",\"status\":\"FILLED\",\"timeInForce\":\"GTC\","
+            + "\"type\":\"MARKET\",\"side\":\"SELL\",\"fills\":["
+            + "{\"price\":\"4000.00000000\",\"qty\":\"1.00000000\",\"commission\":\"4.00000000\",\"commissionAsset\":\"USDT\",\"tradeId\":56},"
+            + "{\"price\":\"3999.00000000\",\"qty\":\"5.00000000\",\"commission\":\"19.99500000\",\"commissionAsset\":\"USDT\",\"tradeId\":57}]}";
+
+    @Test
+    void klinesMatchObjectMapper() throws Exception {
+        byte[] json = klinesJson(500);
+        JsonNode reference = objectMapper.readTree(json);
+
+        ExchangeResponses.KlineBatch batch = BinanceResponseDecoder.decodeKlines(json);
+
+        assertThat(batch.size()).isEqualTo(reference.size());
+        for (int i = 0; i < batch.size(); i++) {
+            JsonNode kline = reference.get(i);
+            assertThat(batch.openTime(i)).isEqualTo(kline.get(0).asLong());
+            assertThat(batch.open(i)).isEqualTo(FixedPointUtils.parse(kline.get(1).asText()));
+            assertThat(batch.high(i)).isEqualTo(FixedPointUtils.parse(kline.get(2).asText()));
+            assertThat(batch.low(i)).isEqualTo(FixedPointUtils.parse(kline.get(3).asText()));
+            assertThat(batch.close(i)).isEqualTo(FixedPointUtils.parse(kline.get(4).asText()));
+            assertThat(batch.volume(i)).isEqualTo(FixedPointUtils.parse(kline.get(5).asText()));
+            assertThat(batch.closeTime(i)).isEqualTo(kline.get(6).asLong());
+            assertThat(batch.quoteVolume(i)).isEqualTo(FixedPointUtils.parse(kline.get(7).asText()));
+            assertThat(batch.tradeCount(i)).isEqualTo(kline.get(8).asInt());
+        }
+    }
+
+    @Test
+    void depthMatchesObjectMapper() throws Exception {
+        byte[] json = depthJson(1000);
+        JsonNode reference = objectMapper.readTree(json);
+
+        // Емкость меньше фактической - массивы должны расти
+        ExchangeResponses.DepthSnapshot snapshot = BinanceResponseDecoder.decodeDepth(json, 10);
+
+        assertThat(snapshot.getLastUpdateId()).isEqualTo(reference.get("lastUpdateId").asLong());
+        assertThat(snapshot.getBidCount()).isEqualTo(reference.get("bids").size());
+        assertThat(snapshot.getAskCount()).isEqualTo(reference.get("asks").size());
+        for (int i = 0; i < snapshot.getBidCount(); i++) {
+            assertThat(snapshot.getBidPrices()[i]).isEqualTo(FixedPointUtils.parse(reference.get("bids").get(i).get(0).asText()));
+            assertThat(snapshot.getBidQuantities()[i]).isEqualTo(FixedPointUtils.parse(reference.get("bids").get(i).get(1).asText()));
+        }
+        for (int i = 0; i < snapshot.getAskCount(); i++) {
+            assertThat(snapshot.getAskPrices()[i]).isEqualTo(FixedPointUtils.parse(reference.get("asks").get(i).get(0).asText()));
+            assertThat(snapshot.getAskQuantities()[i]).isEqualTo(FixedPointUtils.parse(reference.get("asks").get(i).get(1).asText()));
+        }
+    }
+
+    @Test
+    void decodesDocumentationOrderResponse() throws Exception {
+        ExchangeResponses.OrderResponse order = BinanceResponseDecoder.decodeOrder(bytes(ORDER));
+
+        assertThat(order.getSymbol()).isEqualTo("BTCUSDT");
+        assertThat(order.getOrderId()).isEqualTo("28");
+        assertThat(order.getClientOrderId()).isEqualTo("6gCrw2kRUAF9CvJDGP16IP");
+        assertThat(order.getStatus()).isEqualTo("FILLED");
+        assertThat(order.getSide()).isEqualTo("SELL");
+        assertThat(order.getType()).isEqualTo("MARKET");
+        assertThat(order.getLastEventTime()).isEqualTo(1507725176595L);
+        assertThat(order.getExecutedQty()).isEqualTo(FixedPointUtils.parse("10"));
+        assertThat(order.getCommission()).isEqualTo(FixedPointUtils.parse("23.995"));
+        assertThat(order.getCommissionAsset()).isEqualTo("USDT");
+    }
+
+    @Test
+    void decodesTickerAndSkipsUnknownFields() throws Exception {
+        String json = "{\"symbol\":\"BNBBTC\",\"priceChange\":\"-94.99999800\",\"priceChangePercent\":\"-95.960\","
+                + "\"weightedAvgPrice\":\"0.29628482\",\"lastPrice\":\"4.00000200\",\"bidPrice\":\"4.00000000\","
+                + "\"askPrice\":\"4.00000200\",\"openPrice\":\"99.00000000\",\"highPrice\":\"100.00000000\","
+                + "\"lowPrice\":\"0.10000000\",\"volume\":\"8913.30000000\",\"quoteVolume\":\"15.30000000\","
+                + "\"openTime\":1499783499040,\"closeTime\":1499869899040,\"firstId\":28385,\"count\":76,"
+                + "\"extra\":{\"nested\":[1,2,3]}}";
+
+        ExchangeResponses.TickerSnapshot ticker = BinanceResponseDecoder.decodeTicker(bytes(json));
+
+        assertThat(ticker.getSymbol()).isEqualTo("BNBBTC");
+        assertThat(ticker.getLastPrice()).isEqualTo(FixedPointUtils.parse("4.000002"));
+        assertThat(ticker.getPriceChangePercent()).isEqualTo(FixedPointUtils.parse("-95.96"));
+        assertThat(ticker.getCloseTime()).isEqualTo(1499869899040L);
+        assertThat(ticker.getTradeCount()).isEqualTo(76L);
+    }
+
+    @Test
+    void decodesBulkTickersAndBookTickers() throws Exception {
+        String tickers = "[{\"symbol\":\"BTCUSDT\",\"lastPrice\":\"65000.10000000\",\"quoteVolume\":\"1.5\",\"closeTime\":1700000000000,\"count\":10},"
+                + "{\"symbol\":\"ETHUSDT\",\"lastPrice\":\"3500.00000000\",\"lastQty\":null,\"closeTime\":1700000000001,\"count\":20}]";
+        String bookTickers = "[{\"symbol\":\"BTCUSDT\",\"bidPrice\":\"64999.99\",\"bidQty\":\"0.5\",\"askPrice\":\"65000.01\",\"askQty\":\"1.25\"},"
+                + "{\"symbol\":\"ETHUSDT\",\"bidPrice\":\"3499.9\",\"bidQty\":\"2\",\"askPrice\":\"3500.1\",\"askQty\":\"3\"}]";
+
+        var decodedTickers = BinanceResponseDecoder.decodeTickers(bytes(tickers));
+        var decodedBookTickers = BinanceResponseDecoder.decodeBookTickers(bytes(bookTickers));
+
+        assertThat(decodedTickers.size()).isEqualTo(2);
+        assertThat(decodedTickers.get(0).getSymbol()).isEqualTo("BTCUSDT");
+        assertThat(decodedTickers.get(0).getLastPrice()).isEqualTo(FixedPointUtils.parse("65000.1"));
+        assertThat(decodedTickers.get(1).getSymbol()).isEqualTo("ETHUSDT");
+        assertThat(decodedTickers.get(1).getTradeCount()).isEqualTo(20L);
+
+        assertThat(decodedBookTickers.size()).isEqualTo(2);
+        assertThat(decodedBookTickers.get(0).getBidPrice()).isEqualTo(FixedPointUtils.parse("64999.99"));
+        assertThat(decodedBookTickers.get(0).getAskQuantity()).isEqualTo(FixedPointUtils.parse("1.25"));
+        assertThat(decodedBookTickers.get(1).getSymbol()).isEqualTo("ETHUSDT");
+        assertThat(decodedBookTickers.get(1).getAskPrice()).isEqualTo(FixedPointUtils.parse("3500.1"));
+    }
+
+    @Test
+    void rejectsTruncatedKline() {
+        assertThatThrownBy(() -> BinanceResponseDecoder.decodeKlines(bytes("[[1499040000000,\"0.1\",\"0.2\"]]")))
+                .isInstanceOf(JsonParseException.class);
+    }
+
+    private static byte[] klinesJson(int count) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            long openTime = 1700000000000L + i * 60_000L;
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('[').append(openTime)
+                    .append(",\"").append(price(random)).append('"')
+                    .append(",\"").append(price(random)).append('"')
+                    .append(",\"").append(price(random)).append('"')
+                    .append(",\"").append(price(random)).append('"')
+                    .append(",\"").append(price(random)).append('"')
+                    .append(',').append(openTime + 59_999)
+                    .append(",\"").append(price(random)).append('"')
+                    .append(',').append(random.nextInt(10_000))
+                    .append(",\"").append(price(random)).append("\",\"").append(price(random)).append("\",\"0\"]");
+        }
+        return bytes(sb.append(']').toString());
+    }
+
+    private static byte[] depthJson(int levels) {
+        Random random = new Random(7);
+        StringBuilder sb = new StringBuilder("{\"lastUpdateId\":1027024,\"bids\":[");
+        for (int i = 0; i < levels; i++) {
+            sb.append(i > 0 ? "," : "").append("[\"").append(price(random)).append("\",\"").append(price(random)).append("\"]");
+        }
+        sb.append("],\"asks\":[");
+        for (int i = 0; i < levels; i++) {
+            sb.append(i > 0 ? "," : "").append("[\"").append(price(random)).append("\",\"").append(price(random)).append("\"]");
+        }
+        return bytes(sb.append("]}").toString());
+    }
+
+    private static String price(Random random) {
+        return String.format(Locale.ROOT, "%.8f", random.nextDouble() * 100_000);
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.scalpingBot.service.exchange;
+
+import com.example.scalpingBot.utils.FixedPointUtils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Разбор ответов Bybit v5 в общие структуры (примеры из документации Bybit API)
+ */
+class BybitResponseDecoderTest {
+
+    // GET /v5/market/tickers?category=spot (без symbol - все пары категории)
+    private static final String TICKERS = "{\"retCode\":0,\"retMsg\":\"OK\",\"result\":{\"category\":\"spot\",\"list\":["
+            + "{\"symbol\":\"BTCUSDT\",\"bid1Price\":\"20517.96\",\"bid1Size\":\"2\",\"ask1Price\":\"20527.77\","
+            + "\"ask1Size\":\"1.862172\",\"lastPrice\":\"20533.13\",\"prevPrice24h\":\"20393.48\","
+            + "\"price24hPcnt\":\"0.0068\",\"highPrice24h\":\"21128.12\",\"lowPrice24h\":\"20318.89\","
+            + "\"turnover24h\":\"243765620.65899866\",\"volume24h\":\"11801.27771\",\"usdIndexPrice\":\"20784.12\"},"
+            + "{\"symbol\":\"DOGEUSDT\",\"bid1Price\":\"0.0613\",\"bid1Size\":\"1000\",\"ask1Price\":\"0.0614\","
+            + "\"ask1Size\":\"2000\",\"lastPrice\":\"0.0613\",\"prevPrice24h\":\"0.0620\","
+            + "\"price24hPcnt\":\"-0.0113\",\"highPrice24h\":\"0.0625\",\"lowPrice24h\":\"0.0610\","
+            + "\"turnover24h\":\"1000\",\"volume24h\":\"16313\",\"usdIndexPrice\":\"\"}]},"
+            + "\"retExtInfo\":{},\"time\":1673859087947}";
+
+    // GET /v5/market/orderbook?category=spot&symbol=BTCUSDT&limit=2
+    private static final String ORDER_BOOK = "{\"retCode\":0,\"retMsg\":\"OK\",\"result\":{\"s\":\"BTCUSDT\","
+            + "\"a\":[[\"16638.64\",\"0.008479\"],[\"16638.65\",\"0.1\"]],"
+            + "\"b\":[[\"16638.27\",\"0.305749\"],[\"16638.26\",\"0.5\"]],"
+            + "\"ts\":1672765737733,\"u\":5277055,\"seq\":7961638724},\"retExtInfo\":{},\"time\":1672765737734}";
+
+    // GET /v5/market/kline?category=spot&symbol=BTCUSDT&interval=60&limit=2 (от новых к старым)
+    private static final String KLINES = "{\"retCode\":0,\"retMsg\":\"OK\",\"result\":{\"symbol\":\"BTCUSDT\","
+            + "\"category\":\"spot\",\"list\":["
+            + "[\"1670608800000\",\"17071\",\"17073\",\"17027\",\"17055.5\",\"268611\",\"15.74462667\"],"
+            + "[\"1670605200000\",\"17071.5\",\"17071.5\",\"17061\",\"17071\",\"4177\",\"0.24469757\"]]},"
+            + "\"retExtInfo\":{},\"time\":1672025956592}";
+
+    // GET /v5/order/history?category=spot&orderId=...
+    private static final String ORDER = "{\"retCode\":0,\"retMsg\":\"OK\",\"result\":{\"list\":["
+            + "{\"orderId\":\"1321052653536515584\",\"orderLinkId\":\"1321052653536515585\",\"symbol\":\"ETHUSDT\","
+            + "\"price\":\"1600.00\",\"qty\":\"0.10\",\"side\":\"Buy\",\"orderStatus\":\"PartiallyFilledCanceled\","
+            + "\"avgPrice\":\"1599.50\",\"cumExecQty\":\"0.05\",\"cumExecValue\":\"79.975\",\"cumExecFee\":\"0.00005\","
+            + "\"orderType\":\"Limit\",\"triggerPrice\":\"\",\"createdTime\":\"1672221263407\","
+            + "\"updatedTime\":\"1672221263417\"}],\"nextPageCursor\":\"\",\"category\":\"spot\"},"
+            + "\"retExtInfo\":{},\"time\":1672221263862}";
+
+    @Test
+    void tickersKeepOnlyRequestedPairs() throws Exception {
+        List<ExchangeResponses.TickerSnapshot> tickers =
+                BybitResponseDecoder.decodeTickers(bytes(TICKERS), Set.of("BTCUSDT"));
+
+        assertThat(tickers).hasSize(1);
+        ExchangeResponses.TickerSnapshot ticker = tickers.get(0);
+        assertThat(ticker.getSymbol()).isEqualTo("BTCUSDT");
+        assertThat(ticker.getLastPrice()).isEqualTo(FixedPointUtils.parse("20533.13"));
+        assertThat(ticker.getBidPrice()).isEqualTo(FixedPointUtils.parse("20517.96"));
+        assertThat(ticker.getAskPrice()).isEqualTo(FixedPointUtils.parse("20527.77"));
+        assertThat(ticker.getOpenPrice()).isEqualTo(FixedPointUtils.parse("20393.48"));
+        // Доля 0.0068 переводится в проценты, как у Binance
+        assertThat(ticker.getPriceChangePercent()).isEqualTo(FixedPointUtils.parse("0.68"));
+        assertThat(ticker.getVolume()).isEqualTo(FixedPointUtils.parse("11801.27771"));
+        assertThat(ticker.getQuoteVolume()).isEqualTo(FixedPointUtils.parse("243765620.65899866"));
+        assertThat(ticker.getCloseTime()).isEqualTo(1673859087947L);
+    }
+
+    @Test
+    void bookTickersReadTopOfBook() throws Exception {
+        List<ExchangeResponses.BookTickerSnapshot> bookTickers = BybitResponseDecoder.decodeBookTickers(bytes(TICKERS), null);
+
+        assertThat(bookTickers).extracting(ExchangeResponses.BookTickerSnapshot::getSymbol)
+                .containsExactly("BTCUSDT", "DOGEUSDT");
+        ExchangeResponses.BookTickerSnapshot doge = bookTickers.get(1);
+        assertThat(doge.getBidPrice()).isEqualTo(FixedPointUtils.parse("0.0613"));
+        assertThat(doge.getBidQuantity()).isEqualTo(FixedPointUtils.parse("1000"));
+        assertThat(doge.getAskPrice()).isEqualTo(FixedPointUtils.parse("0.0614"));
+        assertThat(doge.getAskQuantity()).isEqualTo(FixedPointUtils.parse("2000"));
+        assertThat(doge.getUpdateTime()).isEqualTo(1673859087947L);
+    }
+
+    @Test
+    void decodesOrderBook() throws Exception {
+        ExchangeResponses.DepthSnapshot snapshot = BybitResponseDecoder.decodeDepth(bytes(ORDER_BOOK), 1);
+
+        assertThat(snapshot.getSymbol()).isEqualTo("BTCUSDT");
+        assertThat(snapshot.getLastUpdateId()).isEqualTo(5277055L);
+        assertThat(snapshot.getBidCount()).isEqualTo(2);
+        assertThat(snapshot.getAskCount()).isEqualTo(2);
+        assertThat(snapshot.getBidPrices()[0]).isEqualTo(FixedPointUtils.parse("16638.27"));
+        assertThat(snapshot.getBidQuantities()[1]).isEqualTo(FixedPointUtils.parse("0.5"));
+        assertThat(snapshot.getAskPrices()[1]).isEqualTo(FixedPointUtils.parse("16638.65"));
+        assertThat(snapshot.getAskQuantities()[0]).isEqualTo(FixedPointUtils.parse("0.008479"));
+    }
+
+    @Test
+    void decodesBookTopStreamMessage() throws Exception {
+        String message = "{\"topic\":\"orderbook.1.BTCUSDT\",\"type\":\"snapshot\",\"ts\":1672304484978,"
+                + "\"data\":{\"s\":\"BTCUSDT\",\"b\":[[\"16493.50\",\"0.006\"]],\"a\":[[\"16611.00\",\"0.029\"]],"
+                + "\"u\":18521288,\"seq\":7961638724},\"cts\":1672304484976}";
+
+        ExchangeResponses.BookTickerSnapshot top = BybitResponseDecoder.decodeBookTop(bytes(message));
+
+        assertThat(top.getSymbol()).isEqualTo("BTCUSDT");
+        assertThat(top.getBidPrice()).isEqualTo(FixedPointUtils.parse("16493.50"));
+        assertThat(top.getAskQuantity()).isEqualTo(FixedPointUtils.parse("0.029"));
+        assertThat(top.getUpdateTime()).isEqualTo(1672304484978L);
+
+        // Ответ на подписку не содержит стакана
+        assertThat(BybitResponseDecoder.decodeBookTop(
+                bytes("{\"success\":true,\"ret_msg\":\"subscribe\",\"conn_id\":\"1\",\"op\":\"subscribe\"}"))).isNull();
+    }
+
+    @Test
+    void klinesAreReturnedOldestFirstWithCloseTime() throws Exception {
+        ExchangeResponses.KlineBatch batch = BybitResponseDecoder.decodeKlines(bytes(KLINES), 3_600_000L, 1);
+
+        assertThat(batch.size()).isEqualTo(2);
+        assertThat(batch.openTime(0)).isEqualTo(1670605200000L);
+        assertThat(batch.closeTime(0)).isEqualTo(1670608799999L);
+        assertThat(batch.open(0)).isEqualTo(FixedPointUtils.parse("17071.5"));
+        assertThat(batch.close(0)).isEqualTo(FixedPointUtils.parse("17071"));
+        assertThat(batch.openTime(1)).isEqualTo(1670608800000L);
+        assertThat(batch.high(1)).isEqualTo(FixedPointUtils.parse("17073"));
+        assertThat(batch.low(1)).isEqualTo(FixedPointUtils.parse("17027"));
+        assertThat(batch.volume(1)).isEqualTo(FixedPointUtils.parse("268611"));
+        assertThat(batch.quoteVolume(1)).isEqualTo(FixedPointUtils.parse("15.74462667"));
+    }
+
+    @Test
+    void orderStatusIsNormalizedToBinanceTerms() throws Exception {
+        ExchangeResponses.OrderResponse order = BybitResponseDecoder.decodeOrder(bytes(ORDER));
+
+        assertThat(order.getOrderId()).isEqualTo("1321052653536515584");
+        assertThat(order.getClientOrderId()).isEqualTo("1321052653536515585");
+        assertThat(order.getSymbol()).isEqualTo("ETHUSDT");
+        assertThat(order.getSide()).isEqualTo("BUY");
+        assertThat(order.getType()).isEqualTo("LIMIT");
+        assertThat(order.getStatus()).isEqualTo("CANCELED");
+        assertThat(order.getOrigQty()).isEqualTo(FixedPointUtils.parse("0.10"));
+        assertThat(order.getExecutedQty()).isEqualTo(FixedPointUtils.parse("0.05"));
+        assertThat(order.getCummulativeQuoteQty()).isEqualTo(FixedPointUtils.parse("79.975"));
+        assertThat(order.getCommission()).isEqualTo(FixedPointUtils.parse("0.00005"));
+        assertThat(order.getLastEventTime()).isEqualTo(1672221263417L);
+    }
+
+    @Test
+    void emptyOrderListDecodesToNull() throws Exception {
+        String empty = "{\"retCode\":0,\"retMsg\":\"OK\",\"result\":{\"list\":[],\"nextPageCursor\":\"\","
+                + "\"category\":\"spot\"},\"retExtInfo\":{},\"time\":1672221263862}";
+
+        assertThat(BybitResponseDecoder.decodeOrder(bytes(empty))).isNull();
+    }
+
+    @Test
+    void orderAckCarriesIdsAndStatus() throws Exception {
+        String ack = "{\"retCode\":0,\"retMsg\":\"OK\",\"result\":{\"orderId\":\"1321003749386327552\","
+                + "\"orderLinkId\":\"spot-test-postonly\"},\"retExtInfo\":{},\"time\":1672211918471}";
+
+        ExchangeResponses.OrderResponse order = BybitResponseDecoder.decodeOrderAck(bytes(ack), "NEW");
+
+        assertThat(order.getOrderId()).isEqualTo("1321003749386327552");
+        assertThat(order.getClientOrderId()).isEqualTo("spot-test-postonly");
+        assertThat(order.getStatus()).isEqualTo("NEW");
+        assertThat(order.getTransactTime()).isEqualTo(1672211918471L);
+    }
+
+    @Test
+    void nonZeroRetCodeIsReported() {
+        String error = "{\"retCode\":10002,\"retMsg\":\"invalid request, please check your server timestamp or "
+                + "recv_window param\",\"result\":{},\"retExtInfo\":{},\"time\":1672211918471}";
+
+        assertThatThrownBy(() -> BybitResponseDecoder.decodeOrderAck(bytes(error), "NEW"))
+                .isInstanceOf(BybitResponseDecoder.RetCodeException.class)
+                .satisfies(e -> assertThat(((BybitResponseDecoder.RetCodeException) e).getRetCode()).isEqualTo(10002));
+    }
+
+    @Test
+    void decodesServerTime() throws Exception {
+        String time = "{\"retCode\":0,\"retMsg\":\"OK\",\"result\":{\"timeSecond\":\"1688639403\","
+                + "\"timeNano\":\"1688639403423213947\"},\"retExtInfo\":{},\"time\":1688639403423}";
+
+        assertThat(BybitResponseDecoder.decodeServerTime(bytes(time))).isEqualTo(1688639403423L);
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.scalpingBot.service.exchange;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Проверка оценки смещения часов на смоделированных замерах /api/v3/time
+ */
+class ClockOffsetEstimatorTest {
+
+    private static final long NANOS_PER_MS = 1_000_000L;
+    private static final long ROUND_INTERVAL_MS = 30_000L;
+
+    @Test
+    void estimatesOffsetAndRejectsAsymmetricSamples() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator(10, 500, 50);
+        double trueOffsetMs = 250.4;
+
+        long localMs = 1_700_000_000_000L;
+        addSample(estimator, localMs, 10, 10, trueOffsetMs);
+        addSample(estimator, localMs + 200, 12, 11, trueOffsetMs);
+        addSample(estimator, localMs + 400, 9, 10, trueOffsetMs);
+        // Запрос долго стоял в очереди на отправку - смещение искажено
+        addSample(estimator, localMs + 600, 180, 10, trueOffsetMs);
+
+        ClockOffsetEstimator.Estimate estimate = estimator.completeRound(0);
+
+        assertThat(estimate.getOffsetMs()).isCloseTo(trueOffsetMs, within(1.0));
+        assertThat(estimate.getMinRttMs()).isCloseTo(19.0, within(0.001));
+        assertThat(estimate.getRttHighMs()).isCloseTo(190.0, within(0.001));
+        assertThat(estimate.getDriftPpm()).isZero();
+    }
+
+    @Test
+    void tracksDriftBetweenRounds() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator(10, 500, 50);
+        double driftPpm = 80;
+
+        ClockOffsetEstimator.Estimate estimate = null;
+        for (int round = 0; round < 10; round++) {
+            long roundMs = round * ROUND_INTERVAL_MS;
+            double offset = -40 + roundMs * driftPpm / 1_000_000.0;
+            for (int i = 0; i < 5; i++) {
+                addSample(estimator, 1_700_000_000_000L + roundMs + i * 200, 15, 15, offset);
+            }
+            estimate = estimator.completeRound(roundMs * NANOS_PER_MS);
+        }
+
+        assertThat(estimate.getDriftPpm()).isCloseTo(driftPpm, within(10.0));
+
+        // Прогноз на следующий раунд без новых замеров
+        long nextRoundMs = 10 * ROUND_INTERVAL_MS;
+        double expectedOffset = -40 + nextRoundMs * driftPpm / 1_000_000.0;
+        assertThat(estimate.offsetAt(nextRoundMs * NANOS_PER_MS)).isCloseTo(expectedOffset, within(1.0));
+    }
+
+    @Test
+    void resetsDriftHistoryAfterClockStep() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator(10, 500, 50);
+
+        for (int round = 0; round < 5; round++) {
+            long roundMs = round * ROUND_INTERVAL_MS;
+            addSample(estimator, 1_700_000_000_000L + roundMs, 20, 20, 30);
+            estimator.completeRound(roundMs * NANOS_PER_MS);
+        }
+
+        // Системные часы переставлены на 1.2 секунды назад
+        long roundMs = 5 * ROUND_INTERVAL_MS;
+        addSample(estimator, 1_700_000_000_000L + roundMs, 20, 20, 1230);
+        ClockOffsetEstimator.Estimate estimate = estimator.completeRound(roundMs * NANOS_PER_MS);
+
+        assertThat(estimate.getOffsetMs()).isCloseTo(1230, within(1.0));
+        assertThat(estimate.getDriftPpm()).isZero();
+    }
+
+    @Test
+    void emptyRoundKeepsPreviousEstimate() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator(10, 500, 50);
+
+        assertThat(estimator.completeRound(0)).isNull();
+        assertThat(estimator.getEstimate()).isNull();
+
+        addSample(estimator, 1_700_000_000_000L, 5, 5, -12);
+        ClockOffsetEstimator.Estimate estimate = estimator.completeRound(0);
+
+        assertThat(estimator.completeRound(ROUND_INTERVAL_MS * NANOS_PER_MS)).isNull();
+        assertThat(estimator.getEstimate()).isSameAs(estimate);
+        assertThat(estimate.toServerTimeMs(1_700_000_000_000L, 0)).isCloseTo(1_699_999_999_988L, within(1L));
+    }
+
+    /**
+     * Смоделировать замер: запрос идет до сервера outMs, ответ обратно backMs
+     */
+    private static void addSample(ClockOffsetEstimator estimator, long sentMs, double outMs, double backMs,
+                                  double trueOffsetMs) {
+        long serverTimeMs = (long) Math.floor(sentMs + outMs + trueOffsetMs);
+        long rttNanos = Math.round((outMs + backMs) * NANOS_PER_MS);
+        estimator.addSample(sentMs, rttNanos, serverTimeMs);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.scalpingBot.service.exchange;
+
+import com.example.scalpingBot.exception.ExchangeApiException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Проверка приоритетов, резервов, отмены, таймаута и паузы ExchangeRateLimiter
+ *
+ * Бюджет веса - 60 в минуту (1 токен в секунду), резерв входов 10% (6),
+ * резерв рыночных данных 30% (18).
+ */
+class ExchangeRateLimiterTest {
+
+    private static final String EXCHANGE = "binance";
+    private static final int WEIGHT_PER_MINUTE = 60;
+
+    private ExchangeRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        rateLimiter = new ExchangeRateLimiter(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(rateLimiter, "binanceWeightPerMinute", WEIGHT_PER_MINUTE);
+        ReflectionTestUtils.setField(rateLimiter, "binanceOrdersPer10s", 100);
+        ReflectionTestUtils.setField(rateLimiter, "binanceOrdersPerDay", 200_000);
+        ReflectionTestUtils.setField(rateLimiter, "bybitWeightPerMinute", WEIGHT_PER_MINUTE);
+        ReflectionTestUtils.setField(rateLimiter, "bybitOrdersPer10s", 100);
+        ReflectionTestUtils.setField(rateLimiter, "bybitOrdersPerDay", 200_000);
+        ReflectionTestUtils.setField(rateLimiter, "entryReserve", 0.1);
+        ReflectionTestUtils.setField(rateLimiter, "marketDataReserve", 0.3);
+        ReflectionTestUtils.setField(rateLimiter, "maxWaitMs", 10_000L);
+        rateLimiter.init();
+    }
+
+    @Test
+    void lowerPrioritiesCannotSpendReserve() {
+        // До резерва рыночных данных: 60 - 42 = 18
+        assertThat(acquire(ExchangeRateLimiter.Priority.MARKET_DATA, 42)).isDone();
+        assertThat(acquire(ExchangeRateLimiter.Priority.MARKET_DATA, 1)).isNotDone();
+
+        // Входы доходят до своего резерва: 18 - 12 = 6
+        assertThat(acquire(ExchangeRateLimiter.Priority.ENTRY, 12)).isDone();
+        assertThat(acquire(ExchangeRateLimiter.Priority.ENTRY, 1)).isNotDone();
+
+        // Защитным ордерам доступен весь остаток
+        assertThat(acquire(ExchangeRateLimiter.Priority.PROTECTIVE, 6)).isDone();
+    }
+
+    @Test
+    void protectiveTakesTokensAheadOfQueuedRequests() throws Exception {
+        assertThat(acquire(ExchangeRateLimiter.Priority.PROTECTIVE, WEIGHT_PER_MINUTE)).isDone();
+
+        CompletableFuture<Void> marketData = acquire(ExchangeRateLimiter.Priority.MARKET_DATA, 1);
+        CompletableFuture<Void> entry = acquire(ExchangeRateLimiter.Priority.ENTRY, 1);
+        CompletableFuture<Void> protective = acquire(ExchangeRateLimiter.Priority.PROTECTIVE, 1);
+
+        // Первый пополненный токен (через ~1 с) получает защитный ордер, хотя он встал в очередь последним
+        protective.get(3, TimeUnit.SECONDS);
+        assertThat(entry).isNotDone();
+        assertThat(marketData).isNotDone();
+    }
+
+    @Test
+    void cancelledWaiterReleasesItsPlace() throws Exception {
+        assertThat(acquire(ExchangeRateLimiter.Priority.PROTECTIVE, WEIGHT_PER_MINUTE)).isDone();
+
+        // Большой запрос во главе очереди ждал бы ~30 с и держал бы следующий за ним
+        Disposable large = rateLimiter.acquire(EXCHANGE, ExchangeRateLimiter.Priority.PROTECTIVE, 30, 0).subscribe();
+        CompletableFuture<Void> small = acquire(ExchangeRateLimiter.Priority.PROTECTIVE, 1);
+        large.dispose();
+
+        small.get(3, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void timesOutWithRateLimitExceeded() {
+        ReflectionTestUtils.setField(rateLimiter, "maxWaitMs", 200L);
+        assertThat(acquire(ExchangeRateLimiter.Priority.PROTECTIVE, WEIGHT_PER_MINUTE)).isDone();
+
+        Throwable error = catchThrowable(() -> acquire(ExchangeRateLimiter.Priority.ENTRY, 1).get(3, TimeUnit.SECONDS));
+
+        assertThat(error).isInstanceOf(ExecutionException.class);
+        assertThat(error.getCause()).isInstanceOf(ExchangeApiException.class);
+        assertThat(((ExchangeApiException) error.getCause()).getErrorType())
+                .isEqualTo(ExchangeApiException.ApiErrorType.RATE_LIMIT_EXCEEDED);
+    }
+
+    @Test
+    void pausesAfterRateLimitResponse() throws Exception {
+        rateLimiter.onRateLimited(EXCHANGE, 300);
+        assertThat(rateLimiter.getHeadroom(EXCHANGE)).isZero();
+
+        long started = System.nanoTime();
+        CompletableFuture<Void> protective = acquire(ExchangeRateLimiter.Priority.PROTECTIVE, 1);
+        assertThat(protective).isNotDone();
+
+        protective.get(3, TimeUnit.SECONDS);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isGreaterThanOrEqualTo(250L);
+        assertThat(rateLimiter.getHeadroom(EXCHANGE)).isGreaterThan(0.9);
+    }
+
+    private CompletableFuture<Void> acquire(ExchangeRateLimiter.Priority priority, int weight) {
+        return rateLimiter.acquire(EXCHANGE, priority, weight, 0).toFuture();
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.scalpingBot.service.exchange;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Проверка общих запросов RequestCoalescer: совместный запрос, окно свежести,
+ * ошибки и зависшие запросы
+ */
+class RequestCoalescerTest {
+
+    private static final String EXCHANGE = "binance";
+    private static final String SYMBOL = "BTCUSDT";
+
+    private RequestCoalescer coalescer;
+    private AtomicInteger upstreamCalls;
+
+    @BeforeEach
+    void setUp() {
+        coalescer = new RequestCoalescer(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        ReflectionTestUtils.setField(coalescer, "tickerFreshnessMs", 100L);
+        ReflectionTestUtils.setField(coalescer, "depthFreshnessMs", 0L);
+        ReflectionTestUtils.setField(coalescer, "klinesFreshnessMs", 0L);
+        ReflectionTestUtils.setField(coalescer, "inFlightTimeoutMs", 20_000L);
+        coalescer.init();
+        upstreamCalls = new AtomicInteger();
+    }
+
+    @Test
+    void concurrentCallersShareOneUpstreamCall() throws Exception {
+        Sinks.One<String> response = Sinks.one();
+
+        CompletableFuture<String> first = depth(counted(response::asMono));
+        CompletableFuture<String> second = depth(counted(response::asMono));
+        CompletableFuture<String> third = depth(counted(response::asMono));
+        assertThat(first).isNotDone();
+
+        response.tryEmitValue("book");
+
+        assertThat(first.get(1, TimeUnit.SECONDS)).isEqualTo("book");
+        assertThat(second.get(1, TimeUnit.SECONDS)).isEqualTo("book");
+        assertThat(third.get(1, TimeUnit.SECONDS)).isEqualTo("book");
+        assertThat(upstreamCalls).hasValue(1);
+
+        // Окно свежести стакана нулевое - следующий вызов идет на биржу
+        depth(counted(() -> Mono.just("next"))).get(1, TimeUnit.SECONDS);
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void reusesResultWithinFreshnessWindow() throws Exception {
+        assertThat(ticker(counted(() -> Mono.just("first"))).get(1, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(ticker(counted(() -> Mono.just("second"))).get(1, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(upstreamCalls).hasValue(1);
+
+        Thread.sleep(150);
+
+        assertThat(ticker(counted(() -> Mono.just("third"))).get(1, TimeUnit.SECONDS)).isEqualTo("third");
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void errorReachesAllCallersAndIsNotCached() throws Exception {
+        Sinks.One<String> response = Sinks.one();
+
+        CompletableFuture<String> first = ticker(counted(response::asMono));
+        CompletableFuture<String> second = ticker(counted(response::asMono));
+
+        response.tryEmitError(new IllegalStateException("exchange down"));
+
+        for (CompletableFuture<String> caller : List.of(first, second)) {
+            Throwable error = catchThrowable(() -> caller.get(1, TimeUnit.SECONDS));
+            assertThat(error).isInstanceOf(ExecutionException.class);
+            assertThat(error.getCause()).hasMessage("exchange down");
+        }
+        assertThat(upstreamCalls).hasValue(1);
+
+        assertThat(ticker(counted(() -> Mono.just("recovered"))).get(1, TimeUnit.SECONDS)).isEqualTo("recovered");
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void replacesAndEvictsStaleInFlightRequest() throws Exception {
+        ReflectionTestUtils.setField(coalescer, "inFlightTimeoutMs", 50L);
+
+        // Ответ на первый запрос так и не приходит
+        CompletableFuture<String> hung = depth(counted(Mono::never));
+        Thread.sleep(100);
+
+        assertThat(depth(counted(() -> Mono.just("book"))).get(1, TimeUnit.SECONDS)).isEqualTo("book");
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(hung).isNotDone();
+
+        depth(counted(Mono::never));
+        assertThat(flights()).hasSize(1);
+        Thread.sleep(100);
+
+        coalescer.evictExpired();
+        assertThat(flights()).isEmpty();
+    }
+
+    @Test
+    void cancelledRequestIsNotShared() {
+        Sinks.One<String> response = Sinks.one();
+
+        coalescer.depth(EXCHANGE, SYMBOL, 100, counted(response::asMono)).subscribe().dispose();
+
+        depth(counted(() -> Mono.just("book")));
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    private CompletableFuture<String> ticker(Supplier<Mono<String>> request) {
+        return coalescer.ticker(EXCHANGE, SYMBOL, request).toFuture();
+    }
+
+    private CompletableFuture<String> depth(Supplier<Mono<String>> request) {
+        return coalescer.depth(EXCHANGE, SYMBOL, 100, request).toFuture();
+    }
+
+    private Supplier<Mono<String>> counted(Supplier<Mono<String>> request) {
+        return () -> {
+            upstreamCalls.incrementAndGet();
+            return request.get();
+        };
+    }
+
+    private Map<?, ?> flights() {
+        return (Map<?, ?>) ReflectionTestUtils.getField(coalescer, "flights");
+    }
+}
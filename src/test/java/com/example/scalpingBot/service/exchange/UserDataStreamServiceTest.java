@@ -0,0 +1,62 @@
+package com.example.scalpingBot.service.exchange;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверка балансов потока пользовательских данных: снимок REST при подключении
+ * и приоритет более поздних событий потока
+ */
+class UserDataStreamServiceTest {
+
+    private ExchangeApiService exchangeApiService;
+    private UserDataStreamService userDataStreamService;
+
+    @BeforeEach
+    void setUp() {
+        exchangeApiService = mock(ExchangeApiService.class);
+        userDataStreamService = new UserDataStreamService(exchangeApiService, new ObjectMapper(),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(userDataStreamService, "binanceEnabled", false);
+        userDataStreamService.init();
+    }
+
+    @Test
+    void seedsBalancesFromAccountSnapshot() {
+        assertThat(userDataStreamService.getFreeBalance("USDT")).isNull();
+
+        when(exchangeApiService.getAccount("binance")).thenReturn(account(1000L, "250.50"));
+        ReflectionTestUtils.invokeMethod(userDataStreamService, "loadBalances");
+
+        assertThat(userDataStreamService.getFreeBalance("USDT")).isEqualByComparingTo("250.50");
+        assertThat(userDataStreamService.getBalance("usdt").getLocked()).isEqualByComparingTo("10");
+    }
+
+    @Test
+    void snapshotDoesNotOverwriteNewerStreamEvent() {
+        ReflectionTestUtils.invokeMethod(userDataStreamService, "handleStreamMessage",
+                "{\"e\":\"outboundAccountPosition\",\"E\":2000,\"u\":2000,"
+                        + "\"B\":[{\"a\":\"USDT\",\"f\":\"180\",\"l\":\"0\"}]}");
+
+        when(exchangeApiService.getAccount("binance")).thenReturn(account(1000L, "250.50"));
+        ReflectionTestUtils.invokeMethod(userDataStreamService, "loadBalances");
+
+        assertThat(userDataStreamService.getFreeBalance("USDT")).isEqualByComparingTo("180");
+    }
+
+    private static Map<String, Object> account(long updateTime, String free) {
+        return Map.of(
+                "updateTime", updateTime,
+                "balances", List.of(Map.of("asset", "USDT", "free", free, "locked", "10")));
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.scalpingBot.service.market;
+
+import com.example.scalpingBot.config.TradingConfig;
+import com.example.scalpingBot.entity.MarketData;
+import com.example.scalpingBot.service.analysis.IndicatorEngine;
+import com.example.scalpingBot.service.exchange.ExchangeApiService;
+import com.example.scalpingBot.service.exchange.ExchangeResponses;
+import com.example.scalpingBot.service.history.KlineArchive;
+import com.example.scalpingBot.utils.DateUtils;
+import com.example.scalpingBot.utils.FixedPointUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверка качества рыночных данных, полученных опросом REST при недоступном потоке,
+ * и загрузки истории свечей после ошибок и обрывов потока
+ */
+class MarketDataServiceTest {
+
+    private static final String SYMBOL = "BTCUSDT";
+    private static final String BINANCE = "binance";
+
+    private ExchangeApiService exchangeApiService;
+    private MarketDataService marketDataService;
+
+    @BeforeEach
+    void setUp() {
+        exchangeApiService = mock(ExchangeApiService.class);
+
+        TradingConfig tradingConfig = new TradingConfig();
+        tradingConfig.setTradingPairs(List.of(SYMBOL));
+
+        CandleStore candleStore = mock(CandleStore.class);
+        when(candleStore.getBuffer(SYMBOL, "1m")).thenReturn(new CandleRingBuffer(64));
+
+        marketDataService = new MarketDataService(tradingConfig, new ObjectMapper(), candleStore,
+                exchangeApiService, mock(IndicatorEngine.class), mock(CandleAggregator.class),
+                mock(KlineArchive.class), mock(OrderBookService.class), mock(MarketDataWriter.class));
+        ReflectionTestUtils.setField(marketDataService, "klineInterval", "1m");
+        ReflectionTestUtils.setField(marketDataService, "staleAfterSeconds", 5);
+        ReflectionTestUtils.setField(marketDataService, "pollingEnabled", true);
+        ReflectionTestUtils.setField(marketDataService, "backfillRetrySeconds", 3600);
+
+        // Поток не запускается - пары регистрируются, а данные приходят только опросом
+        ReflectionTestUtils.setField(marketDataService, "binanceEnabled", false);
+        marketDataService.init();
+        ReflectionTestUtils.setField(marketDataService, "binanceEnabled", true);
+    }
+
+    @Test
+    void polledPairPassesQualityGate() {
+        long now = DateUtils.currentTimestampMs();
+        when(exchangeApiService.getTickersAsync(any(), anyString())).thenReturn(Mono.just(List.of(ticker(now))));
+        when(exchangeApiService.getBookTickersAsync(any(), anyString())).thenReturn(Mono.just(List.of(bookTicker())));
+
+        marketDataService.pollWhileStreamDown();
+
+        MarketData marketData = marketDataService.getCurrentMarketData(SYMBOL, BINANCE);
+        assertThat(marketData).isNotNull();
+        assertThat(marketData.getClosePrice()).isEqualByComparingTo("30000");
+        assertThat(marketData.isHighQualityData()).isTrue();
+    }
+
+    @Test
+    void stalePolledTickerFailsQualityGate() {
+        long stale = DateUtils.currentTimestampMs() - 60_000;
+        when(exchangeApiService.getTickersAsync(any(), anyString())).thenReturn(Mono.just(List.of(ticker(stale))));
+        when(exchangeApiService.getBookTickersAsync(any(), anyString())).thenReturn(Mono.just(List.of(bookTicker())));
+
+        marketDataService.pollWhileStreamDown();
+
+        MarketData marketData = marketDataService.getCurrentMarketData(SYMBOL, BINANCE);
+        assertThat(marketData.isHighQualityData()).isFalse();
+    }
+
+    @Test
+    void failedBackfillDropsBufferedCandlesUntilRetrySucceeds() throws Exception {
+        Object state = pairState();
+        streamClosedCandle(60_000);
+        assertThat(pendingCandles(state)).hasSize(1);
+
+        when(exchangeApiService.getKlines(anyString(), anyString(), anyInt(), anyString()))
+                .thenThrow(new IllegalStateException("exchange down"))
+                .thenReturn(null);
+        ReflectionTestUtils.invokeMethod(marketDataService, "backfillPair", state);
+
+        assertThat(pendingCandles(state)).isEmpty();
+        assertThat(ReflectionTestUtils.getField(state, "backfilled")).isEqualTo(false);
+        assertThat(ReflectionTestUtils.getField(state, "backfillRetryScheduled")).isEqualTo(true);
+
+        ReflectionTestUtils.invokeMethod(marketDataService, "retryBackfill", state);
+
+        assertThat(ReflectionTestUtils.getField(state, "backfilled")).isEqualTo(true);
+        assertThat(ReflectionTestUtils.getField(state, "backfillRetryScheduled")).isEqualTo(false);
+    }
+
+    @Test
+    void streamDropRequiresNewBackfill() throws Exception {
+        Object state = pairState();
+        ReflectionTestUtils.invokeMethod(marketDataService, "backfillPair", state);
+        assertThat(ReflectionTestUtils.getField(state, "backfilled")).isEqualTo(true);
+
+        ReflectionTestUtils.invokeMethod(marketDataService, "resetBackfill");
+
+        // Свечи новой сессии откладываются до загрузки пропуска через REST
+        assertThat(ReflectionTestUtils.getField(state, "backfilled")).isEqualTo(false);
+        streamClosedCandle(120_000);
+        assertThat(pendingCandles(state)).hasSize(1);
+
+        ReflectionTestUtils.invokeMethod(marketDataService, "backfillPair", state);
+        assertThat(ReflectionTestUtils.getField(state, "backfilled")).isEqualTo(true);
+        assertThat(pendingCandles(state)).isEmpty();
+    }
+
+    private Object pairState() {
+        return ((Map<?, ?>) ReflectionTestUtils.getField(marketDataService, "marketStates")).get(SYMBOL);
+    }
+
+    private static List<?> pendingCandles(Object state) {
+        return (List<?>) ReflectionTestUtils.getField(state, "pendingCandles");
+    }
+
+    private void streamClosedCandle(long openTime) throws Exception {
+        ReflectionTestUtils.invokeMethod(marketDataService, "appendClosedCandle", pairState(),
+                new ObjectMapper().readTree("{\"t\":" + openTime + ",\"o\":\"30000\",\"h\":\"30010\","
+                        + "\"l\":\"29990\",\"c\":\"30005\",\"v\":\"12.5\",\"q\":\"375000\",\"n\":42}"));
+    }
+
+    private static ExchangeResponses.TickerSnapshot ticker(long closeTime) {
+        ExchangeResponses.TickerSnapshot ticker = new ExchangeResponses.TickerSnapshot();
+        ticker.setSymbol(SYMBOL);
+        ticker.setLastPrice(FixedPointUtils.fromDouble(30000.0));
+        ticker.setWeightedAvgPrice(FixedPointUtils.fromDouble(29900.0));
+        ticker.setVolume(FixedPointUtils.fromDouble(20000.0));
+        ticker.setQuoteVolume(FixedPointUtils.fromDouble(600_000_000.0));
+        ticker.setCloseTime(closeTime);
+        return ticker;
+    }
+
+    private static ExchangeResponses.BookTickerSnapshot bookTicker() {
+        ExchangeResponses.BookTickerSnapshot bookTicker = new ExchangeResponses.BookTickerSnapshot();
+        bookTicker.setSymbol(SYMBOL);
+        bookTicker.setBidPrice(FixedPointUtils.fromDouble(29999.0));
+        bookTicker.setBidQuantity(FixedPointUtils.fromDouble(1.5));
+        bookTicker.setAskPrice(FixedPointUtils.fromDouble(30001.0));
+        bookTicker.setAskQuantity(FixedPointUtils.fromDouble(2.0));
+        return bookTicker;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.scalpingBot.service.market;
+
+import com.example.scalpingBot.config.TradingConfig;
+import com.example.scalpingBot.service.exchange.BinanceResponseDecoder;
+import com.example.scalpingBot.service.exchange.ExchangeApiService;
+import com.example.scalpingBot.service.exchange.ExchangeResponses;
+import com.example.scalpingBot.utils.FixedPointUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверка синхронизации локального стакана по REST снимку и diff-потоку глубины
+ */
+class OrderBookServiceTest {
+
+    private static final String SYMBOL = "BTCUSDT";
+    private static final long SNAPSHOT_UPDATE_ID = 100;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ExchangeApiService exchangeApiService;
+    private OrderBookService orderBookService;
+
+    /**
+     * Загрузка снимка ждет, пока тест не разрешит ее вернуть ответ
+     */
+    private volatile CountDownLatch snapshotRelease;
+    private volatile ExchangeResponses.DepthSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        exchangeApiService = mock(ExchangeApiService.class);
+        snapshotRelease = new CountDownLatch(1);
+        snapshot = snapshot(SNAPSHOT_UPDATE_ID);
+
+        when(exchangeApiService.getOrderBook(anyString(), anyString(), anyInt())).thenAnswer(invocation -> {
+            snapshotRelease.await(5, TimeUnit.SECONDS);
+            return snapshot;
+        });
+
+        TradingConfig tradingConfig = new TradingConfig();
+        tradingConfig.setTradingPairs(List.of(SYMBOL));
+
+        orderBookService = new OrderBookService(tradingConfig, exchangeApiService);
+        ReflectionTestUtils.setField(orderBookService, "enabled", true);
+        ReflectionTestUtils.setField(orderBookService, "maxLevels", 100);
+        ReflectionTestUtils.setField(orderBookService, "snapshotLimit", 100);
+        ReflectionTestUtils.setField(orderBookService, "maxBufferedEvents", 100);
+        orderBookService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderBookService.shutdown();
+    }
+
+    @Test
+    void buffersEventsUntilSnapshotIsLoaded() throws Exception {
+        // Событие до снимка целиком устарело, второе покрывает lastUpdateId + 1
+        orderBookService.onDepthUpdate(SYMBOL, depthEvent(95, 99, "[[\"100.00\",\"5.0\"]]", "[]"));
+        orderBookService.onDepthUpdate(SYMBOL, depthEvent(99, 102, "[[\"100.00\",\"3.0\"]]", "[]"));
+        orderBookService.onDepthUpdate(SYMBOL, depthEvent(103, 105, "[]", "[[\"101.00\",\"0\"]]"));
+
+        assertThat(orderBookService.isSynced(SYMBOL)).isFalse();
+        assertThat(orderBookService.getOrderBook(SYMBOL)).isNull();
+
+        snapshotRelease.countDown();
+        awaitSynced();
+
+        LocalOrderBook.Top top = readTop();
+        assertThat(top.lastUpdateId).isEqualTo(105L);
+        assertThat(top.bidPrice).isEqualTo(FixedPointUtils.parse("100.00"));
+        assertThat(top.bidQuantity).isEqualTo(FixedPointUtils.parse("3.0"));
+        // Уровень 101.00 удален событием с нулевым количеством
+        assertThat(top.askPrice).isEqualTo(FixedPointUtils.parse("102.00"));
+    }
+
+    @Test
+    void dropsEventsNotNewerThanLastUpdateId() throws Exception {
+        syncWithEvents(depthEvent(99, 102, "[]", "[]"));
+
+        orderBookService.onDepthUpdate(SYMBOL, depthEvent(101, 102, "[[\"100.00\",\"9.0\"]]", "[]"));
+        orderBookService.onDepthUpdate(SYMBOL, depthEvent(90, 95, "[[\"100.00\",\"8.0\"]]", "[]"));
+
+        LocalOrderBook.Top top = readTop();
+        assertThat(orderBookService.isSynced(SYMBOL)).isTrue();
+        assertThat(top.lastUpdateId).isEqualTo(102L);
+        assertThat(top.bidQuantity).isEqualTo(FixedPointUtils.parse("1.0"));
+        assertThat(orderBookService.getResyncCount()).isZero();
+    }
+
+    @Test
+    void acceptsFirstLiveEventSpanningSnapshot() throws Exception {
+        // В буфере только устаревшее событие - первое живое событие может начинаться раньше lastUpdateId + 1
+        syncWithEvents(depthEvent(90, 98, "[]", "[]"));
+        assertThat(readTop().lastUpdateId).isEqualTo(SNAPSHOT_UPDATE_ID);
+
+        orderBookService.onDepthUpdate(SYMBOL, depthEvent(97, 104, "[[\"100.50\",\"1.5\"]]", "[]"));
+        orderBookService.onDepthUpdate(SYMBOL, depthEvent(105, 106, "[]", "[[\"100.80\",\"0.5\"]]"));
+
+        LocalOrderBook.Top top = readTop();
+        assertThat(top.lastUpdateId).isEqualTo(106L);
+        assertThat(top.bidPrice).isEqualTo(FixedPointUtils.parse("100.50"));
+        assertThat(top.askPrice).isEqualTo(FixedPointUtils.parse("100.80"));
+        assertThat(orderBookService.getResyncCount()).isZero();
+    }
+
+    @Test
+    void resyncsOnSequenceGap() throws Exception {
+        syncWithEvents(depthEvent(99, 102, "[]", "[]"));
+        snapshotRelease = new CountDownLatch(1);
+        snapshot = snapshot(111);
+
+        // Ожидается U = 103 - стакан сбрасывается, событие буферизуется до нового снимка
+        orderBookService.onDepthUpdate(SYMBOL, depthEvent(110, 112, "[[\"100.00\",\"4.0\"]]", "[]"));
+
+        assertThat(orderBookService.isSynced(SYMBOL)).isFalse();
+        assertThat(orderBookService.getOrderBook(SYMBOL)).isNull();
+        assertThat(orderBookService.getResyncCount()).isEqualTo(1L);
+
+        snapshotRelease.countDown();
+        awaitSynced();
+
+        verify(exchangeApiService, times(2)).getOrderBook(anyString(), anyString(), anyInt());
+        LocalOrderBook.Top top = readTop();
+        assertThat(top.lastUpdateId).isEqualTo(112L);
+        assertThat(top.bidQuantity).isEqualTo(FixedPointUtils.parse("4.0"));
+    }
+
+    private void syncWithEvents(JsonNode... events) throws Exception {
+        for (JsonNode event : events) {
+            orderBookService.onDepthUpdate(SYMBOL, event);
+        }
+        snapshotRelease.countDown();
+        awaitSynced();
+    }
+
+    private void awaitSynced() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!orderBookService.isSynced(SYMBOL) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(orderBookService.isSynced(SYMBOL)).isTrue();
+    }
+
+    private LocalOrderBook.Top readTop() {
+        LocalOrderBook.Top top = new LocalOrderBook.Top();
+        assertThat(orderBookService.getOrderBook(SYMBOL).readTop(top)).isTrue();
+        return top;
+    }
+
+    private static ExchangeResponses.DepthSnapshot snapshot(long lastUpdateId) throws Exception {
+        return BinanceResponseDecoder.decodeDepth(
+                ("{\"lastUpdateId\":" + lastUpdateId + ","
+                        + "\"bids\":[[\"100.00\",\"1.0\"],[\"99.00\",\"2.0\"]],"
+                        + "\"asks\":[[\"101.00\",\"1.0\"],[\"102.00\",\"2.0\"]]}")
+                        .getBytes(StandardCharsets.UTF_8));
+    }
+
+    private JsonNode depthEvent(long firstUpdateId, long finalUpdateId, String bids, String asks) throws Exception {
+        return objectMapper.readTree("{\"e\":\"depthUpdate\",\"E\":1700000000000,\"s\":\"" + SYMBOL + "\","
+                + "\"U\":" + firstUpdateId + ",\"u\":" + finalUpdateId + ","
+                + "\"b\":" + bids + ",\"a\":" + asks + "}");
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.scalpingBot.service.risk;
+
+import com.example.scalpingBot.entity.Position;
+import com.example.scalpingBot.enums.OrderSide;
+import com.example.scalpingBot.enums.TradingPairType;
+import com.example.scalpingBot.repository.PositionRepository;
+import com.example.scalpingBot.service.market.MarketDataService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Проверка резервирования входов в риск-книге
+ */
+class RiskBookTest {
+
+    private RiskBook riskBook;
+
+    @BeforeEach
+    void setUp() {
+        riskBook = new RiskBook(mock(PositionRepository.class), mock(MarketDataService.class));
+    }
+
+    @Test
+    void reservationCountsAsOpenPositionUntilReleased() {
+        assertThat(riskBook.reserve("BTCUSDT", OrderSide.BUY, 1000.0)).isTrue();
+        assertThat(riskBook.reserve("ETHUSDT", OrderSide.SELL, 400.0)).isTrue();
+
+        RiskSnapshot risk = riskBook.getSnapshot();
+        assertThat(risk.getOpenPositions()).isEqualTo(2);
+        assertThat(risk.hasPosition("BTCUSDT")).isTrue();
+        assertThat(risk.getLongExposure()).isCloseTo(1000.0, within(1e-9));
+        assertThat(risk.getShortExposure()).isCloseTo(400.0, within(1e-9));
+
+        riskBook.release("BTCUSDT");
+        riskBook.release("ETHUSDT");
+
+        risk = riskBook.getSnapshot();
+        assertThat(risk.getOpenPositions()).isZero();
+        assertThat(risk.getTotalExposure()).isCloseTo(0.0, within(1e-9));
+    }
+
+    @Test
+    void rejectsSecondEntryForSamePair() {
+        assertThat(riskBook.reserve("BTCUSDT", OrderSide.BUY, 1000.0)).isTrue();
+        assertThat(riskBook.reserve("BTCUSDT", OrderSide.SELL, 1000.0)).isFalse();
+
+        riskBook.release("BTCUSDT");
+        riskBook.onPositionChanged(position("BTCUSDT", 600.0));
+
+        assertThat(riskBook.reserve("BTCUSDT", OrderSide.BUY, 1000.0)).isFalse();
+    }
+
+    @Test
+    void filledPositionReplacesReservation() {
+        riskBook.reserve("BTCUSDT", OrderSide.BUY, 1000.0);
+
+        // Исполнена первая часть входа - учитывается позиция, а не резерв
+        riskBook.onPositionChanged(position("BTCUSDT", 600.0));
+        RiskSnapshot risk = riskBook.getSnapshot();
+        assertThat(risk.getOpenPositions()).isEqualTo(1);
+        assertThat(risk.getLongExposure()).isCloseTo(600.0, within(1e-9));
+
+        riskBook.release("BTCUSDT");
+        risk = riskBook.getSnapshot();
+        assertThat(risk.getOpenPositions()).isEqualTo(1);
+        assertThat(risk.getLongExposure()).isCloseTo(600.0, within(1e-9));
+    }
+
+    @Test
+    void priceTicksArePublishedCoalesced() {
+        riskBook.onPositionChanged(position("BTCUSDT", 600.0));
+        RiskSnapshot opened = riskBook.getSnapshot();
+
+        riskBook.onPriceTick("BTCUSDT", 610.0);
+        riskBook.onPriceTick("BTCUSDT", 620.0);
+        riskBook.onPriceTick("ETHUSDT", 100.0);
+
+        // Тики не пересобирают срез - до публикации виден прежний
+        assertThat(riskBook.getSnapshot()).isSameAs(opened);
+
+        riskBook.publishMarks();
+        RiskSnapshot marked = riskBook.getSnapshot();
+        assertThat(marked.getUnrealizedPnl()).isCloseTo(20.0, within(1e-9));
+
+        // Без новых тиков повторная публикация не нужна
+        riskBook.publishMarks();
+        assertThat(riskBook.getSnapshot()).isSameAs(marked);
+    }
+
+    private static Position position(String tradingPair, double entryValue) {
+        return Position.builder()
+                .tradingPair(tradingPair)
+                .pairType(TradingPairType.fromPairName(tradingPair))
+                .side(OrderSide.BUY)
+                .isActive(true)
+                .size(BigDecimal.ONE)
+                .entryPrice(BigDecimal.valueOf(entryValue))
+                .entryValue(BigDecimal.valueOf(entryValue))
+                .build();
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.scalpingBot.service.trading;
+
+import com.example.scalpingBot.entity.Trade;
+import com.example.scalpingBot.enums.OrderSide;
+import com.example.scalpingBot.enums.OrderStatus;
+import com.example.scalpingBot.enums.OrderType;
+import com.example.scalpingBot.repository.TradeRepository;
+import com.example.scalpingBot.service.exchange.BybitStreamService;
+import com.example.scalpingBot.service.exchange.ExchangeApiService;
+import com.example.scalpingBot.service.exchange.ExchangeRateLimiter;
+import com.example.scalpingBot.service.exchange.ExchangeResponses;
+import com.example.scalpingBot.service.exchange.ExecutionReportListener;
+import com.example.scalpingBot.service.exchange.UserDataStreamService;
+import com.example.scalpingBot.service.notification.NotificationService;
+import com.example.scalpingBot.utils.DateUtils;
+import com.example.scalpingBot.utils.FixedPointUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверка порядка регистрации ордера и отчетов потока пользовательских данных
+ *
+ * Отчет может прийти раньше ответа REST на размещение - он должен быть
+ * применен при любом порядке регистрации и обработки отчета. Ордер, принятый
+ * биржей без исполнения (Bybit), завершается отчетом потока или статусом ордера.
+ */
+class OrderExecutionServiceTest {
+
+    private TradeRepository tradeRepository;
+    private ExchangeApiService exchangeApiService;
+    private OrderExecutionService orderExecutionService;
+    private ExecutionReportListener listener;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        tradeRepository = mock(TradeRepository.class);
+        when(tradeRepository.save(any(Trade.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        exchangeApiService = mock(ExchangeApiService.class);
+        UserDataStreamService userDataStreamService = mock(UserDataStreamService.class);
+        orderExecutionService = new OrderExecutionService(tradeRepository, exchangeApiService,
+                mock(NotificationService.class), mock(LatencyTracer.class), mock(OrderRouter.class),
+                userDataStreamService, mock(BybitStreamService.class));
+        orderExecutionService.init();
+
+        ArgumentCaptor<ExecutionReportListener> captor = ArgumentCaptor.forClass(ExecutionReportListener.class);
+        verify(userDataStreamService).subscribeExecutionReports(captor.capture());
+        listener = captor.getValue();
+
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void appliesReportReceivedBeforeRegistration() throws Exception {
+        Trade trade = trade(1);
+
+        listener.onExecutionReport(filledReport(trade));
+        register(trade);
+
+        awaitFilled(List.of(trade));
+        assertThat(trade.getExecutedQuantity()).isEqualByComparingTo("0.5");
+        assertThat(trade.getAvgPrice()).isEqualByComparingTo("30000");
+    }
+
+    @Test
+    void appliesReportReceivedAfterRegistration() throws Exception {
+        Trade trade = trade(1);
+
+        register(trade);
+        listener.onExecutionReport(filledReport(trade));
+
+        awaitFilled(List.of(trade));
+    }
+
+    @Test
+    void appliesReportRacingRegistration() throws Exception {
+        List<Trade> trades = new ArrayList<>();
+        for (int i = 1; i <= 500; i++) {
+            Trade trade = trade(i);
+            trades.add(trade);
+
+            // Отчет и регистрация стартуют одновременно из разных потоков
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(2);
+            executor.execute(() -> {
+                awaitQuietly(start);
+                listener.onExecutionReport(filledReport(trade));
+                done.countDown();
+            });
+            executor.execute(() -> {
+                awaitQuietly(start);
+                register(trade);
+                done.countDown();
+            });
+            start.countDown();
+            assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        awaitFilled(trades);
+    }
+
+    @Test
+    void acknowledgedOrderCompletesOnExecutionReport() throws Exception {
+        when(exchangeApiService.placeMarketOrderAsync(anyString(), anyString(), any(BigDecimal.class), anyString(),
+                any(ExchangeRateLimiter.Priority.class))).thenReturn(Mono.just(orderResponse("2001", "NEW", 0, 0)));
+        Trade trade = trade(1);
+        trade.setExchangeOrderId(null);
+        trade.setExchangeName("bybit");
+        trade.setPrice(new BigDecimal("30000"));
+        trade.setCreatedAt(DateUtils.nowMoscow());
+
+        CompletableFuture<Trade> execution = orderExecutionService.executeOrder(trade);
+
+        // Ответ на размещение - только подтверждение приема
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline && trade.getExchangeOrderId() == null) {
+            Thread.sleep(5);
+        }
+        assertThat(trade.getExchangeOrderId()).isEqualTo("2001");
+        assertThat(execution).isNotDone();
+
+        listener.onExecutionReport(filledReport(trade));
+
+        Trade completed = execution.get(5, TimeUnit.SECONDS);
+        assertThat(completed.getStatus()).isEqualTo(OrderStatus.FILLED);
+        assertThat(completed.getExecutedQuantity()).isEqualByComparingTo("0.5");
+    }
+
+    @Test
+    void cancelKeepsFillReportedByOrderStatus() throws Exception {
+        Trade trade = trade(1);
+        trade.setExchangeName("bybit");
+        register(trade);
+
+        // Bybit подтверждает только прием отмены, ордер успел частично исполниться
+        when(exchangeApiService.cancelOrder(eq("BTCUSDT"), eq("1001"), eq("bybit")))
+                .thenReturn(orderResponse("1001", "PENDING_CANCEL", 0, 0));
+        when(exchangeApiService.getOrderStatus(eq("BTCUSDT"), eq("1001"), eq("bybit")))
+                .thenReturn(orderResponse("1001", "CANCELED", 0.2, 6000));
+
+        Trade cancelled = orderExecutionService.cancelOrder(trade).get(5, TimeUnit.SECONDS);
+
+        assertThat(cancelled.getStatus()).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(cancelled.getExecutedQuantity()).isEqualByComparingTo("0.2");
+        assertThat(cancelled.getAvgPrice()).isEqualByComparingTo("30000");
+    }
+
+    @Test
+    void acceptedCancelLeavesOrderActiveUntilFinalStatus() throws Exception {
+        Trade trade = trade(1);
+        trade.setExchangeName("bybit");
+        register(trade);
+
+        when(exchangeApiService.cancelOrder(eq("BTCUSDT"), eq("1001"), eq("bybit")))
+                .thenReturn(orderResponse("1001", "PENDING_CANCEL", 0, 0));
+        when(exchangeApiService.getOrderStatus(eq("BTCUSDT"), eq("1001"), eq("bybit")))
+                .thenReturn(orderResponse("1001", "NEW", 0, 0));
+
+        Trade pending = orderExecutionService.cancelOrder(trade).get(5, TimeUnit.SECONDS);
+        assertThat(pending.isCompleted()).isFalse();
+
+        // Исполнение до отмены приходит потоком
+        listener.onExecutionReport(filledReport(trade));
+        awaitFilled(List.of(trade));
+    }
+
+    private void register(Trade trade) {
+        ReflectionTestUtils.invokeMethod(orderExecutionService, "registerActiveOrder", trade);
+    }
+
+    private static void awaitFilled(List<Trade> trades) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline && trades.stream().anyMatch(t -> !isFilled(t))) {
+            Thread.sleep(5);
+        }
+        for (Trade trade : trades) {
+            assertThat(isFilled(trade)).isTrue();
+        }
+    }
+
+    private static boolean isFilled(Trade trade) {
+        synchronized (trade) {
+            return trade.getStatus() == OrderStatus.FILLED;
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Trade trade(long id) {
+        return Trade.builder()
+                .id(id)
+                .tradingPair("BTCUSDT")
+                .orderType(OrderType.MARKET)
+                .orderSide(OrderSide.BUY)
+                .quantity(new BigDecimal("0.5"))
+                .status(OrderStatus.SUBMITTED)
+                .exchangeName("binance")
+                .exchangeOrderId(String.valueOf(1000 + id))
+                .build();
+    }
+
+    private static ExchangeResponses.OrderResponse orderResponse(String orderId, String status,
+                                                                 double executedQty, double quoteQty) {
+        ExchangeResponses.OrderResponse response = new ExchangeResponses.OrderResponse();
+        response.setSymbol("BTCUSDT");
+        response.setOrderId(orderId);
+        response.setStatus(status);
+        response.setExecutedQty(FixedPointUtils.fromDouble(executedQty));
+        response.setCummulativeQuoteQty(FixedPointUtils.fromDouble(quoteQty));
+        response.setTransactTime(1_700_000_000_000L);
+        return response;
+    }
+
+    private static UserDataStreamService.ExecutionReport filledReport(Trade trade) {
+        return UserDataStreamService.ExecutionReport.builder()
+                .symbol(trade.getTradingPair())
+                .orderId(trade.getExchangeOrderId())
+                .side("BUY")
+                .orderType("MARKET")
+                .executionType("TRADE")
+                .orderStatus("FILLED")
+                .lastExecutedQuantity(new BigDecimal("0.5"))
+                .lastExecutedPrice(new BigDecimal("30000"))
+                .cumulativeQuantity(new BigDecimal("0.5"))
+                .cumulativeQuoteQuantity(new BigDecimal("15000"))
+                .transactionTime(1_700_000_000_000L)
+                .eventTime(System.currentTimeMillis())
+                .build();
+    }
+}
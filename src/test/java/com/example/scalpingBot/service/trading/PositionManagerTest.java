@@ -0,0 +1,95 @@
+package com.example.scalpingBot.service.trading;
+
+import com.example.scalpingBot.config.TradingConfig;
+import com.example.scalpingBot.entity.Position;
+import com.example.scalpingBot.entity.Trade;
+import com.example.scalpingBot.enums.OrderSide;
+import com.example.scalpingBot.enums.OrderStatus;
+import com.example.scalpingBot.repository.PositionRepository;
+import com.example.scalpingBot.service.market.MarketDataService;
+import com.example.scalpingBot.service.notification.NotificationService;
+import com.example.scalpingBot.service.risk.RiskBook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверка книг позиций и риска: изменения применяются только после
+ * фиксации транзакции, при откате позиция перечитывается из БД
+ */
+class PositionManagerTest {
+
+    private PositionBook positionBook;
+    private RiskBook riskBook;
+    private PositionManager positionManager;
+
+    @BeforeEach
+    void setUp() {
+        PositionRepository positionRepository = mock(PositionRepository.class);
+        when(positionRepository.save(any(Position.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        positionBook = mock(PositionBook.class);
+        riskBook = mock(RiskBook.class);
+        positionManager = new PositionManager(positionRepository, new TradingConfig(), mock(MarketDataService.class),
+                mock(NotificationService.class), riskBook, positionBook);
+
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void appliesNewPositionToBooksAfterCommit() {
+        Position position = positionManager.createPositionFromTrade(filledBuy());
+        verify(positionBook, never()).put(any());
+        verify(riskBook, never()).onPositionChanged(any());
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(positionBook).put(position);
+        verify(riskBook).onPositionChanged(position);
+    }
+
+    @Test
+    void reloadsPairFromDatabaseOnRollback() {
+        positionManager.createPositionFromTrade(filledBuy());
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(positionBook, never()).put(any());
+        verify(riskBook, never()).onPositionChanged(any());
+        verify(positionBook).reload("BTCUSDT");
+    }
+
+    private static void complete(int status) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(status);
+        }
+    }
+
+    private static Trade filledBuy() {
+        return Trade.builder()
+                .tradingPair("BTCUSDT")
+                .orderSide(OrderSide.BUY)
+                .quantity(new BigDecimal("0.1"))
+                .executedQuantity(new BigDecimal("0.1"))
+                .avgPrice(new BigDecimal("30000"))
+                .commission(BigDecimal.ZERO)
+                .status(OrderStatus.FILLED)
+                .exchangeName("binance")
+                .build();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.scalpingBot.service.trading;
+
+import com.example.scalpingBot.config.TradingConfig;
+import com.example.scalpingBot.entity.Position;
+import com.example.scalpingBot.entity.Trade;
+import com.example.scalpingBot.enums.OrderSide;
+import com.example.scalpingBot.enums.OrderStatus;
+import com.example.scalpingBot.repository.TradeRepository;
+import com.example.scalpingBot.service.market.MarketDataService;
+import com.example.scalpingBot.service.notification.NotificationService;
+import com.example.scalpingBot.service.risk.RiskBook;
+import com.example.scalpingBot.service.risk.RiskManager;
+import com.example.scalpingBot.service.strategy.TradingStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверка закрытия позиции: пока ордер на закрытие не завершен,
+ * повторное закрытие не отправляется
+ */
+class TradingServiceTest {
+
+    private TradeRepository tradeRepository;
+    private PositionManager positionManager;
+    private OrderExecutionService orderExecutionService;
+    private TradingService tradingService;
+
+    private final List<CompletableFuture<Trade>> closeOrders = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        tradeRepository = mock(TradeRepository.class);
+        when(tradeRepository.save(any(Trade.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        positionManager = mock(PositionManager.class);
+        orderExecutionService = mock(OrderExecutionService.class);
+        when(orderExecutionService.executeOrder(any(Trade.class))).thenAnswer(invocation -> {
+            CompletableFuture<Trade> execution = new CompletableFuture<>();
+            closeOrders.add(execution);
+            return execution;
+        });
+
+        tradingService = new TradingService(new TradingConfig(), tradeRepository, mock(MarketDataService.class),
+                mock(RiskManager.class), mock(RiskBook.class), positionManager, orderExecutionService,
+                mock(NotificationService.class), mock(TradingStrategy.class), mock(PairAnalysisExecutor.class),
+                mock(LatencyTracer.class), mock(OrderRouter.class));
+    }
+
+    @Test
+    void doesNotResendCloseWhileOneIsInFlight() {
+        Position position = position();
+
+        close(position);
+        close(position);
+        assertThat(closeOrders).hasSize(1);
+
+        // Ордер отклонен - позиция снова может закрываться
+        closeOrders.get(0).complete(closeTrade(OrderStatus.REJECTED, null));
+        close(position);
+        assertThat(closeOrders).hasSize(2);
+
+        closeOrders.get(1).complete(closeTrade(OrderStatus.FILLED, new BigDecimal("1")));
+        verify(positionManager).closePosition(eq(position), any(BigDecimal.class), eq("Stop loss"));
+    }
+
+    private void close(Position position) {
+        ReflectionTestUtils.invokeMethod(tradingService, "closePosition", position, "Stop loss");
+    }
+
+    private static Position position() {
+        return Position.builder()
+                .id(7L)
+                .tradingPair("BTCUSDT")
+                .side(OrderSide.BUY)
+                .isActive(true)
+                .size(BigDecimal.ONE)
+                .entryPrice(new BigDecimal("30000"))
+                .exchangeName("bybit")
+                .tradesCount(1)
+                .build();
+    }
+
+    private static Trade closeTrade(OrderStatus status, BigDecimal executedQuantity) {
+        return Trade.builder()
+                .tradingPair("BTCUSDT")
+                .orderSide(OrderSide.SELL)
+                .quantity(BigDecimal.ONE)
+                .executedQuantity(executedQuantity)
+                .avgPrice(executedQuantity != null ? new BigDecimal("30100") : null)
+                .status(status)
+                .exchangeName("bybit")
+                .build();
+    }
+}
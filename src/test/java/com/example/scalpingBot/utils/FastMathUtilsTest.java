@@ -0,0 +1,150 @@
+package com.example.scalpingBot.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Проверка эквивалентности FastMathUtils и BigDecimal версий MathUtils
+ */
+class FastMathUtilsTest {
+
+    private static final int SIZE = 300;
+
+    private double[] closes;
+    private double[] highs;
+    private double[] lows;
+    private double[] equity;
+
+    private List<BigDecimal> closesList;
+    private List<BigDecimal> highsList;
+    private List<BigDecimal> lowsList;
+    private List<BigDecimal> equityList;
+
+    @BeforeEach
+    void setUp() {
+        // Детерминированное случайное блуждание цены около 30000
+        Random random = new Random(42);
+        closes = new double[SIZE];
+        highs = new double[SIZE];
+        lows = new double[SIZE];
+        equity = new double[SIZE];
+
+        double price = 30000.0;
+        double balance = 10000.0;
+        for (int i = 0; i < SIZE; i++) {
+            price += random.nextGaussian() * 25.0;
+            closes[i] = round(price);
+            highs[i] = round(price + random.nextDouble() * 20.0);
+            lows[i] = round(price - random.nextDouble() * 20.0);
+            balance += random.nextGaussian() * 50.0;
+            equity[i] = round(balance);
+        }
+
+        closesList = toList(closes);
+        highsList = toList(highs);
+        lowsList = toList(lows);
+        equityList = toList(equity);
+    }
+
+    @Test
+    void averageAndStandardDeviationMatchBigDecimal() {
+        assertThat(FastMathUtils.average(closes))
+                .isCloseTo(MathUtils.average(closesList).doubleValue(), within(1e-6));
+        assertThat(FastMathUtils.standardDeviation(closes))
+                .isCloseTo(MathUtils.standardDeviation(closesList).doubleValue(), within(1e-4));
+    }
+
+    @Test
+    void minAndMaxMatchBigDecimal() {
+        assertThat(FastMathUtils.min(closes)).isEqualTo(MathUtils.min(closesList).doubleValue());
+        assertThat(FastMathUtils.max(closes)).isEqualTo(MathUtils.max(closesList).doubleValue());
+    }
+
+    @Test
+    void rsiMatchesBigDecimal() {
+        assertThat(FastMathUtils.calculateRSI(closes, 14))
+                .isCloseTo(MathUtils.calculateRSI(closesList, 14).doubleValue(), within(0.01));
+        assertThat(FastMathUtils.calculateRSI(new double[]{1.0, 2.0}, 14)).isEqualTo(50.0);
+    }
+
+    @Test
+    void emaMatchesBigDecimal() {
+        assertThat(FastMathUtils.calculateEMA(closes, 9))
+                .isCloseTo(MathUtils.calculateEMA(closesList, 9).doubleValue(), within(1e-6));
+        assertThat(FastMathUtils.calculateEMA(closes, 21))
+                .isCloseTo(MathUtils.calculateEMA(closesList, 21).doubleValue(), within(1e-6));
+    }
+
+    @Test
+    void bollingerBandsMatchBigDecimal() {
+        double[] fast = FastMathUtils.calculateBollingerBands(closes, 20, 2.0);
+        BigDecimal[] exact = MathUtils.calculateBollingerBands(closesList, 20, new BigDecimal("2.0"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(fast[i]).isCloseTo(exact[i].doubleValue(), within(1e-4));
+        }
+    }
+
+    @Test
+    void macdMatchesBigDecimal() {
+        double[] fast = FastMathUtils.calculateMACD(closes, 12, 26, 9);
+        BigDecimal[] exact = MathUtils.calculateMACD(closesList, 12, 26, 9);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(fast[i]).isCloseTo(exact[i].doubleValue(), within(1e-6));
+        }
+        // Сигнальная линия строится по истории MACD, гистограмма не вырождается в ноль
+        assertThat(fast[2]).isNotZero();
+    }
+
+    @Test
+    void atrMatchesBigDecimal() {
+        assertThat(FastMathUtils.calculateATR(highs, lows, closes, 14))
+                .isCloseTo(MathUtils.calculateATR(highsList, lowsList, closesList, 14).doubleValue(), within(1e-6));
+    }
+
+    @Test
+    void correlationMatchesBigDecimal() {
+        assertThat(FastMathUtils.calculateCorrelation(closes, highs))
+                .isCloseTo(MathUtils.calculateCorrelation(closesList, highsList).doubleValue(), within(1e-4));
+        assertThat(FastMathUtils.calculateCorrelation(closes, equity))
+                .isCloseTo(MathUtils.calculateCorrelation(closesList, equityList).doubleValue(), within(1e-4));
+    }
+
+    @Test
+    void maxDrawdownMatchesBigDecimal() {
+        assertThat(FastMathUtils.calculateMaxDrawdown(equity))
+                .isCloseTo(MathUtils.calculateMaxDrawdown(equityList).doubleValue(), within(0.01));
+    }
+
+    @Test
+    void percentagesMatchBigDecimal() {
+        BigDecimal entry = new BigDecimal("30000.00");
+        BigDecimal current = new BigDecimal("30240.00");
+
+        assertThat(FastMathUtils.calculatePnLPercent(30000.0, 30240.0, -1))
+                .isCloseTo(MathUtils.calculatePnLPercent(entry, current, -1).doubleValue(), within(1e-9));
+        assertThat(FastMathUtils.percentageChange(30000.0, 30240.0))
+                .isCloseTo(MathUtils.percentageChange(entry, current).doubleValue(), within(1e-9));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    private static List<BigDecimal> toList(double[] values) {
+        List<BigDecimal> result = new ArrayList<>(values.length);
+        for (double value : values) {
+            result.add(BigDecimal.valueOf(value));
+        }
+        return result;
+    }
+}
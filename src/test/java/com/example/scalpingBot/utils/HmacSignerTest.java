@@ -0,0 +1,103 @@
+package com.example.scalpingBot.utils;
+
+import org.apache.commons.codec.binary.Hex;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверка эквивалентности HmacSigner и прежней подписи через новый Mac
+ */
+class HmacSignerTest {
+
+    // Пример из документации Binance API (SIGNED endpoint)
+    private static final String SECRET = "NhqPtmdSJYdKjVHjA7PZj4Mge3R5YNiP1e3UZjInClVN65XAbvqqM6A7H5fATj0j";
+    private static final String QUERY = "symbol=LTCBTC&side=BUY&type=LIMIT&timeInForce=GTC"
+            + "&quantity=1&price=0.1&recvWindow=5000&timestamp=1499827319559";
+    private static final String SIGNATURE = "c8db56825ae71d6d79447849e617115f4a920fa2acdcab2b053c4b2838bd6b71";
+
+    @Test
+    void signsBinanceDocumentationExample() {
+        assertThat(new HmacSigner(SECRET).sign(QUERY)).isEqualTo(SIGNATURE);
+        assertThat(CryptoUtils.createBinanceSignature(QUERY, SECRET)).isEqualTo(SIGNATURE);
+    }
+
+    @Test
+    void reusedMacProducesSameSignatures() {
+        HmacSigner signer = HmacSigner.forKey(SECRET);
+        for (int i = 0; i < 100; i++) {
+            String data = QUERY + "&nonce=" + i;
+            assertThat(signer.sign(data)).isEqualTo(reference(data, SECRET));
+        }
+    }
+
+    @Test
+    void signedQueryMatchesSortedQueryWithSignature() {
+        Map<String, String> params = orderParams();
+        String expectedQuery = sortedQuery(params);
+
+        String signed = HmacSigner.forKey(SECRET).buildSignedQuery(params, "signature");
+
+        assertThat(signed).isEqualTo(expectedQuery + "&signature=" + reference(expectedQuery, SECRET));
+        assertThat(params).doesNotContainKey("signature");
+        assertThat(HmacSigner.buildQuery(params)).isEqualTo(expectedQuery);
+    }
+
+    @Test
+    void buffersGrowForLongQueries() {
+        Map<String, String> params = new HashMap<>();
+        for (int i = 0; i < 40; i++) {
+            params.put("param" + i, "value-" + i + "-0123456789abcdef");
+        }
+        String expectedQuery = sortedQuery(params);
+
+        String signed = HmacSigner.forKey(SECRET).buildSignedQuery(params, "signature");
+
+        assertThat(signed).isEqualTo(expectedQuery + "&signature=" + reference(expectedQuery, SECRET));
+    }
+
+    @Test
+    void nonAsciiDataIsSignedAsUtf8() {
+        String data = "note=тест&timestamp=1";
+        assertThat(HmacSigner.forKey(SECRET).sign(data)).isEqualTo(reference(data, SECRET));
+    }
+
+    private static Map<String, String> orderParams() {
+        Map<String, String> params = new HashMap<>();
+        params.put("symbol", "BTCUSDT");
+        params.put("side", "BUY");
+        params.put("type", "MARKET");
+        params.put("quantity", "0.00125000");
+        params.put("recvWindow", "5000");
+        params.put("timestamp", "1700000000000");
+        return params;
+    }
+
+    private static String sortedQuery(Map<String, String> params) {
+        StringBuilder query = new StringBuilder();
+        for (Map.Entry<String, String> entry : new TreeMap<>(params).entrySet()) {
+            if (query.length() > 0) {
+                query.append('&');
+            }
+            query.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return query.toString();
+    }
+
+    private static String reference(String data, String secret) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return Hex.encodeHexString(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}